@@ -2,5 +2,7 @@
 
 DOCKER_TAG=${1:-java-unit-tests-base}
 DOCKER_DEFAULT_PLATFORM=${2:-linux/amd64}
+# Optional Maven base image, e.g. maven:3.9.9-eclipse-temurin-21-alpine to run the Java 21 tests
+MAVEN_IMAGE=${3:-}
 
-docker build --platform $DOCKER_DEFAULT_PLATFORM -t $DOCKER_TAG .
+docker build --platform $DOCKER_DEFAULT_PLATFORM ${MAVEN_IMAGE:+--build-arg MAVEN_IMAGE=$MAVEN_IMAGE} -t $DOCKER_TAG .
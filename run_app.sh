@@ -0,0 +1,11 @@
+#!/bin/sh
+
+# Runs the shaded jar, using the AppCDS archive from `mvn -Pappcds package` when present.
+JAR=target/dockerized-webscraper-1.0.0.jar
+JSA=target/dockerized-webscraper-1.0.0.jsa
+
+if [ -f "$JSA" ]; then
+    exec java -XX:SharedArchiveFile="$JSA" -jar "$JAR" "${@}"
+else
+    exec java -jar "$JAR" "${@}"
+fi
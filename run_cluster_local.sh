@@ -0,0 +1,50 @@
+#!/bin/sh
+
+# Runs a sharded crawl on this machine: one coordinator and N worker JVMs.
+#   ./run_cluster_local.sh <workers> <scraper> <url>...
+# Downloads go to ./cluster-downloads; each worker logs to target/cluster-worker-<n>.log.
+# With RENDER_WORKERS=<m>, m render workers are started too and the crawl workers render on them.
+JAR=target/dockerized-webscraper-1.0.0.jar
+PORT=${CLUSTER_PORT:-7070}
+RENDER_PORT=${RENDER_PORT:-8300}
+
+if [ "$#" -lt 3 ]; then
+    echo "Usage: $0 <workers> <scraper> <url>..." >&2
+    exit 2
+fi
+WORKERS=$1
+shift
+
+RENDER_OPTION=""
+RENDERERS=""
+r=0
+while [ "$r" -lt "${RENDER_WORKERS:-0}" ]; do
+    java -jar "$JAR" --render-worker $((RENDER_PORT + r)) > "target/render-worker-$r.log" 2>&1 &
+    RENDERERS="$RENDERERS $!"
+    RENDER_OPTION="${RENDER_OPTION:+$RENDER_OPTION,}127.0.0.1:$((RENDER_PORT + r))"
+    r=$((r + 1))
+done
+
+java -jar "$JAR" --coordinator "$PORT" "$@" &
+COORDINATOR=$!
+sleep 2
+
+WORKER_PIDS=""
+i=1
+while [ "$i" -le "$WORKERS" ]; do
+    java -jar "$JAR" --worker "http://127.0.0.1:$PORT" cluster-downloads --id "worker-$i" \
+        ${RENDER_OPTION:+--render-workers "$RENDER_OPTION"} > "target/cluster-worker-$i.log" 2>&1 &
+    WORKER_PIDS="$WORKER_PIDS $!"
+    i=$((i + 1))
+done
+
+wait "$COORDINATOR"
+STATUS=$?
+for pid in $WORKER_PIDS; do
+    wait "$pid"
+done
+# Render workers serve until stopped
+if [ -n "$RENDERERS" ]; then
+    kill $RENDERERS
+fi
+exit $STATUS
@@ -0,0 +1,306 @@
+package net.neological;
+
+import net.neological.webscraping.Deadline;
+import net.neological.webscraping.FileDownloader;
+import net.neological.webscraping.IoThreads;
+import net.neological.webscraping.RequestExecutor;
+import net.neological.webscraping.ScraperProvider;
+import net.neological.webscraping.ScraperRegistry;
+import net.neological.webscraping.SeriesDownloader;
+import net.neological.webscraping.WebScraper;
+import net.neological.webscraping.events.ScrapeEventBus;
+import net.neological.webscraping.events.ScrapeEventListener;
+import net.neological.webscraping.export.ExportFormat;
+import net.neological.webscraping.export.ExportWriter;
+import net.neological.webscraping.export.ResultExporter;
+import net.neological.webscraping.frontier.UrlSeenFilter;
+import net.neological.webscraping.render.RenderBackend;
+import net.neological.webscraping.render.RenderWorker;
+import net.neological.webscraping.replay.FetchRecorder;
+import net.neological.webscraping.replay.FetchReplayer;
+import net.neological.webscraping.specific.GenreRefresh;
+import net.neological.webscraping.specific.GenreScraper;
+import net.neological.webscraping.specific.GenreStatsStore;
+import net.neological.webscraping.storage.DownloadStore;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Headless command-line mode, used for container runs:
+ * <pre>
+ *     java -jar dockerized-webscraper.jar --scrape FRED &lt;url&gt; [download-folder] [options]
+ * </pre>
+ * Options:
+ * <ul>
+ *     <li>{@code --adaptive-render}: decide per URL pattern whether the browser is needed
+ *     (see {@link WebScraper#setAdaptiveRendering(boolean)})</li>
+ *     <li>{@code --hedge}: duplicate page fetches that run past the observed p95 latency</li>
+ *     <li>{@code --deadline <seconds>}: stop the whole job after that long, keeping whatever
+ *     finished (exit code 3)</li>
+ *     <li>{@code --record <archive>}: capture every response into a fetch archive</li>
+ *     <li>{@code --replay <archive>}: serve responses from a fetch archive instead of the network</li>
+ *     <li>{@code --replay-latency <scale>}: delay replayed responses by their recorded latency times the scale</li>
+ *     <li>{@code --max-series <n>}: download at most that many series of a FRED search</li>
+ *     <li>{@code --shard-downloads}: store FRED series in hashed subdirectories of the download folder</li>
+ *     <li>{@code --compress}: gzip FRED series as they are written (see {@link DownloadStore})</li>
+ *     <li>{@code --export <file>}: also stream every FRED observation downloaded into one CSV,
+ *     JSON Lines or binary file, by its extension ({@code .csv}, {@code .jsonl}, {@code .bin},
+ *     optionally {@code .gz}; see {@link ExportWriter})</li>
+ *     <li>{@code --render-workers <host:port,...>}: render pages on {@link RenderWorker}s instead of
+ *     local Chrome, falling back to local Chrome when none is reachable</li>
+ *     <li>{@code --virtual-threads}: run fetches, renders and downloads on virtual threads
+ *     (Java 21 and later; see {@link IoThreads})</li>
+ *     <li>{@code --seen <dir>}: skip pages a previous run with the same directory already crawled,
+ *     and record the ones crawled now (see {@link UrlSeenFilter})</li>
+ *     <li>{@code --refresh-genres <genre,...|all>}: after scraping the books home page, refresh those
+ *     genres' price and rating totals incrementally against the last run's snapshot
+ *     (see {@link GenreScraper#refreshGenreTotals})</li>
+ *     <li>{@code --genre-stats <file>}: where those snapshots are kept, instead of
+ *     {@code ~/.cache/dockerized-webscraper/genre-stats.tsv}</li>
+ * </ul>
+ * Scrapers come from the {@link ScraperRegistry}. Swing is never loaded on this path, and
+ * only the selected scraper class is.
+ */
+final class BatchMode {
+    private static final String USAGE = "> <url> [download-folder] [--adaptive-render] [--hedge] [--deadline <seconds>]"
+            + " [--max-series <n>] [--shard-downloads] [--compress] [--export <file>] [--render-workers <host:port,...>] [--virtual-threads] [--seen <dir>] [--refresh-genres <genre,...|all>] [--genre-stats <file>] [--record <archive> | --replay <archive> [--replay-latency <scale>]]";
+
+    private BatchMode() {
+    }
+
+    /**
+     * @return the process exit code
+     */
+    static int run(String[] arguments, String userAgent) {
+        List<String> args = new ArrayList<>(List.of(arguments));
+        boolean adaptive = args.remove("--adaptive-render");
+        boolean hedge = args.remove("--hedge");
+        boolean shard = args.remove("--shard-downloads");
+        boolean compress = args.remove("--compress");
+        boolean virtualThreads = args.remove("--virtual-threads");
+        String deadlineSeconds;
+        String recordTo;
+        String replayFrom;
+        String replayLatency;
+        String seenDirectory;
+        String maxSeries;
+        String renderWorkers;
+        String exportTo;
+        String refreshGenres;
+        String genreStatsFile;
+        try {
+            deadlineSeconds = takeOption(args, "--deadline");
+            recordTo = takeOption(args, "--record");
+            replayFrom = takeOption(args, "--replay");
+            replayLatency = takeOption(args, "--replay-latency");
+            seenDirectory = takeOption(args, "--seen");
+            maxSeries = takeOption(args, "--max-series");
+            renderWorkers = takeOption(args, "--render-workers");
+            exportTo = takeOption(args, "--export");
+            refreshGenres = takeOption(args, "--refresh-genres");
+            genreStatsFile = takeOption(args, "--genre-stats");
+            if (exportTo != null) {
+                ExportFormat.forFile(Paths.get(exportTo));
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            return 2;
+        }
+        if (args.size() < 3) {
+            System.err.println("Usage: --scrape <" + String.join("|", ScraperRegistry.names()) + USAGE);
+            return 2;
+        }
+        Optional<ScraperProvider> provider = ScraperRegistry.find(args.get(1));
+        if (provider.isEmpty()) {
+            System.err.println("Unknown scraper: " + args.get(1));
+            return 2;
+        }
+
+        Deadline deadline = Deadline.none();
+        double latencyScale = 0;
+        int seriesCap = Integer.MAX_VALUE;
+        try {
+            if (deadlineSeconds != null) {
+                deadline = Deadline.in(Duration.ofSeconds(Long.parseLong(deadlineSeconds)));
+            }
+            if (replayLatency != null) {
+                latencyScale = Double.parseDouble(replayLatency);
+            }
+            if (maxSeries != null) {
+                seriesCap = Integer.parseInt(maxSeries);
+            }
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid number: " + e.getMessage());
+            return 2;
+        }
+        RenderBackend renderBackend;
+        try {
+            renderBackend = RenderMode.backend(renderWorkers);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Invalid render workers: " + e.getMessage());
+            return 2;
+        }
+
+        if (virtualThreads && !IoThreads.setVirtual(true)) {
+            System.err.println("Virtual threads need Java 21 or later; running on platform threads");
+        }
+
+        ScrapeEventListener printer = ScrapeEventListener.printingTo(System.out);
+        ScrapeEventBus.global().subscribe(printer);
+        FetchRecorder recorder = null;
+        UrlSeenFilter seenUrls = null;
+        ExportWriter export = null;
+        try {
+            WebScraper scraper = ScraperRegistry.create(provider.get(), userAgent, 15_000);
+            if (args.size() > 3 && provider.get().downloadsFiles()) {
+                ((FileDownloader) scraper).setDownloadFolder(args.get(3));
+            }
+            scraper.setAdaptiveRendering(adaptive);
+            if (renderBackend != null) {
+                scraper.setRenderBackend(renderBackend);
+            }
+            if (provider.get().downloadsSeries()) {
+                SeriesDownloader series = (SeriesDownloader) scraper;
+                series.setMaxSeries(seriesCap);
+                series.setStoreOptions(series.getStoreOptions().withSharding(shard ? 1 : 0).withCompression(compress));
+            }
+            if (exportTo != null) {
+                if (!provider.get().supportsExport()) {
+                    System.err.println("--export is not supported for " + provider.get().name());
+                    return 2;
+                }
+                ResultExporter exporter = (ResultExporter) scraper;
+                export = ExportWriter.open(Paths.get(exportTo), exporter.exportColumns());
+                exporter.setExport(export);
+            }
+            if (refreshGenres != null && !provider.get().supportsGenres()) {
+                System.err.println("--refresh-genres is not supported for " + provider.get().name());
+                return 2;
+            }
+            RequestExecutor requests = scraper.getRequestExecutor();
+            requests.setPolicy(requests.getPolicy().withHedging(hedge));
+            if (replayFrom != null) {
+                FetchReplayer replayer = FetchReplayer.load(Paths.get(replayFrom));
+                replayer.setLatencyScale(latencyScale);
+                scraper.setReplayer(replayer);
+            } else if (recordTo != null) {
+                recorder = new FetchRecorder(Paths.get(recordTo));
+                scraper.setRecorder(recorder);
+            }
+            if (seenDirectory != null) {
+                seenUrls = UrlSeenFilter.open(Paths.get(seenDirectory), UrlSeenFilter.DEFAULT_EXPECTED_URLS,
+                        UrlSeenFilter.DEFAULT_FALSE_POSITIVE_RATE);
+                scraper.setSeenUrls(seenUrls);
+            }
+            StartupTimer.report("batch-ready");
+
+            boolean complete = scraper.scrape(args.get(2), deadline);
+            if (complete && refreshGenres != null) {
+                GenreStatsStore store = genreStatsFile != null
+                        ? new GenreStatsStore(Paths.get(genreStatsFile))
+                        : GenreStatsStore.atDefaultLocation();
+                complete = refreshGenres(scraper, refreshGenres, store, deadline);
+            }
+            System.err.printf("Requests: %d attempts, %d retries, %d hedged (%d won by the hedge)%n",
+                    requests.getAttemptCount(), requests.getRetryCount(),
+                    requests.getHedgeCount(), requests.getHedgeWinCount());
+            if (recorder != null) {
+                System.err.printf("Recorded %d responses to %s%n", recorder.getRecordedCount(), recorder.getFile());
+            }
+            if (seenUrls != null) {
+                System.err.println("Seen URLs: " + seenUrls.stats());
+            }
+            if (IoThreads.isVirtual()) {
+                System.err.println("I/O threads: " + IoThreads.stats());
+            }
+            if (export != null) {
+                export.close();
+                System.err.println("Exported " + export.stats() + " to " + exportTo);
+            }
+            if (!complete) {
+                System.err.println("Deadline reached; results are incomplete");
+                return 3;
+            }
+            return 0;
+        } catch (Exception e) {
+            System.err.println("Error: " + e.getMessage());
+            return 1;
+        } finally {
+            if (recorder != null) {
+                try {
+                    recorder.close();
+                } catch (Exception e) {
+                    System.err.println("Error: " + e.getMessage());
+                }
+            }
+            if (export != null) {
+                // Only reached unclosed when the scrape failed; keep the previous export then
+                export.abort();
+            }
+            if (seenUrls != null) {
+                try {
+                    seenUrls.close();
+                } catch (Exception e) {
+                    System.err.println("Error: " + e.getMessage());
+                }
+            }
+            ScrapeEventBus.global().awaitDrained(5_000);
+        }
+    }
+
+    /**
+     * Refreshes each genre's totals in turn, printing one line per genre, until the deadline.
+     * Each refresh runs under the deadline, so a slow genre is cut short mid-crawl; its snapshot
+     * is then left as it was.
+     *
+     * @param scraper a {@link GenreScraper} on its catalogue's home page
+     * @param genres  a comma-separated list of genre names, or {@code all}
+     * @return false if the deadline stopped the refresh before every genre was done
+     */
+    static boolean refreshGenres(WebScraper scraper, String genres, GenreStatsStore store,
+                                 Deadline deadline) throws IOException {
+        GenreScraper catalogue = (GenreScraper) scraper;
+        List<String> names = genres.equals("all")
+                ? catalogue.getAllGenres()
+                : Arrays.stream(genres.split(",")).map(String::trim).filter(name -> !name.isEmpty()).toList();
+        for (String genre : names) {
+            AtomicReference<GenreRefresh> result = new AtomicReference<>();
+            if (!scraper.runWithin(deadline, () -> result.set(catalogue.refreshGenreTotals(genre, store)))) {
+                return false;
+            }
+            GenreRefresh refresh = result.get();
+            System.out.printf("%s: %d books, average price %.2f, average rating %.2f"
+                            + " (%d pages fetched, %d changed%s)%n",
+                    genre, refresh.totals().books(), refresh.totals().averagePrice(),
+                    refresh.totals().averageRating(), refresh.pagesFetched(), refresh.pagesChanged(),
+                    refresh.full() ? ", full crawl" : "");
+        }
+        return true;
+    }
+
+    /**
+     * Removes {@code flag value} from the arguments.
+     *
+     * @return the value, or null if the flag is absent
+     * @throws IllegalArgumentException if the flag has no value
+     */
+    static String takeOption(List<String> args, String flag) {
+        int index = args.indexOf(flag);
+        if (index < 0) {
+            return null;
+        }
+        if (index + 1 >= args.size()) {
+            throw new IllegalArgumentException(flag + " needs a value");
+        }
+        String value = args.get(index + 1);
+        args.subList(index, index + 2).clear();
+        return value;
+    }
+}
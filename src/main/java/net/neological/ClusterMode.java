@@ -0,0 +1,159 @@
+package net.neological;
+
+import net.neological.webscraping.ScraperRegistry;
+import net.neological.webscraping.cluster.CrawlCoordinator;
+import net.neological.webscraping.cluster.CrawlWorker;
+import net.neological.webscraping.cluster.WorkItem;
+import net.neological.webscraping.events.ScrapeEventBus;
+import net.neological.webscraping.events.ScrapeEventListener;
+import net.neological.webscraping.render.RenderBackend;
+
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Headless sharded crawl over several JVMs:
+ * <pre>
+ *     java -jar dockerized-webscraper.jar --coordinator &lt;port&gt; [--shard-by host|url] [--lease-timeout &lt;seconds&gt;]
+ *         [--bind &lt;address&gt;] &lt;scraper&gt; &lt;url&gt;...
+ *     java -jar dockerized-webscraper.jar --worker &lt;coordinator-url&gt; [download-folder] [--id &lt;name&gt;] [--batch &lt;n&gt;] [--concurrency &lt;n&gt;]
+ *         [--render-workers &lt;host:port,...&gt;]
+ * </pre>
+ * The coordinator seeds its frontier with the URLs, waits until every item has been scraped
+ * (or has run out of attempts) and exits; workers exit when it reports the crawl finished. The
+ * coordinator only listens on loopback unless {@code --bind} gives an address workers on other
+ * hosts can reach.
+ * With {@code --render-workers} crawl workers send browser renders to {@code --render-worker}
+ * processes (see {@link RenderMode}), so rendering scales separately from crawling.
+ * See {@code run_cluster_local.sh} for running everything on one machine.
+ */
+final class ClusterMode {
+    private static final String COORDINATOR_USAGE =
+            "Usage: --coordinator <port> [--shard-by host|url] [--lease-timeout <seconds>] [--bind <address>]"
+                    + " <scraper> <url>...";
+    private static final String WORKER_USAGE =
+            "Usage: --worker <coordinator-url> [download-folder] [--id <name>] [--batch <n>] [--concurrency <n>]"
+                    + " [--render-workers <host:port,...>]";
+
+    private ClusterMode() {
+    }
+
+    /**
+     * @return the process exit code: 0 if every item was scraped, 1 if some failed
+     */
+    static int coordinator(String[] arguments) {
+        List<String> args = new ArrayList<>(List.of(arguments));
+        CrawlCoordinator.Sharding sharding;
+        long leaseTimeoutMillis;
+        InetAddress bind;
+        try {
+            String shardBy = BatchMode.takeOption(args, "--shard-by");
+            String leaseTimeout = BatchMode.takeOption(args, "--lease-timeout");
+            String bindOption = BatchMode.takeOption(args, "--bind");
+            sharding = shardBy != null
+                    ? CrawlCoordinator.Sharding.valueOf(shardBy.toUpperCase(Locale.ROOT))
+                    : CrawlCoordinator.Sharding.URL;
+            leaseTimeoutMillis = leaseTimeout != null
+                    ? Duration.ofSeconds(Long.parseLong(leaseTimeout)).toMillis()
+                    : CrawlCoordinator.DEFAULT_LEASE_TIMEOUT_MILLIS;
+            bind = bindOption != null ? InetAddress.getByName(bindOption) : InetAddress.getLoopbackAddress();
+        } catch (IllegalArgumentException | UnknownHostException e) {
+            System.err.println(e.getMessage());
+            return 2;
+        }
+        if (args.size() < 4) {
+            System.err.println(COORDINATOR_USAGE);
+            return 2;
+        }
+        String scraper = args.get(2);
+        if (ScraperRegistry.find(scraper).isEmpty()) {
+            System.err.println("Unknown scraper: " + scraper);
+            return 2;
+        }
+
+        try (CrawlCoordinator coordinator = new CrawlCoordinator(bind, Integer.parseInt(args.get(1)), sharding,
+                leaseTimeoutMillis, CrawlCoordinator.DEFAULT_MAX_ATTEMPTS)) {
+            List<WorkItem> seeds = new ArrayList<>();
+            for (String url : args.subList(3, args.size())) {
+                seeds.add(new WorkItem(scraper, url));
+            }
+            coordinator.submit(seeds);
+            System.err.println("Coordinator listening on " + bind.getHostAddress() + ":" + coordinator.getPort());
+
+            while (!coordinator.awaitFinished(Duration.ofSeconds(5))) {
+                System.err.println(coordinator.status());
+            }
+            System.err.println(coordinator.status());
+            Map<String, String> failures = coordinator.getFailures();
+            failures.forEach((url, error) -> System.err.println("Failed: " + url + ": " + error));
+            // Give polling workers a moment to hear that the crawl is over
+            Thread.sleep(2_000);
+            return failures.isEmpty() ? 0 : 1;
+        } catch (Exception e) {
+            System.err.println("Error: " + e.getMessage());
+            return 1;
+        }
+    }
+
+    /**
+     * @return the process exit code
+     */
+    static int worker(String[] arguments, String userAgent) {
+        List<String> args = new ArrayList<>(List.of(arguments));
+        String id;
+        String batch;
+        String concurrency;
+        RenderBackend renderBackend;
+        try {
+            id = BatchMode.takeOption(args, "--id");
+            batch = BatchMode.takeOption(args, "--batch");
+            concurrency = BatchMode.takeOption(args, "--concurrency");
+            renderBackend = RenderMode.backend(BatchMode.takeOption(args, "--render-workers"));
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            return 2;
+        }
+        if (args.size() < 2) {
+            System.err.println(WORKER_USAGE);
+            return 2;
+        }
+
+        // The runtime name is pid@host, which is unique among local worker processes
+        CrawlWorker worker = new CrawlWorker(args.get(1),
+                id != null ? id : ManagementFactory.getRuntimeMXBean().getName(), userAgent);
+        if (args.size() > 2) {
+            worker.setDownloadFolder(args.get(2));
+        }
+        if (renderBackend != null) {
+            worker.setScraperSetup(scraper -> scraper.setRenderBackend(renderBackend));
+        }
+        ScrapeEventListener printer = ScrapeEventListener.printingTo(System.out);
+        ScrapeEventBus.global().subscribe(printer);
+        try {
+            if (batch != null) {
+                worker.setBatchSize(Integer.parseInt(batch));
+            }
+            if (concurrency != null) {
+                worker.setConcurrency(Integer.parseInt(concurrency));
+            }
+            worker.run();
+            System.err.printf("Worker done: %d items, %d retries%n",
+                    worker.getProcessedCount(), worker.getRequestExecutor().getRetryCount());
+            return 0;
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid number: " + e.getMessage());
+            return 2;
+        } catch (Exception e) {
+            System.err.println("Error: " + e.getMessage());
+            return 1;
+        } finally {
+            ScrapeEventBus.global().awaitDrained(5_000);
+        }
+    }
+}
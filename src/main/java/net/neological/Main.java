@@ -1,11 +1,38 @@
 package net.neological;
 
 import net.neological.gui.WebScraperGUI;
+import net.neological.webscraping.ScraperProvider;
+import net.neological.webscraping.ScraperRegistry;
 
 import javax.swing.*;
 
 public class Main {
+    private static final String USER_AGENT =
+            "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/91.0.4472.124 Safari/537.36";
+
     public static void main(String[] args) {
+        StartupTimer.start();
+
+        if (args.length > 0 && args[0].equals("--startup-probe")) {
+            startupProbe();
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--scrape")) {
+            System.exit(BatchMode.run(args, USER_AGENT));
+        }
+        if (args.length > 0 && args[0].equals("--coordinator")) {
+            System.exit(ClusterMode.coordinator(args));
+        }
+        if (args.length > 0 && args[0].equals("--worker")) {
+            System.exit(ClusterMode.worker(args, USER_AGENT));
+        }
+        if (args.length > 0 && args[0].equals("--serve")) {
+            System.exit(ServiceMode.serve(args, USER_AGENT));
+        }
+        if (args.length > 0 && args[0].equals("--render-worker")) {
+            System.exit(RenderMode.worker(args));
+        }
+
         // Set look and feel to system default
         try {
             UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
@@ -17,6 +44,24 @@ public class Main {
         SwingUtilities.invokeLater(() -> {
             WebScraperGUI gui = new WebScraperGUI();
             gui.setVisible(true);
+            StartupTimer.report("gui-visible");
         });
     }
-}
\ No newline at end of file
+
+    /**
+     * Loads the classes a typical run needs and exits. Used to train the AppCDS archive
+     * ({@code mvn -Pappcds package}) and to measure cold-start time in CI.
+     */
+    private static void startupProbe() {
+        for (ScraperProvider provider : ScraperRegistry.all()) {
+            provider.create(USER_AGENT, 15_000);
+        }
+        org.jsoup.Jsoup.parse("<html><body><p class='price_color'>£1.00</p></body></html>")
+                .select("p.price_color").text();
+        if (!java.awt.GraphicsEnvironment.isHeadless()) {
+            // Resolving the class literal loads the GUI classes without opening a window
+            WebScraperGUI.class.getName();
+        }
+        StartupTimer.report("startup-probe");
+    }
+}
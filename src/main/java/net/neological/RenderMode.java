@@ -0,0 +1,81 @@
+package net.neological;
+
+import net.neological.webscraping.render.RemoteRenderBackend;
+import net.neological.webscraping.render.RenderBackend;
+import net.neological.webscraping.render.RenderWorker;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Render worker for scrapers started with {@code --render-workers}:
+ * <pre>
+ *     java -jar dockerized-webscraper.jar --render-worker &lt;port&gt; [--capacity &lt;n&gt;] [--bind &lt;address&gt;]
+ * </pre>
+ * Runs a {@link RenderWorker} with local headless Chrome until the process is stopped. Start
+ * one on the same machine as a stand-in for a pool, or several on render hosts with
+ * {@code --bind} set to an address the crawl can reach; by default workers only listen on loopback.
+ */
+final class RenderMode {
+    private static final String USAGE = "Usage: --render-worker <port> [--capacity <n>] [--bind <address>]";
+
+    private RenderMode() {
+    }
+
+    /**
+     * Builds the render backend for a {@code --render-workers} option: the listed workers, with
+     * local Chrome as the fallback when none is reachable.
+     *
+     * @param workers the option's value, comma-separated {@code host:port} addresses, or null
+     * @return the backend, or null if the option was not given
+     * @throws IllegalArgumentException if an address is malformed
+     */
+    static RenderBackend backend(String workers) {
+        if (workers == null) {
+            return null;
+        }
+        return new RemoteRenderBackend(RemoteRenderBackend.parseWorkers(workers), RenderBackend.local());
+    }
+
+    /**
+     * @return the process exit code
+     */
+    static int worker(String[] arguments) {
+        List<String> args = new ArrayList<>(List.of(arguments));
+        int port;
+        int capacity;
+        InetAddress bind;
+        try {
+            String capacityOption = BatchMode.takeOption(args, "--capacity");
+            String bindOption = BatchMode.takeOption(args, "--bind");
+            if (args.size() < 2) {
+                System.err.println(USAGE);
+                return 2;
+            }
+            port = Integer.parseInt(args.get(1));
+            capacity = capacityOption != null ? Integer.parseInt(capacityOption) : RenderWorker.DEFAULT_CAPACITY;
+            bind = bindOption != null ? InetAddress.getByName(bindOption) : InetAddress.getLoopbackAddress();
+        } catch (IllegalArgumentException | UnknownHostException e) {
+            System.err.println(e.getMessage());
+            return 2;
+        }
+
+        CountDownLatch stopped = new CountDownLatch(1);
+        try (RenderWorker worker = new RenderWorker(bind, port, RenderBackend.local(), capacity)) {
+            Runtime.getRuntime().addShutdownHook(new Thread(stopped::countDown, "render-worker-shutdown"));
+            StartupTimer.report("render-worker-ready");
+            System.err.println("Render worker listening on " + bind.getHostAddress() + ":" + worker.getPort() + " (" + worker.status() + ")");
+            stopped.await();
+            return 0;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 0;
+        } catch (Exception e) {
+            System.err.println("Error: " + e.getMessage());
+            return 1;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package net.neological;
+
+import net.neological.webscraping.service.QueryService;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Headless query service for downstream services:
+ * <pre>
+ *     java -jar dockerized-webscraper.jar --serve &lt;port&gt; [data-folder] [--ttl &lt;seconds&gt;] [--max-stale &lt;seconds&gt;]
+ *         [--bind &lt;address&gt;]
+ * </pre>
+ * Runs a {@link QueryService} until the process is stopped. Series CSVs are kept in the data
+ * folder ({@code ~/Downloads} by default, like the scrapers). The service only listens on loopback
+ * unless {@code --bind} gives an address other hosts can reach.
+ */
+final class ServiceMode {
+    private static final String USAGE =
+            "Usage: --serve <port> [data-folder] [--ttl <seconds>] [--max-stale <seconds>] [--bind <address>]";
+
+    private ServiceMode() {
+    }
+
+    /**
+     * @return the process exit code
+     */
+    static int serve(String[] arguments, String userAgent) {
+        List<String> args = new ArrayList<>(List.of(arguments));
+        Duration ttl;
+        Duration maxStale;
+        int port;
+        InetAddress bind;
+        try {
+            String ttlSeconds = BatchMode.takeOption(args, "--ttl");
+            String maxStaleSeconds = BatchMode.takeOption(args, "--max-stale");
+            String bindOption = BatchMode.takeOption(args, "--bind");
+            if (args.size() < 2) {
+                System.err.println(USAGE);
+                return 2;
+            }
+            ttl = ttlSeconds != null ? Duration.ofSeconds(Long.parseLong(ttlSeconds)) : QueryService.DEFAULT_TTL;
+            maxStale = maxStaleSeconds != null
+                    ? Duration.ofSeconds(Long.parseLong(maxStaleSeconds))
+                    : QueryService.DEFAULT_MAX_STALE;
+            port = Integer.parseInt(args.get(1));
+            bind = bindOption != null ? InetAddress.getByName(bindOption) : InetAddress.getLoopbackAddress();
+        } catch (IllegalArgumentException | UnknownHostException e) {
+            System.err.println(e.getMessage());
+            return 2;
+        }
+        Path dataFolder = args.size() > 2
+                ? Paths.get(args.get(2))
+                : Paths.get(System.getProperty("user.home"), "Downloads");
+
+        CountDownLatch stopped = new CountDownLatch(1);
+        try (QueryService service = new QueryService(bind, port, userAgent, dataFolder, ttl, maxStale)) {
+            Runtime.getRuntime().addShutdownHook(new Thread(stopped::countDown, "query-service-shutdown"));
+            StartupTimer.report("service-ready");
+            System.err.println("Query service listening on " + bind.getHostAddress() + ":" + service.getPort());
+            stopped.await();
+            return 0;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 0;
+        } catch (Exception e) {
+            System.err.println("Error: " + e.getMessage());
+            return 1;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package net.neological;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Measures time from JVM process start to the point the application is ready, so startup
+ * regressions (and the effect of the AppCDS archive) can be tracked.
+ */
+public final class StartupTimer {
+    // Set by start(); read by report() from whichever thread reaches a milestone
+    private static volatile long mainEnteredNanos = System.nanoTime();
+
+    private StartupTimer() {
+    }
+
+    /**
+     * Prints the elapsed startup time for the given milestone to stderr, e.g.
+     * {@code [startup] gui-visible: 412 ms since JVM start (95 ms since main)}.
+     *
+     * @param milestone a short label for the point reached
+     */
+    public static void report(String milestone) {
+        long sinceMain = (System.nanoTime() - mainEnteredNanos) / 1_000_000;
+        String sinceStart = ProcessHandle.current().info().startInstant()
+                .map(start -> Duration.between(start, Instant.now()).toMillis() + " ms since JVM start")
+                .orElse("JVM start time unknown");
+        System.err.println("[startup] " + milestone + ": " + sinceStart + " (" + sinceMain + " ms since main)");
+    }
+
+    /**
+     * Records the moment {@code main} was entered, the reference point for "since main".
+     * Call it first thing in {@code main}.
+     */
+    static void start() {
+        mainEnteredNanos = System.nanoTime();
+    }
+}
@@ -1,8 +1,7 @@
 package net.neological.gui;
 
-import io.github.bonigarcia.wdm.WebDriverManager;
+import net.neological.webscraping.ChromeDrivers;
 import org.openqa.selenium.WebDriver;
-import org.openqa.selenium.chrome.ChromeDriver;
 import org.openqa.selenium.chrome.ChromeOptions;
 
 import java.time.Duration;
@@ -25,15 +24,13 @@ public class AssistedModeManager {
             throw new IllegalStateException("Assisted mode is already active");
         }
 
-        WebDriverManager.chromedriver().setup();
-
         ChromeOptions options = new ChromeOptions();
         options.addArguments("--disable-gpu");
         options.addArguments("--no-sandbox");
         options.addArguments("--disable-dev-shm-usage");
         options.addArguments("--user-agent=Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/91.0.4472.124 Safari/537.36");
 
-        driver = new ChromeDriver(options);
+        driver = ChromeDrivers.start(options);
         driver.manage().timeouts().pageLoadTimeout(Duration.ofSeconds(30));
 
         // Start with a blank page or Google
@@ -0,0 +1,101 @@
+package net.neological.gui;
+
+import net.neological.webscraping.ScrapeMonitor;
+
+import javax.swing.table.AbstractTableModel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Table model for the job dashboard: one row per scrape with its live progress figures.
+ * Accessed only on the Event Dispatch Thread; the figures themselves are read from each
+ * job's {@link ScrapeMonitor} whenever the table repaints.
+ */
+public class JobTableModel extends AbstractTableModel {
+    private static final long serialVersionUID = 1L;
+    private static final String[] COLUMNS = {
+            "#", "Scraper", "URL", "Status", "Pages", "Pages/s", "Downloaded", "Errors", "ETA"
+    };
+
+    private final List<ScrapeJob> jobs = new ArrayList<>();
+
+    public void addJob(ScrapeJob job) {
+        jobs.add(job);
+        fireTableRowsInserted(jobs.size() - 1, jobs.size() - 1);
+    }
+
+    public ScrapeJob getJob(int row) {
+        return jobs.get(row);
+    }
+
+    /**
+     * Repaints the live columns of every job that is still active.
+     */
+    public void refreshActive() {
+        for (int row = 0; row < jobs.size(); row++) {
+            if (jobs.get(row).isActive()) {
+                fireTableRowsUpdated(row, row);
+            }
+        }
+    }
+
+    /**
+     * Repaints the row of the given job, e.g. after its status changed.
+     */
+    public void jobChanged(ScrapeJob job) {
+        int row = jobs.indexOf(job);
+        if (row >= 0) {
+            fireTableRowsUpdated(row, row);
+        }
+    }
+
+    @Override
+    public int getRowCount() {
+        return jobs.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMNS.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMNS[column];
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        ScrapeJob job = jobs.get(row);
+        ScrapeMonitor monitor = job.getMonitor();
+        return switch (column) {
+            case 0 -> job.getId();
+            case 1 -> job.getScraperName();
+            case 2 -> job.getUrl();
+            case 3 -> job.getStatus();
+            case 4 -> monitor.getPagesFetched();
+            case 5 -> String.format("%.2f", monitor.getPagesPerSecond());
+            case 6 -> formatBytes(monitor.getBytesDownloaded());
+            case 7 -> monitor.getErrors();
+            case 8 -> job.isActive() ? formatEta(monitor.getEtaSeconds()) : "";
+            default -> "";
+        };
+    }
+
+    private static String formatBytes(long bytes) {
+        if (bytes < 1024) {
+            return bytes + " B";
+        }
+        if (bytes < 1024 * 1024) {
+            return String.format("%.1f KB", bytes / 1024.0);
+        }
+        return String.format("%.1f MB", bytes / (1024.0 * 1024.0));
+    }
+
+    private static String formatEta(long seconds) {
+        if (seconds < 0) {
+            return "—";
+        }
+        return String.format("%d:%02d", seconds / 60, seconds % 60);
+    }
+}
@@ -0,0 +1,177 @@
+package net.neological.gui;
+
+import javax.swing.*;
+import javax.swing.text.BadLocationException;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.Charset;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded, batched log model behind the GUI log area.
+ * <p>
+ * Any thread may call {@link #log(String)}; lines go onto a lock-free queue and a Swing
+ * timer drains it at most every {@value #FLUSH_INTERVAL_MILLIS} ms, appending the batch to
+ * the text area in one edit. Once the area holds more than {@code capacity} lines, the
+ * oldest ones are removed from the front of its document, so each flush costs the size of
+ * the batch rather than of the whole log.
+ * <p>
+ * The queue is bounded too: while the Event Dispatch Thread is stalled, a line logged past
+ * the capacity drops the oldest queued one, which could never have been shown anyway. Lines
+ * held in memory stay within about twice the capacity, and {@link #getDroppedLines()} counts
+ * the ones dropped.
+ */
+public class LogSink {
+    /** Upper bound on how often the text area is touched. */
+    public static final int FLUSH_INTERVAL_MILLIS = 50;
+    /** Default number of lines kept in the log area. */
+    public static final int DEFAULT_CAPACITY = 5_000;
+
+    private static final AtomicBoolean consoleCaptured = new AtomicBoolean();
+    private static volatile LogSink consoleTarget;
+
+    private final JTextArea logArea;
+    private final ConcurrentLinkedQueue<String> pending = new ConcurrentLinkedQueue<>();
+    /** Lines in {@link #pending}; may briefly run ahead of the queue while a line is being added. */
+    private final AtomicInteger pendingCount = new AtomicInteger();
+    private final LongAdder dropped = new LongAdder();
+    private final int capacity;
+    private final Timer flushTimer;
+
+    /**
+     * Constructor. Must be called on the Event Dispatch Thread.
+     *
+     * @param logArea  the text area to render into
+     * @param capacity maximum number of lines kept
+     */
+    public LogSink(JTextArea logArea, int capacity) {
+        this.logArea = logArea;
+        this.capacity = capacity;
+        this.flushTimer = new Timer(FLUSH_INTERVAL_MILLIS, e -> flush());
+        this.flushTimer.setCoalesce(true);
+        this.flushTimer.start();
+    }
+
+    /**
+     * Queues a line for display. Safe to call from any thread; never blocks.
+     *
+     * @param message the line to log
+     */
+    public void log(String message) {
+        pending.offer(message);
+        if (pendingCount.incrementAndGet() > capacity && pending.poll() != null) {
+            pendingCount.decrementAndGet();
+            dropped.increment();
+        }
+    }
+
+    /**
+     * @return lines dropped from the queue because more than the capacity were waiting to be shown
+     */
+    public long getDroppedLines() {
+        return dropped.sum();
+    }
+
+    /**
+     * Stops the flush timer after a final flush. Must be called on the Event Dispatch Thread.
+     */
+    public void close() {
+        flushTimer.stop();
+        flush();
+        if (consoleTarget == this) {
+            consoleTarget = null;
+        }
+    }
+
+    /**
+     * Routes console output ({@code System.out}/{@code System.err}) to this sink. The global
+     * streams are wrapped exactly once per JVM; later calls only switch the target sink.
+     */
+    public void captureConsole() {
+        consoleTarget = this;
+        if (consoleCaptured.compareAndSet(false, true)) {
+            System.setOut(new PrintStream(new LineTee(System.out, ""), true));
+            System.setErr(new PrintStream(new LineTee(System.err, "ERROR: "), true));
+        }
+    }
+
+    private void flush() {
+        String line = pending.poll();
+        if (line == null) {
+            return;
+        }
+
+        StringBuilder text = new StringBuilder();
+        do {
+            pendingCount.decrementAndGet();
+            text.append(line).append('\n');
+        } while ((line = pending.poll()) != null);
+        logArea.append(text.toString());
+
+        // The document ends with a newline, so its last "line" is the empty one after it
+        int excess = logArea.getLineCount() - 1 - capacity;
+        if (excess > 0) {
+            try {
+                logArea.replaceRange("", 0, logArea.getLineEndOffset(excess - 1));
+            } catch (BadLocationException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        // Scroll to the bottom
+        logArea.setCaretPosition(logArea.getDocument().getLength());
+    }
+
+    /**
+     * Copies bytes to the original stream and forwards each complete line to the current
+     * console target. Called under the owning PrintStream's lock.
+     */
+    private static class LineTee extends OutputStream {
+        private final PrintStream original;
+        private final String prefix;
+        private final ByteArrayOutputStream line = new ByteArrayOutputStream();
+
+        LineTee(PrintStream original, String prefix) {
+            this.original = original;
+            this.prefix = prefix;
+        }
+
+        @Override
+        public void write(int b) {
+            original.write(b);
+            if (b == '\n') {
+                emit();
+            } else if (b != '\r') {
+                line.write(b);
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            original.write(b, off, len);
+            for (int i = off; i < off + len; i++) {
+                if (b[i] == '\n') {
+                    emit();
+                } else if (b[i] != '\r') {
+                    line.write(b[i]);
+                }
+            }
+        }
+
+        @Override
+        public void flush() {
+            original.flush();
+        }
+
+        private void emit() {
+            LogSink target = consoleTarget;
+            if (target != null) {
+                target.log(prefix + line.toString(Charset.defaultCharset()));
+            }
+            line.reset();
+        }
+    }
+}
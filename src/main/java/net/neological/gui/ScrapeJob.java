@@ -0,0 +1,92 @@
+package net.neological.gui;
+
+import net.neological.webscraping.ScrapeMonitor;
+import net.neological.webscraping.WebScraper;
+
+import java.util.concurrent.Future;
+
+/**
+ * One queued or running scrape in the GUI job table.
+ */
+public class ScrapeJob {
+    public enum Status { QUEUED, RUNNING, COMPLETED, FAILED, CANCELLED }
+
+    private final int id;
+    private final String scraperName;
+    private final String url;
+    private final WebScraper scraper;
+    private volatile Status status = Status.QUEUED;
+    private volatile Future<?> future;
+
+    /**
+     * Constructor.
+     *
+     * @param id          sequential job number shown in the table
+     * @param scraperName the registered scraper name
+     * @param url         the URL being scraped
+     * @param scraper     the scraper instance dedicated to this job
+     */
+    public ScrapeJob(int id, String scraperName, String url, WebScraper scraper) {
+        this.id = id;
+        this.scraperName = scraperName;
+        this.url = url;
+        this.scraper = scraper;
+    }
+
+    /**
+     * Cancels the job. A queued job never starts; a running job has its Selenium sessions
+     * and downloads aborted.
+     */
+    public void cancel() {
+        if (status == Status.QUEUED || status == Status.RUNNING) {
+            status = Status.CANCELLED;
+            scraper.cancel();
+            Future<?> f = future;
+            if (f != null) {
+                f.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * @return true if the job has not yet finished, failed or been cancelled
+     */
+    public boolean isActive() {
+        return status == Status.QUEUED || status == Status.RUNNING;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getScraperName() {
+        return scraperName;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public WebScraper getScraper() {
+        return scraper;
+    }
+
+    public ScrapeMonitor getMonitor() {
+        return scraper.getMonitor();
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    void setStatus(Status status) {
+        // A cancelled job stays cancelled even if its worker finishes afterwards
+        if (this.status != Status.CANCELLED) {
+            this.status = status;
+        }
+    }
+
+    void setFuture(Future<?> future) {
+        this.future = future;
+    }
+}
@@ -1,18 +1,28 @@
 package net.neological.gui;
 
 import net.neological.webscraping.FileDownloader;
+import net.neological.webscraping.IoThreads;
+import net.neological.webscraping.ScraperProvider;
+import net.neological.webscraping.ScraperRegistry;
 import net.neological.webscraping.WebScraper;
-import net.neological.webscraping.specific.FredWebScraper;
+import net.neological.webscraping.events.ScrapeEvent;
+import net.neological.webscraping.events.ScrapeEventBus;
+import net.neological.webscraping.events.ScrapeEventListener;
 
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.io.File;
-import java.lang.reflect.Constructor;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class WebScraperGUI extends JFrame {
+    // Number of scrape jobs that run at the same time; further jobs wait in the queue
+    private static final int JOB_THREADS = 3;
+    private static final int TABLE_REFRESH_MILLIS = 500;
+
     private JTextField urlField;
     private JTextField downloadFolderField;
     private JComboBox<String> scraperComboBox;
@@ -20,23 +30,31 @@ public class WebScraperGUI extends JFrame {
     private JButton scrapeButton;
     private JButton assistedModeButton;
     private JButton completeButton;
+    private JButton cancelButton;
     private JTextArea logArea;
+    private LogSink logSink;
+
+    // Job dashboard
+    private JTable jobTable;
+    private final JobTableModel jobTableModel = new JobTableModel();
+    private final ExecutorService jobExecutor = IoThreads.newExecutor("scrape-job", JOB_THREADS);
+    private final AtomicInteger nextJobId = new AtomicInteger(1);
 
     // Assisted mode components
     private AssistedModeManager assistedModeManager;
     private JPanel downloadFolderPanel; // Panel containing download folder components
 
-    // Map to store scraper name to class mapping
-    private final Map<String, Class<? extends WebScraper>> scraperClasses = new HashMap<>();
+    private static final String USER_AGENT =
+            "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/91.0.4472.124 Safari/537.36";
 
     public WebScraperGUI() {
-        // Register available scrapers
-        registerScraper("FRED", FredWebScraper.class);
+        // Available scrapers are discovered through ScraperProvider services
+        List<String> scraperNames = ScraperRegistry.names();
 
         // Set up the frame
         setTitle("Web Scraper GUI");
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
-        setSize(700, 400); // Slightly wider to accommodate new button
+        setSize(900, 600); // Room for the job table above the log
         setLocationRelativeTo(null);
 
         // Create components
@@ -55,9 +73,9 @@ public class WebScraperGUI extends JFrame {
         inputPanel.add(new JLabel("Scraper Type:"), gbc);
 
         // Add default option to scraper combo box
-        String[] scraperOptions = new String[scraperClasses.size() + 1];
+        String[] scraperOptions = new String[scraperNames.size() + 1];
         scraperOptions[0] = "-- Select --";
-        System.arraycopy(scraperClasses.keySet().toArray(new String[0]), 0, scraperOptions, 1, scraperClasses.size());
+        System.arraycopy(scraperNames.toArray(new String[0]), 0, scraperOptions, 1, scraperNames.size());
 
         scraperComboBox = new JComboBox<>(scraperOptions);
         scraperComboBox.addActionListener(this::scraperSelectionChanged);
@@ -132,27 +150,53 @@ public class WebScraperGUI extends JFrame {
         gbc.gridwidth = 1;
         inputPanel.add(scrapeButton, gbc);
 
+        // Cancel button for the job selected in the table
+        cancelButton = new JButton("Cancel Job");
+        cancelButton.addActionListener(this::cancelButtonClicked);
+        gbc.gridx = 2;
+        gbc.gridy = 3;
+        gbc.gridwidth = 1;
+        inputPanel.add(cancelButton, gbc);
+
+        // Job table
+        jobTable = new JTable(jobTableModel);
+        jobTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        jobTable.setFillsViewportHeight(true);
+        new Timer(TABLE_REFRESH_MILLIS, e -> jobTableModel.refreshActive()).start();
+
         // Log area
         logArea = new JTextArea();
         logArea.setEditable(false);
         JScrollPane scrollPane = new JScrollPane(logArea);
+        logSink = new LogSink(logArea, LogSink.DEFAULT_CAPACITY);
+        logSink.captureConsole();
+
+        // Scraper progress arrives as events; per-chunk download progress is left to the job table
+        ScrapeEventBus.global().subscribe(event -> {
+            if (!(event instanceof ScrapeEvent.DownloadProgress)) {
+                logSink.log(ScrapeEventListener.describe(event));
+            }
+        });
+
+        JSplitPane splitPane = new JSplitPane(JSplitPane.VERTICAL_SPLIT, new JScrollPane(jobTable), scrollPane);
+        splitPane.setResizeWeight(0.5);
 
         // Add components to main panel
         mainPanel.add(inputPanel, BorderLayout.NORTH);
-        mainPanel.add(scrollPane, BorderLayout.CENTER);
+        mainPanel.add(splitPane, BorderLayout.CENTER);
 
         // Add main panel to frame
         add(mainPanel);
 
-        // Initialize assisted mode manager
-        assistedModeManager = new AssistedModeManager();
-
         // Initially hide download folder panel
         updateDownloadFolderVisibility();
     }
 
-    private void registerScraper(String name, Class<? extends WebScraper> scraperClass) {
-        scraperClasses.put(name, scraperClass);
+    private Optional<ScraperProvider> selectedProvider(String name) {
+        if (name == null || name.equals("-- Select --")) {
+            return Optional.empty();
+        }
+        return ScraperRegistry.find(name);
     }
 
     private void scraperSelectionChanged(ActionEvent e) {
@@ -161,15 +205,9 @@ public class WebScraperGUI extends JFrame {
 
     private void updateDownloadFolderVisibility() {
         String selectedScraper = (String) scraperComboBox.getSelectedItem();
-        boolean showDownloadFolder = false;
-
-        if (selectedScraper != null && !selectedScraper.equals("-- Select --")) {
-            Class<? extends WebScraper> scraperClass = scraperClasses.get(selectedScraper);
-
-            if (scraperClass != null) {
-                showDownloadFolder = FileDownloader.class.isAssignableFrom(scraperClass);
-            }
-        }
+        boolean showDownloadFolder = selectedProvider(selectedScraper)
+                .map(ScraperProvider::downloadsFiles)
+                .orElse(false);
 
         downloadFolderPanel.setVisible(showDownloadFolder);
         revalidate();
@@ -178,6 +216,10 @@ public class WebScraperGUI extends JFrame {
 
     private void assistedModeButtonClicked(ActionEvent e) {
         try {
+            // Selenium is only loaded once assisted mode is actually used
+            if (assistedModeManager == null) {
+                assistedModeManager = new AssistedModeManager();
+            }
             assistedModeManager.startAssistedMode();
             assistedModeButton.setVisible(false);
             completeButton.setVisible(true);
@@ -234,96 +276,72 @@ public class WebScraperGUI extends JFrame {
         }
 
         // Check if download folder is required and provided
-        Class<? extends WebScraper> scraperClass = scraperClasses.get(scraperName);
-        if (FileDownloader.class.isAssignableFrom(scraperClass) && downloadFolder.isEmpty()) {
+        ScraperProvider provider = selectedProvider(scraperName).orElse(null);
+        if (provider == null) {
+            logMessage("Unknown scraper type: " + scraperName);
+            return;
+        }
+        if (provider.downloadsFiles() && downloadFolder.isEmpty()) {
             logMessage("Please specify a download folder");
             return;
         }
 
-        // Disable UI during scraping
-        setUIEnabled(false);
-        logMessage("Starting scraping with " + scraperName + "...");
-
-        // Run scraping in background thread to keep UI responsive
-        SwingWorker<Void, Void> worker = new SwingWorker<>() {
-            @Override
-            protected Void doInBackground() {
-                try {
-                    // Create scraper instance using reflection
-                    Constructor<? extends WebScraper> constructor = scraperClass.getConstructor(
-                            String.class, int.class);
-
-                    WebScraper scraper = constructor.newInstance(
-                            "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/91.0.4472.124 Safari/537.36",
-                            15_000);
-
-                    // Set download folder if it's a FileDownloader
-                    if (scraper instanceof FileDownloader && scraper instanceof FredWebScraper) {
-                        ((FredWebScraper) scraper).setDownloadFolder(downloadFolder);
-                    }
-
-                    // Redirect System.out and System.err to the log area
-                    PrintStreamRedirector.redirectSystemOut(message -> SwingUtilities.invokeLater(() -> logMessage(message)));
-
-                    // Perform scraping
-                    scraper.scrape(url);
-
-                    return null;
-                } catch (Exception ex) {
-                    SwingUtilities.invokeLater(() -> logMessage("Error: " + ex.getMessage()));
-                    ex.printStackTrace();
-                    return null;
-                }
-            }
+        // The registry configures the fetch path and concurrency from the provider's metadata
+        WebScraper scraper = ScraperRegistry.create(provider, USER_AGENT, 15_000);
+        if (provider.downloadsFiles()) {
+            ((FileDownloader) scraper).setDownloadFolder(downloadFolder);
+        }
 
-            @Override
-            protected void done() {
-                // Re-enable UI after scraping is done
-                setUIEnabled(true);
-                logMessage("Scraping completed.");
-            }
-        };
+        ScrapeJob job = new ScrapeJob(nextJobId.getAndIncrement(), scraperName, url, scraper);
+        jobTableModel.addJob(job);
+        logMessage("Queued job #" + job.getId() + " with " + scraperName + ": " + url);
 
-        worker.execute();
+        // Jobs share a fixed pool so several scrapes can run while the UI stays usable
+        job.setFuture(jobExecutor.submit(() -> runJob(job)));
     }
 
-    private void setUIEnabled(boolean enabled) {
-        urlField.setEnabled(enabled);
-        downloadFolderField.setEnabled(enabled);
-        scraperComboBox.setEnabled(enabled);
-        browseButton.setEnabled(enabled);
-        scrapeButton.setEnabled(enabled);
-        assistedModeButton.setEnabled(enabled);
-    }
+    private void runJob(ScrapeJob job) {
+        if (!job.isActive()) {
+            return;
+        }
+        job.setStatus(ScrapeJob.Status.RUNNING);
+        SwingUtilities.invokeLater(() -> jobTableModel.jobChanged(job));
+        logMessage("Starting job #" + job.getId() + "...");
 
-    private void logMessage(String message) {
-        logArea.append(message + "\n");
-        // Scroll to the bottom
-        logArea.setCaretPosition(logArea.getDocument().getLength());
+        try {
+            job.getScraper().scrape(job.getUrl());
+            job.setStatus(ScrapeJob.Status.COMPLETED);
+            logMessage("Job #" + job.getId() + " completed.");
+        } catch (Exception ex) {
+            if (job.getScraper().isCancelled()) {
+                logMessage("Job #" + job.getId() + " cancelled.");
+            } else {
+                job.setStatus(ScrapeJob.Status.FAILED);
+                logMessage("Error in job #" + job.getId() + ": " + ex.getMessage());
+                ex.printStackTrace();
+            }
+        } finally {
+            SwingUtilities.invokeLater(() -> jobTableModel.jobChanged(job));
+        }
     }
 
-    // Helper class to redirect System.out and System.err
-    private static class PrintStreamRedirector {
-        public interface MessageConsumer {
-            void consume(String message);
+    private void cancelButtonClicked(ActionEvent e) {
+        int row = jobTable.getSelectedRow();
+        if (row < 0) {
+            logMessage("Select a job to cancel");
+            return;
         }
-
-        public static void redirectSystemOut(MessageConsumer consumer) {
-            System.setOut(new java.io.PrintStream(System.out) {
-                @Override
-                public void println(String x) {
-                    super.println(x);
-                    consumer.consume(x);
-                }
-            });
-
-            System.setErr(new java.io.PrintStream(System.err) {
-                @Override
-                public void println(String x) {
-                    super.println(x);
-                    consumer.consume("ERROR: " + x);
-                }
-            });
+        ScrapeJob job = jobTableModel.getJob(jobTable.convertRowIndexToModel(row));
+        if (!job.isActive()) {
+            logMessage("Job #" + job.getId() + " is not running");
+            return;
         }
+        job.cancel();
+        jobTableModel.jobChanged(job);
+        logMessage("Cancelling job #" + job.getId() + "...");
+    }
+
+    private void logMessage(String message) {
+        logSink.log(message);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,133 @@
+package net.neological.webscraping;
+
+import io.github.bonigarcia.wdm.WebDriverManager;
+import org.openqa.selenium.SessionNotCreatedException;
+import org.openqa.selenium.chrome.ChromeDriver;
+import org.openqa.selenium.chrome.ChromeOptions;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Resolves the ChromeDriver binary once per JVM and remembers it on disk between runs.
+ * <p>
+ * {@code WebDriverManager.setup()} checks versions and may hit the network on every call,
+ * which used to happen before each page fetch. Here it runs at most once per JVM, and not
+ * at all while the path cached in {@code ~/.cache/dockerized-webscraper/chromedriver.path}
+ * still points at an executable. WebDriverManager classes are only loaded when a
+ * resolution is actually needed.
+ * <p>
+ * A cached driver goes stale when Chrome is upgraded past the version it supports. Chrome
+ * then refuses the session, so {@link #start(ChromeOptions)} forgets the cached path,
+ * resolves a matching driver and tries once more.
+ */
+public final class ChromeDrivers {
+    private static final String DRIVER_PROPERTY = "webdriver.chrome.driver";
+    private static final Path CACHE_FILE = Paths.get(System.getProperty("user.home"),
+            ".cache", "dockerized-webscraper", "chromedriver.path");
+
+    private static volatile boolean ready;
+    /** Whether the driver in use came from the cache file rather than this JVM's resolution. */
+    private static boolean fromCache;
+
+    private ChromeDrivers() {
+    }
+
+    /**
+     * Makes sure {@code webdriver.chrome.driver} points at a usable ChromeDriver binary.
+     * Cheap after the first call.
+     */
+    public static void setup() {
+        if (ready) {
+            return;
+        }
+        synchronized (ChromeDrivers.class) {
+            if (ready) {
+                return;
+            }
+            String configured = System.getProperty(DRIVER_PROPERTY);
+            if (configured == null || !Files.isExecutable(Paths.get(configured))) {
+                String cached = readCachedPath();
+                if (cached != null) {
+                    System.setProperty(DRIVER_PROPERTY, cached);
+                    fromCache = true;
+                } else {
+                    WebDriverManager.chromedriver().setup();
+                    writeCachedPath(System.getProperty(DRIVER_PROPERTY));
+                }
+            }
+            ready = true;
+        }
+    }
+
+    /**
+     * Sets up the driver and starts a Chrome session. If Chrome rejects a driver taken from the
+     * cache, the cache is dropped and the session retried once with a freshly resolved driver.
+     *
+     * @param options the browser options
+     * @return the started session
+     * @throws SessionNotCreatedException if Chrome rejects the session even with a fresh driver
+     */
+    public static ChromeDriver start(ChromeOptions options) {
+        setup();
+        try {
+            return new ChromeDriver(options);
+        } catch (SessionNotCreatedException e) {
+            if (!invalidateCachedDriver()) {
+                throw e;
+            }
+            setup();
+            return new ChromeDriver(options);
+        }
+    }
+
+    /**
+     * Forgets a driver path that came from the cache file, so the next {@link #setup()}
+     * resolves one matching the installed Chrome.
+     *
+     * @return false if the driver was not from the cache, so resolving again would not help
+     */
+    private static synchronized boolean invalidateCachedDriver() {
+        if (!fromCache) {
+            return false;
+        }
+        fromCache = false;
+        ready = false;
+        System.clearProperty(DRIVER_PROPERTY);
+        try {
+            Files.deleteIfExists(CACHE_FILE);
+        } catch (IOException e) {
+            // Worst case the stale path is written over after the fresh resolution
+        }
+        return true;
+    }
+
+    private static String readCachedPath() {
+        try {
+            if (Files.exists(CACHE_FILE)) {
+                String path = Files.readString(CACHE_FILE, StandardCharsets.UTF_8).trim();
+                if (!path.isEmpty() && Files.isExecutable(Paths.get(path))) {
+                    return path;
+                }
+            }
+        } catch (IOException e) {
+            // Fall back to a fresh resolution
+        }
+        return null;
+    }
+
+    private static void writeCachedPath(String path) {
+        if (path == null) {
+            return;
+        }
+        try {
+            Files.createDirectories(CACHE_FILE.getParent());
+            Files.writeString(CACHE_FILE, path, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            // Caching is an optimisation only
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package net.neological.webscraping;
+
+import java.time.Duration;
+
+/**
+ * A point in time by which a whole scrape job must finish. Set on a job's
+ * {@link ScrapeMonitor}, it reaches every fetch, render wait, retry backoff and download the
+ * job makes: their timeouts are clamped to the time left, and on expiry in-flight work is
+ * aborted and further checks fail with {@link DeadlineExceededException}.
+ */
+public final class Deadline {
+    private static final Deadline NONE = new Deadline(Long.MAX_VALUE);
+
+    // System.nanoTime() value at expiry, or Long.MAX_VALUE for no deadline
+    private final long expiresAtNanos;
+
+    private Deadline(long expiresAtNanos) {
+        this.expiresAtNanos = expiresAtNanos;
+    }
+
+    /**
+     * @param budget how long the job may run from now
+     * @return a deadline that expires after the budget
+     */
+    public static Deadline in(Duration budget) {
+        long nanos = budget.toNanos();
+        return new Deadline(System.nanoTime() + Math.max(0, nanos));
+    }
+
+    /**
+     * @return a deadline that never expires
+     */
+    public static Deadline none() {
+        return NONE;
+    }
+
+    /**
+     * @return true if this deadline never expires
+     */
+    public boolean isNone() {
+        return expiresAtNanos == Long.MAX_VALUE;
+    }
+
+    /**
+     * @return true once the deadline has passed
+     */
+    public boolean isExpired() {
+        return !isNone() && System.nanoTime() - expiresAtNanos >= 0;
+    }
+
+    /**
+     * @return milliseconds left (0 once expired), or {@code Long.MAX_VALUE} for no deadline
+     */
+    public long remainingMillis() {
+        if (isNone()) {
+            return Long.MAX_VALUE;
+        }
+        return Math.max(0, (expiresAtNanos - System.nanoTime()) / 1_000_000);
+    }
+
+    /**
+     * @return nanoseconds left (0 once expired), or {@code Long.MAX_VALUE} for no deadline
+     */
+    long remainingNanos() {
+        if (isNone()) {
+            return Long.MAX_VALUE;
+        }
+        return Math.max(0, expiresAtNanos - System.nanoTime());
+    }
+
+    /**
+     * Shortens a per-operation timeout so it does not run past this deadline.
+     *
+     * @param timeoutMillis the operation's own timeout
+     * @return the smaller of the two, but at least 1 ms so libraries that treat 0 as
+     * "no timeout" still give up
+     */
+    public int clamp(int timeoutMillis) {
+        return (int) Math.max(1, Math.min(timeoutMillis, remainingMillis()));
+    }
+
+    /**
+     * @param other another deadline
+     * @return whichever of the two expires first
+     */
+    public Deadline earliest(Deadline other) {
+        if (isNone()) {
+            return other;
+        }
+        if (other.isNone()) {
+            return this;
+        }
+        return expiresAtNanos - other.expiresAtNanos <= 0 ? this : other;
+    }
+
+    @Override
+    public String toString() {
+        return isNone() ? "Deadline[none]" : "Deadline[" + remainingMillis() + " ms left]";
+    }
+}
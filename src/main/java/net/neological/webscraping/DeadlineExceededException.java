@@ -0,0 +1,12 @@
+package net.neological.webscraping;
+
+/**
+ * Thrown from fetches and downloads once the job's {@link Deadline} has passed.
+ */
+public class DeadlineExceededException extends ScrapeCancelledException {
+    private static final long serialVersionUID = 1L;
+
+    public DeadlineExceededException(String message) {
+        super(message);
+    }
+}
@@ -1,20 +1,31 @@
 // src/main/java/net/neological/webscraping/FileDownloader.java
 package net.neological.webscraping;
 
+import org.jsoup.HttpStatusException;
+
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.HttpURLConnection;
+import java.net.URLConnection;
 import java.net.URI;
-import java.net.URL;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
 
 /**
  * Interface for downloading files from URLs to specified file paths.
  */
 public interface FileDownloader {
+    /** Connect and read timeout for downloads, unless a job deadline is closer. */
+    int DOWNLOAD_TIMEOUT_MILLIS = 10_000;
+
+    /**
+     * Sets the folder downloaded files are written to.
+     *
+     * @param downloadFolder the destination folder
+     */
+    void setDownloadFolder(String downloadFolder);
 
     /**
      * Downloads a file from the given URL to the specified file path.
@@ -24,39 +35,108 @@ public interface FileDownloader {
      * @throws IOException if an error occurs during download
      */
     default void downloadFile(String fileUrl, String filePath) throws IOException {
-        try {
-            URI uri = URI.create(fileUrl);
-            URL url = uri.toURL();
-
-            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-            connection.setRequestMethod("GET");
-            connection.setConnectTimeout(10_000); // 10 seconds
-            connection.setReadTimeout(10_000);
-
-            int statusCode = connection.getResponseCode();
-            if (statusCode != HttpURLConnection.HTTP_OK) {
-                throw new IOException("Failed to download file: HTTP status code " + statusCode);
-            }
+        Path destFile = Paths.get(filePath);
+        if (Files.isDirectory(destFile)) {
+            throw new IOException("The specified path is a directory: " + filePath);
+        }
 
-            Path dir = Paths.get(filePath);
-            if (Files.exists(dir) && !Files.isDirectory(dir)) {
-                connection.disconnect();
-                throw new IOException("The specified path exists and is not a directory: " + filePath);
+        // Stream data from the URL to the destination file
+        try (InputStream in = openDownload(fileUrl)) {
+            Path dir = destFile.toAbsolutePath().getParent();
+            if (dir != null) {
+                Files.createDirectories(dir);
             }
-            Files.createDirectories(dir);
+            try (OutputStream out = Files.newOutputStream(destFile)) {
+                copyCancellable(fileUrl, in, out);
+            }
+        }
+    }
 
-            // Destination file within the folder
-            Path destFile = dir.resolve(filePath);
+    /**
+     * Opens the given URL for streaming. The caller must close the returned stream, which also
+     * releases the underlying connection. Non-HTTP URLs (e.g. {@code file:}) are opened as-is.
+     *
+     * @param fileUrl the URL of the file to download
+     * @return the response body as a stream
+     * @throws IOException if the connection fails or the server does not answer 200 OK
+     */
+    default InputStream openDownload(String fileUrl) throws IOException {
+        return openUrl(fileUrl, downloadTimeoutMillis());
+    }
+
+    /**
+     * Opens a URL for streaming; the network side of {@link #openDownload(String)}.
+     *
+     * @param fileUrl       the URL of the file to download
+     * @param timeoutMillis connect and read timeout
+     * @return the response body as a stream
+     * @throws IOException if the connection fails or the server does not answer 200 OK
+     */
+    static InputStream openUrl(String fileUrl, int timeoutMillis) throws IOException {
+        // In virtual-thread mode the download holds a permit until its body is closed
+        return IoThreads.open(IoThreads.Kind.DOWNLOAD, () -> {
+            URLConnection connection = URI.create(fileUrl).toURL().openConnection();
+            connection.setConnectTimeout(timeoutMillis);
+            connection.setReadTimeout(timeoutMillis);
 
-            // Stream data from the URL to the destination file
-            try (InputStream in = connection.getInputStream()) {
-                Files.copy(in, destFile, StandardCopyOption.REPLACE_EXISTING);
-            } finally {
-                connection.disconnect();
+            if (connection instanceof HttpURLConnection http) {
+                http.setRequestMethod("GET");
+                int statusCode = http.getResponseCode();
+                if (statusCode != HttpURLConnection.HTTP_OK) {
+                    http.disconnect();
+                    throw new HttpStatusException("Failed to download file: HTTP status code " + statusCode, statusCode, fileUrl);
+                }
             }
+            return connection.getInputStream();
+        });
+    }
 
-        } catch (Exception e) {
-            System.err.println("Error downloading CSV: " + e.getMessage());
+    /**
+     * Copies a download body in chunks, reporting progress through
+     * {@link #downloadProgress(String, long)} and stopping as soon as {@link #isCancelled()}.
+     *
+     * @param fileUrl the URL being downloaded, for progress reports
+     * @param in      the response body
+     * @param out     the destination
+     * @return the number of bytes copied
+     * @throws IOException if reading or writing fails, or the download was cancelled
+     */
+    default long copyCancellable(String fileUrl, InputStream in, OutputStream out) throws IOException {
+        byte[] buffer = new byte[64 * 1024];
+        long total = 0;
+        int n;
+        while ((n = in.read(buffer)) > 0) {
+            if (isCancelled()) {
+                throw new ScrapeCancelledException("Download cancelled: " + fileUrl);
+            }
+            out.write(buffer, 0, n);
+            total += n;
+            downloadProgress(fileUrl, n);
         }
+        return total;
+    }
+
+    /**
+     * @return the connect and read timeout for downloads; implemented by
+     * {@link WebScraper#downloadTimeoutMillis()} to respect the job's deadline
+     */
+    default int downloadTimeoutMillis() {
+        return DOWNLOAD_TIMEOUT_MILLIS;
+    }
+
+    /**
+     * @return true if downloads should stop; implemented by {@link WebScraper#isCancelled()}
+     */
+    default boolean isCancelled() {
+        return false;
+    }
+
+    /**
+     * Progress callback; implemented by {@link WebScraper#downloadProgress(String, long)}.
+     *
+     * @param fileUrl the URL being downloaded
+     * @param bytes   bytes received since the last call
+     */
+    default void downloadProgress(String fileUrl, long bytes) {
     }
-}
\ No newline at end of file
+}
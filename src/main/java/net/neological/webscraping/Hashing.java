@@ -0,0 +1,57 @@
+package net.neological.webscraping;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The 64-bit hash shared by the sketches, the URL-seen filter, the consistent-hash ring, the
+ * download store's file sharding, the query service's ETags and the genre-refresh page
+ * fingerprints. Values are persisted by some of these (seen-URL buckets, genre snapshots), so
+ * the function must not change.
+ */
+public final class Hashing {
+
+    private Hashing() {
+    }
+
+    /**
+     * @param value the string to hash, as UTF-8
+     * @return its 64-bit hash
+     */
+    public static long hash64(String value) {
+        return hash64(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 64-bit MurmurHash3-style hash (fmix64 over 8-byte blocks).
+     *
+     * @param data the bytes to hash
+     * @return a well-mixed 64-bit hash
+     */
+    public static long hash64(byte[] data) {
+        long h = 0x9E3779B97F4A7C15L ^ data.length;
+        int i = 0;
+        for (; i + 8 <= data.length; i += 8) {
+            long k = 0;
+            for (int b = 7; b >= 0; b--) {
+                k = (k << 8) | (data[i + b] & 0xFFL);
+            }
+            h ^= mix(k);
+            h = Long.rotateLeft(h, 27) * 5 + 0x52DCE729;
+        }
+        long tail = 0;
+        for (int b = data.length - 1; b >= i; b--) {
+            tail = (tail << 8) | (data[b] & 0xFFL);
+        }
+        h ^= mix(tail);
+        return mix(h);
+    }
+
+    private static long mix(long k) {
+        k ^= k >>> 33;
+        k *= 0xFF51AFD7ED558CCDL;
+        k ^= k >>> 33;
+        k *= 0xC4CEB9FE1A85EC53L;
+        k ^= k >>> 33;
+        return k;
+    }
+}
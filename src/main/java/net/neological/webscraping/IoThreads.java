@@ -0,0 +1,476 @@
+package net.neological.webscraping;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Where the scrapers' blocking I/O runs: platform threads (the default) or virtual threads.
+ * <p>
+ * With virtual threads, the pools that fan out page fetches, renders and downloads start a
+ * virtual thread per task instead, so a crawl can keep tens of thousands of requests waiting
+ * for cheap. The work itself is then bounded per kind of I/O by a semaphore (see
+ * {@link #setLimit(Kind, int)}), as a pool size no longer limits it. A flight-recorder stream
+ * reports virtual threads that block while pinned to their carrier, e.g. inside a driver's
+ * {@code synchronized} block; see {@link #stats()}.
+ * <p>
+ * Virtual threads need Java 21. The build targets Java 17, so they are reached through
+ * reflection, and on an older runtime {@link #setVirtual(boolean)} reports that it stayed on
+ * platform threads. The mode can also be chosen with {@code -Dwebscraper.virtualThreads=true}.
+ */
+public final class IoThreads {
+    public static final String PROPERTY = "webscraper.virtualThreads";
+
+    /**
+     * Kinds of blocking I/O, each limited separately in virtual-thread mode.
+     */
+    public enum Kind {
+        /** Plain HTTP page fetches. */
+        FETCH(256),
+        /** Browser renders, local or remote; each local one holds a Chrome instance. */
+        RENDER(8),
+        /** File downloads, from opening the connection until the body is closed. */
+        DOWNLOAD(64);
+
+        private final int defaultLimit;
+
+        Kind(int defaultLimit) {
+            this.defaultLimit = defaultLimit;
+        }
+
+        public int defaultLimit() {
+            return defaultLimit;
+        }
+    }
+
+    /**
+     * The execution mode and what it has seen.
+     *
+     * @param virtual          whether I/O runs on virtual threads
+     * @param limits           the permits per kind of I/O
+     * @param peakInFlight     the most operations of each kind that ran at once in virtual-thread mode
+     * @param pinningMonitored whether pinning is being watched (virtual threads and JFR available)
+     * @param pinnedEvents     times a virtual thread blocked while pinned for longer than 20 ms
+     * @param pinnedMillis     total time spent pinned in those events
+     * @param pinnedAt         the code locations that pinned most often, with their counts
+     */
+    public record Stats(boolean virtual,
+                        Map<Kind, Integer> limits,
+                        Map<Kind, Integer> peakInFlight,
+                        boolean pinningMonitored,
+                        long pinnedEvents,
+                        long pinnedMillis,
+                        List<String> pinnedAt) {
+
+        @Override
+        public String toString() {
+            if (!virtual) {
+                return "platform threads";
+            }
+            String pinning = !pinningMonitored ? "pinning not monitored"
+                    : pinnedEvents == 0 ? "no pinning"
+                    : pinnedEvents + " pinned waits (" + pinnedMillis + " ms) at " + String.join(", ", pinnedAt);
+            return "virtual threads, peak in flight " + peakInFlight + " of " + limits + ", " + pinning;
+        }
+    }
+
+    private static final ThreadFactoryBuilder VIRTUAL = ThreadFactoryBuilder.find();
+
+    private static final Map<Kind, Semaphore> PERMITS = new EnumMap<>(Kind.class);
+    private static final Map<Kind, Integer> LIMITS = new EnumMap<>(Kind.class);
+    private static final Map<Kind, AtomicInteger> IN_FLIGHT = new EnumMap<>(Kind.class);
+    private static final Map<Kind, AtomicInteger> PEAK = new EnumMap<>(Kind.class);
+
+    private static volatile boolean virtual;
+    private static PinningMonitor pinning;
+
+    static {
+        for (Kind kind : Kind.values()) {
+            LIMITS.put(kind, kind.defaultLimit);
+            PERMITS.put(kind, new Semaphore(kind.defaultLimit));
+            IN_FLIGHT.put(kind, new AtomicInteger());
+            PEAK.put(kind, new AtomicInteger());
+        }
+        if (Boolean.getBoolean(PROPERTY)) {
+            setVirtual(true);
+        }
+    }
+
+    private IoThreads() {
+    }
+
+    /**
+     * @return true if this runtime has virtual threads
+     */
+    public static boolean isVirtualThreadsSupported() {
+        return VIRTUAL != null;
+    }
+
+    /**
+     * @return true if I/O currently runs on virtual threads
+     */
+    public static boolean isVirtual() {
+        return virtual;
+    }
+
+    /**
+     * Switches the execution mode for pools created and I/O started from now on.
+     *
+     * @param enabled true for virtual threads, false for platform threads
+     * @return the mode now in effect: false if virtual threads were asked for but this runtime has none
+     */
+    public static synchronized boolean setVirtual(boolean enabled) {
+        virtual = enabled && VIRTUAL != null;
+        if (virtual && pinning == null) {
+            try {
+                pinning = new PinningMonitor();
+            } catch (LinkageError | RuntimeException e) {
+                // No flight recorder in this runtime; run without the pinning report
+            }
+        } else if (!virtual && pinning != null) {
+            pinning.close();
+            pinning = null;
+        }
+        return virtual;
+    }
+
+    /**
+     * Sets how many operations of a kind may run at once in virtual-thread mode. Takes effect
+     * for operations started afterwards.
+     *
+     * @param kind  the kind of I/O
+     * @param limit the number of permits, at least 1
+     */
+    public static synchronized void setLimit(Kind kind, int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Limit must be at least 1: " + limit);
+        }
+        LIMITS.put(kind, limit);
+        PERMITS.put(kind, new Semaphore(limit));
+    }
+
+    /**
+     * @return the mode, the limits and peaks, and any pinning seen
+     */
+    public static synchronized Stats stats() {
+        Map<Kind, Integer> peaks = new EnumMap<>(Kind.class);
+        PEAK.forEach((kind, peak) -> peaks.put(kind, peak.get()));
+        return new Stats(virtual, Collections.unmodifiableMap(new EnumMap<>(LIMITS)), Collections.unmodifiableMap(peaks),
+                pinning != null,
+                pinning != null ? pinning.events() : 0, pinning != null ? pinning.pinnedMillis() : 0,
+                pinning != null ? pinning.topSites(3) : List.of());
+    }
+
+    /**
+     * Creates a pool for blocking tasks: a fixed pool of daemon platform threads, or in
+     * virtual-thread mode a virtual thread per task with at most {@code parallelism} running.
+     * Either way, shut it down when done.
+     *
+     * @param name        the thread name prefix
+     * @param parallelism the most tasks that run at once
+     * @return the pool
+     */
+    public static ExecutorService newExecutor(String name, int parallelism) {
+        if (virtual) {
+            return new BoundedExecutor(VIRTUAL.factory(name + "-"), parallelism);
+        }
+        AtomicInteger count = new AtomicInteger();
+        return Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * For the servers' own housekeeping threads (HTTP handlers, health checks, heartbeats),
+     * which stay on platform threads whatever the I/O mode so they never hold up shutdown.
+     *
+     * @param name the name given to every thread
+     * @return a factory of daemon platform threads
+     */
+    public static ThreadFactory daemonThreads(String name) {
+        return runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Runs one blocking operation, holding a permit of its kind in virtual-thread mode.
+     *
+     * @param kind the kind of I/O
+     * @param io   the operation
+     * @return its result
+     * @throws IOException if the operation fails, or the thread is interrupted while waiting for a permit
+     */
+    public static <T> T call(Kind kind, RequestExecutor.Attempt<T> io) throws IOException {
+        if (!virtual) {
+            return io.call();
+        }
+        Semaphore permits = acquire(kind);
+        try {
+            return io.call();
+        } finally {
+            release(kind, permits);
+        }
+    }
+
+    /**
+     * Opens a stream while holding a permit of its kind in virtual-thread mode; the permit is
+     * returned when the stream is closed.
+     *
+     * @param kind the kind of I/O
+     * @param open opens the stream
+     * @return the stream
+     * @throws IOException if opening fails, or the thread is interrupted while waiting for a permit
+     */
+    public static InputStream open(Kind kind, RequestExecutor.Attempt<InputStream> open) throws IOException {
+        if (!virtual) {
+            return open.call();
+        }
+        Semaphore permits = acquire(kind);
+        InputStream in;
+        try {
+            in = open.call();
+        } catch (IOException | RuntimeException | Error e) {
+            release(kind, permits);
+            throw e;
+        }
+        return new FilterInputStream(in) {
+            private boolean closed;
+
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    if (!closed) {
+                        closed = true;
+                        release(kind, permits);
+                    }
+                }
+            }
+        };
+    }
+
+    private static Semaphore acquire(Kind kind) throws InterruptedIOException {
+        Semaphore permits = PERMITS.get(kind);
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting to start " + kind.name().toLowerCase());
+        }
+        int running = IN_FLIGHT.get(kind).incrementAndGet();
+        PEAK.get(kind).accumulateAndGet(running, Math::max);
+        return permits;
+    }
+
+    private static void release(Kind kind, Semaphore permits) {
+        IN_FLIGHT.get(kind).decrementAndGet();
+        permits.release();
+    }
+
+    /**
+     * Builds virtual thread factories through {@code Thread.ofVirtual()}, which Java 17 does
+     * not have at compile time.
+     */
+    private static final class ThreadFactoryBuilder {
+        private final Method ofVirtual;
+        private final Method name;
+        private final Method factory;
+
+        private ThreadFactoryBuilder() throws ReflectiveOperationException {
+            Class<?> builder = Class.forName("java.lang.Thread$Builder");
+            ofVirtual = Thread.class.getMethod("ofVirtual");
+            name = builder.getMethod("name", String.class, long.class);
+            factory = builder.getMethod("factory");
+        }
+
+        /**
+         * @return the builder, or null if this runtime has no virtual threads (or only as a
+         * preview feature that is not enabled)
+         */
+        static ThreadFactoryBuilder find() {
+            try {
+                ThreadFactoryBuilder builder = new ThreadFactoryBuilder();
+                builder.factory("probe-");
+                return builder;
+            } catch (ReflectiveOperationException | RuntimeException | LinkageError e) {
+                return null;
+            }
+        }
+
+        ThreadFactory factory(String prefix) {
+            try {
+                Object builder = name.invoke(ofVirtual.invoke(null), prefix, 1L);
+                return (ThreadFactory) factory.invoke(builder);
+            } catch (InvocationTargetException e) {
+                throw e.getCause() instanceof RuntimeException runtime ? runtime : new IllegalStateException(e.getCause());
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    /**
+     * A thread per task, with at most {@code parallelism} tasks running; the others wait for a
+     * permit on their own (virtual) thread. Locks rather than monitors, which would pin.
+     * {@link #shutdownNow()} interrupts the running tasks and cancels and returns the waiting ones,
+     * like a pool's queued tasks.
+     */
+    private static final class BoundedExecutor extends AbstractExecutorService {
+        private final ThreadFactory threads;
+        private final Semaphore running;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition terminated = lock.newCondition();
+        private final Set<Thread> live = new HashSet<>();
+        // Tasks whose thread is still waiting for a permit, in submission order
+        private final Map<Thread, Runnable> waiting = new LinkedHashMap<>();
+        private boolean shutdown;
+
+        BoundedExecutor(ThreadFactory threads, int parallelism) {
+            this.threads = threads;
+            this.running = new Semaphore(parallelism);
+        }
+
+        @Override
+        public void execute(Runnable task) {
+            Thread thread = threads.newThread(() -> {
+                try {
+                    running.acquire();
+                    try {
+                        boolean claimed;
+                        lock.lock();
+                        try {
+                            // Gone if shutdownNow() handed the task back while this waited
+                            claimed = waiting.remove(Thread.currentThread()) != null;
+                        } finally {
+                            lock.unlock();
+                        }
+                        if (claimed) {
+                            task.run();
+                        }
+                    } finally {
+                        running.release();
+                    }
+                } catch (InterruptedException e) {
+                    // Shut down before the task could start; shutdownNow() returned it
+                } finally {
+                    lock.lock();
+                    try {
+                        live.remove(Thread.currentThread());
+                        terminated.signalAll();
+                    } finally {
+                        lock.unlock();
+                    }
+                }
+            });
+            lock.lock();
+            try {
+                if (shutdown) {
+                    throw new RejectedExecutionException("Executor is shut down");
+                }
+                live.add(thread);
+                waiting.put(thread, task);
+            } finally {
+                lock.unlock();
+            }
+            thread.start();
+        }
+
+        @Override
+        public void shutdown() {
+            lock.lock();
+            try {
+                shutdown = true;
+                terminated.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            List<Runnable> neverStarted;
+            lock.lock();
+            try {
+                shutdown = true;
+                neverStarted = new ArrayList<>(waiting.values());
+                waiting.clear();
+                live.forEach(Thread::interrupt);
+                terminated.signalAll();
+            } finally {
+                lock.unlock();
+            }
+            for (Runnable task : neverStarted) {
+                // Completes the futures of submit() and invokeAll(), whose callers would otherwise wait forever
+                if (task instanceof Future<?> future) {
+                    future.cancel(false);
+                }
+            }
+            return neverStarted;
+        }
+
+        @Override
+        public boolean isShutdown() {
+            lock.lock();
+            try {
+                return shutdown;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public boolean isTerminated() {
+            lock.lock();
+            try {
+                return shutdown && live.isEmpty();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+            long left = unit.toNanos(timeout);
+            lock.lock();
+            try {
+                while (!(shutdown && live.isEmpty())) {
+                    if (left <= 0) {
+                        return false;
+                    }
+                    left = terminated.awaitNanos(left);
+                }
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package net.neological.webscraping;
+
+/**
+ * JSON string escaping shared by the query service's responses and the JSONL exporter; the
+ * project has no JSON library.
+ */
+public final class Json {
+
+    private Json() {
+    }
+
+    /**
+     * @param c a character of a string value
+     * @return what to write in its place inside a JSON string, or null to write it as is
+     */
+    public static String escape(char c) {
+        return switch (c) {
+            case '"' -> "\\\"";
+            case '\\' -> "\\\\";
+            case '\n' -> "\\n";
+            case '\r' -> "\\r";
+            case '\t' -> "\\t";
+            default -> c < 0x20 ? String.format("\\u%04x", (int) c) : null;
+        };
+    }
+
+    /**
+     * Appends {@code value} to {@code out} as a quoted JSON string.
+     *
+     * @param out   where to append
+     * @param value the string
+     * @return {@code out}
+     */
+    public static StringBuilder quote(StringBuilder out, String value) {
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            String escape = escape(c);
+            if (escape != null) {
+                out.append(escape);
+            } else {
+                out.append(c);
+            }
+        }
+        return out.append('"');
+    }
+}
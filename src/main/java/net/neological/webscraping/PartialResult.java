@@ -0,0 +1,11 @@
+package net.neological.webscraping;
+
+/**
+ * The result of a job run under a {@link Deadline}: whatever was gathered, and whether the
+ * job got through all of its work before the deadline.
+ *
+ * @param value    the (possibly partial) result
+ * @param complete false if the deadline cut the job short
+ */
+public record PartialResult<T>(T value, boolean complete) {
+}
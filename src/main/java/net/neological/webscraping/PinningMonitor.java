@@ -0,0 +1,97 @@
+package net.neological.webscraping;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Watches for virtual threads that block while pinned to their carrier thread, e.g. inside a
+ * {@code synchronized} block of an HTTP or browser driver, using the JDK's
+ * {@code jdk.VirtualThreadPinned} flight-recorder event. Each event is attributed to the first
+ * frame outside the JDK, which is normally the driver or scraper code holding the monitor.
+ * <p>
+ * Kept apart from {@link IoThreads} so that runtimes without the {@code jdk.jfr} module only
+ * lose this report.
+ */
+final class PinningMonitor {
+    private static final String EVENT = "jdk.VirtualThreadPinned";
+    // The JDK's own default: shorter pins are normal and not worth reporting
+    private static final Duration THRESHOLD = Duration.ofMillis(20);
+
+    private final RecordingStream stream = new RecordingStream();
+    private final AtomicLong events = new AtomicLong();
+    private final LongAdder pinnedNanos = new LongAdder();
+    private final Map<String, LongAdder> sites = new ConcurrentHashMap<>();
+
+    PinningMonitor() {
+        stream.enable(EVENT).withThreshold(THRESHOLD).withStackTrace();
+        stream.onEvent(EVENT, this::record);
+        stream.startAsync();
+    }
+
+    long events() {
+        return events.get();
+    }
+
+    long pinnedMillis() {
+        return pinnedNanos.sum() / 1_000_000;
+    }
+
+    /**
+     * @param limit how many sites to return
+     * @return the code locations that pinned most often, most frequent first, as {@code site (count)}
+     */
+    List<String> topSites(int limit) {
+        List<Map.Entry<String, LongAdder>> sorted = new ArrayList<>(sites.entrySet());
+        sorted.sort(Comparator.comparingLong((Map.Entry<String, LongAdder> e) -> e.getValue().sum()).reversed());
+        List<String> top = new ArrayList<>();
+        for (Map.Entry<String, LongAdder> site : sorted.subList(0, Math.min(limit, sorted.size()))) {
+            top.add(site.getKey() + " (" + site.getValue().sum() + ")");
+        }
+        return top;
+    }
+
+    void close() {
+        stream.close();
+    }
+
+    private void record(RecordedEvent event) {
+        events.incrementAndGet();
+        pinnedNanos.add(event.getDuration().toNanos());
+        sites.computeIfAbsent(site(event), site -> new LongAdder()).increment();
+    }
+
+    private static String site(RecordedEvent event) {
+        if (event.getStackTrace() == null) {
+            return "unknown";
+        }
+        RecordedFrame fallback = null;
+        for (RecordedFrame frame : event.getStackTrace().getFrames()) {
+            if (!frame.isJavaFrame()) {
+                continue;
+            }
+            if (fallback == null) {
+                fallback = frame;
+            }
+            String type = frame.getMethod().getType().getName();
+            if (!type.startsWith("java.") && !type.startsWith("jdk.") && !type.startsWith("sun.")) {
+                return describe(frame);
+            }
+        }
+        return fallback != null ? describe(fallback) : "unknown";
+    }
+
+    private static String describe(RecordedFrame frame) {
+        return frame.getMethod().getType().getName() + "." + frame.getMethod().getName()
+                + (frame.getLineNumber() > 0 ? ":" + frame.getLineNumber() : "");
+    }
+}
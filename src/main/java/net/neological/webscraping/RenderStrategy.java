@@ -0,0 +1,11 @@
+package net.neological.webscraping;
+
+/**
+ * How a page is fetched before parsing.
+ */
+public enum RenderStrategy {
+    /** Plain HTTP GET; no JavaScript is executed. */
+    PLAIN,
+    /** Rendered in headless Chrome so scripts can build the page. */
+    BROWSER
+}
@@ -0,0 +1,179 @@
+package net.neological.webscraping;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+/**
+ * Remembers, per URL pattern, whether a plain HTTP fetch extracts the same data as a full
+ * browser render. Decisions are kept in a small properties file so they survive restarts;
+ * the default store lives in {@code ~/.cache/dockerized-webscraper/render-strategies.properties}.
+ * <p>
+ * The file is read on first use and rewritten (atomically) whenever a decision changes.
+ */
+public class RenderStrategyStore {
+    private static final Path DEFAULT_FILE = Paths.get(System.getProperty("user.home"),
+            ".cache", "dockerized-webscraper", "render-strategies.properties");
+
+    private static volatile RenderStrategyStore global;
+
+    private final Path file;
+    private Map<String, RenderStrategy> decisions;
+
+    /**
+     * Constructor.
+     *
+     * @param file the properties file decisions are loaded from and saved to
+     */
+    public RenderStrategyStore(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * @return the store shared by every scraper in this JVM
+     */
+    public static RenderStrategyStore global() {
+        RenderStrategyStore store = global;
+        if (store == null) {
+            synchronized (RenderStrategyStore.class) {
+                store = global;
+                if (store == null) {
+                    store = new RenderStrategyStore(DEFAULT_FILE);
+                    global = store;
+                }
+            }
+        }
+        return store;
+    }
+
+    /**
+     * Reduces a URL to the pattern decisions are kept under: the host, the first path
+     * segment, a {@code *} for every further directory and the file name if it carries no
+     * digits. Query strings are ignored, so listing pages, paginated pages and detail pages
+     * of one site each share a decision.
+     *
+     * @param url an absolute URL
+     * @return the pattern key, or the URL itself if it cannot be parsed
+     */
+    public static String patternOf(String url) {
+        URI uri;
+        try {
+            uri = new URI(url);
+        } catch (URISyntaxException e) {
+            return url;
+        }
+        if (uri.getHost() == null) {
+            return url;
+        }
+
+        StringBuilder pattern = new StringBuilder(uri.getHost().toLowerCase());
+        String path = uri.getPath() == null ? "" : uri.getPath();
+        String[] segments = path.split("/");
+        int index = 0;
+        for (int i = 0; i < segments.length; i++) {
+            String segment = segments[i];
+            if (segment.isEmpty()) {
+                continue;
+            }
+            boolean last = i == segments.length - 1 && !path.endsWith("/");
+            boolean literal = index == 0 || (last && segment.contains(".") && !segment.matches(".*\\d.*"));
+            pattern.append('/').append(literal ? segment : "*");
+            index++;
+        }
+        return pattern.toString();
+    }
+
+    /**
+     * @param pattern a pattern from {@link #patternOf(String)}
+     * @return the remembered strategy, or null if the pattern has not been checked yet
+     */
+    public synchronized RenderStrategy get(String pattern) {
+        return decisions().get(pattern);
+    }
+
+    /**
+     * Records a decision and saves the store if it changed.
+     *
+     * @param pattern  a pattern from {@link #patternOf(String)}
+     * @param strategy the cheapest strategy that extracts everything
+     */
+    public synchronized void record(String pattern, RenderStrategy strategy) {
+        if (decisions().put(pattern, strategy) != strategy) {
+            save();
+        }
+    }
+
+    /**
+     * Drops a decision so the pattern is checked again on its next fetch.
+     *
+     * @param pattern a pattern from {@link #patternOf(String)}
+     */
+    public synchronized void forget(String pattern) {
+        if (decisions().remove(pattern) != null) {
+            save();
+        }
+    }
+
+    /**
+     * @return a snapshot of every decision, sorted by pattern
+     */
+    public synchronized Map<String, RenderStrategy> snapshot() {
+        return new TreeMap<>(decisions());
+    }
+
+    private Map<String, RenderStrategy> decisions() {
+        if (decisions == null) {
+            decisions = new TreeMap<>();
+            if (Files.exists(file)) {
+                Properties properties = new Properties();
+                try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                    properties.load(reader);
+                } catch (IOException e) {
+                    // An unreadable file just means every pattern is checked again
+                }
+                for (String pattern : properties.stringPropertyNames()) {
+                    try {
+                        decisions.put(pattern, RenderStrategy.valueOf(properties.getProperty(pattern).trim()));
+                    } catch (IllegalArgumentException e) {
+                        // Ignore entries written by a newer version
+                    }
+                }
+            }
+        }
+        return decisions;
+    }
+
+    private void save() {
+        Properties properties = new Properties();
+        decisions.forEach((pattern, strategy) -> properties.setProperty(pattern, strategy.name()));
+        try {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+            Path temp = Files.createTempFile(file.toAbsolutePath().getParent(), "render-strategies", ".tmp");
+            try {
+                try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                    properties.store(writer, "Render strategy per URL pattern (PLAIN or BROWSER)");
+                }
+                try {
+                    Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch (IOException e) {
+            // The decision still holds for this run; it is simply learned again next time
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package net.neological.webscraping;
+
+import lombok.Getter;
+import lombok.Setter;
+import net.neological.webscraping.stats.QuantileSketch;
+import org.jsoup.HttpStatusException;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.MalformedURLException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import javax.net.ssl.SSLException;
+
+/**
+ * Runs page fetches under a {@link RequestPolicy}: transient failures are retried with
+ * exponential backoff and full jitter, fatal ones (bad URLs, 4xx answers, cancellation)
+ * fail at once, and with hedging enabled a second identical request is started when the
+ * first has been running longer than the observed latency quantile; whichever answers
+ * first wins and the other is interrupted.
+ * <p>
+ * One executor can be shared by cooperating scrapers so latencies and counters cover the
+ * whole job. Instances are thread-safe.
+ */
+public class RequestExecutor {
+    /** Latencies observed before the hedge delay follows the quantile instead of the minimum. */
+    static final int MIN_LATENCY_SAMPLES = 20;
+    private static final long CANCEL_CHECK_MILLIS = 100;
+
+    /** Hedged attempts, both the original and its duplicate, that run at once across all executors. */
+    private static final int HEDGE_THREADS = 64;
+
+    /**
+     * A single fetch attempt.
+     */
+    @FunctionalInterface
+    public interface Attempt<T> {
+        T call() throws IOException;
+    }
+
+    @Getter
+    @Setter
+    private volatile RequestPolicy policy;
+
+    private final QuantileSketch latencyMillis = new QuantileSketch();
+    private final LongAdder attempts = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder hedges = new LongAdder();
+    private final LongAdder hedgeWins = new LongAdder();
+
+    /**
+     * Constructor.
+     *
+     * @param policy the retry and hedging policy
+     */
+    public RequestExecutor(RequestPolicy policy) {
+        this.policy = policy;
+    }
+
+    /**
+     * Runs an attempt until it succeeds, fails fatally or the policy's attempts are used up.
+     *
+     * @param attempt the fetch to run; may be called several times, possibly concurrently when hedging
+     * @param monitor the job's monitor; backoff waits end early when it is cancelled
+     * @return the first successful result
+     * @throws IOException the last failure if no attempt succeeded
+     */
+    public <T> T execute(Attempt<T> attempt, ScrapeMonitor monitor) throws IOException {
+        return execute(attempt, monitor, true);
+    }
+
+    /**
+     * Like {@link #execute(Attempt, ScrapeMonitor)}, but lets callers whose attempts write to
+     * a shared destination (e.g. a file download) opt out of hedging.
+     *
+     * @param attempt      the fetch to run
+     * @param monitor      the job's monitor
+     * @param allowHedging false to never run two attempts at once, whatever the policy says
+     * @return the first successful result
+     * @throws IOException the last failure if no attempt succeeded
+     */
+    public <T> T execute(Attempt<T> attempt, ScrapeMonitor monitor, boolean allowHedging) throws IOException {
+        RequestPolicy policy = this.policy;
+        boolean hedge = allowHedging && policy.hedging();
+        long backoffCap = policy.initialBackoffMillis();
+        for (int attemptNo = 1; ; attemptNo++) {
+            monitor.checkCancelled();
+            attempts.increment();
+            try {
+                return hedge ? hedged(attempt, hedgeDelayMillis(policy)) : timed(attempt);
+            } catch (IOException e) {
+                if (attemptNo >= policy.maxAttempts() || !isRetryable(e) || monitor.isCancelled()) {
+                    throw e;
+                }
+            }
+            retries.increment();
+            sleep(ThreadLocalRandom.current().nextLong(backoffCap + 1), monitor);
+            backoffCap = Math.min(policy.maxBackoffMillis(), Math.max(1, backoffCap * 2));
+        }
+    }
+
+    /**
+     * Decides whether a failure is worth another attempt. Timeouts, dropped connections,
+     * browser failures, HTTP 408/429 and 5xx answers are; malformed URLs, unknown hosts,
+     * TLS errors, missing files, other HTTP 4xx answers and cancellation are not.
+     *
+     * @param e the failure
+     * @return true if the same request may succeed later
+     */
+    public static boolean isRetryable(IOException e) {
+        if (e instanceof InterruptedIOException && !(e instanceof SocketTimeoutException)) {
+            return false;
+        }
+        if (e instanceof HttpStatusException status) {
+            int code = status.getStatusCode();
+            return code == 408 || code == 429 || code >= 500;
+        }
+        return !(e instanceof MalformedURLException
+                || e instanceof UnknownHostException
+                || e instanceof SSLException
+                || e instanceof FileNotFoundException);
+    }
+
+    /**
+     * @param q a quantile in [0, 1]
+     * @return the observed latency at that quantile in milliseconds, or NaN before any request completed
+     */
+    public double latencyQuantile(double q) {
+        synchronized (latencyMillis) {
+            return latencyMillis.count() == 0 ? Double.NaN : latencyMillis.quantile(q);
+        }
+    }
+
+    /**
+     * @return attempts made, counting each hedged pair once
+     */
+    public long getAttemptCount() {
+        return attempts.sum();
+    }
+
+    public long getRetryCount() {
+        return retries.sum();
+    }
+
+    public long getHedgeCount() {
+        return hedges.sum();
+    }
+
+    /**
+     * @return hedged requests that answered before the request they were backing up
+     */
+    public long getHedgeWinCount() {
+        return hedgeWins.sum();
+    }
+
+    private long hedgeDelayMillis(RequestPolicy policy) {
+        synchronized (latencyMillis) {
+            if (latencyMillis.count() < MIN_LATENCY_SAMPLES) {
+                return policy.minHedgeDelayMillis();
+            }
+            return Math.max(policy.minHedgeDelayMillis(), (long) latencyMillis.quantile(policy.hedgeQuantile()));
+        }
+    }
+
+    private <T> T timed(Attempt<T> attempt) throws IOException {
+        long start = System.nanoTime();
+        T result = attempt.call();
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        synchronized (latencyMillis) {
+            latencyMillis.update(elapsedMillis);
+        }
+        return result;
+    }
+
+    private <T> T hedged(Attempt<T> attempt, long delayMillis) throws IOException {
+        CompletionService<T> completion = new ExecutorCompletionService<>(HedgePool.POOL);
+        List<Future<T>> futures = new ArrayList<>(2);
+        futures.add(completion.submit(() -> timed(attempt)));
+        try {
+            Future<T> done = completion.poll(delayMillis, TimeUnit.MILLISECONDS);
+            if (done == null) {
+                hedges.increment();
+                futures.add(completion.submit(() -> timed(attempt)));
+                done = completion.take();
+            }
+            try {
+                T result = done.get();
+                if (done != futures.get(0)) {
+                    hedgeWins.increment();
+                }
+                return result;
+            } catch (ExecutionException e) {
+                if (futures.size() < 2) {
+                    throw unwrap(e);
+                }
+                // One of the pair failed; the other may still succeed
+                Future<T> other = completion.take();
+                try {
+                    T result = other.get();
+                    if (other != futures.get(0)) {
+                        hedgeWins.increment();
+                    }
+                    return result;
+                } catch (ExecutionException second) {
+                    throw unwrap(second);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a page");
+        } finally {
+            for (Future<T> future : futures) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * Where hedged attempts run. Created on first use, so it follows the {@link IoThreads} mode
+     * chosen at startup.
+     */
+    private static final class HedgePool {
+        static final ExecutorService POOL = IoThreads.newExecutor("scrape-hedge", HEDGE_THREADS);
+    }
+
+    private static IOException unwrap(ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof IOException io) {
+            return io;
+        }
+        if (cause instanceof RuntimeException runtime) {
+            throw runtime;
+        }
+        if (cause instanceof Error error) {
+            throw error;
+        }
+        return new IOException(cause);
+    }
+
+    private static void sleep(long millis, ScrapeMonitor monitor) throws IOException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0) {
+            monitor.checkCancelled();
+            try {
+                Thread.sleep(Math.min(CANCEL_CHECK_MILLIS, TimeUnit.NANOSECONDS.toMillis(remaining) + 1));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted during retry backoff");
+            }
+        }
+        monitor.checkCancelled();
+    }
+}
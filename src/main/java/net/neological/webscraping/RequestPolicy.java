@@ -0,0 +1,53 @@
+package net.neological.webscraping;
+
+/**
+ * How page fetches are retried and hedged; see {@link RequestExecutor}.
+ *
+ * @param maxAttempts         attempts per fetch, including the first (1 disables retries)
+ * @param initialBackoffMillis upper bound of the delay before the first retry; doubles per retry
+ * @param maxBackoffMillis    cap on the backoff upper bound
+ * @param hedging             whether a second, identical request is started when the first is slow
+ * @param hedgeQuantile       the observed latency quantile after which the hedge is started (e.g. 0.95)
+ * @param minHedgeDelayMillis lower bound on the hedge delay; also used until enough latencies are observed
+ */
+public record RequestPolicy(int maxAttempts,
+                            long initialBackoffMillis,
+                            long maxBackoffMillis,
+                            boolean hedging,
+                            double hedgeQuantile,
+                            long minHedgeDelayMillis) {
+
+    /** Three attempts with 250 ms–5 s jittered backoff, no hedging. */
+    public static final RequestPolicy DEFAULT = new RequestPolicy(3, 250, 5_000, false, 0.95, 500);
+
+    /** A single attempt, as before retries were added. */
+    public static final RequestPolicy NO_RETRY = new RequestPolicy(1, 0, 0, false, 0.95, 500);
+
+    public RequestPolicy {
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("maxAttempts must be at least 1: " + maxAttempts);
+        }
+        if (initialBackoffMillis < 0 || maxBackoffMillis < initialBackoffMillis) {
+            throw new IllegalArgumentException("Invalid backoff range: " + initialBackoffMillis + ".." + maxBackoffMillis);
+        }
+        if (!(hedgeQuantile > 0 && hedgeQuantile < 1)) {
+            throw new IllegalArgumentException("hedgeQuantile must be in (0, 1): " + hedgeQuantile);
+        }
+    }
+
+    /**
+     * @param hedging whether to hedge slow requests
+     * @return a copy of this policy with hedging switched on or off
+     */
+    public RequestPolicy withHedging(boolean hedging) {
+        return new RequestPolicy(maxAttempts, initialBackoffMillis, maxBackoffMillis, hedging, hedgeQuantile, minHedgeDelayMillis);
+    }
+
+    /**
+     * @param maxAttempts attempts per fetch, including the first
+     * @return a copy of this policy with a different attempt limit
+     */
+    public RequestPolicy withMaxAttempts(int maxAttempts) {
+        return new RequestPolicy(maxAttempts, initialBackoffMillis, maxBackoffMillis, hedging, hedgeQuantile, minHedgeDelayMillis);
+    }
+}
@@ -0,0 +1,14 @@
+package net.neological.webscraping;
+
+import java.io.InterruptedIOException;
+
+/**
+ * Thrown from fetches and downloads once the scrape they belong to has been cancelled.
+ */
+public class ScrapeCancelledException extends InterruptedIOException {
+    private static final long serialVersionUID = 1L;
+
+    public ScrapeCancelledException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,219 @@
+package net.neological.webscraping;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Live progress counters and cancellation state for one scrape job. A scraper and any
+ * helper scrapers it creates (e.g. FRED series pages) share one monitor, so a job's
+ * figures and its cancel switch cover all of its work.
+ * <p>
+ * In-flight work that can block for a long time (Selenium sessions, HTTP downloads)
+ * registers a cancel hook while it runs; {@link #cancel()} fires every registered hook
+ * so that work is aborted immediately rather than at the next check. The same hooks fire
+ * when the job's {@link Deadline} expires.
+ */
+public class ScrapeMonitor {
+    private static final ScheduledExecutorService DEADLINE_TIMER =
+            Executors.newSingleThreadScheduledExecutor(IoThreads.daemonThreads("scrape-deadlines"));
+
+    private final long startNanos = System.nanoTime();
+    private final LongAdder pagesFetched = new LongAdder();
+    private final LongAdder bytesDownloaded = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final AtomicLong expectedPages = new AtomicLong();
+    private final Set<Runnable> cancelHooks = ConcurrentHashMap.newKeySet();
+    private volatile boolean cancelled;
+    private volatile Deadline deadline = Deadline.none();
+    private ScheduledFuture<?> deadlineAlarm;
+
+    /**
+     * Records one fetched page.
+     *
+     * @param bytes the size of the page, in bytes (or characters when only the text is known)
+     */
+    public void recordPage(long bytes) {
+        pagesFetched.increment();
+        bytesDownloaded.add(bytes);
+    }
+
+    /**
+     * @param bytes bytes of file content received
+     */
+    public void recordDownload(long bytes) {
+        bytesDownloaded.add(bytes);
+    }
+
+    public void recordError() {
+        errors.increment();
+    }
+
+    /**
+     * Adds to the number of pages the job is known to need, used for the ETA.
+     *
+     * @param pages additional pages discovered
+     */
+    public void expectMorePages(long pages) {
+        expectedPages.addAndGet(pages);
+    }
+
+    public long getPagesFetched() {
+        return pagesFetched.sum();
+    }
+
+    public long getBytesDownloaded() {
+        return bytesDownloaded.sum();
+    }
+
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    public long getExpectedPages() {
+        return expectedPages.get();
+    }
+
+    /**
+     * @return pages fetched per second since the monitor was created
+     */
+    public double getPagesPerSecond() {
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        return seconds > 0 ? getPagesFetched() / seconds : 0.0;
+    }
+
+    /**
+     * @return estimated seconds until all expected pages are fetched, or -1 if unknown
+     */
+    public long getEtaSeconds() {
+        long remaining = getExpectedPages() - getPagesFetched();
+        double rate = getPagesPerSecond();
+        if (remaining <= 0 || rate <= 0) {
+            return -1;
+        }
+        return Math.round(remaining / rate);
+    }
+
+    /**
+     * Registers a hook that aborts a piece of in-flight work. If the job is already
+     * cancelled or past its deadline the hook runs immediately.
+     *
+     * @param hook the abort action (e.g. {@code driver::quit})
+     * @return the same hook, for {@link #unregisterCancelHook(Runnable)}
+     */
+    public Runnable registerCancelHook(Runnable hook) {
+        cancelHooks.add(hook);
+        if (isCancelled()) {
+            runHook(hook);
+        }
+        return hook;
+    }
+
+    /**
+     * @param hook a hook previously registered, once its work has finished
+     */
+    public void unregisterCancelHook(Runnable hook) {
+        cancelHooks.remove(hook);
+    }
+
+    /**
+     * Cancels the job: later checks fail and every registered hook runs once.
+     */
+    public void cancel() {
+        cancelled = true;
+        for (Runnable hook : cancelHooks) {
+            runHook(hook);
+        }
+    }
+
+    /**
+     * @return true if {@link #cancel()} was called, regardless of the deadline
+     */
+    public boolean isCancelRequested() {
+        return cancelled;
+    }
+
+    /**
+     * @return true if the job was cancelled or its deadline has passed
+     */
+    public boolean isCancelled() {
+        return cancelled || deadline.isExpired();
+    }
+
+    /**
+     * @throws DeadlineExceededException if the job's deadline has passed
+     * @throws ScrapeCancelledException  if the job has been cancelled
+     */
+    public void checkCancelled() throws ScrapeCancelledException {
+        if (cancelled) {
+            throw new ScrapeCancelledException("Scrape was cancelled");
+        }
+        if (deadline.isExpired()) {
+            throw new DeadlineExceededException("Scrape deadline exceeded");
+        }
+    }
+
+    /**
+     * Sets the deadline for the rest of the job. When it expires every registered cancel hook
+     * runs, just as for {@link #cancel()}, but the job is not marked cancelled: replacing the
+     * deadline lets the monitor be used again.
+     *
+     * @param deadline the new deadline; {@link Deadline#none()} removes it
+     */
+    public synchronized void setDeadline(Deadline deadline) {
+        if (deadlineAlarm != null) {
+            deadlineAlarm.cancel(false);
+            deadlineAlarm = null;
+        }
+        this.deadline = deadline;
+        if (!deadline.isNone()) {
+            // Scheduled to the nanosecond: an alarm rounded down to whole milliseconds could fire
+            // just before the deadline, find it not yet expired and never run the hooks
+            deadlineAlarm = DEADLINE_TIMER.schedule(this::deadlineExpired, deadline.remainingNanos(), TimeUnit.NANOSECONDS);
+        }
+    }
+
+    public Deadline getDeadline() {
+        return deadline;
+    }
+
+    /**
+     * @return true if the job's deadline has passed (as opposed to an explicit cancel)
+     */
+    public boolean isDeadlineExpired() {
+        return deadline.isExpired();
+    }
+
+    /**
+     * @param timeoutMillis an operation's own timeout
+     * @return the timeout shortened to the time left before the deadline
+     */
+    public int clampTimeout(int timeoutMillis) {
+        return deadline.clamp(timeoutMillis);
+    }
+
+    private void deadlineExpired() {
+        if (!deadline.isExpired()) {
+            // Rescheduled or replaced in the meantime
+            return;
+        }
+        for (Runnable hook : cancelHooks) {
+            runHook(hook);
+        }
+    }
+
+    private void runHook(Runnable hook) {
+        if (cancelHooks.remove(hook)) {
+            try {
+                hook.run();
+            } catch (RuntimeException e) {
+                // The work is being torn down anyway
+            }
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package net.neological.webscraping;
+
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Service-provider interface for scrapers, discovered through {@link java.util.ServiceLoader}
+ * (see {@code META-INF/services/net.neological.webscraping.ScraperProvider}).
+ * <p>
+ * A provider describes what its scraper needs so callers can pick the cheapest way to run
+ * it without knowing the concrete class, and creates instances without reflection.
+ * Implementations should not touch the scraper class outside {@link #create}, so that
+ * discovering providers stays cheap.
+ */
+public interface ScraperProvider {
+
+    /**
+     * @return the display name, unique among providers (e.g. "FRED")
+     */
+    String name();
+
+    /**
+     * @return regular expressions matching the URLs this scraper accepts
+     */
+    List<Pattern> urlPatterns();
+
+    /**
+     * @return true if pages must be rendered in a browser for the scraper to find its data;
+     *         false if a plain HTTP fetch is enough
+     */
+    boolean requiresJavaScript();
+
+    /**
+     * @return true if the scraper writes files and therefore needs a download folder
+     */
+    boolean downloadsFiles();
+
+    /**
+     * @return true if the scraper is a {@link SeriesDownloader}
+     */
+    default boolean downloadsSeries() {
+        return false;
+    }
+
+    /**
+     * @return true if the scraper is a {@link net.neological.webscraping.export.ResultExporter}
+     */
+    default boolean supportsExport() {
+        return false;
+    }
+
+    /**
+     * @return true if the scraper is a {@link net.neological.webscraping.specific.GenreScraper}
+     */
+    default boolean supportsGenres() {
+        return false;
+    }
+
+    /**
+     * @return how many pages this scraper should fetch at once
+     */
+    int preferredConcurrency();
+
+    /**
+     * Creates a new scraper instance.
+     *
+     * @param userAgent     the User-Agent header to present when fetching pages.
+     * @param timeoutMillis the timeout (in milliseconds) for page loading.
+     * @return a fresh, unconfigured scraper
+     */
+    WebScraper create(String userAgent, int timeoutMillis);
+
+    /**
+     * @param url a URL
+     * @return true if one of {@link #urlPatterns()} matches it
+     */
+    default boolean accepts(String url) {
+        if (url == null) {
+            return false;
+        }
+        for (Pattern pattern : urlPatterns()) {
+            if (pattern.matcher(url).matches()) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
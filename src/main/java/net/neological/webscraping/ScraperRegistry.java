@@ -0,0 +1,93 @@
+package net.neological.webscraping;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.ServiceLoader;
+
+/**
+ * Registry of the {@link ScraperProvider}s found on the class path. Providers are
+ * discovered once, on first use, and kept for the life of the JVM.
+ */
+public final class ScraperRegistry {
+    private static volatile Map<String, ScraperProvider> providers;
+
+    private ScraperRegistry() {
+    }
+
+    /**
+     * @return every provider, in the order they were discovered
+     */
+    public static List<ScraperProvider> all() {
+        return Collections.unmodifiableList(new ArrayList<>(providers().values()));
+    }
+
+    /**
+     * @return the provider names, in discovery order
+     */
+    public static List<String> names() {
+        return new ArrayList<>(providers().keySet());
+    }
+
+    /**
+     * @param name a provider name (case-insensitive)
+     * @return the provider, if registered
+     */
+    public static Optional<ScraperProvider> find(String name) {
+        for (ScraperProvider provider : providers().values()) {
+            if (provider.name().equalsIgnoreCase(name)) {
+                return Optional.of(provider);
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * @param url a URL
+     * @return the first provider whose URL patterns accept it, if any
+     */
+    public static Optional<ScraperProvider> forUrl(String url) {
+        for (ScraperProvider provider : providers().values()) {
+            if (provider.accepts(url)) {
+                return Optional.of(provider);
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Creates a scraper and configures it from its provider's metadata: the cheap plain-HTTP
+     * fetch path when no JavaScript is needed, and the provider's preferred concurrency.
+     *
+     * @param provider      the provider to create from
+     * @param userAgent     the User-Agent header to present when fetching pages.
+     * @param timeoutMillis the timeout (in milliseconds) for page loading.
+     * @return the configured scraper
+     */
+    public static WebScraper create(ScraperProvider provider, String userAgent, int timeoutMillis) {
+        WebScraper scraper = provider.create(userAgent, timeoutMillis);
+        scraper.setRenderJavaScript(provider.requiresJavaScript());
+        scraper.setMaxConcurrency(provider.preferredConcurrency());
+        return scraper;
+    }
+
+    private static Map<String, ScraperProvider> providers() {
+        Map<String, ScraperProvider> loaded = providers;
+        if (loaded == null) {
+            synchronized (ScraperRegistry.class) {
+                loaded = providers;
+                if (loaded == null) {
+                    loaded = new LinkedHashMap<>();
+                    for (ScraperProvider provider : ServiceLoader.load(ScraperProvider.class)) {
+                        loaded.putIfAbsent(provider.name(), provider);
+                    }
+                    providers = loaded;
+                }
+            }
+        }
+        return loaded;
+    }
+}
@@ -0,0 +1,34 @@
+package net.neological.webscraping;
+
+import net.neological.webscraping.storage.DownloadStore;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * A downloader of data series into a {@link DownloadStore} in its download folder. Scrapers
+ * whose provider reports {@link ScraperProvider#downloadsSeries()} implement it.
+ */
+public interface SeriesDownloader extends FileDownloader {
+
+    /**
+     * Downloads one series. A failure is thrown rather than reported as an event.
+     *
+     * @param seriesUrl the series page URL
+     * @return the file written
+     * @throws IOException if the download fails
+     */
+    Path downloadSeries(String seriesUrl) throws IOException;
+
+    /**
+     * @param maxSeries how many series a search downloads at most
+     */
+    void setMaxSeries(int maxSeries);
+
+    DownloadStore.Options getStoreOptions();
+
+    /**
+     * @param storeOptions how series are laid out and synced in the download folder
+     */
+    void setStoreOptions(DownloadStore.Options storeOptions);
+}
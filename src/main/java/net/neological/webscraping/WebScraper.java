@@ -1,25 +1,153 @@
 package net.neological.webscraping;
 
-import io.github.bonigarcia.wdm.WebDriverManager;
+import lombok.Getter;
+import lombok.Setter;
+import net.neological.webscraping.events.ScrapeEvent;
+import net.neological.webscraping.events.ScrapeEventBus;
+import net.neological.webscraping.frontier.UrlSeenFilter;
+import net.neological.webscraping.render.RemoteRenderBackend;
+import net.neological.webscraping.render.RenderBackend;
+import net.neological.webscraping.render.RenderRequest;
+import net.neological.webscraping.render.RenderedPage;
+import net.neological.webscraping.replay.ArchivedResponse;
+import net.neological.webscraping.replay.FetchRecorder;
+import net.neological.webscraping.replay.FetchReplayer;
+import org.jsoup.Connection;
+import org.jsoup.HttpStatusException;
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
-import org.openqa.selenium.WebDriver;
-import org.openqa.selenium.chrome.ChromeDriver;
-import org.openqa.selenium.chrome.ChromeOptions;
+import org.jsoup.select.Elements;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
-import java.time.Duration;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 
 /**
  * Abstract base class that uses Selenium (with WebDriverManager) to load the page
- * (allowing any JavaScript to execute), then hands the fully rendered HTML to Jsoup
- * for parsing. Subclasses must implement parse(...) and isValid(...).
+ * (allowing any JavaScript to execute), in this JVM or on render workers via its
+ * {@link RenderBackend}, then hands the fully rendered HTML to Jsoup
+ * for parsing. Scrapers of static sites can switch to a plain HTTP fetch instead, or let
+ * adaptive rendering work out per URL pattern whether the browser is needed.
+ * Subclasses must implement parse(...) and isValid(...).
  */
 public abstract class WebScraper {
+    /** Default cap on pages fetched at the same time by one scraper. */
+    public static final int DEFAULT_MAX_CONCURRENCY = 4;
+
+    // Response headers of the plain fetch running on this thread, handed from fetchPlain to the recorder
+    private static final ThreadLocal<Map<String, String>> RECORDED_HEADERS = new ThreadLocal<>();
+    // Archive header holding the URL a page ended up on, when a redirect moved it
+    private static final String FINAL_URL_HEADER = "Content-Location";
+
     protected final String userAgent;
     protected final int timeoutMillis;
     protected Document document;
 
+    /**
+     * Maximum number of pages this scraper fetches concurrently when it fans out
+     * (e.g. detail pages). Single-page {@link #scrape(String)} calls are unaffected.
+     */
+    @Getter
+    @Setter
+    protected int maxConcurrency = DEFAULT_MAX_CONCURRENCY;
+
+    /**
+     * Progress counters and cancellation state. Replace it to share one monitor between
+     * cooperating scrapers.
+     */
+    @Getter
+    @Setter
+    protected ScrapeMonitor monitor = new ScrapeMonitor();
+
+    /**
+     * Whether pages are rendered in a browser before parsing. Scrapers created through
+     * {@link ScraperRegistry} take this from their provider's metadata.
+     */
+    @Getter
+    @Setter
+    protected boolean renderJavaScript = true;
+
+    /**
+     * When set, {@code renderJavaScript} is ignored: the first page of each URL pattern is
+     * fetched both ways and the browser is only kept for patterns where the plain fetch
+     * misses data. Decisions are remembered in {@code renderStrategies}.
+     */
+    @Getter
+    @Setter
+    protected boolean adaptiveRendering;
+
+    /**
+     * Where browser renders run: headless Chrome in this JVM unless a pool of render workers
+     * is set (see {@link RemoteRenderBackend}).
+     */
+    @Getter
+    @Setter
+    protected RenderBackend renderBackend = RenderBackend.local();
+
+    /**
+     * Retries, backoff and hedging for page fetches, plus their counters. Share one executor
+     * between cooperating scrapers to pool latencies for the hedge threshold.
+     */
+    @Getter
+    @Setter
+    protected RequestExecutor requestExecutor = new RequestExecutor(RequestPolicy.DEFAULT);
+
+    /**
+     * When set, every page and download this scraper fetches is captured into an archive.
+     */
+    @Getter
+    @Setter
+    protected FetchRecorder recorder;
+
+    /**
+     * When set, pages and downloads are served from a recorded archive instead of the network.
+     */
+    @Getter
+    @Setter
+    protected FetchReplayer replayer;
+
+    /**
+     * When set, follow-up pages the scraper would otherwise crawl itself (e.g. FRED series) are
+     * handed here instead, so a crawl coordinator can spread them over workers.
+     */
+    @Getter
+    @Setter
+    protected Consumer<String> linkSink;
+
+    /**
+     * When set, pages already recorded here (e.g. FRED series downloaded by an earlier run) are
+     * skipped, and pages crawled successfully are recorded.
+     */
+    @Getter
+    @Setter
+    protected UrlSeenFilter seenUrls;
+
+    // Canonical origin to the origin requests are actually sent to; see overrideOrigin
+    private final Map<String, String> originOverrides = new ConcurrentHashMap<>();
+
+    /**
+     * Where adaptive rendering keeps its per-pattern decisions.
+     */
+    @Setter
+    protected RenderStrategyStore renderStrategies;
+
+    /**
+     * Where progress events are published; listeners (GUI, CLI, metrics, file logs)
+     * subscribe to the bus rather than reading console output.
+     */
+    @Getter
+    @Setter
+    protected ScrapeEventBus eventBus = ScrapeEventBus.global();
+
     /**
      * Constructor.
      *
@@ -42,42 +170,461 @@ public abstract class WebScraper {
             throw new IllegalArgumentException("URL failed isValid() check: " + url);
         }
 
+        monitor.expectMorePages(1);
         document = fetchDocument(url);
     }
 
     /**
-     * Uses WebDriverManager to set up ChromeDriver, launches headless Chrome with the specified User-Agent,
-     * navigates to the URL, waits up to {@code timeoutMillis} for the page to load, then grabs the page source
-     * and parses it via Jsoup.
+     * Scrapes a page under an overall deadline that covers every fetch, retry, render wait and
+     * download the scrape makes, including those of helper scrapers sharing this monitor.
+     * Work still running when the deadline passes is aborted; what finished before is kept.
+     *
+     * @param url      the full URL of the page to scrape.
+     * @param deadline when the whole scrape must be done by
+     * @return true if the scrape finished, false if the deadline cut it short
+     * @throws IOException if the scrape fails for another reason
+     */
+    public boolean scrape(String url, Deadline deadline) throws IOException {
+        return runWithin(deadline, () -> scrape(url));
+    }
+
+    /**
+     * Runs a piece of this scraper's work (e.g. a genre crawl) under a deadline. The deadline
+     * is set on the monitor for the duration, so it reaches every child fetch and download;
+     * an enclosing deadline that expires sooner still applies.
+     * <p>
+     * A task that ends just as the deadline passes is conservatively reported as incomplete.
      *
-     * @param url the URL to fetch and render.
-     * @return a Jsoup Document representing the fully rendered page.
-     * @throws IOException if Selenium fails or Jsoup cannot parse the HTML.
+     * @param deadline when the task must be done by
+     * @param task     the work to run
+     * @return true if the task finished in time, false if the deadline cut it short
+     * @throws IOException if the task fails for another reason, or the job was cancelled
+     */
+    public boolean runWithin(Deadline deadline, BudgetedTask task) throws IOException {
+        Deadline previous = monitor.getDeadline();
+        monitor.setDeadline(deadline.earliest(previous));
+        try {
+            task.run();
+            return !monitor.isDeadlineExpired();
+        } catch (IOException e) {
+            // Anything that fails once the deadline has passed is most likely the abort itself
+            if (monitor.isDeadlineExpired() && !monitor.isCancelRequested()) {
+                return false;
+            }
+            throw e;
+        } finally {
+            monitor.setDeadline(previous);
+        }
+    }
+
+    /**
+     * Work run by {@link #runWithin(Deadline, BudgetedTask)}.
+     */
+    @FunctionalInterface
+    public interface BudgetedTask {
+        void run() throws IOException;
+    }
+
+    /**
+     * Cancels this scraper's job: in-flight Selenium sessions and downloads are aborted and
+     * further fetches fail with {@link ScrapeCancelledException}.
+     */
+    public void cancel() {
+        monitor.cancel();
+    }
+
+    /**
+     * @return true once {@link #cancel()} has been called on this scraper's monitor
+     */
+    public boolean isCancelled() {
+        return monitor.isCancelled();
+    }
+
+    /**
+     * Connect and read timeout for file downloads made on behalf of this scraper, shortened
+     * to the time left before the job's deadline.
+     *
+     * @return the timeout in milliseconds
+     */
+    public int downloadTimeoutMillis() {
+        return monitor.clampTimeout(FileDownloader.DOWNLOAD_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * Progress callback for file downloads made on behalf of this scraper.
+     *
+     * @param fileUrl the URL being downloaded
+     * @param bytes   bytes received since the last call
+     */
+    public void downloadProgress(String fileUrl, long bytes) {
+        monitor.recordDownload(bytes);
+        eventBus.publish(new ScrapeEvent.DownloadProgress(fileUrl, bytes));
+    }
+
+    /**
+     * Fetches the page at the given URL and parses it via Jsoup. With {@code renderJavaScript}
+     * set (the default) the page is rendered in headless Chrome; otherwise it is fetched with
+     * a plain HTTP GET, which is far cheaper for static sites. With {@code adaptiveRendering}
+     * the strategy is chosen per URL pattern instead. Failed fetches are retried (and slow
+     * ones hedged) according to the {@code requestExecutor}'s policy.
+     *
+     * @param url the URL to fetch.
+     * @return a Jsoup Document representing the page.
+     * @throws IOException if the fetch fails or Jsoup cannot parse the HTML.
      */
     protected Document fetchDocument(String url) throws IOException {
-        WebDriverManager.chromedriver().setup();
+        monitor.checkCancelled();
+        long start = System.nanoTime();
+        eventBus.publish(new ScrapeEvent.FetchStarted(url));
+        try {
+            Fetched fetched = requestExecutor.execute(() -> fetchOnce(url), monitor);
+            monitor.recordPage(fetched.bytes());
+            eventBus.publish(new ScrapeEvent.FetchCompleted(url, fetched.bytes(), System.nanoTime() - start));
+
+            return fetched.document();
+        } catch (IOException e) {
+            monitor.recordError();
+            monitor.checkCancelled();
+            eventBus.publish(new ScrapeEvent.Failure(url, "Failed to fetch/render page: " + e.getMessage(), e));
+            throw e;
+        }
+    }
+
+    /**
+     * @return the store adaptive rendering decisions are kept in; the shared one unless replaced
+     */
+    public RenderStrategyStore getRenderStrategies() {
+        if (renderStrategies == null) {
+            renderStrategies = RenderStrategyStore.global();
+        }
+        return renderStrategies;
+    }
+
+    /**
+     * Tells adaptive rendering that parsing a page found less than expected, so its URL
+     * pattern is compared again on the next fetch. Has no effect otherwise.
+     *
+     * @param url the page whose extraction came up short
+     */
+    public void reportExtractionFailure(String url) {
+        if (adaptiveRendering) {
+            getRenderStrategies().forget(RenderStrategyStore.patternOf(url));
+        }
+    }
+
+    /**
+     * CSS selectors for the data this scraper extracts. Adaptive rendering only trusts a
+     * plain fetch for a URL pattern when these select the same elements, with the same text,
+     * as in the rendered page. Subclasses should list the selectors their parsing relies on.
+     *
+     * @return the selectors to compare
+     */
+    protected List<String> probeSelectors() {
+        return List.of("a[href]");
+    }
+
+    /**
+     * Summarises what {@link #probeSelectors()} find in a page.
+     *
+     * @param page a parsed page
+     * @return a comparable signature, or an empty string if none of the selectors match
+     */
+    protected String extractionSignature(Document page) {
+        StringBuilder signature = new StringBuilder();
+        boolean found = false;
+        for (String selector : probeSelectors()) {
+            Elements elements = page.select(selector);
+            found |= !elements.isEmpty();
+            signature.append(selector).append('=').append(elements.size())
+                    .append(':').append(elements.text().hashCode()).append(';');
+        }
+        return found ? signature.toString() : "";
+    }
+
+    private Fetched fetchOnce(String url) throws IOException {
+        if (adaptiveRendering) {
+            return fetchAdaptively(url);
+        }
+        if (renderJavaScript) {
+            return parsed(rendered(url));
+        }
+        String html = plain(url);
+        return new Fetched(Jsoup.parse(html, url), html.length());
+    }
 
-        ChromeOptions options = new ChromeOptions();
-        options.addArguments("--headless");
-        options.addArguments("--disable-gpu");
-        options.addArguments("--no-sandbox");
-        options.addArguments("--blink-settings=imagesEnabled=false"); // turn off image loading
-        options.addArguments("--user-agent=" + userAgent);
+    private Fetched fetchAdaptively(String url) throws IOException {
+        RenderStrategyStore store = getRenderStrategies();
+        String pattern = RenderStrategyStore.patternOf(url);
+        RenderStrategy known = store.get(pattern);
 
-        WebDriver driver = new ChromeDriver(options);
+        if (known == RenderStrategy.BROWSER) {
+            return parsed(rendered(url));
+        }
+        if (known == RenderStrategy.PLAIN) {
+            try {
+                String html = plain(url);
+                Document page = Jsoup.parse(html, url);
+                if (!extractionSignature(page).isEmpty()) {
+                    return new Fetched(page, html.length());
+                }
+                // Nothing extracted: check against the browser before trusting the empty page
+                return learn(url, pattern, page);
+            } catch (ScrapeCancelledException e) {
+                throw e;
+            } catch (IOException e) {
+                // The plain request was refused or failed; the browser may still get through
+                return learn(url, pattern, null);
+            }
+        }
+
+        Document plain = null;
         try {
-            driver.manage().timeouts().pageLoadTimeout(Duration.ofMillis(timeoutMillis));
+            plain = Jsoup.parse(plain(url), url);
+        } catch (ScrapeCancelledException e) {
+            throw e;
+        } catch (IOException e) {
+            // Counts as a mismatch below
+        }
+        return learn(url, pattern, plain);
+    }
 
-            driver.get(url);
+    private Fetched learn(String url, String pattern, Document plain) throws IOException {
+        Fetched fetched = parsed(rendered(url));
+        String expected = extractionSignature(fetched.document());
+        // An empty rendered page proves nothing either way, so the decision is left alone
+        if (!expected.isEmpty()) {
+            boolean plainSuffices = plain != null && Objects.equals(expected, extractionSignature(plain));
+            getRenderStrategies().record(pattern, plainSuffices ? RenderStrategy.PLAIN : RenderStrategy.BROWSER);
+        }
+        return fetched;
+    }
+
+    /**
+     * Parses a rendered page against the URL the browser ended up on, so links on a page
+     * reached through a redirect resolve as they did in the browser.
+     */
+    private static Fetched parsed(RenderedPage page) {
+        return new Fetched(Jsoup.parse(page.html(), page.url()), page.html().length());
+    }
+
+    private record Fetched(Document document, int bytes) {
+    }
+
+    /**
+     * Renders the URL on the {@link #renderBackend}, waiting up to {@code timeoutMillis} for
+     * the page to load.
+     *
+     * @param url the URL to render.
+     * @return the rendered HTML and the URL the browser ended up on.
+     * @throws IOException if rendering fails.
+     */
+    protected RenderedPage renderPage(String url) throws IOException {
+        return renderBackend.render(RenderRequest.page(url, userAgent, timeoutMillis), monitor);
+    }
 
-            String html = driver.getPageSource();
+    /**
+     * Fetches the raw HTML at the URL with a plain HTTP GET; no JavaScript is executed.
+     *
+     * @param url the URL to fetch.
+     * @return the response body.
+     * @throws IOException if the request fails or the server answers with an error status.
+     */
+    protected String fetchPlain(String url) throws IOException {
+        Connection.Response response = Jsoup.connect(url)
+                .userAgent(userAgent)
+                .timeout(monitor.clampTimeout(timeoutMillis))
+                .maxBodySize(0)
+                .execute();
+        if (recorder != null) {
+            RECORDED_HEADERS.set(response.headers());
+        }
+        return response.body();
+    }
 
-            return Jsoup.parse(html, url);
-        } catch (Exception e) {
-            throw new IOException("Failed to fetch/render page via Selenium: " + e.getMessage(), e);
+    /**
+     * Opens a file download on behalf of this scraper. Scrapers that implement
+     * {@link FileDownloader} inherit this in place of its default, so downloads are recorded
+     * and replayed along with pages.
+     *
+     * @param fileUrl the URL of the file to download
+     * @return the response body as a stream
+     * @throws IOException if the connection fails or the server does not answer 200 OK
+     */
+    public InputStream openDownload(String fileUrl) throws IOException {
+        if (replayer != null) {
+            return new ByteArrayInputStream(replayer.replay(ArchivedResponse.Kind.DOWNLOAD, fileUrl));
+        }
+        if (recorder == null) {
+            return FileDownloader.openUrl(transportUrl(fileUrl), downloadTimeoutMillis());
+        }
+
+        long start = System.nanoTime();
+        InputStream in;
+        try {
+            in = FileDownloader.openUrl(transportUrl(fileUrl), downloadTimeoutMillis());
+        } catch (IOException e) {
+            recordFailure(ArchivedResponse.Kind.DOWNLOAD, fileUrl, e, start);
+            throw e;
+        }
+        // Capture the body as the caller reads it; it is recorded once the stream is closed
+        ByteArrayOutputStream copy = new ByteArrayOutputStream();
+        FetchRecorder target = recorder;
+        return new FilterInputStream(in) {
+            private boolean recorded;
+
+            @Override
+            public int read() throws IOException {
+                int b = super.read();
+                if (b >= 0) {
+                    copy.write(b);
+                }
+                return b;
+            }
+
+            @Override
+            public int read(byte[] buffer, int offset, int length) throws IOException {
+                int n = super.read(buffer, offset, length);
+                if (n > 0) {
+                    copy.write(buffer, offset, n);
+                }
+                return n;
+            }
+
+            @Override
+            public void close() throws IOException {
+                super.close();
+                if (!recorded) {
+                    recorded = true;
+                    target.record(ArchivedResponse.success(ArchivedResponse.Kind.DOWNLOAD, fileUrl, Map.of(),
+                            copy.toByteArray(), System.nanoTime() - start));
+                }
+            }
+        };
+    }
+
+    /**
+     * Sends requests for one origin to another, e.g. a local mirror or test server, while
+     * the scraper keeps working with the canonical URLs: pages are parsed against, recorded
+     * under and validated with the original URL; only the transport goes elsewhere.
+     *
+     * @param origin      scheme and host as the scraper sees them, e.g. {@code https://books.toscrape.com}
+     * @param replacement where to send those requests instead, e.g. {@code http://127.0.0.1:8080/books}
+     */
+    public void overrideOrigin(String origin, String replacement) {
+        originOverrides.put(origin, replacement);
+    }
+
+    /**
+     * @param url a canonical URL
+     * @return the URL requests for it are actually sent to
+     */
+    protected String transportUrl(String url) {
+        for (Map.Entry<String, String> override : originOverrides.entrySet()) {
+            String origin = override.getKey();
+            if (url.startsWith(origin) && (url.length() == origin.length() || url.charAt(origin.length()) == '/')) {
+                return override.getValue() + url.substring(origin.length());
+            }
+        }
+        return url;
+    }
+
+    /**
+     * The reverse of {@link #transportUrl(String)}, for URLs reported back by the transport,
+     * such as where a redirect led.
+     *
+     * @param url a URL requests were sent to
+     * @return the canonical URL it stands for
+     */
+    protected String canonicalUrl(String url) {
+        for (Map.Entry<String, String> override : originOverrides.entrySet()) {
+            String replacement = override.getValue();
+            if (url.startsWith(replacement)
+                    && (url.length() == replacement.length() || url.charAt(replacement.length()) == '/')) {
+                return override.getKey() + url.substring(replacement.length());
+            }
+        }
+        return url;
+    }
+
+    /**
+     * Makes a helper scraper (e.g. for detail pages) part of this scraper's job: it shares the
+     * monitor, event bus, request executor, fetch archive, rendering settings and backend, seen-URL filter and
+     * origin overrides.
+     *
+     * @param helper the scraper to configure
+     */
+    protected void shareJobWith(WebScraper helper) {
+        helper.monitor = monitor;
+        helper.eventBus = eventBus;
+        helper.requestExecutor = requestExecutor;
+        helper.recorder = recorder;
+        helper.replayer = replayer;
+        helper.renderJavaScript = renderJavaScript;
+        helper.adaptiveRendering = adaptiveRendering;
+        helper.renderStrategies = renderStrategies;
+        helper.renderBackend = renderBackend;
+        helper.seenUrls = seenUrls;
+        helper.originOverrides.putAll(originOverrides);
+    }
+
+    private String plain(String url) throws IOException {
+        return archived(ArchivedResponse.Kind.PLAIN, url, () -> new RenderedPage(url,
+                IoThreads.call(IoThreads.Kind.FETCH, () -> fetchPlain(transportUrl(url))))).html();
+    }
+
+    private RenderedPage rendered(String url) throws IOException {
+        return archived(ArchivedResponse.Kind.BROWSER, url, () -> {
+            RenderedPage page = IoThreads.call(IoThreads.Kind.RENDER, () -> renderPage(transportUrl(url)));
+            return new RenderedPage(canonicalUrl(page.url()), page.html());
+        });
+    }
+
+    /**
+     * Serves a page from the replayer, or fetches it and hands it to the recorder. A page that
+     * ended up somewhere other than {@code url} is archived with its final URL.
+     */
+    private RenderedPage archived(ArchivedResponse.Kind kind, String url, RequestExecutor.Attempt<RenderedPage> fetch)
+            throws IOException {
+        if (replayer != null) {
+            ArchivedResponse response = replayer.replayResponse(kind, url);
+            return new RenderedPage(response.headers().getOrDefault(FINAL_URL_HEADER, url), response.bodyText());
+        }
+        if (recorder == null) {
+            return fetch.call();
+        }
+
+        long start = System.nanoTime();
+        RECORDED_HEADERS.remove();
+        try {
+            RenderedPage page = fetch.call();
+            Map<String, String> headers = new HashMap<>();
+            if (RECORDED_HEADERS.get() != null) {
+                headers.putAll(RECORDED_HEADERS.get());
+            }
+            if (!page.url().equals(url)) {
+                headers.put(FINAL_URL_HEADER, page.url());
+            }
+            recorder.record(ArchivedResponse.success(kind, url, headers,
+                    page.html().getBytes(StandardCharsets.UTF_8), System.nanoTime() - start));
+            return page;
+        } catch (ScrapeCancelledException e) {
+            // Not part of the site's behaviour
+            throw e;
+        } catch (IOException e) {
+            recordFailure(kind, url, e, start);
+            throw e;
         } finally {
-            driver.quit();
+            RECORDED_HEADERS.remove();
+        }
+    }
+
+    private void recordFailure(ArchivedResponse.Kind kind, String url, IOException e, long start) {
+        if (e instanceof ScrapeCancelledException) {
+            return;
         }
+        int status = e instanceof HttpStatusException http ? http.getStatusCode() : 0;
+        String message = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+        recorder.record(ArchivedResponse.failure(kind, url, status, message, System.nanoTime() - start));
     }
 
     /**
@@ -0,0 +1,250 @@
+package net.neological.webscraping.catalog;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Columnar in-memory catalog of book listings, built while crawling so statistics can be
+ * answered after the pages are gone.
+ * <p>
+ * Each attribute lives in its own primitive array: prices in pence ({@code long[]}),
+ * star ratings ({@code byte[]}) and genre ids ({@code int[]}); titles, URLs and genre
+ * names are dictionary-encoded. Queries scan the columns with primitive loops (or
+ * chunked parallel streams for large catalogs) via {@link #query()}.
+ * <p>
+ * Instances are not thread-safe for writes; concurrent reads of a catalog that is no
+ * longer being appended to are safe.
+ */
+public class BookCatalog {
+    private static final int MAGIC = 0x424B4354; // "BKCT"
+    private static final int FORMAT_VERSION = 1;
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final StringDictionary genres = new StringDictionary();
+    private final StringDictionary titles = new StringDictionary();
+    private final StringDictionary urls = new StringDictionary();
+
+    private long[] pricePence = new long[INITIAL_CAPACITY];
+    private byte[] ratings = new byte[INITIAL_CAPACITY];
+    private int[] genreIds = new int[INITIAL_CAPACITY];
+    private int[] titleIds = new int[INITIAL_CAPACITY];
+    private int[] urlIds = new int[INITIAL_CAPACITY];
+    private int size;
+
+    /**
+     * Appends one book listing.
+     *
+     * @param genre      the genre the listing was found under
+     * @param title      the book title
+     * @param url        the book's detail page URL
+     * @param pricePence the listed price in pence
+     * @param rating     the star rating (1–5), or 0 if missing
+     * @return the row index of the new listing
+     */
+    public int add(String genre, String title, String url, long pricePence, int rating) {
+        ensureCapacity(size + 1);
+        this.pricePence[size] = pricePence;
+        this.ratings[size] = (byte) rating;
+        this.genreIds[size] = genres.encode(genre);
+        this.titleIds[size] = titles.encode(title);
+        this.urlIds[size] = urls.encode(url);
+        return size++;
+    }
+
+    /**
+     * @return a new query over all rows; narrow it with its filter methods
+     */
+    public BookQuery query() {
+        return new BookQuery(this);
+    }
+
+    /**
+     * @return the number of listings
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the number of distinct genres
+     */
+    public int genreCount() {
+        return genres.size();
+    }
+
+    /**
+     * @param genre a genre name
+     * @return its id, or -1 if the catalog has no listings in that genre
+     */
+    public int genreId(String genre) {
+        return genres.idOf(genre);
+    }
+
+    public String genreName(int genreId) {
+        return genres.decode(genreId);
+    }
+
+    public long pricePence(int row) {
+        return pricePence[row];
+    }
+
+    public int rating(int row) {
+        return ratings[row];
+    }
+
+    public int genreId(int row) {
+        return genreIds[row];
+    }
+
+    public String title(int row) {
+        return titles.decode(titleIds[row]);
+    }
+
+    public String url(int row) {
+        return urls.decode(urlIds[row]);
+    }
+
+    // Package-private column access for BookQuery's scans
+    long[] priceColumn() {
+        return pricePence;
+    }
+
+    byte[] ratingColumn() {
+        return ratings;
+    }
+
+    int[] genreColumn() {
+        return genreIds;
+    }
+
+    /**
+     * Writes the catalog to a compact binary file: dictionaries as UTF strings, then each
+     * column with variable-length integers.
+     *
+     * @param file the destination file (overwritten)
+     * @throws IOException if writing fails
+     */
+    public void save(Path file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            writeDictionary(out, genres);
+            writeDictionary(out, titles);
+            writeDictionary(out, urls);
+
+            writeVarLong(out, size);
+            for (int i = 0; i < size; i++) {
+                writeVarLong(out, pricePence[i]);
+            }
+            out.write(ratings, 0, size);
+            for (int i = 0; i < size; i++) {
+                writeVarLong(out, genreIds[i]);
+            }
+            for (int i = 0; i < size; i++) {
+                writeVarLong(out, titleIds[i]);
+            }
+            for (int i = 0; i < size; i++) {
+                writeVarLong(out, urlIds[i]);
+            }
+        }
+    }
+
+    /**
+     * Reads a catalog previously written by {@link #save(Path)}.
+     *
+     * @param file the catalog file
+     * @return the loaded catalog
+     * @throws IOException if reading fails or the file is not a catalog
+     */
+    public static BookCatalog load(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a book catalog file: " + file);
+            }
+            int version = in.readInt();
+            if (version != FORMAT_VERSION) {
+                throw new IOException("Unsupported catalog format version: " + version);
+            }
+
+            BookCatalog catalog = new BookCatalog();
+            readDictionary(in, catalog.genres);
+            readDictionary(in, catalog.titles);
+            readDictionary(in, catalog.urls);
+
+            int size = (int) readVarLong(in);
+            catalog.ensureCapacity(size);
+            for (int i = 0; i < size; i++) {
+                catalog.pricePence[i] = readVarLong(in);
+            }
+            in.readFully(catalog.ratings, 0, size);
+            for (int i = 0; i < size; i++) {
+                catalog.genreIds[i] = (int) readVarLong(in);
+            }
+            for (int i = 0; i < size; i++) {
+                catalog.titleIds[i] = (int) readVarLong(in);
+            }
+            for (int i = 0; i < size; i++) {
+                catalog.urlIds[i] = (int) readVarLong(in);
+            }
+            catalog.size = size;
+            return catalog;
+        }
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= pricePence.length) {
+            return;
+        }
+        int capacity = Math.max(required, pricePence.length * 2);
+        pricePence = Arrays.copyOf(pricePence, capacity);
+        ratings = Arrays.copyOf(ratings, capacity);
+        genreIds = Arrays.copyOf(genreIds, capacity);
+        titleIds = Arrays.copyOf(titleIds, capacity);
+        urlIds = Arrays.copyOf(urlIds, capacity);
+    }
+
+    private static void writeDictionary(DataOutputStream out, StringDictionary dictionary) throws IOException {
+        writeVarLong(out, dictionary.size());
+        for (int i = 0; i < dictionary.size(); i++) {
+            out.writeUTF(dictionary.decode(i));
+        }
+    }
+
+    private static void readDictionary(DataInputStream in, StringDictionary dictionary) throws IOException {
+        int count = (int) readVarLong(in);
+        for (int i = 0; i < count; i++) {
+            dictionary.encode(in.readUTF());
+        }
+    }
+
+    private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        // Zig-zag so the occasional negative value stays short
+        long v = (value << 1) ^ (value >> 63);
+        while ((v & ~0x7FL) != 0) {
+            out.writeByte((int) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        out.writeByte((int) v);
+    }
+
+    private static long readVarLong(DataInputStream in) throws IOException {
+        long v = 0;
+        int shift = 0;
+        int b;
+        do {
+            if (shift > 63) {
+                throw new IOException("Malformed variable-length integer");
+            }
+            b = in.readUnsignedByte();
+            v |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return (v >>> 1) ^ -(v & 1);
+    }
+}
@@ -0,0 +1,199 @@
+package net.neological.webscraping.catalog;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * Filter/group-by/aggregate query over a {@link BookCatalog}. Filters are plain range
+ * checks on the primitive columns; catalogs larger than {@link #PARALLEL_THRESHOLD} rows
+ * are scanned in fixed-size chunks on a parallel stream and the chunk results combined.
+ * <pre>
+ *     CatalogAggregate cheapFiction = catalog.query()
+ *             .genre("Historical Fiction")
+ *             .maxPricePence(2000)
+ *             .aggregate();
+ * </pre>
+ */
+public class BookQuery {
+    /** Row count above which scans are split across the common fork-join pool. */
+    public static final int PARALLEL_THRESHOLD = 64 * 1024;
+    private static final int CHUNK_SIZE = 16 * 1024;
+
+    private final BookCatalog catalog;
+    private int genreId = -1;
+    private boolean genreMissing;
+    private long minPricePence = Long.MIN_VALUE;
+    private long maxPricePence = Long.MAX_VALUE;
+    private int minRating = Integer.MIN_VALUE;
+    private int maxRating = Integer.MAX_VALUE;
+
+    BookQuery(BookCatalog catalog) {
+        this.catalog = catalog;
+    }
+
+    /**
+     * Restricts the query to one genre. An unknown genre matches nothing.
+     *
+     * @param genre the genre name
+     * @return this query
+     */
+    public BookQuery genre(String genre) {
+        genreId = catalog.genreId(genre);
+        genreMissing = genreId < 0;
+        return this;
+    }
+
+    /**
+     * @param pence inclusive lower bound on price, in pence
+     * @return this query
+     */
+    public BookQuery minPricePence(long pence) {
+        minPricePence = pence;
+        return this;
+    }
+
+    /**
+     * @param pence inclusive upper bound on price, in pence
+     * @return this query
+     */
+    public BookQuery maxPricePence(long pence) {
+        maxPricePence = pence;
+        return this;
+    }
+
+    /**
+     * @param rating inclusive lower bound on star rating
+     * @return this query
+     */
+    public BookQuery minRating(int rating) {
+        minRating = rating;
+        return this;
+    }
+
+    /**
+     * @param rating inclusive upper bound on star rating
+     * @return this query
+     */
+    public BookQuery maxRating(int rating) {
+        maxRating = rating;
+        return this;
+    }
+
+    /**
+     * @return the number of matching rows
+     */
+    public int count() {
+        return aggregate().count();
+    }
+
+    /**
+     * @return count, sums and price range of the matching rows
+     */
+    public CatalogAggregate aggregate() {
+        int size = catalog.size();
+        if (genreMissing || size == 0) {
+            return CatalogAggregate.EMPTY;
+        }
+        if (size < PARALLEL_THRESHOLD) {
+            return aggregateRange(0, size);
+        }
+        int chunks = (size + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        return IntStream.range(0, chunks)
+                .parallel()
+                .mapToObj(c -> aggregateRange(c * CHUNK_SIZE, Math.min(size, (c + 1) * CHUNK_SIZE)))
+                .reduce(CatalogAggregate.EMPTY, CatalogAggregate::combine);
+    }
+
+    /**
+     * Aggregates the matching rows per genre.
+     *
+     * @return genre name to aggregate, in the order genres were first catalogued
+     */
+    public Map<String, CatalogAggregate> groupByGenre() {
+        int genres = catalog.genreCount();
+        int[] counts = new int[genres];
+        long[] priceSums = new long[genres];
+        long[] ratingSums = new long[genres];
+        long[] mins = new long[genres];
+        long[] maxs = new long[genres];
+        Arrays.fill(mins, Long.MAX_VALUE);
+        Arrays.fill(maxs, Long.MIN_VALUE);
+
+        if (!genreMissing) {
+            long[] prices = catalog.priceColumn();
+            byte[] ratings = catalog.ratingColumn();
+            int[] genreIds = catalog.genreColumn();
+            for (int row = 0, size = catalog.size(); row < size; row++) {
+                if (matches(prices[row], ratings[row], genreIds[row])) {
+                    int g = genreIds[row];
+                    counts[g]++;
+                    priceSums[g] += prices[row];
+                    ratingSums[g] += ratings[row];
+                    mins[g] = Math.min(mins[g], prices[row]);
+                    maxs[g] = Math.max(maxs[g], prices[row]);
+                }
+            }
+        }
+
+        Map<String, CatalogAggregate> result = new LinkedHashMap<>();
+        for (int g = 0; g < genres; g++) {
+            if (counts[g] > 0) {
+                result.put(catalog.genreName(g),
+                        new CatalogAggregate(counts[g], priceSums[g], ratingSums[g], mins[g], maxs[g]));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the row indices of all matching rows, in ascending order
+     */
+    public int[] rows() {
+        if (genreMissing) {
+            return new int[0];
+        }
+        long[] prices = catalog.priceColumn();
+        byte[] ratings = catalog.ratingColumn();
+        int[] genreIds = catalog.genreColumn();
+        int size = catalog.size();
+        int[] rows = new int[size];
+        int n = 0;
+        for (int row = 0; row < size; row++) {
+            if (matches(prices[row], ratings[row], genreIds[row])) {
+                rows[n++] = row;
+            }
+        }
+        return Arrays.copyOf(rows, n);
+    }
+
+    private CatalogAggregate aggregateRange(int from, int to) {
+        long[] prices = catalog.priceColumn();
+        byte[] ratings = catalog.ratingColumn();
+        int[] genreIds = catalog.genreColumn();
+
+        int count = 0;
+        long priceSum = 0;
+        long ratingSum = 0;
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        for (int row = from; row < to; row++) {
+            long price = prices[row];
+            if (matches(price, ratings[row], genreIds[row])) {
+                count++;
+                priceSum += price;
+                ratingSum += ratings[row];
+                min = Math.min(min, price);
+                max = Math.max(max, price);
+            }
+        }
+        return new CatalogAggregate(count, priceSum, ratingSum, min, max);
+    }
+
+    private boolean matches(long price, byte rating, int genre) {
+        return (genreId < 0 || genre == genreId)
+                && price >= minPricePence && price <= maxPricePence
+                && rating >= minRating && rating <= maxRating;
+    }
+}
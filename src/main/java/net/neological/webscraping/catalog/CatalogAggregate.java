@@ -0,0 +1,49 @@
+package net.neological.webscraping.catalog;
+
+/**
+ * Result of aggregating a set of catalog rows. Sums are kept in exact integer units
+ * (pence, stars) so partial aggregates combine identically in any order.
+ *
+ * @param count         number of matching rows
+ * @param pricePenceSum sum of prices in pence
+ * @param ratingSum     sum of star ratings
+ * @param minPricePence lowest price in pence, or {@link Long#MAX_VALUE} if empty
+ * @param maxPricePence highest price in pence, or {@link Long#MIN_VALUE} if empty
+ */
+public record CatalogAggregate(int count,
+                               long pricePenceSum,
+                               long ratingSum,
+                               long minPricePence,
+                               long maxPricePence) {
+
+    /** The aggregate of no rows. */
+    public static final CatalogAggregate EMPTY =
+            new CatalogAggregate(0, 0, 0, Long.MAX_VALUE, Long.MIN_VALUE);
+
+    /**
+     * @param other another partial aggregate
+     * @return the aggregate of both row sets
+     */
+    public CatalogAggregate combine(CatalogAggregate other) {
+        return new CatalogAggregate(
+                count + other.count,
+                pricePenceSum + other.pricePenceSum,
+                ratingSum + other.ratingSum,
+                Math.min(minPricePence, other.minPricePence),
+                Math.max(maxPricePence, other.maxPricePence));
+    }
+
+    /**
+     * @return the average price in pounds, or 0.0 if empty
+     */
+    public double averagePrice() {
+        return count > 0 ? pricePenceSum / 100.0 / count : 0.0;
+    }
+
+    /**
+     * @return the average star rating, or 0.0 if empty
+     */
+    public double averageRating() {
+        return count > 0 ? (double) ratingSum / count : 0.0;
+    }
+}
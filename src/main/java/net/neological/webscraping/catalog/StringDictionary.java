@@ -0,0 +1,55 @@
+package net.neological.webscraping.catalog;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Dictionary encoding for string columns: each distinct value is stored once and
+ * referenced by a dense {@code int} id, assigned in insertion order.
+ */
+public class StringDictionary {
+    private final Map<String, Integer> idByValue = new HashMap<>();
+    private final List<String> values = new ArrayList<>();
+
+    /**
+     * Returns the id of the value, adding it if it has not been seen before.
+     *
+     * @param value the value to encode
+     * @return its dense id
+     */
+    public int encode(String value) {
+        Integer id = idByValue.get(value);
+        if (id == null) {
+            id = values.size();
+            idByValue.put(value, id);
+            values.add(value);
+        }
+        return id;
+    }
+
+    /**
+     * @param value the value to look up
+     * @return its id, or -1 if it is not in the dictionary
+     */
+    public int idOf(String value) {
+        Integer id = idByValue.get(value);
+        return id != null ? id : -1;
+    }
+
+    /**
+     * @param id a dense id
+     * @return the value it encodes
+     */
+    public String decode(int id) {
+        return values.get(id);
+    }
+
+    /**
+     * @return the number of distinct values
+     */
+    public int size() {
+        return values.size();
+    }
+}
@@ -0,0 +1,548 @@
+package net.neological.webscraping.cluster;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import net.neological.webscraping.IoThreads;
+import net.neological.webscraping.frontier.UrlSeenFilter;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Owns the URL frontier of a crawl spread over several worker JVMs and leases batches of it
+ * to {@link CrawlWorker}s over a small plain-text HTTP protocol:
+ * <ul>
+ *     <li>{@code POST /submit}: body is {@link WorkItem} lines; URLs already seen are ignored</li>
+ *     <li>{@code POST /lease?worker=<id>&max=<n>}: 200 with the lease id on the first line and
+ *     up to n items after it, 204 if nothing is available right now, 410 once the crawl is done</li>
+ *     <li>{@code POST /complete?lease=<id>}: body is {@code OK TAB <url>} or
+ *     {@code FAILED TAB <url> TAB <message>} lines</li>
+ *     <li>{@code POST /heartbeat?worker=<id>}: keeps the worker's leases alive during long batches</li>
+ *     <li>{@code GET /status}: counters, for people</li>
+ * </ul>
+ * Work is sharded over the live workers by consistent hashing (see {@link Sharding}); a worker
+ * whose own shard is empty takes from the largest other shard, so nobody idles at the end of
+ * a crawl. A lease that is not completed or renewed within the lease timeout is given up: its
+ * worker is taken off the ring and its items are re-assigned. Items are therefore processed at
+ * least once; a worker's report for a lease it has already lost is ignored.
+ * <p>
+ * The protocol has no authentication, so a coordinator listens on the loopback interface unless
+ * given the address of a network its workers share.
+ */
+public class CrawlCoordinator implements Closeable {
+    public static final long DEFAULT_LEASE_TIMEOUT_MILLIS = 30_000;
+    public static final int DEFAULT_MAX_ATTEMPTS = 3;
+
+    /**
+     * What the consistent hash is computed over.
+     */
+    public enum Sharding {
+        /** Every page of a site goes to the same worker, keeping per-site politeness in one JVM. */
+        HOST,
+        /** Pages are spread evenly whatever their site; the right choice for one large site like FRED. */
+        URL;
+
+        String keyOf(String url) {
+            if (this == URL) {
+                return url;
+            }
+            try {
+                String host = URI.create(url).getHost();
+                return host != null ? host.toLowerCase(Locale.ROOT) : url;
+            } catch (IllegalArgumentException e) {
+                return url;
+            }
+        }
+    }
+
+    /**
+     * A batch of work handed to one worker.
+     *
+     * @param id    the lease id, quoted back on completion
+     * @param items the items to scrape
+     */
+    public record Lease(String id, List<WorkItem> items) {
+    }
+
+    private final HttpServer server;
+    private final ScheduledExecutorService sweeper;
+    private final Sharding sharding;
+    private final long leaseTimeoutNanos;
+    private final int maxAttempts;
+
+    // Crawl state, guarded by this
+    private final HashRing ring = new HashRing();
+    private final Map<String, ArrayDeque<WorkItem>> shards = new HashMap<>();
+    private final ArrayDeque<WorkItem> unassigned = new ArrayDeque<>();
+    // Canonical URLs, so "?b=1&a=2" and "?a=2&b=1#top" are crawled once
+    private final UrlSeenFilter seen = UrlSeenFilter.inMemory(UrlSeenFilter.DEFAULT_EXPECTED_URLS,
+            UrlSeenFilter.DEFAULT_FALSE_POSITIVE_RATE);
+    private final Map<String, Integer> attempts = new HashMap<>();
+    private final Map<String, LeaseState> leases = new HashMap<>();
+    private final Map<String, Long> lastSeen = new HashMap<>();
+    private final Map<String, String> failures = new LinkedHashMap<>();
+    private long nextLeaseId;
+    private int completed;
+    private int reassigned;
+    private boolean started;
+
+    /**
+     * Starts a coordinator with URL sharding and the default lease timeout and attempts.
+     *
+     * @param port the port to listen on, or 0 for any free port
+     */
+    public CrawlCoordinator(int port) throws IOException {
+        this(port, Sharding.URL, DEFAULT_LEASE_TIMEOUT_MILLIS, DEFAULT_MAX_ATTEMPTS);
+    }
+
+    /**
+     * Starts a coordinator listening on the loopback interface.
+     *
+     * @param port               the port to listen on, or 0 for any free port
+     * @param sharding           what the consistent hash is computed over
+     * @param leaseTimeoutMillis how long a lease (and a silent worker) is trusted
+     * @param maxAttempts        how many times an item is handed out before it is recorded as failed
+     */
+    public CrawlCoordinator(int port, Sharding sharding, long leaseTimeoutMillis, int maxAttempts) throws IOException {
+        this(InetAddress.getLoopbackAddress(), port, sharding, leaseTimeoutMillis, maxAttempts);
+    }
+
+    /**
+     * Starts a coordinator.
+     *
+     * @param bind               the address to listen on; workers on other hosts need one they can reach
+     * @param port               the port to listen on, or 0 for any free port
+     * @param sharding           what the consistent hash is computed over
+     * @param leaseTimeoutMillis how long a lease (and a silent worker) is trusted
+     * @param maxAttempts        how many times an item is handed out before it is recorded as failed
+     */
+    public CrawlCoordinator(InetAddress bind, int port, Sharding sharding, long leaseTimeoutMillis, int maxAttempts)
+            throws IOException {
+        this.sharding = sharding;
+        this.leaseTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(leaseTimeoutMillis);
+        this.maxAttempts = maxAttempts;
+
+        server = HttpServer.create(new InetSocketAddress(bind, port), 0);
+        server.createContext("/", this::handle);
+        server.setExecutor(Executors.newCachedThreadPool(IoThreads.daemonThreads("crawl-coordinator")));
+        server.start();
+
+        sweeper = Executors.newSingleThreadScheduledExecutor(IoThreads.daemonThreads("crawl-coordinator-sweeper"));
+        long period = Math.max(10, leaseTimeoutMillis / 4);
+        sweeper.scheduleWithFixedDelay(this::sweep, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return the port the coordinator listens on
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * @return the address and port the coordinator listens on
+     */
+    public InetSocketAddress getAddress() {
+        return server.getAddress();
+    }
+
+    /**
+     * Adds work to the frontier. URLs that were submitted before, in canonical form, are ignored.
+     *
+     * @param items the items to add
+     * @return how many were new
+     */
+    public synchronized int submit(Collection<WorkItem> items) {
+        int added = 0;
+        for (WorkItem item : items) {
+            if (seen.add(item.url())) {
+                place(item);
+                added++;
+            }
+        }
+        started |= added > 0;
+        return added;
+    }
+
+    /**
+     * Leases up to {@code max} items from the worker's shard, or from the largest other shard
+     * if its own is empty. A worker joins the ring on its first lease.
+     *
+     * @param worker the worker id
+     * @param max    the most items to hand out
+     * @return the lease, or null if nothing is available right now
+     */
+    public synchronized Lease lease(String worker, int max) {
+        touch(worker);
+        ArrayDeque<WorkItem> source = shards.get(worker);
+        boolean stealing = source == null || source.isEmpty();
+        if (stealing) {
+            source = largestShard();
+        }
+        if (source == null || source.isEmpty()) {
+            return null;
+        }
+
+        List<WorkItem> items = new ArrayList<>();
+        while (items.size() < max && !source.isEmpty()) {
+            // Steal from the tail so the owner keeps working through its shard in order
+            items.add(stealing ? source.pollLast() : source.pollFirst());
+        }
+        String id = worker + "-" + (++nextLeaseId);
+        leases.put(id, new LeaseState(worker, items, System.nanoTime() + leaseTimeoutNanos));
+        return new Lease(id, items);
+    }
+
+    /**
+     * Reports the outcome of one leased item. Failed items are handed out again until they
+     * have been tried {@code maxAttempts} times.
+     *
+     * @param leaseId the lease the item came with
+     * @param url     the item's URL
+     * @param error   why it failed, or null if it succeeded
+     * @return false if the lease is no longer held (it timed out and the item was re-assigned)
+     */
+    public synchronized boolean complete(String leaseId, String url, String error) {
+        LeaseState lease = leases.get(leaseId);
+        if (lease == null) {
+            return false;
+        }
+        WorkItem item = lease.open.remove(url);
+        if (item == null) {
+            return false;
+        }
+        touch(lease.worker);
+        if (error == null) {
+            completed++;
+        } else {
+            retry(item, error);
+        }
+        if (lease.open.isEmpty()) {
+            leases.remove(leaseId);
+        }
+        notifyAll();
+        return true;
+    }
+
+    /**
+     * Extends every lease the worker holds by the lease timeout.
+     *
+     * @param worker the worker id
+     * @return false if the worker had been given up on; it re-joins with its next lease
+     */
+    public synchronized boolean heartbeat(String worker) {
+        if (!lastSeen.containsKey(worker)) {
+            return false;
+        }
+        touch(worker);
+        long expiry = System.nanoTime() + leaseTimeoutNanos;
+        for (LeaseState lease : leases.values()) {
+            if (lease.worker.equals(worker)) {
+                lease.expiresAt = expiry;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return true once work was submitted and every item has been completed or given up on
+     */
+    public synchronized boolean isFinished() {
+        return started && pendingCount() == 0 && leases.isEmpty();
+    }
+
+    /**
+     * Waits for the crawl to finish.
+     *
+     * @param timeout how long to wait at most
+     * @return true if it finished
+     */
+    public synchronized boolean awaitFinished(Duration timeout) throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (!isFinished()) {
+            long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (remaining <= 0) {
+                return false;
+            }
+            wait(remaining);
+        }
+        return true;
+    }
+
+    public synchronized int getCompletedCount() {
+        return completed;
+    }
+
+    /**
+     * @return how many times items were handed out again after a failure or a lost lease
+     */
+    public synchronized int getReassignedCount() {
+        return reassigned;
+    }
+
+    /**
+     * @return URL to last error of every item that ran out of attempts
+     */
+    public synchronized Map<String, String> getFailures() {
+        return new LinkedHashMap<>(failures);
+    }
+
+    /**
+     * @return the workers currently on the ring
+     */
+    public synchronized Set<String> getWorkers() {
+        return ring.nodes();
+    }
+
+    /**
+     * @return a one-line summary of the crawl
+     */
+    public synchronized String status() {
+        UrlSeenFilter.Stats urls = seen.stats();
+        return String.format("workers=%d pending=%d leased=%d completed=%d failed=%d reassigned=%d finished=%b"
+                        + " seen=%d seenBytes=%d seenFpr=%.2g",
+                ring.nodes().size(), pendingCount(), leasedCount(), completed, failures.size(), reassigned, isFinished(),
+                urls.urls(), urls.memoryBytes(), urls.expectedFalsePositiveRate());
+    }
+
+    @Override
+    public void close() {
+        sweeper.shutdownNow();
+        server.stop(0);
+        ((ExecutorService) server.getExecutor()).shutdownNow();
+    }
+
+    /**
+     * Gives up on expired leases and on workers that have not been heard from within the
+     * lease timeout.
+     */
+    synchronized void sweep() {
+        long now = System.nanoTime();
+        Iterator<LeaseState> expired = leases.values().iterator();
+        while (expired.hasNext()) {
+            LeaseState lease = expired.next();
+            if (now - lease.expiresAt >= 0) {
+                expired.remove();
+                for (WorkItem item : lease.open.values()) {
+                    retry(item, "Lease expired on worker " + lease.worker);
+                }
+            }
+        }
+
+        List<String> silent = new ArrayList<>();
+        for (Map.Entry<String, Long> worker : lastSeen.entrySet()) {
+            if (now - worker.getValue() >= leaseTimeoutNanos) {
+                silent.add(worker.getKey());
+            }
+        }
+        if (!silent.isEmpty()) {
+            for (String worker : silent) {
+                lastSeen.remove(worker);
+                ring.remove(worker);
+            }
+            rebalance();
+        }
+        notifyAll();
+    }
+
+    private void touch(String worker) {
+        lastSeen.put(worker, System.nanoTime());
+        if (ring.add(worker)) {
+            rebalance();
+        }
+    }
+
+    private void retry(WorkItem item, String error) {
+        int tries = attempts.merge(item.url(), 1, Integer::sum);
+        if (tries >= maxAttempts) {
+            failures.put(item.url(), error);
+        } else {
+            reassigned++;
+            place(item);
+        }
+    }
+
+    private void place(WorkItem item) {
+        String owner = ring.ownerOf(sharding.keyOf(item.url()));
+        if (owner == null) {
+            unassigned.add(item);
+        } else {
+            shards.computeIfAbsent(owner, k -> new ArrayDeque<>()).add(item);
+        }
+    }
+
+    /**
+     * Re-places every pending item after the ring changed. With consistent hashing most items
+     * stay with the worker they had.
+     */
+    private void rebalance() {
+        List<WorkItem> pending = new ArrayList<>(unassigned);
+        unassigned.clear();
+        for (ArrayDeque<WorkItem> shard : shards.values()) {
+            pending.addAll(shard);
+        }
+        shards.clear();
+        for (WorkItem item : pending) {
+            place(item);
+        }
+    }
+
+    private ArrayDeque<WorkItem> largestShard() {
+        ArrayDeque<WorkItem> largest = null;
+        for (ArrayDeque<WorkItem> shard : shards.values()) {
+            if (largest == null || shard.size() > largest.size()) {
+                largest = shard;
+            }
+        }
+        return largest;
+    }
+
+    private int pendingCount() {
+        int pending = unassigned.size();
+        for (ArrayDeque<WorkItem> shard : shards.values()) {
+            pending += shard.size();
+        }
+        return pending;
+    }
+
+    private int leasedCount() {
+        int leased = 0;
+        for (LeaseState lease : leases.values()) {
+            leased += lease.open.size();
+        }
+        return leased;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            Map<String, String> query = query(exchange.getRequestURI());
+            String path = exchange.getRequestURI().getPath();
+            try {
+                switch (path) {
+                    case "/submit" -> {
+                        List<WorkItem> items = new ArrayList<>();
+                        for (String line : body(exchange)) {
+                            items.add(WorkItem.parse(line));
+                        }
+                        respond(exchange, 200, "accepted " + submit(items) + "\n");
+                    }
+                    case "/lease" -> {
+                        Lease lease = lease(required(query, "worker"), Integer.parseInt(query.getOrDefault("max", "1")));
+                        if (lease != null) {
+                            StringBuilder response = new StringBuilder(lease.id()).append('\n');
+                            for (WorkItem item : lease.items()) {
+                                response.append(item.toLine()).append('\n');
+                            }
+                            respond(exchange, 200, response.toString());
+                        } else {
+                            respond(exchange, isFinished() ? 410 : 204, "");
+                        }
+                    }
+                    case "/complete" -> {
+                        String leaseId = required(query, "lease");
+                        int accepted = 0;
+                        for (String line : body(exchange)) {
+                            String[] fields = line.split("\t", 3);
+                            boolean ok = fields[0].equals("OK");
+                            if (fields.length < 2 || (!ok && !fields[0].equals("FAILED"))) {
+                                throw new IllegalArgumentException("Malformed result: " + line);
+                            }
+                            String error = ok ? null : (fields.length > 2 ? fields[2] : "failed");
+                            if (complete(leaseId, fields[1], error)) {
+                                accepted++;
+                            }
+                        }
+                        respond(exchange, 200, "accepted " + accepted + "\n");
+                    }
+                    case "/heartbeat" -> respond(exchange, heartbeat(required(query, "worker")) ? 200 : 404, "");
+                    case "/status" -> respond(exchange, 200, status() + "\n");
+                    default -> respond(exchange, 404, "Unknown endpoint: " + path + "\n");
+                }
+            } catch (IllegalArgumentException e) {
+                respond(exchange, 400, e.getMessage() + "\n");
+            }
+        }
+    }
+
+    private static List<String> body(HttpExchange exchange) throws IOException {
+        String text = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+        List<String> lines = new ArrayList<>();
+        for (String line : text.split("\n")) {
+            if (!line.isBlank()) {
+                lines.add(line.strip());
+            }
+        }
+        return lines;
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        // 204 must not carry a body
+        exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+        if (bytes.length > 0) {
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        }
+    }
+
+    private static Map<String, String> query(URI uri) {
+        Map<String, String> parameters = new HashMap<>();
+        String raw = uri.getRawQuery();
+        if (raw == null) {
+            return parameters;
+        }
+        for (String pair : raw.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0) {
+                parameters.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return parameters;
+    }
+
+    private static String required(Map<String, String> query, String name) {
+        String value = query.get(name);
+        if (value == null || value.isBlank()) {
+            throw new IllegalArgumentException("Missing parameter: " + name);
+        }
+        return value;
+    }
+
+    private static final class LeaseState {
+        final String worker;
+        final Map<String, WorkItem> open = new LinkedHashMap<>();
+        long expiresAt;
+
+        LeaseState(String worker, List<WorkItem> items, long expiresAt) {
+            this.worker = worker;
+            this.expiresAt = expiresAt;
+            for (WorkItem item : items) {
+                open.put(item.url(), item);
+            }
+        }
+    }
+}
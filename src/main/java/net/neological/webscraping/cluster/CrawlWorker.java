@@ -0,0 +1,242 @@
+package net.neological.webscraping.cluster;
+
+import lombok.Getter;
+import lombok.Setter;
+import net.neological.webscraping.FileDownloader;
+import net.neological.webscraping.IoThreads;
+import net.neological.webscraping.RequestExecutor;
+import net.neological.webscraping.RequestPolicy;
+import net.neological.webscraping.ScrapeMonitor;
+import net.neological.webscraping.ScraperProvider;
+import net.neological.webscraping.ScraperRegistry;
+import net.neological.webscraping.WebScraper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Worker side of a sharded crawl: leases batches from a {@link CrawlCoordinator}, scrapes each
+ * item with a scraper from the {@link ScraperRegistry}, and reports the outcome. Pages a scraper
+ * discovers (see {@link WebScraper#setLinkSink(Consumer)}) are submitted back to the coordinator
+ * before the item is reported, so the frontier never looks empty while work is still growing.
+ * <p>
+ * Several workers can run in one JVM (each with its own id) or in separate processes.
+ */
+public class CrawlWorker {
+    private final URI coordinator;
+    private final String workerId;
+    private final String userAgent;
+    private final HttpClient http = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+
+    /** Items leased at a time. */
+    @Getter
+    @Setter
+    private int batchSize = 4;
+
+    /** Items of a batch scraped at the same time. */
+    @Getter
+    @Setter
+    private int concurrency = 2;
+
+    /** Page load timeout handed to every scraper. */
+    @Getter
+    @Setter
+    private int timeoutMillis = 15_000;
+
+    /** Where scrapers that download files write them; their own default when null. */
+    @Getter
+    @Setter
+    private String downloadFolder;
+
+    /** How long to wait before asking again when the coordinator has nothing to hand out. */
+    @Getter
+    @Setter
+    private long idleMillis = 500;
+
+    /** How often leases are renewed while a batch runs; keep it well under the lease timeout. */
+    @Getter
+    @Setter
+    private long heartbeatMillis = 5_000;
+
+    /** Applied to every scraper after the registry configured it, e.g. to override origins. */
+    @Setter
+    private Consumer<WebScraper> scraperSetup = scraper -> {
+    };
+
+    /** Shared by every scraper this worker creates, so retries and hedging see one latency history. */
+    @Getter
+    private final RequestExecutor requestExecutor = new RequestExecutor(RequestPolicy.DEFAULT);
+
+    // Items are processed in parallel, so the count is updated atomically
+    private final AtomicInteger processedCount = new AtomicInteger();
+
+    private volatile boolean stopped;
+
+    /**
+     * @param coordinatorUrl base URL of the coordinator, e.g. {@code http://127.0.0.1:7070}
+     * @param workerId       a name unique among the crawl's workers
+     * @param userAgent      the User-Agent header scrapers present
+     */
+    public CrawlWorker(String coordinatorUrl, String workerId, String userAgent) {
+        this.coordinator = URI.create(coordinatorUrl.endsWith("/") ? coordinatorUrl : coordinatorUrl + "/");
+        this.workerId = workerId;
+        this.userAgent = userAgent;
+    }
+
+    /**
+     * Leases and scrapes batches until the coordinator reports the crawl finished or
+     * {@link #stop()} is called.
+     *
+     * @throws IOException if the coordinator cannot be reached
+     */
+    public void run() throws IOException, InterruptedException {
+        ExecutorService pool = IoThreads.newExecutor("crawl-worker-" + workerId, concurrency);
+        ScheduledExecutorService heartbeat = Executors.newSingleThreadScheduledExecutor(IoThreads.daemonThreads("crawl-heartbeat-" + workerId));
+        heartbeat.scheduleWithFixedDelay(this::heartbeat, heartbeatMillis, heartbeatMillis, TimeUnit.MILLISECONDS);
+        try {
+            while (!stopped) {
+                HttpResponse<String> response = post("lease?worker=" + encode(workerId) + "&max=" + batchSize, "");
+                if (response.statusCode() == 410) {
+                    return;
+                }
+                if (response.statusCode() == 204) {
+                    Thread.sleep(idleMillis);
+                    continue;
+                }
+                expectOk(response);
+
+                List<String> lines = response.body().lines().filter(line -> !line.isBlank()).toList();
+                String leaseId = lines.get(0);
+                List<Future<String>> results = new ArrayList<>();
+                for (String line : lines.subList(1, lines.size())) {
+                    WorkItem item = WorkItem.parse(line);
+                    results.add(pool.submit(() -> process(item)));
+                }
+
+                StringBuilder report = new StringBuilder();
+                for (Future<String> result : results) {
+                    try {
+                        report.append(result.get()).append('\n');
+                    } catch (ExecutionException e) {
+                        // process() reports its own failures; this is a bug in it
+                        throw new IOException("Worker task failed", e.getCause());
+                    }
+                }
+                expectOk(post("complete?lease=" + encode(leaseId), report.toString()));
+            }
+        } finally {
+            heartbeat.shutdownNow();
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * @return the items this worker has processed, successfully or not
+     */
+    public int getProcessedCount() {
+        return processedCount.get();
+    }
+
+    /**
+     * Makes {@link #run()} return after the current batch.
+     */
+    public void stop() {
+        stopped = true;
+    }
+
+    /**
+     * Scrapes one item.
+     *
+     * @return its result line for the coordinator
+     */
+    private String process(WorkItem item) throws IOException, InterruptedException {
+        Optional<ScraperProvider> provider = ScraperRegistry.find(item.scraper());
+        if (provider.isEmpty()) {
+            return failed(item, "Unknown scraper: " + item.scraper());
+        }
+
+        WebScraper scraper = ScraperRegistry.create(provider.get(), userAgent, timeoutMillis);
+        if (downloadFolder != null && scraper instanceof FileDownloader downloader) {
+            downloader.setDownloadFolder(downloadFolder);
+        }
+        ScrapeMonitor monitor = new ScrapeMonitor();
+        scraper.setMonitor(monitor);
+        scraper.setRequestExecutor(requestExecutor);
+        List<WorkItem> discovered = new ArrayList<>();
+        scraper.setLinkSink(url -> discovered.add(new WorkItem(item.scraper(), url)));
+        scraperSetup.accept(scraper);
+
+        String result;
+        try {
+            scraper.scrape(item.url());
+            result = monitor.getErrors() == 0
+                    ? "OK\t" + item.url()
+                    : failed(item, monitor.getErrors() + " errors while scraping");
+        } catch (IOException | RuntimeException e) {
+            result = failed(item, e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+        }
+
+        if (!discovered.isEmpty()) {
+            StringBuilder body = new StringBuilder();
+            for (WorkItem link : discovered) {
+                body.append(link.toLine()).append('\n');
+            }
+            expectOk(post("submit", body.toString()));
+        }
+        processedCount.incrementAndGet();
+        return result;
+    }
+
+    private void heartbeat() {
+        try {
+            post("heartbeat?worker=" + encode(workerId), "");
+        } catch (IOException e) {
+            // The next lease or completion will surface it
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private HttpResponse<String> post(String path, String body) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(coordinator.resolve(path))
+                .timeout(Duration.ofSeconds(30))
+                .header("Content-Type", "text/plain; charset=utf-8")
+                .POST(HttpRequest.BodyPublishers.ofString(body, StandardCharsets.UTF_8))
+                .build();
+        return http.send(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+    }
+
+    private static void expectOk(HttpResponse<String> response) throws IOException {
+        if (response.statusCode() != 200) {
+            throw new IOException("Coordinator answered " + response.statusCode() + ": " + response.body().strip());
+        }
+    }
+
+    private static String failed(WorkItem item, String message) {
+        // Result lines are tab separated and one per item
+        return "FAILED\t" + item.url() + "\t" + message.replace('\t', ' ').replace('\n', ' ');
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+}
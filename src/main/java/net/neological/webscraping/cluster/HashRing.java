@@ -0,0 +1,92 @@
+package net.neological.webscraping.cluster;
+
+import net.neological.webscraping.Hashing;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Consistent-hash ring: each node is placed at several points on a 64-bit ring and a key
+ * belongs to the first node clockwise from its hash. Adding or removing a node only moves the
+ * keys next to that node's points, so a worker joining or dying reshuffles about 1/n of the
+ * frontier. Not thread-safe.
+ */
+public final class HashRing {
+    /** Points per node; enough to keep shards within a few percent of each other. */
+    public static final int DEFAULT_VIRTUAL_NODES = 128;
+
+    private final int virtualNodes;
+    private final TreeMap<Long, String> points = new TreeMap<>();
+    private final Set<String> nodes = new LinkedHashSet<>();
+
+    public HashRing() {
+        this(DEFAULT_VIRTUAL_NODES);
+    }
+
+    /**
+     * @param virtualNodes points placed on the ring per node
+     */
+    public HashRing(int virtualNodes) {
+        if (virtualNodes < 1) {
+            throw new IllegalArgumentException("virtualNodes must be at least 1");
+        }
+        this.virtualNodes = virtualNodes;
+    }
+
+    /**
+     * @param node a node name
+     * @return false if the node was already on the ring
+     */
+    public boolean add(String node) {
+        if (!nodes.add(node)) {
+            return false;
+        }
+        for (int i = 0; i < virtualNodes; i++) {
+            // On a (vanishingly rare) collision the earlier node keeps the point
+            points.putIfAbsent(hash(node + "#" + i), node);
+        }
+        return true;
+    }
+
+    /**
+     * @param node a node name
+     * @return false if the node was not on the ring
+     */
+    public boolean remove(String node) {
+        if (!nodes.remove(node)) {
+            return false;
+        }
+        points.values().removeIf(node::equals);
+        return true;
+    }
+
+    /**
+     * @param key a shard key
+     * @return the node owning the key, or null if the ring is empty
+     */
+    public String ownerOf(String key) {
+        if (points.isEmpty()) {
+            return null;
+        }
+        Map.Entry<Long, String> owner = points.ceilingEntry(hash(key));
+        return owner != null ? owner.getValue() : points.firstEntry().getValue();
+    }
+
+    /**
+     * @return the nodes on the ring, in the order they joined
+     */
+    public Set<String> nodes() {
+        return Collections.unmodifiableSet(new LinkedHashSet<>(nodes));
+    }
+
+    public boolean isEmpty() {
+        return nodes.isEmpty();
+    }
+
+    private static long hash(String value) {
+        return Hashing.hash64(value);
+    }
+}
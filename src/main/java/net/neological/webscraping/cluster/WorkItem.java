@@ -0,0 +1,40 @@
+package net.neological.webscraping.cluster;
+
+/**
+ * One page for a worker to scrape: the {@link net.neological.webscraping.ScraperProvider}
+ * name and the URL. On the wire it is one line, {@code <scraper> TAB <url>}.
+ *
+ * @param scraper the provider name, e.g. "FRED"
+ * @param url     the URL to scrape
+ */
+public record WorkItem(String scraper, String url) {
+
+    public WorkItem {
+        if (scraper.isEmpty() || scraper.indexOf('\t') >= 0 || scraper.indexOf('\n') >= 0) {
+            throw new IllegalArgumentException("Invalid scraper name: " + scraper);
+        }
+        if (url.isEmpty() || url.indexOf('\t') >= 0 || url.indexOf('\n') >= 0) {
+            throw new IllegalArgumentException("Invalid URL: " + url);
+        }
+    }
+
+    /**
+     * @return the wire form, without a line terminator
+     */
+    public String toLine() {
+        return scraper + "\t" + url;
+    }
+
+    /**
+     * @param line the wire form
+     * @return the item
+     * @throws IllegalArgumentException if the line is malformed
+     */
+    public static WorkItem parse(String line) {
+        int tab = line.indexOf('\t');
+        if (tab < 0) {
+            throw new IllegalArgumentException("Malformed work item: " + line);
+        }
+        return new WorkItem(line.substring(0, tab), line.substring(tab + 1).strip());
+    }
+}
@@ -0,0 +1,67 @@
+package net.neological.webscraping.events;
+
+/**
+ * Typed progress event published by scrapers instead of console output. Every event
+ * carries the URL it concerns and the wall-clock time it was created.
+ */
+public sealed interface ScrapeEvent {
+
+    String url();
+
+    long timestampMillis();
+
+    /**
+     * A page fetch (plain HTTP or browser render) has started.
+     */
+    record FetchStarted(String url, long timestampMillis) implements ScrapeEvent {
+        public FetchStarted(String url) {
+            this(url, System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * A page fetch finished successfully.
+     *
+     * @param bytes        size of the page content
+     * @param elapsedNanos time taken by the fetch
+     */
+    record FetchCompleted(String url, long bytes, long elapsedNanos, long timestampMillis) implements ScrapeEvent {
+        public FetchCompleted(String url, long bytes, long elapsedNanos) {
+            this(url, bytes, elapsedNanos, System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * Bytes of a file download were received.
+     *
+     * @param bytes bytes received since the previous progress event for this download
+     */
+    record DownloadProgress(String url, long bytes, long timestampMillis) implements ScrapeEvent {
+        public DownloadProgress(String url, long bytes) {
+            this(url, bytes, System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * A scraper extracted an item (a series CSV link, a book record, a stored cover...).
+     *
+     * @param item short description or identifier of the item
+     */
+    record ItemExtracted(String url, String item, long timestampMillis) implements ScrapeEvent {
+        public ItemExtracted(String url, String item) {
+            this(url, item, System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * Something went wrong while handling a URL.
+     *
+     * @param message human-readable description
+     * @param cause   the underlying exception, or null
+     */
+    record Failure(String url, String message, Throwable cause, long timestampMillis) implements ScrapeEvent {
+        public Failure(String url, String message, Throwable cause) {
+            this(url, message, cause, System.currentTimeMillis());
+        }
+    }
+}
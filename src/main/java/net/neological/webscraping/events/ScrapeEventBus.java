@@ -0,0 +1,141 @@
+package net.neological.webscraping.events;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Asynchronous publish/subscribe hub for {@link ScrapeEvent}s.
+ * <p>
+ * {@link #publish(ScrapeEvent)} never blocks: events go onto a lock-free queue and a single
+ * daemon dispatcher thread hands them to listeners in publication order. When nobody is
+ * subscribed events are dropped immediately, and the queue is capped so a slow listener
+ * cannot exhaust the heap; overflowing events are dropped and counted.
+ */
+public class ScrapeEventBus {
+    /** Maximum number of undelivered events kept before new ones are dropped. */
+    public static final int DEFAULT_CAPACITY = 100_000;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private static final ScrapeEventBus GLOBAL = new ScrapeEventBus(DEFAULT_CAPACITY);
+
+    private final int capacity;
+    private final ConcurrentLinkedQueue<ScrapeEvent> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicLong dropped = new AtomicLong();
+    private final List<ScrapeEventListener> listeners = new CopyOnWriteArrayList<>();
+    private volatile Thread dispatcher;
+    private volatile boolean idle;
+
+    /**
+     * Constructor.
+     *
+     * @param capacity maximum number of undelivered events
+     */
+    public ScrapeEventBus(int capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * @return the process-wide bus scrapers publish to by default
+     */
+    public static ScrapeEventBus global() {
+        return GLOBAL;
+    }
+
+    /**
+     * @param listener the listener to add
+     */
+    public void subscribe(ScrapeEventListener listener) {
+        listeners.add(listener);
+        ensureDispatcher();
+    }
+
+    /**
+     * @param listener the listener to remove
+     */
+    public void unsubscribe(ScrapeEventListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Queues an event for delivery. Safe to call from any thread; never blocks.
+     *
+     * @param event the event
+     */
+    public void publish(ScrapeEvent event) {
+        if (listeners.isEmpty()) {
+            return;
+        }
+        if (queued.incrementAndGet() > capacity) {
+            queued.decrementAndGet();
+            dropped.incrementAndGet();
+            return;
+        }
+        queue.offer(event);
+        Thread t = dispatcher;
+        if (idle && t != null) {
+            LockSupport.unpark(t);
+        }
+    }
+
+    /**
+     * @return the number of events dropped because the queue was full
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * Waits until every event published so far has been delivered.
+     *
+     * @param timeoutMillis maximum time to wait
+     * @return true if the queue drained in time
+     */
+    public boolean awaitDrained(long timeoutMillis) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        while (queued.get() > 0) {
+            if (System.nanoTime() > deadline) {
+                return false;
+            }
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        return true;
+    }
+
+    private synchronized void ensureDispatcher() {
+        if (dispatcher == null) {
+            Thread t = new Thread(this::dispatchLoop, "scrape-events");
+            t.setDaemon(true);
+            dispatcher = t;
+            t.start();
+        }
+    }
+
+    private void dispatchLoop() {
+        while (true) {
+            ScrapeEvent event = queue.poll();
+            if (event == null) {
+                idle = true;
+                // Re-check after announcing idleness so a concurrent publish is never missed
+                if (queue.isEmpty()) {
+                    LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                }
+                idle = false;
+                continue;
+            }
+            for (ScrapeEventListener listener : listeners) {
+                try {
+                    listener.onEvent(event);
+                } catch (RuntimeException e) {
+                    // A faulty listener must not stop delivery to the others
+                }
+            }
+            queued.decrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package net.neological.webscraping.events;
+
+import java.io.PrintStream;
+
+/**
+ * Receives events from a {@link ScrapeEventBus}. Listeners are called one event at a time
+ * on the bus's dispatcher thread, never on a scraping thread.
+ */
+@FunctionalInterface
+public interface ScrapeEventListener {
+
+    void onEvent(ScrapeEvent event);
+
+    /**
+     * @param out the stream to print to
+     * @return a listener that prints one readable line per event, e.g. for the CLI
+     */
+    static ScrapeEventListener printingTo(PrintStream out) {
+        return event -> out.println(describe(event));
+    }
+
+    /**
+     * @param event an event
+     * @return a one-line human-readable description of it
+     */
+    static String describe(ScrapeEvent event) {
+        if (event instanceof ScrapeEvent.FetchStarted e) {
+            return "Fetching " + e.url();
+        } else if (event instanceof ScrapeEvent.FetchCompleted e) {
+            return String.format("Fetched %s (%d bytes, %d ms)", e.url(), e.bytes(), e.elapsedNanos() / 1_000_000);
+        } else if (event instanceof ScrapeEvent.DownloadProgress e) {
+            return "Downloading " + e.url() + " (+" + e.bytes() + " bytes)";
+        } else if (event instanceof ScrapeEvent.ItemExtracted e) {
+            return "Extracted " + e.item() + " from " + e.url();
+        } else if (event instanceof ScrapeEvent.Failure e) {
+            return "ERROR: " + e.message() + " (" + e.url() + ")";
+        }
+        return event.toString();
+    }
+}
@@ -0,0 +1,167 @@
+package net.neological.webscraping.export;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Reads the rows of a {@link ExportFormat#BINARY} export back, one at a time.
+ */
+public final class BinaryExportReader implements Closeable {
+    private final DataInputStream in;
+    private final List<Column> columns;
+    private byte[] row = new byte[256];
+    private int position;
+    private int limit;
+
+    /**
+     * @param file a binary export, gzip-compressed or not
+     * @return a reader positioned at the first row
+     * @throws IOException if the file cannot be read or is not a binary export
+     */
+    public static BinaryExportReader open(Path file) throws IOException {
+        InputStream stream = new BufferedInputStream(Files.newInputStream(file), 1 << 16);
+        try {
+            stream.mark(2);
+            boolean gzip = stream.read() == 0x1F && stream.read() == 0x8B;
+            stream.reset();
+            return new BinaryExportReader(gzip ? new BufferedInputStream(new GZIPInputStream(stream, 1 << 16), 1 << 16) : stream);
+        } catch (IOException | RuntimeException e) {
+            stream.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @param stream the export's bytes, uncompressed; closed with this reader
+     * @throws IOException if the header cannot be read or is not a binary export header
+     */
+    public BinaryExportReader(InputStream stream) throws IOException {
+        in = new DataInputStream(stream);
+        byte[] magic = new byte[ExportWriter.BINARY_MAGIC.length];
+        in.readFully(magic);
+        if (!Arrays.equals(magic, ExportWriter.BINARY_MAGIC)) {
+            throw new IOException("Not a binary export");
+        }
+        int count = (int) varint(in);
+        Column.Type[] types = Column.Type.values();
+        List<Column> read = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int type = in.readUnsignedByte();
+            if (type >= types.length) {
+                throw new IOException("Unknown column type " + type);
+            }
+            byte[] name = new byte[(int) varint(in) - 1];
+            in.readFully(name);
+            read.add(new Column(new String(name, StandardCharsets.UTF_8), types[type]));
+        }
+        columns = List.copyOf(read);
+    }
+
+    /**
+     * @return the columns of every row
+     */
+    public List<Column> columns() {
+        return columns;
+    }
+
+    /**
+     * @return the next row's values (String, Long or Double per column), or null at the end
+     * @throws IOException if the file is truncated or malformed
+     */
+    public Object[] next() throws IOException {
+        int length;
+        try {
+            length = in.readInt();
+        } catch (EOFException e) {
+            return null;
+        }
+        if (length < 0) {
+            throw new IOException("Malformed row length " + length);
+        }
+        if (length > row.length) {
+            row = new byte[Math.max(length, row.length * 2)];
+        }
+        in.readFully(row, 0, length);
+        position = 0;
+        limit = length;
+
+        Object[] values = new Object[columns.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = switch (columns.get(i).type()) {
+                case STRING -> {
+                    int size = (int) varint() - 1;
+                    if (size < 0) {
+                        yield null;
+                    }
+                    if (size > limit - position) {
+                        throw new IOException("Truncated row");
+                    }
+                    String value = new String(row, position, size, StandardCharsets.UTF_8);
+                    position += size;
+                    yield value;
+                }
+                case LONG -> {
+                    long zigzag = varint();
+                    yield (zigzag >>> 1) ^ -(zigzag & 1);
+                }
+                case DOUBLE -> {
+                    if (limit - position < 8) {
+                        throw new IOException("Truncated row");
+                    }
+                    long bits = 0;
+                    for (int b = 0; b < 8; b++) {
+                        bits = bits << 8 | (row[position++] & 0xFF);
+                    }
+                    yield Double.longBitsToDouble(bits);
+                }
+            };
+        }
+        if (position != length) {
+            throw new IOException("Row length " + length + " does not match its fields (" + position + " bytes)");
+        }
+        return values;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private long varint() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            if (position >= limit) {
+                throw new IOException("Truncated row");
+            }
+            byte b = row[position++];
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    private static long varint(DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if (b < 0x80) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+}
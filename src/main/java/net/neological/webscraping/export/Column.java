@@ -0,0 +1,35 @@
+package net.neological.webscraping.export;
+
+/**
+ * One column of an export.
+ *
+ * @param name the column name, used in CSV headers, JSON keys and the binary schema
+ * @param type what the column holds
+ */
+public record Column(String name, Type type) {
+
+    /**
+     * Value types. Strings may be null; doubles may be NaN for a missing value.
+     */
+    public enum Type {
+        STRING, LONG, DOUBLE
+    }
+
+    public Column {
+        if (name == null || name.isEmpty()) {
+            throw new IllegalArgumentException("Column name must not be empty");
+        }
+    }
+
+    public static Column string(String name) {
+        return new Column(name, Type.STRING);
+    }
+
+    public static Column integer(String name) {
+        return new Column(name, Type.LONG);
+    }
+
+    public static Column decimal(String name) {
+        return new Column(name, Type.DOUBLE);
+    }
+}
@@ -0,0 +1,55 @@
+package net.neological.webscraping.export;
+
+import java.nio.file.Path;
+import java.util.Locale;
+
+/**
+ * File formats an {@link ExportWriter} can produce.
+ */
+public enum ExportFormat {
+    /** RFC 4180 CSV with a header row; missing values are empty fields. */
+    CSV("csv"),
+    /** One JSON object per line, keyed by column name; missing values are {@code null}. */
+    JSONL("jsonl"),
+    /** Length-prefixed binary rows after a schema header; read back with {@link BinaryExportReader}. */
+    BINARY("bin");
+
+    private final String extension;
+
+    ExportFormat(String extension) {
+        this.extension = extension;
+    }
+
+    /**
+     * @return the file name extension, without the dot
+     */
+    public String extension() {
+        return extension;
+    }
+
+    /**
+     * @param file an export file name, e.g. {@code books.jsonl} or {@code series.csv.gz}
+     * @return the format its extension denotes, ignoring a trailing {@code .gz}
+     * @throws IllegalArgumentException if the extension is not one of the formats'
+     */
+    public static ExportFormat forFile(Path file) {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        if (name.endsWith(".gz")) {
+            name = name.substring(0, name.length() - 3);
+        }
+        for (ExportFormat format : values()) {
+            if (name.endsWith("." + format.extension)) {
+                return format;
+            }
+        }
+        throw new IllegalArgumentException("Unknown export format (use .csv, .jsonl or .bin, optionally .gz): " + file);
+    }
+
+    /**
+     * @param file an export file name
+     * @return true if it ends in {@code .gz}
+     */
+    public static boolean isGzip(Path file) {
+        return file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".gz");
+    }
+}
@@ -0,0 +1,25 @@
+package net.neological.webscraping.export;
+
+/**
+ * Throughput of an {@link ExportWriter} so far.
+ *
+ * @param rows         rows completed
+ * @param bytes        bytes encoded, before compression
+ * @param elapsedNanos time since the writer was opened, or its whole lifetime once closed
+ */
+public record ExportStats(long rows, long bytes, long elapsedNanos) {
+
+    public double rowsPerSecond() {
+        return elapsedNanos > 0 ? rows * 1e9 / elapsedNanos : 0.0;
+    }
+
+    public double bytesPerSecond() {
+        return elapsedNanos > 0 ? bytes * 1e9 / elapsedNanos : 0.0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d rows, %.1f KiB in %.2f s (%.0f rows/s, %.1f MiB/s)",
+                rows, bytes / 1024.0, elapsedNanos / 1e9, rowsPerSecond(), bytesPerSecond() / (1024.0 * 1024.0));
+    }
+}
@@ -0,0 +1,608 @@
+package net.neological.webscraping.export;
+
+import net.neological.webscraping.IoThreads;
+import net.neological.webscraping.Json;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Streams rows to a CSV, JSON Lines or binary file.
+ * <p>
+ * Values are encoded straight into a large byte buffer, field by field, without building a row
+ * object or a string per value:
+ * <pre>
+ *     out.value(title).value(pricePence).value(rating).endRow();
+ * </pre>
+ * When the buffer fills, its complete rows are handed to a background thread that writes (and,
+ * for {@code .gz} files, compresses) them while encoding carries on in a second buffer; the two
+ * buffers alternate, so encoding only waits when the disk falls a whole buffer behind.
+ * <p>
+ * The file is written under a temporary name and renamed into place by {@link #close()}, so a
+ * failed export never leaves a truncated file behind; {@link #abort()} discards an export whose
+ * producer failed. A writer is not thread-safe; callers
+ * writing from several threads hold its {@link #rowLock()} while encoding each row.
+ * <p>
+ * The binary format is a header ({@code WSX1}, the column count, then per column a type byte
+ * and its name) followed by rows, each a 4-byte big-endian length and its fields: strings as a
+ * varint of their UTF-8 length plus one (0 for null) and the bytes, longs as zigzag varints,
+ * doubles as 8 big-endian bytes.
+ */
+public final class ExportWriter implements Closeable {
+    public static final int DEFAULT_BUFFER_SIZE = 1 << 20;
+
+    static final byte[] BINARY_MAGIC = {'W', 'S', 'X', '1'};
+    private static final byte[] NULL = "null".getBytes(StandardCharsets.US_ASCII);
+
+    private final Path file;
+    private final Path temp;
+    private final ExportFormat format;
+    private final List<Column> columns;
+    // For JSON Lines, each column's key with the '{' or ',' before it
+    private final byte[][] jsonKeys;
+    private final OutputStream out;
+    private final ExecutorService writerThread = Executors.newSingleThreadExecutor(IoThreads.daemonThreads("export-writer"));
+    private final long startNanos = System.nanoTime();
+    private final ReentrantLock rowLock = new ReentrantLock();
+
+    private byte[] buffer;
+    private byte[] spare;
+    // Write of the spare buffer in progress, if any
+    private Future<?> pending;
+    private int position;
+    private int rowStart;
+    private int column;
+    private volatile long rows;
+    private volatile long bytes;
+    private long closedNanos = -1;
+    private boolean closed;
+
+    /**
+     * Opens an export with the format and compression given by the file name (see
+     * {@link ExportFormat#forFile(Path)}) and the default buffer size.
+     *
+     * @param file    the file to write; replaced when the writer is closed
+     * @param columns the columns of every row
+     * @return the writer
+     * @throws IOException if the file cannot be created
+     */
+    public static ExportWriter open(Path file, List<Column> columns) throws IOException {
+        return new ExportWriter(file, ExportFormat.forFile(file), ExportFormat.isGzip(file), DEFAULT_BUFFER_SIZE, columns);
+    }
+
+    /**
+     * @param file       the file to write; replaced when the writer is closed
+     * @param format     the file format
+     * @param gzip       whether to gzip the file as it is written
+     * @param bufferSize bytes per buffer; two are used
+     * @param columns    the columns of every row
+     * @throws IOException if the file cannot be created
+     */
+    public ExportWriter(Path file, ExportFormat format, boolean gzip, int bufferSize, List<Column> columns)
+            throws IOException {
+        if (columns.isEmpty()) {
+            throw new IllegalArgumentException("An export needs at least one column");
+        }
+        if (bufferSize < 64) {
+            throw new IllegalArgumentException("Buffer too small: " + bufferSize);
+        }
+        this.file = file;
+        this.format = format;
+        this.columns = List.copyOf(columns);
+        this.buffer = new byte[bufferSize];
+        this.spare = new byte[bufferSize];
+        this.jsonKeys = new byte[columns.size()][];
+        for (int i = 0; i < jsonKeys.length; i++) {
+            StringBuilder key = new StringBuilder(i == 0 ? "{" : ",");
+            jsonKeys[i] = Json.quote(key, columns.get(i).name()).append(':').toString().getBytes(StandardCharsets.UTF_8);
+        }
+
+        Path folder = file.toAbsolutePath().getParent();
+        Files.createDirectories(folder);
+        temp = Files.createTempFile(folder, file.getFileName().toString(), ".part");
+        OutputStream stream = Files.newOutputStream(temp);
+        out = gzip ? new GZIPOutputStream(stream, 1 << 16) : stream;
+        writeHeader();
+    }
+
+    /**
+     * @return the columns of every row
+     */
+    public List<Column> getColumns() {
+        return columns;
+    }
+
+    /**
+     * A lock for callers that share the writer between threads, held from a row's first
+     * {@code value} to its {@link #endRow()}. A lock rather than a monitor, so virtual threads
+     * waiting for it do not pin their carrier.
+     *
+     * @return the lock
+     */
+    public Lock rowLock() {
+        return rowLock;
+    }
+
+    /**
+     * @return the format being written
+     */
+    public ExportFormat getFormat() {
+        return format;
+    }
+
+    /**
+     * Writes the next field of the current row.
+     *
+     * @param value the value of a {@link Column.Type#STRING} column, or null if missing
+     * @return this writer
+     * @throws IllegalStateException if the next column is not a string column
+     */
+    public ExportWriter value(String value) {
+        beginField(Column.Type.STRING);
+        switch (format) {
+            case CSV -> {
+                if (value != null) {
+                    csvString(value);
+                }
+            }
+            case JSONL -> {
+                if (value == null) {
+                    bytes(NULL);
+                } else {
+                    jsonValue(value);
+                }
+            }
+            case BINARY -> {
+                if (value == null) {
+                    varint(0);
+                } else {
+                    varint(utf8Length(value) + 1L);
+                    utf8(value);
+                }
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Writes the next field of the current row.
+     *
+     * @param value the value of a {@link Column.Type#LONG} column
+     * @return this writer
+     * @throws IllegalStateException if the next column is not a long column
+     */
+    public ExportWriter value(long value) {
+        beginField(Column.Type.LONG);
+        if (format == ExportFormat.BINARY) {
+            varint((value << 1) ^ (value >> 63));
+        } else {
+            decimalDigits(value);
+        }
+        return this;
+    }
+
+    /**
+     * Writes the next field of the current row.
+     *
+     * @param value the value of a {@link Column.Type#DOUBLE} column, or NaN if missing
+     * @return this writer
+     * @throws IllegalStateException if the next column is not a double column
+     */
+    public ExportWriter value(double value) {
+        beginField(Column.Type.DOUBLE);
+        switch (format) {
+            case CSV -> {
+                if (Double.isFinite(value)) {
+                    ascii(Double.toString(value));
+                }
+            }
+            case JSONL -> {
+                // JSON has no NaN or infinity
+                if (Double.isFinite(value)) {
+                    ascii(Double.toString(value));
+                } else {
+                    bytes(NULL);
+                }
+            }
+            case BINARY -> {
+                ensure(8);
+                long bits = Double.doubleToRawLongBits(value);
+                for (int shift = 56; shift >= 0; shift -= 8) {
+                    buffer[position++] = (byte) (bits >>> shift);
+                }
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Completes the current row.
+     *
+     * @throws IllegalStateException if not every column has a value
+     * @throws UncheckedIOException  if writing earlier rows to disk failed
+     */
+    public void endRow() {
+        if (column != columns.size()) {
+            throw new IllegalStateException("Row has " + column + " of " + columns.size() + " values");
+        }
+        switch (format) {
+            case CSV -> byte1('\n');
+            case JSONL -> {
+                ensure(2);
+                buffer[position++] = '}';
+                buffer[position++] = '\n';
+            }
+            case BINARY -> {
+                int length = position - rowStart - 4;
+                buffer[rowStart] = (byte) (length >>> 24);
+                buffer[rowStart + 1] = (byte) (length >>> 16);
+                buffer[rowStart + 2] = (byte) (length >>> 8);
+                buffer[rowStart + 3] = (byte) length;
+            }
+        }
+        bytes += position - rowStart;
+        rows++;
+        rowStart = position;
+        column = 0;
+    }
+
+    /**
+     * @return rows and bytes written so far, and how fast
+     */
+    public ExportStats stats() {
+        long end = closedNanos >= 0 ? closedNanos : System.nanoTime();
+        return new ExportStats(rows, bytes, end - startNanos);
+    }
+
+    /**
+     * Writes the remaining rows, finishes the file and renames it into place. A row that was
+     * started but not ended is dropped.
+     *
+     * @throws IOException if writing failed; the file is then left as it was
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        IOException failure = null;
+        try {
+            position = rowStart;
+            column = 0;
+            if (position > 0) {
+                handOff(buffer, position);
+            }
+            awaitPending();
+        } catch (UncheckedIOException e) {
+            failure = e.getCause();
+        } finally {
+            writerThread.shutdown();
+        }
+        try {
+            out.close();
+        } catch (IOException e) {
+            failure = failure != null ? failure : e;
+        }
+        closedNanos = System.nanoTime();
+        if (failure != null) {
+            Files.deleteIfExists(temp);
+            throw failure;
+        }
+        try {
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Discards the export: stops writing and deletes the temporary file, leaving any earlier file
+     * under the export's name as it was. Does nothing once the writer is closed, so it can be
+     * called on every error path.
+     */
+    public void abort() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        closedNanos = System.nanoTime();
+        if (pending != null) {
+            pending.cancel(false);
+            pending = null;
+        }
+        writerThread.shutdown();
+        try {
+            writerThread.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            out.close();
+        } catch (IOException e) {
+            // Deleted below
+        }
+        try {
+            Files.deleteIfExists(temp);
+        } catch (IOException e) {
+            // A stray .part file; it never shadows the export
+        }
+    }
+
+    private void writeHeader() {
+        switch (format) {
+            case CSV -> {
+                for (int i = 0; i < columns.size(); i++) {
+                    if (i > 0) {
+                        byte1(',');
+                    }
+                    csvString(columns.get(i).name());
+                }
+                byte1('\n');
+            }
+            case JSONL -> {
+                // Every line names its keys
+            }
+            case BINARY -> {
+                bytes(BINARY_MAGIC);
+                varint(columns.size());
+                for (Column c : columns) {
+                    byte1(c.type().ordinal());
+                    varint(utf8Length(c.name()) + 1L);
+                    utf8(c.name());
+                }
+            }
+        }
+        bytes += position;
+        rowStart = position;
+    }
+
+    private void beginField(Column.Type type) {
+        if (closed) {
+            throw new IllegalStateException("Export is closed");
+        }
+        if (column >= columns.size()) {
+            throw new IllegalStateException("Row already has all " + columns.size() + " values");
+        }
+        Column next = columns.get(column);
+        if (next.type() != type) {
+            throw new IllegalStateException("Column " + next.name() + " holds " + next.type() + ", not " + type);
+        }
+        switch (format) {
+            case CSV -> {
+                if (column > 0) {
+                    byte1(',');
+                }
+            }
+            case JSONL -> bytes(jsonKeys[column]);
+            case BINARY -> {
+                if (column == 0) {
+                    // Row length, filled in by endRow
+                    ensure(4);
+                    position += 4;
+                }
+            }
+        }
+        column++;
+    }
+
+    /**
+     * Makes room for {@code needed} more bytes. Complete rows go to the writer thread and the
+     * row in progress moves to the front of the other buffer; a row that alone outgrows the
+     * buffer gets a larger one.
+     */
+    private void ensure(int needed) {
+        if (position + needed <= buffer.length) {
+            return;
+        }
+        byte[] current = buffer;
+        int partial = position - rowStart;
+        byte[] target = rowStart > 0 ? handOff(current, rowStart) : current;
+        if (partial + needed > target.length) {
+            target = new byte[Math.max(target.length * 2, partial + needed)];
+        }
+        if (target != current) {
+            System.arraycopy(current, rowStart, target, 0, partial);
+        }
+        buffer = target;
+        position = partial;
+        rowStart = 0;
+    }
+
+    /**
+     * Queues the first {@code length} bytes of a full buffer for writing, once the previous
+     * write is done.
+     *
+     * @return the buffer to continue in
+     */
+    private byte[] handOff(byte[] full, int length) {
+        awaitPending();
+        pending = writerThread.submit(() -> {
+            out.write(full, 0, length);
+            return null;
+        });
+        byte[] next = spare;
+        spare = full;
+        buffer = next;
+        return next;
+    }
+
+    private void awaitPending() {
+        if (pending == null) {
+            return;
+        }
+        try {
+            pending.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UncheckedIOException(new InterruptedIOException("Interrupted while writing " + file));
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw new UncheckedIOException(cause instanceof IOException io ? io : new IOException(cause));
+        } finally {
+            pending = null;
+        }
+    }
+
+    private void byte1(int b) {
+        ensure(1);
+        buffer[position++] = (byte) b;
+    }
+
+    private void bytes(byte[] bytes) {
+        ensure(bytes.length);
+        System.arraycopy(bytes, 0, buffer, position, bytes.length);
+        position += bytes.length;
+    }
+
+    /** Writes a string known to be ASCII, such as a formatted number. */
+    private void ascii(String text) {
+        ensure(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            buffer[position++] = (byte) text.charAt(i);
+        }
+    }
+
+    private void decimalDigits(long value) {
+        if (value == Long.MIN_VALUE) {
+            ascii(Long.toString(value));
+            return;
+        }
+        ensure(20);
+        if (value < 0) {
+            buffer[position++] = '-';
+            value = -value;
+        }
+        int digits = 1;
+        for (long rest = value / 10; rest > 0; rest /= 10) {
+            digits++;
+        }
+        for (int i = position + digits - 1; i >= position; i--) {
+            buffer[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        position += digits;
+    }
+
+    private void varint(long value) {
+        ensure(10);
+        while ((value & ~0x7FL) != 0) {
+            buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[position++] = (byte) value;
+    }
+
+    private void csvString(String value) {
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            utf8(value);
+            return;
+        }
+        byte1('"');
+        int from = 0;
+        for (int i = value.indexOf('"'); i >= 0; i = value.indexOf('"', i + 1)) {
+            utf8(value, from, i + 1);
+            from = i;
+        }
+        utf8(value, from, value.length());
+        byte1('"');
+    }
+
+    private void jsonValue(String value) {
+        byte1('"');
+        int from = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            String escape = Json.escape(c);
+            if (escape != null) {
+                utf8(value, from, i);
+                ascii(escape);
+                from = i + 1;
+            }
+        }
+        utf8(value, from, value.length());
+        byte1('"');
+    }
+
+    private void utf8(String value) {
+        utf8(value, 0, value.length());
+    }
+
+    /**
+     * Encodes {@code value[from, to)} as UTF-8 like {@link String#getBytes}, with '?' for
+     * unpaired surrogates.
+     */
+    private void utf8(String value, int from, int to) {
+        for (int i = from; i < to; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                ensure(1);
+                buffer[position++] = (byte) c;
+            } else if (c < 0x800) {
+                ensure(2);
+                buffer[position++] = (byte) (0xC0 | c >> 6);
+                buffer[position++] = (byte) (0x80 | c & 0x3F);
+            } else if (Character.isSurrogate(c)) {
+                if (Character.isHighSurrogate(c) && i + 1 < to && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                    ensure(4);
+                    buffer[position++] = (byte) (0xF0 | codePoint >> 18);
+                    buffer[position++] = (byte) (0x80 | codePoint >> 12 & 0x3F);
+                    buffer[position++] = (byte) (0x80 | codePoint >> 6 & 0x3F);
+                    buffer[position++] = (byte) (0x80 | codePoint & 0x3F);
+                } else {
+                    ensure(1);
+                    buffer[position++] = '?';
+                }
+            } else {
+                ensure(3);
+                buffer[position++] = (byte) (0xE0 | c >> 12);
+                buffer[position++] = (byte) (0x80 | c >> 6 & 0x3F);
+                buffer[position++] = (byte) (0x80 | c & 0x3F);
+            }
+        }
+    }
+
+    private static int utf8Length(String value) {
+        int length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else {
+                length += Character.isSurrogate(c) ? 1 : 3;
+            }
+        }
+        return length;
+    }
+}
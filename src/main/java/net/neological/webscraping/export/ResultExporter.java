@@ -0,0 +1,22 @@
+package net.neological.webscraping.export;
+
+import net.neological.webscraping.ScraperProvider;
+
+import java.util.List;
+
+/**
+ * A scraper that streams what it scrapes into an {@link ExportWriter} as it goes. Scrapers
+ * whose provider reports {@link ScraperProvider#supportsExport()} implement it.
+ */
+public interface ResultExporter {
+
+    /**
+     * @return the columns of the rows written, to open the export with
+     */
+    List<Column> exportColumns();
+
+    /**
+     * @param export where rows are written from now on, or null to stop exporting
+     */
+    void setExport(ExportWriter export);
+}
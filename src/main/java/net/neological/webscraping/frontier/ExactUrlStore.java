@@ -0,0 +1,168 @@
+package net.neological.webscraping.frontier;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.ToLongFunction;
+
+/**
+ * Set of URLs kept on disk, split by hash into bucket files of one URL per line, with the
+ * 64-bit hash of every URL held in memory in an open-addressing table. Lookups only probe
+ * that table, so they never touch the disk; two distinct URLs are confused only if their
+ * 64-bit hashes collide, which for n URLs happens with probability about n²/2⁶⁵ (under one
+ * in ten million at a million URLs). The bucket files are read once, when the store is
+ * opened, to rebuild the table. New URLs are buffered per bucket and appended in batches.
+ * Used by {@link UrlSeenFilter} to tell Bloom-filter false positives from URLs really seen.
+ * Not thread-safe.
+ */
+final class ExactUrlStore implements Closeable {
+    private static final int BUCKETS = 256;
+    // URLs buffered in memory before they are appended to the bucket files
+    private static final int FLUSH_THRESHOLD = 2_048;
+    private static final int INITIAL_CAPACITY = 1 << 12;
+
+    private final Path directory;
+    private final List<List<String>> pending = new ArrayList<>(BUCKETS);
+    private int pendingCount;
+
+    // Open addressing with linear probing; 0 marks an empty slot, so a zero hash is tracked apart
+    private long[] keys = new long[INITIAL_CAPACITY];
+    private int size;
+    private boolean containsZero;
+
+    /**
+     * @param directory where the bucket files live; URLs already there are loaded
+     * @param hash      the hash {@link #add} is given for each URL
+     */
+    ExactUrlStore(Path directory, ToLongFunction<String> hash) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        for (int i = 0; i < BUCKETS; i++) {
+            pending.add(new ArrayList<>());
+        }
+        try (DirectoryStream<Path> buckets = Files.newDirectoryStream(this.directory, "bucket-*.txt")) {
+            for (Path bucket : buckets) {
+                try (BufferedReader reader = Files.newBufferedReader(bucket, StandardCharsets.UTF_8)) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        insert(hash.applyAsLong(line));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @param hash a canonical URL's 64-bit hash
+     * @return true if a URL with this hash was added before
+     */
+    boolean contains(long hash) {
+        if (hash == 0) {
+            return containsZero;
+        }
+        int mask = keys.length - 1;
+        for (int slot = slot(hash, mask); keys[slot] != 0; slot = (slot + 1) & mask) {
+            if (keys[slot] == hash) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param url  a canonical URL not yet in the store
+     * @param hash its 64-bit hash
+     */
+    void add(String url, long hash) throws IOException {
+        insert(hash);
+        pending.get(bucket(hash)).add(url);
+        if (++pendingCount >= FLUSH_THRESHOLD) {
+            flush();
+        }
+    }
+
+    /**
+     * @return bytes held by the in-memory hash table
+     */
+    long memoryBytes() {
+        return (long) keys.length * Long.BYTES;
+    }
+
+    /**
+     * Appends every buffered URL to its bucket file.
+     */
+    void flush() throws IOException {
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            List<String> urls = pending.get(bucket);
+            if (urls.isEmpty()) {
+                continue;
+            }
+            try (BufferedWriter writer = Files.newBufferedWriter(bucketFile(bucket), StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                for (String url : urls) {
+                    writer.write(url);
+                    writer.newLine();
+                }
+            }
+            urls.clear();
+        }
+        pendingCount = 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+    }
+
+    private void insert(long hash) {
+        if (hash == 0) {
+            containsZero = true;
+            return;
+        }
+        // Kept at most half full so probe runs stay short
+        if (2 * (size + 1) > keys.length) {
+            long[] old = keys;
+            keys = new long[old.length * 2];
+            size = 0;
+            for (long key : old) {
+                if (key != 0) {
+                    place(key);
+                }
+            }
+        }
+        place(hash);
+    }
+
+    private void place(long hash) {
+        int mask = keys.length - 1;
+        int slot = slot(hash, mask);
+        while (keys[slot] != 0) {
+            if (keys[slot] == hash) {
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = hash;
+        size++;
+    }
+
+    private Path bucketFile(int bucket) {
+        return directory.resolve(String.format("bucket-%02x.txt", bucket));
+    }
+
+    private static int slot(long hash, int mask) {
+        // The hash is well mixed, so its low bits spread keys evenly
+        return (int) hash & mask;
+    }
+
+    private static int bucket(long hash) {
+        return (int) (hash >>> 56);
+    }
+}
@@ -0,0 +1,70 @@
+package net.neological.webscraping.frontier;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Reduces URLs that name the same page to one form, so a seen-URL check is not fooled by
+ * cosmetic differences: the scheme and host are lower-cased, default ports, fragments and
+ * {@code .}/{@code ..} path segments are removed, an empty path becomes {@code /}, and query
+ * parameters are sorted. Parameter values and the path keep their case and encoding.
+ */
+public final class UrlCanonicalizer {
+
+    private UrlCanonicalizer() {
+    }
+
+    /**
+     * @param url an absolute URL
+     * @return its canonical form, or the trimmed input if it cannot be parsed
+     */
+    public static String canonicalize(String url) {
+        String trimmed = url.trim();
+        URI uri;
+        try {
+            uri = new URI(trimmed).normalize();
+        } catch (URISyntaxException e) {
+            return trimmed;
+        }
+        if (uri.getScheme() == null || uri.getRawAuthority() == null) {
+            return trimmed;
+        }
+
+        String scheme = uri.getScheme().toLowerCase(Locale.ROOT);
+        StringBuilder canonical = new StringBuilder(trimmed.length()).append(scheme).append("://");
+        if (uri.getRawUserInfo() != null) {
+            canonical.append(uri.getRawUserInfo()).append('@');
+        }
+        String host = uri.getHost() != null ? uri.getHost() : uri.getRawAuthority();
+        canonical.append(host.toLowerCase(Locale.ROOT));
+        int port = uri.getPort();
+        if (port != -1 && !(port == 80 && scheme.equals("http")) && !(port == 443 && scheme.equals("https"))) {
+            canonical.append(':').append(port);
+        }
+
+        String path = uri.getRawPath();
+        canonical.append(path == null || path.isEmpty() ? "/" : path);
+
+        String query = uri.getRawQuery();
+        if (query != null && !query.isEmpty()) {
+            String[] parameters = query.split("&");
+            // Sorted as raw strings, so "a=1" and "a=2" keep a fixed order too
+            Arrays.sort(parameters);
+            canonical.append('?');
+            boolean first = true;
+            for (String parameter : parameters) {
+                if (parameter.isEmpty()) {
+                    continue;
+                }
+                if (!first) {
+                    canonical.append('&');
+                }
+                canonical.append(parameter);
+                first = false;
+            }
+        }
+        return canonical.toString();
+    }
+}
@@ -0,0 +1,207 @@
+package net.neological.webscraping.frontier;
+
+import net.neological.webscraping.Hashing;
+import net.neological.webscraping.stats.ScalableBloomFilter;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Remembers which URLs a crawl has already seen in a few bytes per URL instead of a
+ * {@code HashSet<String>} of every URL. URLs are canonicalized first (see
+ * {@link UrlCanonicalizer}) and checked against a {@link ScalableBloomFilter}.
+ * <p>
+ * A Bloom filter can mistake a new URL for one already seen. In memory only, such URLs are
+ * skipped, at the filter's (small) false-positive rate. A filter opened on a directory also
+ * keeps every URL on disk and its 64-bit hash in memory (see {@link ExactUrlStore}); that set
+ * is consulted whenever the Bloom filter says "seen", so a new URL is only skipped if its
+ * 64-bit hash collides with a seen one. Such a filter is saved with {@link #save()} and picked
+ * up again by {@link #open(Path, long, double)}, e.g. to carry what was crawled over to the
+ * next run.
+ * <p>
+ * Methods are thread-safe. Disk errors surface as {@link UncheckedIOException}.
+ */
+public class UrlSeenFilter implements Closeable {
+    public static final long DEFAULT_EXPECTED_URLS = 1_000_000;
+    public static final double DEFAULT_FALSE_POSITIVE_RATE = 1e-6;
+
+    private static final String BLOOM_FILE = "seen-urls.bloom";
+    private static final String EXACT_DIRECTORY = "seen-urls";
+
+    private final ScalableBloomFilter bloom;
+    private final Path directory;
+    private final ExactUrlStore exact;
+    private long newUrls;
+    private long falsePositives;
+
+    private UrlSeenFilter(ScalableBloomFilter bloom, Path directory, ExactUrlStore exact) {
+        this.bloom = bloom;
+        this.directory = directory;
+        this.exact = exact;
+    }
+
+    /**
+     * Creates a filter held only in memory; a new URL is skipped with probability up to about
+     * twice {@code falsePositiveRate}.
+     *
+     * @param expectedUrls      URLs the filter is first sized for; it grows beyond that
+     * @param falsePositiveRate target rate for the first {@code expectedUrls} URLs
+     * @return the filter
+     */
+    public static UrlSeenFilter inMemory(long expectedUrls, double falsePositiveRate) {
+        return new UrlSeenFilter(new ScalableBloomFilter(expectedUrls, falsePositiveRate), null, null);
+    }
+
+    /**
+     * Opens a filter kept in a directory, loading what an earlier {@link #save()} stored there.
+     *
+     * @param directory         where the Bloom filter and the exact URL set live
+     * @param expectedUrls      URLs a new filter is first sized for; ignored when one is loaded
+     * @param falsePositiveRate target rate of a new filter; ignored when one is loaded
+     * @return the filter
+     * @throws IOException if the directory cannot be created or the saved filter is unreadable
+     */
+    public static UrlSeenFilter open(Path directory, long expectedUrls, double falsePositiveRate) throws IOException {
+        Files.createDirectories(directory);
+        Path file = directory.resolve(BLOOM_FILE);
+        ScalableBloomFilter bloom;
+        if (Files.exists(file)) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+                bloom = ScalableBloomFilter.readFrom(in);
+            }
+        } else {
+            bloom = new ScalableBloomFilter(expectedUrls, falsePositiveRate);
+        }
+        return new UrlSeenFilter(bloom, directory,
+                new ExactUrlStore(directory.resolve(EXACT_DIRECTORY), UrlSeenFilter::hash));
+    }
+
+    /**
+     * Marks a URL as seen.
+     *
+     * @param url an absolute URL
+     * @return true if it had not been seen before (in canonical form)
+     */
+    public synchronized boolean add(String url) {
+        String canonical = UrlCanonicalizer.canonicalize(url);
+        long hash = hash(canonical);
+        if (seen(canonical, hash)) {
+            return false;
+        }
+        newUrls++;
+        bloom.put(hash);
+        if (exact != null) {
+            try {
+                exact.add(canonical, hash);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param url an absolute URL
+     * @return true if it (in canonical form) was seen before
+     */
+    public synchronized boolean contains(String url) {
+        String canonical = UrlCanonicalizer.canonicalize(url);
+        return seen(canonical, hash(canonical));
+    }
+
+    /**
+     * Writes the Bloom filter and any buffered URLs to the directory the filter was opened on.
+     *
+     * @throws IllegalStateException if the filter is in memory only
+     */
+    public synchronized void save() throws IOException {
+        if (directory == null) {
+            throw new IllegalStateException("In-memory URL filters cannot be saved");
+        }
+        // Exact set first: a Bloom filter ahead of it could make saved URLs look unseen, never the reverse
+        exact.flush();
+        Path file = directory.resolve(BLOOM_FILE);
+        Path temp = Files.createTempFile(directory, BLOOM_FILE, ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            bloom.writeTo(out);
+        }
+        try {
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Saves a directory-backed filter; does nothing for an in-memory one.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (directory != null) {
+            save();
+        }
+    }
+
+    /**
+     * @return memory use, false-positive rates and size
+     */
+    public synchronized Stats stats() {
+        return new Stats(bloom.count(), bloom.memoryBytes(), bloom.layerCount(), bloom.expectedFalsePositiveRate(),
+                falsePositives, newUrls > 0 ? (double) falsePositives / newUrls : 0.0, exact != null,
+                exact != null ? exact.memoryBytes() : 0);
+    }
+
+    private boolean seen(String canonical, long hash) {
+        if (!bloom.mightContain(hash)) {
+            return false;
+        }
+        if (exact == null || exact.contains(hash)) {
+            return true;
+        }
+        falsePositives++;
+        return false;
+    }
+
+    private static long hash(String canonical) {
+        return Hashing.hash64(canonical);
+    }
+
+    /**
+     * A snapshot of the filter.
+     *
+     * @param urls                       URLs in the Bloom filter
+     * @param memoryBytes                bytes held by the Bloom filter
+     * @param layers                     Bloom filter layers so far
+     * @param expectedFalsePositiveRate  chance a new URL hits the Bloom filter, given how full it is
+     * @param falsePositives             new URLs the Bloom filter mistook for seen ones, caught by the exact set
+     * @param observedFalsePositiveRate  {@code falsePositives} over the new URLs checked since this filter was opened
+     * @param exact                      true if false positives are resolved against the exact on-disk set
+     * @param exactMemoryBytes           bytes held by the exact set's in-memory hash table
+     */
+    public record Stats(long urls,
+                        long memoryBytes,
+                        int layers,
+                        double expectedFalsePositiveRate,
+                        long falsePositives,
+                        double observedFalsePositiveRate,
+                        boolean exact,
+                        long exactMemoryBytes) {
+
+        @Override
+        public String toString() {
+            return String.format("%d URLs in %.1f KiB (%d layers), expected FPR %.2g, observed %d (%.2g)%s",
+                    urls, memoryBytes / 1024.0, layers, expectedFalsePositiveRate, falsePositives,
+                    observedFalsePositiveRate,
+                    exact ? String.format(", exact set %.1f KiB", exactMemoryBytes / 1024.0) : " [unverified]");
+        }
+    }
+}
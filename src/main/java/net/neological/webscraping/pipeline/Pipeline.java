@@ -0,0 +1,121 @@
+package net.neological.webscraping.pipeline;
+
+import net.neological.webscraping.ScrapeMonitor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Definition of a staged scraping pipeline such as discover → fetch → parse → aggregate → sink,
+ * run on {@link java.util.concurrent.Flow}. Every stage has its own worker threads and a
+ * bounded buffer in front of it; items only move when the next stage has room, so a slow sink
+ * throttles the fetchers instead of letting pages pile up in memory.
+ * <p>
+ * Definitions are immutable: each {@code then} returns a new pipeline, and one definition can
+ * be started any number of times.
+ * <pre>
+ *     Pipeline.of(genres)
+ *             .then("discover", 1, 4, this::discoverPages)
+ *             .map("fetch", 8, 16, page -&gt; fetchDocument(page))
+ *             .start("aggregate", 1, 32, page -&gt; summarizePage(page, summary))
+ *             .await();
+ * </pre>
+ *
+ * @param <T> the type of item the last stage emits
+ */
+public final class Pipeline<T> {
+    /** Buffer size used by scraper-defined pipelines when nothing better is known. */
+    public static final int DEFAULT_BUFFER = 16;
+
+    private final Iterable<?> seeds;
+    private final List<StageDefinition> stages;
+    private final ScrapeMonitor monitor;
+
+    private Pipeline(Iterable<?> seeds, List<StageDefinition> stages, ScrapeMonitor monitor) {
+        this.seeds = seeds;
+        this.stages = stages;
+        this.monitor = monitor;
+    }
+
+    /**
+     * @param seeds the items fed to the first stage, read lazily as it asks for them
+     * @return a pipeline that emits the seeds unchanged
+     */
+    public static <T> Pipeline<T> of(Iterable<? extends T> seeds) {
+        return new Pipeline<>(seeds, List.of(), null);
+    }
+
+    /**
+     * Appends a stage.
+     *
+     * @param name        shown in {@link StageStats}
+     * @param parallelism worker threads for the stage
+     * @param buffer      items queued in front of the stage at most
+     * @param stage       the processing step
+     * @return the extended pipeline
+     */
+    public <R> Pipeline<R> then(String name, int parallelism, int buffer, Stage<? super T, R> stage) {
+        List<StageDefinition> extended = new ArrayList<>(stages);
+        extended.add(new StageDefinition(name, parallelism, buffer, stage));
+        return new Pipeline<>(seeds, List.copyOf(extended), monitor);
+    }
+
+    /**
+     * Appends a stage with one output per input; null results are dropped.
+     *
+     * @see #then(String, int, int, Stage)
+     */
+    public <R> Pipeline<R> map(String name, int parallelism, int buffer, Stage.Mapping<? super T, R> mapping) {
+        return then(name, parallelism, buffer, (item, downstream) -> {
+            R result = mapping.apply(item);
+            if (result != null) {
+                downstream.accept(result);
+            }
+        });
+    }
+
+    /**
+     * Makes runs of this pipeline stop when the monitor is cancelled or its deadline passes.
+     *
+     * @param monitor the job's monitor
+     * @return the pipeline, following the monitor
+     */
+    public Pipeline<T> cancelledBy(ScrapeMonitor monitor) {
+        return new Pipeline<>(seeds, stages, monitor);
+    }
+
+    /**
+     * Starts the pipeline with a final stage that consumes its output.
+     *
+     * @param name        shown in {@link StageStats}
+     * @param parallelism worker threads for the sink; 1 unless the sink is thread-safe
+     * @param buffer      items queued in front of the sink at most
+     * @param sink        consumes every item
+     * @return the running pipeline
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public PipelineRun start(String name, int parallelism, int buffer, Stage.Sink<? super T> sink) {
+        PipelineRun run = new PipelineRun(monitor);
+        for (StageDefinition stage : stages) {
+            run.add(new StageProcessor<>(stage.name(), stage.parallelism(), stage.buffer(), (Stage) stage.stage(), run));
+        }
+        Stage<T, Void> last = (item, downstream) -> sink.accept(item);
+        run.add(new StageProcessor<>(name, parallelism, buffer, last, run));
+        run.start(new SeedPublisher<>(seeds));
+        return run;
+    }
+
+    /**
+     * @return the stage names, in order
+     */
+    public List<String> stageNames() {
+        List<String> names = new ArrayList<>();
+        for (StageDefinition stage : stages) {
+            names.add(stage.name());
+        }
+        return names;
+    }
+
+    private record StageDefinition(String name, int parallelism, int buffer, Stage<?, ?> stage) {
+    }
+}
@@ -0,0 +1,149 @@
+package net.neological.webscraping.pipeline;
+
+import net.neological.webscraping.ScrapeCancelledException;
+import net.neological.webscraping.ScrapeMonitor;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Flow;
+
+/**
+ * A running {@link Pipeline}. Items that fail are counted per stage and the rest carry on;
+ * {@link #await()} reports the failures once everything else has gone through.
+ */
+public final class PipelineRun {
+    private final List<StageProcessor<?, ?>> stages = new ArrayList<>();
+    private final CompletableFuture<Void> done = new CompletableFuture<>();
+    private final ScrapeMonitor monitor;
+    private final long startNanos = System.nanoTime();
+    private volatile boolean cancelled;
+    private volatile Runnable cancelHook;
+    // Guarded by this
+    private IOException failure;
+    private int failureCount;
+
+    PipelineRun(ScrapeMonitor monitor) {
+        this.monitor = monitor;
+    }
+
+    /**
+     * Waits until every item has passed through the pipeline.
+     *
+     * @throws ScrapeCancelledException if the pipeline (or the monitor it follows) was cancelled
+     * @throws IOException              if any item failed in any stage
+     */
+    public void await() throws IOException {
+        try {
+            done.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            cancel();
+            throw new ScrapeCancelledException("Interrupted while waiting for the pipeline");
+        } catch (ExecutionException e) {
+            throw new IOException("Pipeline failed: " + e.getCause().getMessage(), e.getCause());
+        } finally {
+            if (cancelHook != null) {
+                monitor.unregisterCancelHook(cancelHook);
+            }
+        }
+        if (cancelled) {
+            if (monitor != null) {
+                monitor.checkCancelled();
+            }
+            throw new ScrapeCancelledException("Pipeline was cancelled");
+        }
+        synchronized (this) {
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+
+    /**
+     * @return true once every stage has finished
+     */
+    public boolean isDone() {
+        return done.isDone();
+    }
+
+    /**
+     * Stops the pipeline: queued items are dropped and workers finish the item they hold.
+     */
+    public void cancel() {
+        cancelled = true;
+        for (StageProcessor<?, ?> stage : stages) {
+            stage.abort();
+        }
+    }
+
+    /**
+     * @return a snapshot of every stage, in pipeline order
+     */
+    public List<StageStats> stats() {
+        double elapsed = (System.nanoTime() - startNanos) / 1e9;
+        List<StageStats> snapshot = new ArrayList<>();
+        for (StageProcessor<?, ?> stage : stages) {
+            snapshot.add(stage.stats(elapsed));
+        }
+        return snapshot;
+    }
+
+    /**
+     * @return how many items failed, over all stages
+     */
+    public synchronized int getFailureCount() {
+        return failureCount;
+    }
+
+    synchronized void recordFailure(String stage, Exception e) {
+        failureCount++;
+        if (failure == null) {
+            failure = new IOException("Pipeline stage " + stage + " failed: " + e.getMessage(), e);
+        } else {
+            failure.addSuppressed(e);
+        }
+    }
+
+    void add(StageProcessor<?, ?> stage) {
+        stages.add(stage);
+    }
+
+    /**
+     * Starts the flow: stages are wired from the sink backwards, so each one is ready for
+     * items before anything upstream can send them.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    void start(Flow.Publisher<?> seeds) {
+        stages.get(stages.size() - 1).subscribe(new Flow.Subscriber<Object>() {
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                subscription.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(Object item) {
+                // The sink emits nothing
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                done.completeExceptionally(error);
+            }
+
+            @Override
+            public void onComplete() {
+                done.complete(null);
+            }
+        });
+        for (int i = stages.size() - 2; i >= 0; i--) {
+            stages.get(i).subscribe((Flow.Subscriber) stages.get(i + 1));
+        }
+        if (monitor != null) {
+            cancelHook = monitor.registerCancelHook(this::cancel);
+        }
+        seeds.subscribe((Flow.Subscriber) stages.get(0));
+    }
+}
@@ -0,0 +1,61 @@
+package net.neological.webscraping.pipeline;
+
+import java.util.Iterator;
+import java.util.concurrent.Flow;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Publishes a pipeline's seed items, pulling them from the iterator only as the first stage
+ * asks for them.
+ */
+final class SeedPublisher<T> implements Flow.Publisher<T> {
+    private final Iterator<? extends T> seeds;
+    private Flow.Subscriber<? super T> subscriber;
+    // Requests come from the first stage's workers; a lock does not pin them on virtual threads
+    private final ReentrantLock lock = new ReentrantLock();
+    // Guarded by lock
+    private long demand;
+    private boolean done;
+
+    SeedPublisher(Iterable<? extends T> seeds) {
+        this.seeds = seeds.iterator();
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super T> subscriber) {
+        this.subscriber = subscriber;
+        subscriber.onSubscribe(new Flow.Subscription() {
+            @Override
+            public void request(long n) {
+                drain(n);
+            }
+
+            @Override
+            public void cancel() {
+                lock.lock();
+                try {
+                    done = true;
+                } finally {
+                    lock.unlock();
+                }
+            }
+        });
+    }
+
+    private void drain(long n) {
+        lock.lock();
+        try {
+            demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+            while (demand > 0 && !done && seeds.hasNext()) {
+                demand--;
+                subscriber.onNext(seeds.next());
+            }
+            if (!done && !seeds.hasNext()) {
+                done = true;
+                subscriber.onComplete();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+}
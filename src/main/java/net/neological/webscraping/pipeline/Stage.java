@@ -0,0 +1,41 @@
+package net.neological.webscraping.pipeline;
+
+import java.io.IOException;
+import java.util.function.Consumer;
+
+/**
+ * One step of a {@link Pipeline}: turns each input into zero or more outputs. Called from
+ * the stage's own worker threads, up to its parallelism at once.
+ *
+ * @param <I> input type
+ * @param <O> output type
+ */
+@FunctionalInterface
+public interface Stage<I, O> {
+
+    /**
+     * Processes one item. Passing an output downstream blocks while the next stage's buffer
+     * is full, which is how backpressure reaches the earlier stages.
+     *
+     * @param item       the input
+     * @param downstream receives the outputs
+     * @throws IOException if the item fails; it is counted and the pipeline carries on
+     */
+    void process(I item, Consumer<? super O> downstream) throws IOException;
+
+    /**
+     * A stage with exactly one output per input; a null result is dropped.
+     */
+    @FunctionalInterface
+    interface Mapping<I, O> {
+        O apply(I item) throws IOException;
+    }
+
+    /**
+     * The last stage: consumes items without passing anything on.
+     */
+    @FunctionalInterface
+    interface Sink<T> {
+        void accept(T item) throws IOException;
+    }
+}
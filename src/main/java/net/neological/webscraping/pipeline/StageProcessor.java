@@ -0,0 +1,215 @@
+package net.neological.webscraping.pipeline;
+
+import net.neological.webscraping.IoThreads;
+import net.neological.webscraping.ScrapeCancelledException;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Flow;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Runs one {@link Stage} as a {@link Flow.Processor}. Upstream is only asked for as many items
+ * as fit in the stage's buffer, and one more each time a worker takes an item; workers wait
+ * for downstream demand before passing an output on. A slow stage therefore stalls the ones
+ * in front of it instead of letting their output pile up.
+ */
+final class StageProcessor<I, O> implements Flow.Processor<I, O> {
+    // Queued once per worker after the last item, so every worker sees the end
+    private static final Object END = new Object();
+
+    private final String name;
+    private final int parallelism;
+    private final int capacity;
+    private final Stage<? super I, O> stage;
+    private final PipelineRun run;
+    private final LinkedBlockingQueue<Object> inbox = new LinkedBlockingQueue<>();
+    private final AtomicInteger liveWorkers;
+    private final AtomicInteger active = new AtomicInteger();
+    // Items in the inbox, for stats: raised after an add and lowered right after a take, so it
+    // never overstates the buffer the way iterating the queue under concurrent takes can
+    private final AtomicInteger queued = new AtomicInteger();
+    private final LongAdder processed = new LongAdder();
+    private final LongAdder emitted = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+
+    private volatile Flow.Subscription upstream;
+    private volatile Flow.Subscriber<? super O> downstream;
+    private volatile Throwable upstreamError;
+    // A lock rather than a monitor: workers on virtual threads wait here without pinning a carrier
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition demanded = lock.newCondition();
+    // Downstream demand, guarded by lock
+    private long demand;
+    private boolean aborted;
+
+    StageProcessor(String name, int parallelism, int capacity, Stage<? super I, O> stage, PipelineRun run) {
+        if (parallelism < 1 || capacity < 1) {
+            throw new IllegalArgumentException("Stage " + name + " needs parallelism and buffer of at least 1");
+        }
+        this.name = name;
+        this.parallelism = parallelism;
+        this.capacity = capacity;
+        this.stage = stage;
+        this.run = run;
+        this.liveWorkers = new AtomicInteger(parallelism);
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super O> subscriber) {
+        downstream = subscriber;
+        subscriber.onSubscribe(new Flow.Subscription() {
+            @Override
+            public void request(long n) {
+                lock.lock();
+                try {
+                    // Saturate instead of overflowing on Long.MAX_VALUE requests
+                    demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+                    demanded.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+            }
+
+            @Override
+            public void cancel() {
+                abort();
+            }
+        });
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        upstream = subscription;
+        ExecutorService workers = IoThreads.newExecutor("pipeline-" + name, parallelism);
+        for (int i = 0; i < parallelism; i++) {
+            workers.execute(this::work);
+        }
+        // Workers exit on their own once the stage is done
+        workers.shutdown();
+        subscription.request(capacity);
+    }
+
+    @Override
+    public void onNext(I item) {
+        inbox.add(item);
+        queued.incrementAndGet();
+    }
+
+    @Override
+    public void onError(Throwable error) {
+        upstreamError = error;
+        end();
+    }
+
+    @Override
+    public void onComplete() {
+        end();
+    }
+
+    /**
+     * Drops queued items and releases every waiting worker; used when the pipeline is cancelled.
+     */
+    void abort() {
+        lock.lock();
+        try {
+            if (aborted) {
+                return;
+            }
+            aborted = true;
+            demanded.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        inbox.clear();
+        queued.set(0);
+        end();
+        Flow.Subscription subscription = upstream;
+        if (subscription != null) {
+            subscription.cancel();
+        }
+    }
+
+    StageStats stats(double elapsedSeconds) {
+        long done = processed.sum();
+        return new StageStats(name, parallelism, capacity, Math.max(0, queued.get()), active.get(), done, emitted.sum(), errors.sum(),
+                elapsedSeconds > 0 ? done / elapsedSeconds : 0);
+    }
+
+    private void end() {
+        for (int i = 0; i < parallelism; i++) {
+            inbox.add(END);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void work() {
+        try {
+            while (true) {
+                Object next = inbox.take();
+                if (next == END) {
+                    break;
+                }
+                // Before asking for a replacement, which may arrive at once
+                queued.decrementAndGet();
+                upstream.request(1);
+                active.incrementAndGet();
+                try {
+                    stage.process((I) next, this::emit);
+                } catch (CancellationException e) {
+                    // The pipeline was cancelled while this worker waited to emit
+                } catch (ScrapeCancelledException e) {
+                    run.cancel();
+                } catch (Exception e) {
+                    errors.increment();
+                    run.recordFailure(name, e);
+                } finally {
+                    active.decrementAndGet();
+                    processed.increment();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (liveWorkers.decrementAndGet() == 0) {
+                finish();
+            }
+        }
+    }
+
+    private void emit(O output) {
+        lock.lock();
+        try {
+            while (demand == 0 && !aborted) {
+                try {
+                    demanded.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new CancellationException("Interrupted while waiting for downstream demand");
+                }
+            }
+            if (aborted) {
+                throw new CancellationException("Pipeline was cancelled");
+            }
+            demand--;
+            // Under the lock: Flow requires onNext calls to be serialised
+            downstream.onNext(output);
+        } finally {
+            lock.unlock();
+        }
+        emitted.increment();
+    }
+
+    private void finish() {
+        Throwable error = upstreamError;
+        if (error != null) {
+            downstream.onError(error);
+        } else {
+            downstream.onComplete();
+        }
+    }
+}
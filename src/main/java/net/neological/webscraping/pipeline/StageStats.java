@@ -0,0 +1,31 @@
+package net.neological.webscraping.pipeline;
+
+/**
+ * A snapshot of one pipeline stage.
+ *
+ * @param name        the stage name
+ * @param parallelism worker threads in the stage
+ * @param capacity    size of the buffer in front of the stage
+ * @param queued      items waiting in that buffer
+ * @param active      items being processed right now
+ * @param processed   items processed so far, including failed ones
+ * @param emitted     outputs passed to the next stage
+ * @param errors      items that failed
+ * @param perSecond   items processed per second since the pipeline started
+ */
+public record StageStats(String name,
+                         int parallelism,
+                         int capacity,
+                         int queued,
+                         int active,
+                         long processed,
+                         long emitted,
+                         long errors,
+                         double perSecond) {
+
+    @Override
+    public String toString() {
+        return String.format("%s: %d/%d queued, %d active, %d processed (%.1f/s), %d emitted, %d errors",
+                name, queued, capacity, active, processed, perSecond, emitted, errors);
+    }
+}
@@ -0,0 +1,88 @@
+package net.neological.webscraping.render;
+
+import net.neological.webscraping.ChromeDrivers;
+import net.neological.webscraping.ScrapeMonitor;
+import org.openqa.selenium.By;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.chrome.ChromeOptions;
+import org.openqa.selenium.support.ui.ExpectedConditions;
+import org.openqa.selenium.support.ui.WebDriverWait;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * Renders pages in a headless Chrome started for each request in this JVM. Selenium classes
+ * are only loaded once the first page is rendered here.
+ */
+final class LocalRenderBackend implements RenderBackend {
+    static final LocalRenderBackend INSTANCE = new LocalRenderBackend();
+
+    private LocalRenderBackend() {
+    }
+
+    /**
+     * Sets up ChromeDriver, launches headless Chrome with the request's User-Agent, navigates to
+     * the URL, optionally clicks an element, then grabs the page source and the URL the browser
+     * ended up on.
+     */
+    @Override
+    public RenderedPage render(RenderRequest request, ScrapeMonitor monitor) throws IOException {
+        ChromeOptions options = new ChromeOptions();
+        options.addArguments("--headless");
+        options.addArguments("--disable-gpu");
+        options.addArguments("--no-sandbox");
+        options.addArguments("--disable-dev-shm-usage");
+        options.addArguments("--blink-settings=imagesEnabled=false"); // turn off image loading
+        if (request.userAgent() != null) {
+            options.addArguments("--user-agent=" + request.userAgent());
+        }
+
+        WebDriver driver = ChromeDrivers.start(options);
+        Runnable abort = monitor.registerCancelHook(driver::quit);
+        try {
+            Duration timeout = Duration.ofMillis(monitor.clampTimeout(request.timeoutMillis()));
+            driver.manage().timeouts().pageLoadTimeout(timeout);
+            driver.get(request.url());
+
+            if (request.clickElementId() != null) {
+                click(driver, new WebDriverWait(driver, timeout), By.id(request.clickElementId()), monitor);
+                Thread.sleep(monitor.clampTimeout(request.settleMillis())); // Wait for what the click loads
+            }
+            return new RenderedPage(driver.getCurrentUrl(), driver.getPageSource());
+        } catch (Exception e) {
+            throw new IOException("Failed to fetch/render page via Selenium: " + e.getMessage(), e);
+        } finally {
+            monitor.unregisterCancelHook(abort);
+            driver.quit();
+        }
+    }
+
+    private static void click(WebDriver driver, WebDriverWait wait, By locator, ScrapeMonitor monitor)
+            throws InterruptedException {
+        // Wait for the page to load completely
+        wait.until(ExpectedConditions.presenceOfElementLocated(locator));
+
+        // Try multiple strategies to click the element
+        WebElement element;
+        try {
+            // First try: wait for element to be clickable
+            element = wait.until(ExpectedConditions.elementToBeClickable(locator));
+            element.click();
+        } catch (Exception e1) {
+            try {
+                // Second try: use JavaScript click
+                element = driver.findElement(locator);
+                ((JavascriptExecutor) driver).executeScript("arguments[0].click();", element);
+            } catch (Exception e2) {
+                // Third try: scroll to element and click
+                element = driver.findElement(locator);
+                ((JavascriptExecutor) driver).executeScript("arguments[0].scrollIntoView(true);", element);
+                Thread.sleep(monitor.clampTimeout(1000));
+                ((JavascriptExecutor) driver).executeScript("arguments[0].click();", element);
+            }
+        }
+    }
+}
@@ -0,0 +1,315 @@
+package net.neological.webscraping.render;
+
+import net.neological.webscraping.IoThreads;
+import net.neological.webscraping.ScrapeMonitor;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sends renders to a pool of {@link RenderWorker}s.
+ * <p>
+ * Each render goes to the healthy worker with the fewest renders in flight from this client,
+ * rotating among equally loaded ones. A worker that cannot be reached is marked down and the
+ * render moves on to the next. When every reachable worker is at capacity (503) the render
+ * waits, backing off, and tries them again until its page timeout runs out; a request a worker
+ * refuses as malformed (400) fails without counting against the worker. A background check
+ * probes every worker's {@code /health} and brings recovered ones back. Only when no worker
+ * can be reached at all does the render run on the fallback backend, normally local Chrome.
+ */
+public class RemoteRenderBackend implements RenderBackend, Closeable {
+    public static final long DEFAULT_HEALTH_INTERVAL_MILLIS = 5_000;
+
+    // Time the worker may take beyond the page timeout, for starting the browser and sending the page
+    private static final long RENDER_OVERHEAD_MILLIS = 15_000;
+    // Backoff while every reachable worker is at capacity
+    private static final long FIRST_CAPACITY_WAIT_MILLIS = 50;
+    private static final long MAX_CAPACITY_WAIT_MILLIS = 1_000;
+
+    /**
+     * A worker as this client sees it.
+     *
+     * @param uri      the worker's base URI
+     * @param healthy  whether renders are sent to it
+     * @param inFlight renders this client has running on it
+     * @param renders  renders it completed for this client
+     * @param failures requests to it that failed to reach it or were answered with an error
+     */
+    public record WorkerStatus(URI uri, boolean healthy, int inFlight, long renders, long failures) {
+    }
+
+    private final List<Worker> workers = new ArrayList<>();
+    private final RenderBackend fallback;
+    private final HttpClient http = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+    private final ScheduledExecutorService healthChecks;
+    private final AtomicInteger rotation = new AtomicInteger();
+    private final AtomicLong fallbacks = new AtomicLong();
+    private final AtomicLong capacityWaits = new AtomicLong();
+
+    /**
+     * Starts a client with the default health check interval.
+     *
+     * @param workers  base URIs of the workers, e.g. {@code http://render-1:8300/}
+     * @param fallback where renders run when no worker can be reached, or null to fail them instead
+     */
+    public RemoteRenderBackend(List<URI> workers, RenderBackend fallback) {
+        this(workers, fallback, DEFAULT_HEALTH_INTERVAL_MILLIS);
+    }
+
+    /**
+     * @param workers              base URIs of the workers
+     * @param fallback             where renders run when no worker can be reached, or null to fail them instead
+     * @param healthIntervalMillis how often every worker is probed
+     */
+    public RemoteRenderBackend(List<URI> workers, RenderBackend fallback, long healthIntervalMillis) {
+        if (workers.isEmpty()) {
+            throw new IllegalArgumentException("No render workers given");
+        }
+        for (URI uri : workers) {
+            this.workers.add(new Worker(uri.getPath().endsWith("/") ? uri : URI.create(uri + "/")));
+        }
+        this.fallback = fallback;
+        healthChecks = Executors.newSingleThreadScheduledExecutor(IoThreads.daemonThreads("render-health"));
+        healthChecks.scheduleWithFixedDelay(this::checkHealth, healthIntervalMillis, healthIntervalMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @param list comma-separated worker addresses, {@code host:port} or full URIs
+     * @return the URIs they denote
+     * @throws IllegalArgumentException if an address is malformed
+     */
+    public static List<URI> parseWorkers(String list) {
+        List<URI> uris = new ArrayList<>();
+        for (String address : list.split(",")) {
+            String trimmed = address.strip();
+            if (!trimmed.isEmpty()) {
+                uris.add(URI.create(trimmed.contains("://") ? trimmed : "http://" + trimmed));
+            }
+        }
+        if (uris.isEmpty()) {
+            throw new IllegalArgumentException("No render workers in: " + list);
+        }
+        return uris;
+    }
+
+    @Override
+    public RenderedPage render(RenderRequest request, ScrapeMonitor monitor) throws IOException {
+        int timeoutMillis = monitor.clampTimeout(request.timeoutMillis());
+        RenderRequest sent = new RenderRequest(request.url(), request.userAgent(), timeoutMillis,
+                request.clickElementId(), request.settleMillis());
+
+        long waitingSince = System.nanoTime();
+        long wait = FIRST_CAPACITY_WAIT_MILLIS;
+        while (true) {
+            boolean busy = false;
+            Set<Worker> tried = new HashSet<>();
+            Worker worker;
+            while ((worker = pick(tried)) != null) {
+                tried.add(worker);
+                HttpResponse<String> response;
+                worker.inFlight.incrementAndGet();
+                try {
+                    response = send(worker, sent, monitor);
+                } catch (HttpTimeoutException e) {
+                    // The worker is there but the page is slow; another worker would not do better
+                    worker.failures.incrementAndGet();
+                    throw new IOException("Render of " + request.url() + " timed out on " + worker.uri, e);
+                } catch (IOException e) {
+                    monitor.checkCancelled();
+                    worker.markDown();
+                    continue;
+                } finally {
+                    worker.inFlight.decrementAndGet();
+                }
+
+                switch (response.statusCode()) {
+                    case 200 -> {
+                        worker.renders.incrementAndGet();
+                        return new RenderedPage(response.headers().firstValue("Content-Location").orElse(request.url()),
+                                response.body());
+                    }
+                    // At capacity; try the others, and this one again later
+                    case 503 -> busy = true;
+                    case 502 -> {
+                        worker.failures.incrementAndGet();
+                        throw new IOException("Failed to render " + request.url() + " on " + worker.uri + ": "
+                                + response.body().strip());
+                    }
+                    // The request itself was refused; any other worker would refuse it too
+                    case 400 -> throw new IOException("Render worker " + worker.uri + " refused " + request.url()
+                            + ": " + response.body().strip());
+                    default -> worker.markDown();
+                }
+            }
+            if (!busy) {
+                break;
+            }
+
+            long waitedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - waitingSince);
+            if (waitedMillis >= timeoutMillis) {
+                throw new IOException("Every render worker stayed at capacity for " + waitedMillis + " ms; gave up on "
+                        + request.url());
+            }
+            capacityWaits.incrementAndGet();
+            awaitCapacity(Math.min(wait, timeoutMillis - waitedMillis), monitor);
+            wait = Math.min(wait * 2, MAX_CAPACITY_WAIT_MILLIS);
+        }
+
+        if (fallback == null) {
+            throw new IOException("No render worker could be reached for " + request.url());
+        }
+        fallbacks.incrementAndGet();
+        return fallback.render(request, monitor);
+    }
+
+    /**
+     * @return the workers and how this client sees them
+     */
+    public List<WorkerStatus> workers() {
+        List<WorkerStatus> statuses = new ArrayList<>(workers.size());
+        for (Worker worker : workers) {
+            statuses.add(new WorkerStatus(worker.uri, worker.healthy, worker.inFlight.get(),
+                    worker.renders.get(), worker.failures.get()));
+        }
+        return statuses;
+    }
+
+    /**
+     * @return renders that ran on the fallback backend because no worker could be reached
+     */
+    public long getLocalFallbacks() {
+        return fallbacks.get();
+    }
+
+    /**
+     * @return times a render waited because every reachable worker was at capacity
+     */
+    public long getCapacityWaits() {
+        return capacityWaits.get();
+    }
+
+    /**
+     * Probes every worker's {@code /health} now and updates whether renders are sent to it.
+     * Also runs periodically in the background.
+     */
+    public void checkHealth() {
+        for (Worker worker : workers) {
+            HttpRequest probe = HttpRequest.newBuilder(worker.uri.resolve("health"))
+                    .timeout(Duration.ofSeconds(5))
+                    .GET()
+                    .build();
+            try {
+                worker.healthy = http.send(probe, HttpResponse.BodyHandlers.discarding()).statusCode() == 200;
+            } catch (IOException e) {
+                worker.healthy = false;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        healthChecks.shutdownNow();
+    }
+
+    /**
+     * @return the healthy, untried worker with the fewest renders in flight, or null if there is none
+     */
+    private Worker pick(Set<Worker> tried) {
+        int start = Math.floorMod(rotation.getAndIncrement(), workers.size());
+        Worker best = null;
+        for (int i = 0; i < workers.size(); i++) {
+            Worker worker = workers.get((start + i) % workers.size());
+            if (worker.healthy && !tried.contains(worker)
+                    && (best == null || worker.inFlight.get() < best.inFlight.get())) {
+                best = worker;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Sleeps before the workers are tried again, waking early if the job is cancelled.
+     */
+    private static void awaitCapacity(long millis, ScrapeMonitor monitor) throws IOException {
+        CountDownLatch woken = new CountDownLatch(1);
+        Runnable wake = monitor.registerCancelHook(woken::countDown);
+        try {
+            woken.await(millis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a render worker");
+        } finally {
+            monitor.unregisterCancelHook(wake);
+        }
+        monitor.checkCancelled();
+    }
+
+    private HttpResponse<String> send(Worker worker, RenderRequest request, ScrapeMonitor monitor) throws IOException {
+        HttpRequest post = HttpRequest.newBuilder(worker.uri.resolve("render"))
+                .timeout(Duration.ofMillis(request.timeoutMillis() + request.settleMillis() + RENDER_OVERHEAD_MILLIS))
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .POST(HttpRequest.BodyPublishers.ofString(request.toForm(), StandardCharsets.UTF_8))
+                .build();
+        CompletableFuture<HttpResponse<String>> response =
+                http.sendAsync(post, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+        Runnable abort = monitor.registerCancelHook(() -> response.cancel(true));
+        try {
+            return response.get();
+        } catch (CancellationException e) {
+            monitor.checkCancelled();
+            throw new IOException("Render of " + request.url() + " was aborted");
+        } catch (InterruptedException e) {
+            response.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while rendering " + request.url());
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException io ? io : new IOException(e.getCause());
+        } finally {
+            monitor.unregisterCancelHook(abort);
+        }
+    }
+
+    private static final class Worker {
+        final URI uri;
+        final AtomicInteger inFlight = new AtomicInteger();
+        final AtomicLong renders = new AtomicLong();
+        final AtomicLong failures = new AtomicLong();
+        volatile boolean healthy = true;
+
+        Worker(URI uri) {
+            this.uri = uri;
+        }
+
+        void markDown() {
+            failures.incrementAndGet();
+            healthy = false;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package net.neological.webscraping.render;
+
+import net.neological.webscraping.ScrapeMonitor;
+
+import java.io.IOException;
+
+/**
+ * Where browser renders run: headless Chrome in this JVM ({@link #local()}), or a pool of
+ * {@link RenderWorker}s reached through a {@link RemoteRenderBackend}, so rendering can be
+ * scaled separately from the crawl that needs it.
+ */
+@FunctionalInterface
+public interface RenderBackend {
+
+    /**
+     * Renders a page.
+     *
+     * @param request the page and how to render it
+     * @param monitor the job the render belongs to; its cancel hooks and deadline abort the render
+     * @return the rendered HTML, with the URL the browser ended up on
+     * @throws IOException if the page cannot be rendered
+     */
+    RenderedPage render(RenderRequest request, ScrapeMonitor monitor) throws IOException;
+
+    /**
+     * @return the backend that starts a local ChromeDriver per render
+     */
+    static RenderBackend local() {
+        return LocalRenderBackend.INSTANCE;
+    }
+}
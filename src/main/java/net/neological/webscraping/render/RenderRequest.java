@@ -0,0 +1,91 @@
+package net.neological.webscraping.render;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * One page to render in a browser.
+ *
+ * @param url            the URL to load
+ * @param userAgent      the User-Agent the browser presents
+ * @param timeoutMillis  page load timeout, and how long to wait for {@code clickElementId}
+ * @param clickElementId the id of an element to click once it is clickable, or null to just load the page
+ * @param settleMillis   how long to wait after the click before the page source is taken
+ */
+public record RenderRequest(String url, String userAgent, int timeoutMillis, String clickElementId, int settleMillis) {
+
+    public RenderRequest {
+        if (url == null || url.isBlank()) {
+            throw new IllegalArgumentException("Missing url");
+        }
+        if (timeoutMillis < 0 || settleMillis < 0) {
+            throw new IllegalArgumentException("Negative wait in render request for " + url);
+        }
+    }
+
+    /**
+     * @return a request that loads a page and takes its source
+     */
+    public static RenderRequest page(String url, String userAgent, int timeoutMillis) {
+        return new RenderRequest(url, userAgent, timeoutMillis, null, 0);
+    }
+
+    /**
+     * @return the request as an {@code application/x-www-form-urlencoded} body, for render workers
+     */
+    public String toForm() {
+        StringBuilder form = new StringBuilder()
+                .append("url=").append(encode(url))
+                .append("&timeoutMillis=").append(timeoutMillis)
+                .append("&settleMillis=").append(settleMillis);
+        if (userAgent != null) {
+            form.append("&userAgent=").append(encode(userAgent));
+        }
+        if (clickElementId != null) {
+            form.append("&click=").append(encode(clickElementId));
+        }
+        return form.toString();
+    }
+
+    /**
+     * @param form a body written by {@link #toForm()}
+     * @return the request it describes
+     * @throws IllegalArgumentException if the body is malformed, or its URL is not an http or https URL
+     */
+    public static RenderRequest fromForm(String form) {
+        Map<String, String> fields = new HashMap<>();
+        for (String pair : form.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0) {
+                fields.put(pair.substring(0, eq), URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+            }
+        }
+        String url = fields.get("url");
+        if (url != null && !isWebUrl(url)) {
+            // Workers render for crawls only; file: and other schemes would expose the worker's machine
+            throw new IllegalArgumentException("Only http and https URLs can be rendered: " + url);
+        }
+        return new RenderRequest(url, fields.get("userAgent"),
+                Integer.parseInt(fields.getOrDefault("timeoutMillis", "0")), fields.get("click"),
+                Integer.parseInt(fields.getOrDefault("settleMillis", "0")));
+    }
+
+    private static boolean isWebUrl(String url) {
+        try {
+            URI uri = new URI(url);
+            return uri.getHost() != null
+                    && ("http".equalsIgnoreCase(uri.getScheme()) || "https".equalsIgnoreCase(uri.getScheme()));
+        } catch (URISyntaxException e) {
+            return false;
+        }
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,177 @@
+package net.neological.webscraping.render;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import net.neological.webscraping.IoThreads;
+import net.neological.webscraping.ScrapeMonitor;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A render worker: an HTTP server that renders pages for {@link RemoteRenderBackend} clients.
+ * Run a few of them on machines with spare CPU and memory, or one next to the crawl as a
+ * stand-in for a pool.
+ * <ul>
+ *     <li>{@code POST /render}: a {@link RenderRequest#toForm() form-encoded request}; answers 200
+ *     with the HTML, 502 when the page cannot be rendered, or 503 when the worker is at capacity</li>
+ *     <li>{@code GET /health}: 200 with the worker's load, for health checks</li>
+ * </ul>
+ * Each render runs under its own monitor; the client's deadline arrives as the request's timeout.
+ * <p>
+ * Workers have no authentication and load whatever page they are asked to, so they listen on
+ * the loopback interface unless given another address; only http and https pages are rendered.
+ */
+public class RenderWorker implements Closeable {
+    /** Renders at a time per worker; each is a browser process. */
+    public static final int DEFAULT_CAPACITY = 2;
+
+    private final HttpServer server;
+    private final RenderBackend backend;
+    private final int capacity;
+    private final Semaphore slots;
+    private final AtomicLong renders = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    /**
+     * Starts a worker listening on the loopback interface.
+     *
+     * @param port     the port to listen on, or 0 for any free port
+     * @param backend  what renders the pages, usually {@link RenderBackend#local()}
+     * @param capacity the most renders run at a time; further requests are turned away with 503
+     */
+    public RenderWorker(int port, RenderBackend backend, int capacity) throws IOException {
+        this(InetAddress.getLoopbackAddress(), port, backend, capacity);
+    }
+
+    /**
+     * Starts a worker.
+     *
+     * @param bind     the address to listen on; only expose workers on networks the crawl's hosts share
+     * @param port     the port to listen on, or 0 for any free port
+     * @param backend  what renders the pages, usually {@link RenderBackend#local()}
+     * @param capacity the most renders run at a time; further requests are turned away with 503
+     */
+    public RenderWorker(InetAddress bind, int port, RenderBackend backend, int capacity) throws IOException {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be at least 1: " + capacity);
+        }
+        this.backend = backend;
+        this.capacity = capacity;
+        this.slots = new Semaphore(capacity);
+
+        server = HttpServer.create(new InetSocketAddress(bind, port), 0);
+        server.createContext("/", this::handle);
+        server.setExecutor(Executors.newCachedThreadPool(IoThreads.daemonThreads("render-worker")));
+        server.start();
+    }
+
+    /**
+     * @return the port the worker listens on
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * @return the address and port the worker listens on
+     */
+    public InetSocketAddress getAddress() {
+        return server.getAddress();
+    }
+
+    /**
+     * @return pages rendered successfully
+     */
+    public long getRenders() {
+        return renders.get();
+    }
+
+    /**
+     * @return requests turned away because the worker was at capacity
+     */
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    /**
+     * @return a one-line summary of the worker's load
+     */
+    public String status() {
+        return String.format("in-flight=%d capacity=%d renders=%d failures=%d rejected=%d",
+                capacity - slots.availablePermits(), capacity, renders.get(), failures.get(), rejected.get());
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        ((ExecutorService) server.getExecutor()).shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String path = exchange.getRequestURI().getPath();
+            switch (path) {
+                case "/health" -> respond(exchange, 200, "text/plain; charset=utf-8", status() + "\n");
+                case "/render" -> {
+                    if (!exchange.getRequestMethod().equals("POST")) {
+                        respond(exchange, 405, "text/plain; charset=utf-8", "POST a render request\n");
+                        return;
+                    }
+                    RenderRequest request;
+                    try {
+                        request = RenderRequest.fromForm(
+                                new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+                    } catch (IllegalArgumentException e) {
+                        respond(exchange, 400, "text/plain; charset=utf-8", e.getMessage() + "\n");
+                        return;
+                    }
+                    render(exchange, request);
+                }
+                default -> respond(exchange, 404, "text/plain; charset=utf-8", "Unknown endpoint: " + path + "\n");
+            }
+        }
+    }
+
+    private void render(HttpExchange exchange, RenderRequest request) throws IOException {
+        if (!slots.tryAcquire()) {
+            rejected.incrementAndGet();
+            respond(exchange, 503, "text/plain; charset=utf-8", "At capacity\n");
+            return;
+        }
+        RenderedPage page;
+        try {
+            page = backend.render(request, new ScrapeMonitor());
+        } catch (IOException | RuntimeException e) {
+            failures.incrementAndGet();
+            respond(exchange, 502, "text/plain; charset=utf-8", String.valueOf(e.getMessage()) + "\n");
+            return;
+        } finally {
+            slots.release();
+        }
+        renders.incrementAndGet();
+        // Where the browser ended up, so the client resolves the page's links as the browser did
+        exchange.getResponseHeaders().set("Content-Location", page.url());
+        respond(exchange, 200, "text/html; charset=utf-8", page.html());
+    }
+
+    private static void respond(HttpExchange exchange, int status, String contentType, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+        if (bytes.length > 0) {
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        }
+    }
+}
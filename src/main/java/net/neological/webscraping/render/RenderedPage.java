@@ -0,0 +1,17 @@
+package net.neological.webscraping.render;
+
+/**
+ * A page's HTML and the URL it was finally served from. After a redirect the URL differs from
+ * the one requested, and links on the page are relative to it.
+ *
+ * @param url  where the page ended up, e.g. the browser's current URL once loaded
+ * @param html the page source
+ */
+public record RenderedPage(String url, String html) {
+
+    public RenderedPage {
+        if (url == null || html == null) {
+            throw new IllegalArgumentException("A rendered page needs a URL and HTML");
+        }
+    }
+}
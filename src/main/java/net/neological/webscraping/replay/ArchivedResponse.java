@@ -0,0 +1,64 @@
+package net.neological.webscraping.replay;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * One response captured by a {@link FetchRecorder}: a page fetched over plain HTTP, a page
+ * rendered in the browser, or a downloaded file. Failed fetches are captured too, so replays
+ * run into the same errors (and retries) as the original crawl.
+ *
+ * @param kind             how the response was fetched
+ * @param url              the requested URL
+ * @param status           the HTTP status (200 for success, 0 if the request failed without one)
+ * @param headers          response headers, when the fetch path exposes them
+ * @param body             the response body, or null for a failure
+ * @param error            the failure message, or null for a success
+ * @param elapsedNanos     how long the fetch took
+ * @param recordedAtMillis when the fetch finished (epoch milliseconds)
+ */
+public record ArchivedResponse(Kind kind,
+                               String url,
+                               int status,
+                               Map<String, String> headers,
+                               byte[] body,
+                               String error,
+                               long elapsedNanos,
+                               long recordedAtMillis) {
+
+    /**
+     * How a response was fetched.
+     */
+    public enum Kind {
+        PLAIN, BROWSER, DOWNLOAD
+    }
+
+    public ArchivedResponse {
+        headers = Map.copyOf(headers);
+    }
+
+    /**
+     * @return a successful response
+     */
+    public static ArchivedResponse success(Kind kind, String url, Map<String, String> headers, byte[] body, long elapsedNanos) {
+        return new ArchivedResponse(kind, url, 200, headers, body, null, elapsedNanos, System.currentTimeMillis());
+    }
+
+    /**
+     * @return a failed fetch; {@code status} is 0 unless the server answered with an error status
+     */
+    public static ArchivedResponse failure(Kind kind, String url, int status, String error, long elapsedNanos) {
+        return new ArchivedResponse(kind, url, status, Map.of(), null, error, elapsedNanos, System.currentTimeMillis());
+    }
+
+    public boolean isSuccess() {
+        return error == null;
+    }
+
+    /**
+     * @return the body decoded as UTF-8 (pages are stored that way)
+     */
+    public String bodyText() {
+        return body == null ? null : new String(body, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,134 @@
+package net.neological.webscraping.replay;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipException;
+
+/**
+ * The on-disk format shared by {@link FetchRecorder} and {@link FetchReplayer}: a gzip stream
+ * holding a small header followed by one record per response, in the order they were fetched.
+ * Records are self-delimiting, so an archive whose recording was interrupted still reads
+ * back up to its last complete record.
+ */
+final class FetchArchive {
+    static final int MAGIC = 0x46415243; // "FARC"
+    static final int FORMAT_VERSION = 1;
+
+    private FetchArchive() {
+    }
+
+    static DataOutputStream openForWriting(Path file) throws IOException {
+        Path dir = file.toAbsolutePath().getParent();
+        if (dir != null) {
+            Files.createDirectories(dir);
+        }
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new GZIPOutputStream(Files.newOutputStream(file), 1 << 16), 1 << 16));
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        return out;
+    }
+
+    static void write(DataOutputStream out, ArchivedResponse response) throws IOException {
+        out.writeByte(response.kind().ordinal());
+        out.writeUTF(response.url());
+        out.writeShort(response.status());
+        out.writeShort(response.headers().size());
+        for (Map.Entry<String, String> header : response.headers().entrySet()) {
+            out.writeUTF(header.getKey());
+            out.writeUTF(header.getValue());
+        }
+        if (response.body() == null) {
+            out.writeInt(-1);
+        } else {
+            out.writeInt(response.body().length);
+            out.write(response.body());
+        }
+        out.writeBoolean(response.error() != null);
+        if (response.error() != null) {
+            out.writeUTF(truncate(response.error()));
+        }
+        out.writeLong(response.elapsedNanos());
+        out.writeLong(response.recordedAtMillis());
+    }
+
+    /**
+     * Reads every record in an archive.
+     *
+     * @param file the archive
+     * @return the responses, in recording order
+     * @throws IOException if the file is not an archive or cannot be read
+     */
+    static List<ArchivedResponse> readAll(Path file) throws IOException {
+        List<ArchivedResponse> responses = new ArrayList<>();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new GZIPInputStream(Files.newInputStream(file), 1 << 16), 1 << 16))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a fetch archive: " + file);
+            }
+            int version = in.readInt();
+            if (version != FORMAT_VERSION) {
+                throw new IOException("Unsupported fetch archive version: " + version);
+            }
+            while (true) {
+                int kind;
+                try {
+                    kind = in.read();
+                } catch (EOFException | ZipException e) {
+                    break;
+                }
+                if (kind < 0) {
+                    break;
+                }
+                try {
+                    responses.add(readRecord(in, kind));
+                } catch (EOFException | ZipException e) {
+                    // Recording was interrupted mid-record; keep what is complete
+                    break;
+                }
+            }
+        }
+        return responses;
+    }
+
+    private static ArchivedResponse readRecord(DataInputStream in, int kind) throws IOException {
+        ArchivedResponse.Kind[] kinds = ArchivedResponse.Kind.values();
+        if (kind >= kinds.length) {
+            throw new IOException("Corrupt fetch archive: unknown record kind " + kind);
+        }
+        String url = in.readUTF();
+        int status = in.readUnsignedShort();
+        int headerCount = in.readUnsignedShort();
+        Map<String, String> headers = new LinkedHashMap<>();
+        for (int i = 0; i < headerCount; i++) {
+            headers.put(in.readUTF(), in.readUTF());
+        }
+        int bodyLength = in.readInt();
+        byte[] body = null;
+        if (bodyLength >= 0) {
+            body = new byte[bodyLength];
+            in.readFully(body);
+        }
+        String error = in.readBoolean() ? in.readUTF() : null;
+        long elapsedNanos = in.readLong();
+        long recordedAtMillis = in.readLong();
+        return new ArchivedResponse(kinds[kind], url, status, headers, body, error, elapsedNanos, recordedAtMillis);
+    }
+
+    private static String truncate(String text) {
+        // writeUTF is limited to 64 KB of encoded text
+        return text.length() > 8_000 ? text.substring(0, 8_000) : text;
+    }
+}
@@ -0,0 +1,79 @@
+package net.neological.webscraping.replay;
+
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Captures every response a scraper fetches into a compressed archive that a
+ * {@link FetchReplayer} can later serve in place of the network. Attach it with
+ * {@link net.neological.webscraping.WebScraper#setRecorder(FetchRecorder)} and close it when
+ * the crawl is done. Thread-safe.
+ */
+public class FetchRecorder implements Closeable {
+    private final Path file;
+    private final DataOutputStream out;
+    private final AtomicLong recorded = new AtomicLong();
+    private IOException failure;
+
+    /**
+     * Constructor. Creates (or overwrites) the archive file.
+     *
+     * @param file the archive to write
+     * @throws IOException if the file cannot be created
+     */
+    public FetchRecorder(Path file) throws IOException {
+        this.file = file;
+        this.out = FetchArchive.openForWriting(file);
+    }
+
+    /**
+     * Appends a response. Write errors do not fail the crawl; the first one is reported by
+     * {@link #close()}.
+     *
+     * @param response the response to store
+     */
+    public synchronized void record(ArchivedResponse response) {
+        if (failure != null) {
+            return;
+        }
+        try {
+            FetchArchive.write(out, response);
+            recorded.incrementAndGet();
+        } catch (IOException e) {
+            failure = e;
+        }
+    }
+
+    /**
+     * @return the number of responses stored so far
+     */
+    public long getRecordedCount() {
+        return recorded.get();
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * Finishes the archive.
+     *
+     * @throws IOException if writing failed at any point
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            out.close();
+        } catch (IOException e) {
+            if (failure == null) {
+                failure = e;
+            }
+        }
+        if (failure != null) {
+            throw new IOException("Failed to write fetch archive " + file + ": " + failure.getMessage(), failure);
+        }
+    }
+}
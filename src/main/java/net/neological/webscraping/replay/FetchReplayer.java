@@ -0,0 +1,142 @@
+package net.neological.webscraping.replay;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.jsoup.HttpStatusException;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serves responses from an archive written by {@link FetchRecorder} in place of the network,
+ * so a recorded crawl can be re-run deterministically offline. Attach it with
+ * {@link net.neological.webscraping.WebScraper#setReplayer(FetchReplayer)}.
+ * <p>
+ * Responses for a URL are served in the order they were recorded (so a failure followed by a
+ * successful retry replays the same way); once only one is left it is served for every later
+ * request. A page recorded with one fetch path is also served to the other. URLs that are not
+ * in the archive fail with {@link FileNotFoundException}, which is never retried.
+ * <p>
+ * With a {@code latencyScale} above zero each response is delayed by its recorded fetch time
+ * times the scale, so timing-sensitive behaviour (hedging, deadlines, throughput) can be
+ * measured against real traffic. Thread-safe.
+ */
+public class FetchReplayer {
+    private final Map<String, Deque<ArchivedResponse>> responses = new HashMap<>();
+
+    /**
+     * Multiplier for recorded latencies: 0 serves responses immediately (the default),
+     * 1 reproduces the original timing.
+     */
+    @Getter
+    @Setter
+    private volatile double latencyScale;
+
+    /**
+     * Constructor.
+     *
+     * @param recorded the responses to serve, in recording order
+     */
+    public FetchReplayer(List<ArchivedResponse> recorded) {
+        for (ArchivedResponse response : recorded) {
+            responses.computeIfAbsent(key(response.kind(), response.url()), k -> new ArrayDeque<>()).add(response);
+        }
+    }
+
+    /**
+     * Loads an archive.
+     *
+     * @param file an archive written by {@link FetchRecorder}
+     * @return a replayer serving its responses
+     * @throws IOException if the archive cannot be read
+     */
+    public static FetchReplayer load(Path file) throws IOException {
+        return new FetchReplayer(FetchArchive.readAll(file));
+    }
+
+    /**
+     * Serves the next recorded response for a URL.
+     *
+     * @param kind how the caller would have fetched it
+     * @param url  the requested URL
+     * @return the recorded body
+     * @throws IOException the recorded failure, or {@link FileNotFoundException} if the URL was never recorded
+     */
+    public byte[] replay(ArchivedResponse.Kind kind, String url) throws IOException {
+        return replayResponse(kind, url).body();
+    }
+
+    /**
+     * Like {@link #replay}, but returns the whole recorded response, headers included.
+     *
+     * @param kind how the caller would have fetched it
+     * @param url  the requested URL
+     * @return the recorded successful response
+     * @throws IOException the recorded failure, or {@link FileNotFoundException} if the URL was never recorded
+     */
+    public ArchivedResponse replayResponse(ArchivedResponse.Kind kind, String url) throws IOException {
+        ArchivedResponse response = next(kind, url);
+        if (response == null) {
+            throw new FileNotFoundException("Not in fetch archive: " + url);
+        }
+
+        long delayNanos = (long) (response.elapsedNanos() * latencyScale);
+        if (delayNanos > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(delayNanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while replaying " + url);
+            }
+        }
+
+        if (!response.isSuccess()) {
+            if (response.status() >= 400) {
+                throw new HttpStatusException(response.error(), response.status(), url);
+            }
+            throw new IOException(response.error());
+        }
+        return response;
+    }
+
+    /**
+     * @param kind how the caller would have fetched it
+     * @param url  a URL
+     * @return true if the archive holds a response the URL can be served from
+     */
+    public synchronized boolean contains(ArchivedResponse.Kind kind, String url) {
+        return queueFor(kind, url) != null;
+    }
+
+    private synchronized ArchivedResponse next(ArchivedResponse.Kind kind, String url) {
+        Deque<ArchivedResponse> queue = queueFor(kind, url);
+        if (queue == null) {
+            return null;
+        }
+        return queue.size() > 1 ? queue.poll() : queue.peek();
+    }
+
+    private Deque<ArchivedResponse> queueFor(ArchivedResponse.Kind kind, String url) {
+        Deque<ArchivedResponse> queue = responses.get(key(kind, url));
+        if (queue == null && kind != ArchivedResponse.Kind.DOWNLOAD) {
+            // Pages can be served from either fetch path
+            ArchivedResponse.Kind other = kind == ArchivedResponse.Kind.PLAIN
+                    ? ArchivedResponse.Kind.BROWSER
+                    : ArchivedResponse.Kind.PLAIN;
+            queue = responses.get(key(other, url));
+        }
+        return queue;
+    }
+
+    private static String key(ArchivedResponse.Kind kind, String url) {
+        return kind.name() + ' ' + url;
+    }
+}
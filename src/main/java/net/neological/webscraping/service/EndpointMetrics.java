@@ -0,0 +1,55 @@
+package net.neological.webscraping.service;
+
+import net.neological.webscraping.stats.QuantileSketch;
+
+/**
+ * Request count, error count and a latency sketch for one endpoint of the
+ * {@link QueryService}. Thread-safe.
+ */
+public class EndpointMetrics {
+    private final QuantileSketch latencyMillis = new QuantileSketch();
+    private long requests;
+    private long errors;
+    private long notModified;
+
+    /**
+     * Records one request.
+     *
+     * @param nanos  time from receiving the request to sending the response
+     * @param status the HTTP status sent
+     */
+    public synchronized void record(long nanos, int status) {
+        requests++;
+        if (status >= 500) {
+            errors++;
+        } else if (status == 304) {
+            notModified++;
+        }
+        latencyMillis.update(nanos / 1_000_000.0);
+    }
+
+    /**
+     * @return a consistent copy of the counters
+     */
+    public synchronized Snapshot snapshot() {
+        boolean empty = latencyMillis.count() == 0;
+        return new Snapshot(requests, errors, notModified,
+                empty ? 0 : latencyMillis.quantile(0.5),
+                empty ? 0 : latencyMillis.quantile(0.95),
+                empty ? 0 : latencyMillis.quantile(0.99),
+                empty ? 0 : latencyMillis.max());
+    }
+
+    /**
+     * @param requests    requests answered
+     * @param errors      requests answered with a 5xx status
+     * @param notModified requests answered with 304 because the client's ETag still matched
+     * @param p50Millis   median latency
+     * @param p95Millis   95th percentile latency
+     * @param p99Millis   99th percentile latency
+     * @param maxMillis   slowest request
+     */
+    public record Snapshot(long requests, long errors, long notModified,
+                           double p50Millis, double p95Millis, double p99Millis, double maxMillis) {
+    }
+}
@@ -0,0 +1,95 @@
+package net.neological.webscraping.service;
+
+import net.neological.webscraping.Json;
+
+/**
+ * Minimal streaming JSON writer for {@link QueryService} responses; the project has no JSON
+ * library and the responses are small and flat. Commas are inserted automatically.
+ */
+final class JsonWriter {
+    private final StringBuilder out = new StringBuilder();
+    // True when the next value in the current object or array needs a comma before it
+    private boolean needsComma;
+
+    JsonWriter beginObject() {
+        separate();
+        out.append('{');
+        needsComma = false;
+        return this;
+    }
+
+    JsonWriter endObject() {
+        out.append('}');
+        needsComma = true;
+        return this;
+    }
+
+    JsonWriter beginArray() {
+        separate();
+        out.append('[');
+        needsComma = false;
+        return this;
+    }
+
+    JsonWriter endArray() {
+        out.append(']');
+        needsComma = true;
+        return this;
+    }
+
+    JsonWriter name(String name) {
+        separate();
+        string(name);
+        out.append(':');
+        needsComma = false;
+        return this;
+    }
+
+    JsonWriter value(String value) {
+        separate();
+        if (value == null) {
+            out.append("null");
+        } else {
+            string(value);
+        }
+        needsComma = true;
+        return this;
+    }
+
+    JsonWriter value(long value) {
+        separate();
+        out.append(value);
+        needsComma = true;
+        return this;
+    }
+
+    JsonWriter value(double value) {
+        separate();
+        // JSON has no NaN or infinity
+        out.append(Double.isFinite(value) ? Double.toString(value) : "null");
+        needsComma = true;
+        return this;
+    }
+
+    JsonWriter value(boolean value) {
+        separate();
+        out.append(value);
+        needsComma = true;
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return out.toString();
+    }
+
+    private void separate() {
+        if (needsComma) {
+            out.append(',');
+        }
+    }
+
+    private void string(String value) {
+        Json.quote(out, value);
+    }
+}
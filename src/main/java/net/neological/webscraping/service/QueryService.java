@@ -0,0 +1,443 @@
+package net.neological.webscraping.service;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.Getter;
+import lombok.Setter;
+import net.neological.webscraping.Hashing;
+import net.neological.webscraping.IoThreads;
+import net.neological.webscraping.RequestExecutor;
+import net.neological.webscraping.RequestPolicy;
+import net.neological.webscraping.ScraperProvider;
+import net.neological.webscraping.ScraperRegistry;
+import net.neological.webscraping.SeriesDownloader;
+import net.neological.webscraping.WebScraper;
+import net.neological.webscraping.catalog.BookCatalog;
+import net.neological.webscraping.specific.GenreScraper;
+import net.neological.webscraping.stats.PriceSummary;
+import net.neological.webscraping.storage.DownloadStore;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/**
+ * Embedded HTTP service that answers queries about scraped data from cache, so downstream
+ * services do not have to run a scrape per question:
+ * <ul>
+ *     <li>{@code GET /genres}: the genre names on books.toscrape.com</li>
+ *     <li>{@code GET /genres/<genre>}: price statistics for a genre</li>
+ *     <li>{@code GET /genres/<genre>/books}: the genre's listings</li>
+ *     <li>{@code GET /series/<id>}: a FRED series as CSV</li>
+ *     <li>{@code GET /metrics}: latency per endpoint and cache counters</li>
+ * </ul>
+ * Results are kept in {@link RefreshingCache}s: stale ones are served while a background crawl
+ * refreshes them, and concurrent requests for the same genre or series share one crawl. Series
+ * CSVs are stored in the data folder, so a restarted service serves them straight away.
+ * Cacheable responses carry an {@code ETag} and {@code Cache-Control}; a request whose
+ * {@code If-None-Match} still matches gets 304 without a body.
+ * <p>
+ * Every request can start a crawl and there is no authentication, so a service listens on the
+ * loopback interface unless given the address its clients reach it on.
+ */
+public class QueryService implements Closeable {
+    public static final Duration DEFAULT_TTL = Duration.ofMinutes(10);
+    public static final Duration DEFAULT_MAX_STALE = Duration.ofHours(1);
+
+    private static final String BOOKS_HOME = "https://books.toscrape.com/index.html";
+    private static final String FRED_SERIES = "https://fred.stlouisfed.org/series/";
+    private static final Pattern SERIES_ID = Pattern.compile("[A-Za-z0-9_]+");
+    // The genre list is a single entry
+    private static final String ALL = "";
+    private static final int LOAD_THREADS = 4;
+
+    private final HttpServer server;
+    private final ExecutorService loads;
+    private final String userAgent;
+    private final Path dataFolder;
+    /** Held open while the service runs, so lookups and series scrapes share one manifest. */
+    private final DownloadStore store;
+
+    private final RefreshingCache<String, List<String>> genres;
+    private final RefreshingCache<String, GenreStats> genreStats;
+    private final RefreshingCache<String, BookCatalog> genreBooks;
+    private final RefreshingCache<String, byte[]> series;
+    private final Map<String, EndpointMetrics> endpoints = new LinkedHashMap<>();
+
+    /** Page load timeout handed to every scraper. */
+    @Getter
+    @Setter
+    private int timeoutMillis = 15_000;
+
+    /** Applied to every scraper after the registry configured it, e.g. to override origins. */
+    @Setter
+    private Consumer<WebScraper> scraperSetup = scraper -> {
+    };
+
+    /** Shared by every scraper the service creates, so retries see one latency history. */
+    @Getter
+    private final RequestExecutor requestExecutor = new RequestExecutor(RequestPolicy.DEFAULT);
+
+    /**
+     * Starts a service listening on the loopback interface.
+     *
+     * @param port       the port to listen on, or 0 for any free port
+     * @param userAgent  the User-Agent header scrapers present
+     * @param dataFolder where series CSVs are stored
+     * @param ttl        how long a result is served without refreshing it
+     * @param maxStale   how long past that it is still served while a refresh runs
+     */
+    public QueryService(int port, String userAgent, Path dataFolder, Duration ttl, Duration maxStale) throws IOException {
+        this(InetAddress.getLoopbackAddress(), port, userAgent, dataFolder, ttl, maxStale);
+    }
+
+    /**
+     * Starts a service.
+     *
+     * @param bind       the address to listen on; clients on other hosts need one they can reach
+     * @param port       the port to listen on, or 0 for any free port
+     * @param userAgent  the User-Agent header scrapers present
+     * @param dataFolder where series CSVs are stored
+     * @param ttl        how long a result is served without refreshing it
+     * @param maxStale   how long past that it is still served while a refresh runs
+     */
+    public QueryService(InetAddress bind, int port, String userAgent, Path dataFolder, Duration ttl, Duration maxStale)
+            throws IOException {
+        this.userAgent = userAgent;
+        this.dataFolder = Files.createDirectories(dataFolder);
+        store = DownloadStore.open(this.dataFolder, DownloadStore.Options.DEFAULT);
+
+        loads = Executors.newFixedThreadPool(LOAD_THREADS, IoThreads.daemonThreads("query-service-load"));
+        long ttlMillis = ttl.toMillis();
+        long maxStaleMillis = maxStale.toMillis();
+        genres = new RefreshingCache<>(key -> bookScraper().getAllGenres(), loads, ttlMillis, maxStaleMillis);
+        genreStats = new RefreshingCache<>(this::loadGenreStats, loads, ttlMillis, maxStaleMillis);
+        genreBooks = new RefreshingCache<>(this::loadGenreBooks, loads, ttlMillis, maxStaleMillis);
+        series = new RefreshingCache<>(this::loadSeries, loads, ttlMillis, maxStaleMillis);
+        for (String endpoint : List.of("genres", "genre-stats", "genre-books", "series", "metrics", "other")) {
+            endpoints.put(endpoint, new EndpointMetrics());
+        }
+
+        try {
+            server = HttpServer.create(new InetSocketAddress(bind, port), 0);
+        } catch (IOException e) {
+            loads.shutdownNow();
+            store.close();
+            throw e;
+        }
+        server.createContext("/", this::handle);
+        server.setExecutor(Executors.newCachedThreadPool(IoThreads.daemonThreads("query-service")));
+        server.start();
+    }
+
+    /**
+     * @return the port the service listens on
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * @return the address and port the service listens on
+     */
+    public InetSocketAddress getAddress() {
+        return server.getAddress();
+    }
+
+    /**
+     * @return latency and counts per endpoint
+     */
+    public Map<String, EndpointMetrics.Snapshot> endpointMetrics() {
+        Map<String, EndpointMetrics.Snapshot> snapshots = new LinkedHashMap<>();
+        endpoints.forEach((name, metrics) -> snapshots.put(name, metrics.snapshot()));
+        return snapshots;
+    }
+
+    /**
+     * @return counters of each result cache
+     */
+    public Map<String, RefreshingCache.Stats> cacheStats() {
+        Map<String, RefreshingCache.Stats> stats = new LinkedHashMap<>();
+        stats.put("genres", genres.stats());
+        stats.put("genre-stats", genreStats.stats());
+        stats.put("genre-books", genreBooks.stats());
+        stats.put("series", series.stats());
+        return stats;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        ((ExecutorService) server.getExecutor()).shutdownNow();
+        loads.shutdownNow();
+        try {
+            store.close();
+        } catch (IOException e) {
+            // Committed files are on disk; at worst their last manifest lines are missing
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        long start = System.nanoTime();
+        String endpoint = "other";
+        int status;
+        try {
+            String path = exchange.getRequestURI().getPath();
+            String[] parts = path.replaceAll("^/+|/+$", "").split("/");
+            if (parts[0].equals("genres") && parts.length <= 3) {
+                endpoint = parts.length == 1 ? "genres" : parts.length == 2 ? "genre-stats" : "genre-books";
+            } else if (parts[0].equals("series") && parts.length == 2) {
+                endpoint = "series";
+            } else if (parts[0].equals("metrics") && parts.length == 1) {
+                endpoint = "metrics";
+            }
+
+            if (!exchange.getRequestMethod().equals("GET")) {
+                exchange.getResponseHeaders().set("Allow", "GET");
+                status = respond(exchange, 405, "Only GET is supported\n");
+            } else {
+                status = switch (endpoint) {
+                    case "genres" -> cached(exchange, genres, genres.get(ALL), QueryService::genresJson);
+                    case "genre-stats" -> knownGenre(parts[1])
+                            ? cached(exchange, genreStats, genreStats.get(parts[1]), GenreStats::toJson)
+                            : respond(exchange, 404, "Unknown genre: " + parts[1] + "\n");
+                    case "genre-books" -> knownGenre(parts[1]) && parts[2].equals("books")
+                            ? cached(exchange, genreBooks, genreBooks.get(parts[1]), books -> booksJson(parts[1], books))
+                            : respond(exchange, 404, "Not found: " + path + "\n");
+                    case "series" -> seriesResponse(exchange, parts[1]);
+                    case "metrics" -> respond(exchange, 200, metricsJson(), "application/json");
+                    default -> respond(exchange, 404, "Unknown endpoint: " + path + "\n");
+                };
+            }
+        } catch (IOException e) {
+            // The crawl behind the request failed and nothing is cached to fall back on
+            status = fail(exchange, 502, "Could not load: " + e.getMessage());
+        } catch (RuntimeException e) {
+            status = fail(exchange, 500, "Error: " + e.getMessage());
+        } finally {
+            exchange.close();
+        }
+        endpoints.get(endpoint).record(System.nanoTime() - start, status);
+    }
+
+    private boolean knownGenre(String genre) throws IOException {
+        return genres.get(ALL).value().contains(genre);
+    }
+
+    private int seriesResponse(HttpExchange exchange, String id) throws IOException {
+        if (!SERIES_ID.matcher(id).matches()) {
+            return respond(exchange, 400, "Not a series id: " + id + "\n");
+        }
+        Optional<DownloadStore.Entry> stored = store.find(id + ".csv");
+        if (!series.contains(id) && stored.isPresent()) {
+            series.seed(id, readSeries(id), Files.getLastModifiedTime(stored.get().path()).toMillis());
+        }
+        RefreshingCache.Entry<byte[]> entry = series.get(id);
+        return cachedBytes(exchange, series, entry, entry.value(), "text/csv; charset=utf-8");
+    }
+
+    private <V> int cached(HttpExchange exchange, RefreshingCache<String, V> cache, RefreshingCache.Entry<V> entry,
+                           Function<V, String> render) throws IOException {
+        byte[] body = render.apply(entry.value()).getBytes(StandardCharsets.UTF_8);
+        return cachedBytes(exchange, cache, entry, body, "application/json");
+    }
+
+    private static <V> int cachedBytes(HttpExchange exchange, RefreshingCache<String, V> cache,
+                                       RefreshingCache.Entry<V> entry, byte[] body, String contentType) throws IOException {
+        String etag = "\"" + Long.toHexString(Hashing.hash64(body)) + "\"";
+        var headers = exchange.getResponseHeaders();
+        headers.set("ETag", etag);
+        headers.set("Cache-Control", "public, max-age=" + cache.freshSecondsLeft(entry)
+                + ", stale-while-revalidate=" + cache.maxStaleSeconds());
+        headers.set("Age", Long.toString(Math.max(0, (System.currentTimeMillis() - entry.loadedAtMillis()) / 1_000)));
+        if (matches(exchange.getRequestHeaders().getFirst("If-None-Match"), etag)) {
+            exchange.sendResponseHeaders(304, -1);
+            return 304;
+        }
+        headers.set("Content-Type", contentType);
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+        return 200;
+    }
+
+    private static int fail(HttpExchange exchange, int status, String message) {
+        try {
+            respond(exchange, status, message + "\n");
+        } catch (IOException e) {
+            // Headers already sent or the client went away; the status is still recorded
+        }
+        return status;
+    }
+
+    private static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.strip();
+            if (tag.equals("*") || tag.equals(etag) || tag.equals("W/" + etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int respond(HttpExchange exchange, int status, String body) throws IOException {
+        return respond(exchange, status, body, "text/plain; charset=utf-8");
+    }
+
+    private static int respond(HttpExchange exchange, int status, String body, String contentType) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.getResponseHeaders().set("Cache-Control", "no-store");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+        return status;
+    }
+
+    private GenreScraper bookScraper() throws IOException {
+        WebScraper scraper = scraper(BOOKS_HOME, ScraperProvider::supportsGenres);
+        scraper.scrape(BOOKS_HOME);
+        return (GenreScraper) scraper;
+    }
+
+    /**
+     * @param capability what the query needs from the scraper
+     */
+    private WebScraper scraper(String url, Predicate<ScraperProvider> capability) {
+        ScraperProvider provider = ScraperRegistry.forUrl(url)
+                .filter(capability)
+                .orElseThrow(() -> new IllegalStateException("No scraper for " + url + " supports this query"));
+        WebScraper scraper = ScraperRegistry.create(provider, userAgent, timeoutMillis);
+        scraper.setRequestExecutor(requestExecutor);
+        scraperSetup.accept(scraper);
+        return scraper;
+    }
+
+    private GenreStats loadGenreStats(String genre) throws IOException {
+        PriceSummary summary = bookScraper().priceSummaryForGenre(genre);
+        return new GenreStats(genre, summary.count(), summary.mean(), summary.median(), summary.quantile(0.9),
+                summary.getQuantiles().min(), summary.getQuantiles().max(), summary.distinctTitles());
+    }
+
+    private BookCatalog loadGenreBooks(String genre) throws IOException {
+        BookCatalog catalog = new BookCatalog();
+        bookScraper().catalogGenre(genre, catalog);
+        return catalog;
+    }
+
+    private byte[] loadSeries(String id) throws IOException {
+        String url = FRED_SERIES + id;
+        SeriesDownloader scraper = (SeriesDownloader) scraper(url, ScraperProvider::downloadsSeries);
+        scraper.setDownloadFolder(dataFolder.toString());
+        // Throws if the series could not be downloaded, so a failed refresh keeps the stale entry
+        scraper.downloadSeries(url);
+        return readSeries(id);
+    }
+
+    private byte[] readSeries(String id) throws IOException {
+        try (InputStream in = store.openStream(id + ".csv")) {
+            return in.readAllBytes();
+        }
+    }
+
+    private static String genresJson(List<String> names) {
+        JsonWriter json = new JsonWriter().beginArray();
+        for (String name : names) {
+            json.value(name);
+        }
+        return json.endArray().toString();
+    }
+
+    private static String booksJson(String genre, BookCatalog catalog) {
+        JsonWriter json = new JsonWriter().beginObject()
+                .name("genre").value(genre)
+                .name("books").beginArray();
+        for (int row = 0; row < catalog.size(); row++) {
+            json.beginObject()
+                    .name("title").value(catalog.title(row))
+                    .name("url").value(catalog.url(row))
+                    .name("price").value(catalog.pricePence(row) / 100.0)
+                    .name("rating").value(catalog.rating(row))
+                    .endObject();
+        }
+        return json.endArray().endObject().toString();
+    }
+
+    private String metricsJson() {
+        JsonWriter json = new JsonWriter().beginObject().name("endpoints").beginObject();
+        endpointMetrics().forEach((name, metrics) -> json.name(name).beginObject()
+                .name("requests").value(metrics.requests())
+                .name("errors").value(metrics.errors())
+                .name("notModified").value(metrics.notModified())
+                .name("p50Millis").value(metrics.p50Millis())
+                .name("p95Millis").value(metrics.p95Millis())
+                .name("p99Millis").value(metrics.p99Millis())
+                .name("maxMillis").value(metrics.maxMillis())
+                .endObject());
+        json.endObject().name("caches").beginObject();
+        cacheStats().forEach((name, stats) -> json.name(name).beginObject()
+                .name("entries").value(stats.entries())
+                .name("hits").value(stats.hits())
+                .name("staleHits").value(stats.staleHits())
+                .name("misses").value(stats.misses())
+                .name("loads").value(stats.loads())
+                .name("refreshes").value(stats.refreshes())
+                .name("loadFailures").value(stats.loadFailures())
+                .name("failureHits").value(stats.failureHits())
+                .name("evictions").value(stats.evictions())
+                .endObject());
+        return json.endObject().endObject().toString();
+    }
+
+    /**
+     * Price statistics for one genre, as served by {@code GET /genres/<genre>}.
+     *
+     * @param genre          the genre name
+     * @param books          priced listings
+     * @param mean           mean price
+     * @param median         median price (sketch estimate)
+     * @param p90            90th percentile price (sketch estimate)
+     * @param min            lowest price
+     * @param max            highest price
+     * @param distinctTitles estimated distinct titles
+     */
+    public record GenreStats(String genre, long books, double mean, double median, double p90,
+                             double min, double max, long distinctTitles) {
+
+        String toJson() {
+            return new JsonWriter().beginObject()
+                    .name("genre").value(genre)
+                    .name("books").value(books)
+                    .name("mean").value(mean)
+                    .name("median").value(median)
+                    .name("p90").value(p90)
+                    .name("min").value(min)
+                    .name("max").value(max)
+                    .name("distinctTitles").value(distinctTitles)
+                    .endObject()
+                    .toString();
+        }
+    }
+}
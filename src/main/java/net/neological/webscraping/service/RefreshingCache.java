@@ -0,0 +1,326 @@
+package net.neological.webscraping.service;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Cache of scrape results that serves stale entries while refreshing them in the background.
+ * <p>
+ * An entry is fresh for {@code ttlMillis} after it was loaded. A stale entry is still served
+ * for another {@code maxStaleMillis} while a background load replaces it; after that, or when
+ * there is no entry at all, callers wait for a load. Loads are coalesced: however many callers
+ * ask for the same key at once, the loader runs once and they all get its result. A failed
+ * background refresh keeps the stale entry.
+ * <p>
+ * At most {@code maxEntries} keys are kept; the least recently used one is dropped to make room.
+ * A failed load is remembered for {@code failureTtlMillis}: until then callers that would wait
+ * for a load get the same failure straight away, and stale entries are served without starting
+ * another refresh, so a site that is down is not crawled again on every request.
+ *
+ * @param <K> the key, e.g. a genre name
+ * @param <V> the cached result; treated as immutable once loaded
+ */
+public class RefreshingCache<K, V> {
+
+    /**
+     * Produces the value for a key, typically by running a scrape.
+     */
+    @FunctionalInterface
+    public interface Loader<K, V> {
+        V load(K key) throws IOException;
+    }
+
+    /**
+     * A cached value and when it was loaded.
+     *
+     * @param value          the value
+     * @param loadedAtMillis wall-clock time of the load
+     */
+    public record Entry<V>(V value, long loadedAtMillis) {
+    }
+
+    /**
+     * Cache counters.
+     *
+     * @param hits          requests answered with a fresh entry
+     * @param staleHits     requests answered with a stale entry while it was refreshed
+     * @param misses        requests that had to wait for a load
+     * @param loads         loader runs (one per coalesced group of requests)
+     * @param refreshes     loads started in the background for stale entries
+     * @param loadFailures  loader runs that threw
+     * @param failureHits   requests answered with a recent failure instead of a load
+     * @param evictions     entries dropped to stay within the size limit
+     * @param entries       keys currently cached
+     */
+    public record Stats(long hits, long staleHits, long misses, long loads, long refreshes, long loadFailures,
+                        long failureHits, long evictions, int entries) {
+    }
+
+    public static final int DEFAULT_MAX_ENTRIES = 1024;
+    public static final long DEFAULT_FAILURE_TTL_MILLIS = 30_000;
+
+    /**
+     * Why a load failed, and when.
+     */
+    private record Failure(Throwable cause, long failedAtMillis) {
+    }
+
+    private final Loader<K, V> loader;
+    private final Executor executor;
+    private final long ttlMillis;
+    private final long maxStaleMillis;
+    private final long failureTtlMillis;
+    // Both access-ordered and guarded by lock; the eldest key is the least recently used
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashMap<K, Entry<V>> entries;
+    private final LinkedHashMap<K, Failure> failures;
+    private final ConcurrentHashMap<K, CompletableFuture<Entry<V>>> inFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder staleHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder refreshes = new LongAdder();
+    private final LongAdder loadFailures = new LongAdder();
+    private final LongAdder failureHits = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Creates a cache of up to {@link #DEFAULT_MAX_ENTRIES} keys that remembers failures for
+     * {@link #DEFAULT_FAILURE_TTL_MILLIS}.
+     *
+     * @param loader         produces values
+     * @param executor       runs loads, in the background and for waiting callers alike
+     * @param ttlMillis      how long a loaded value is fresh
+     * @param maxStaleMillis how long past that it may still be served while being refreshed
+     */
+    public RefreshingCache(Loader<K, V> loader, Executor executor, long ttlMillis, long maxStaleMillis) {
+        this(loader, executor, ttlMillis, maxStaleMillis, DEFAULT_MAX_ENTRIES, DEFAULT_FAILURE_TTL_MILLIS);
+    }
+
+    /**
+     * @param loader           produces values
+     * @param executor         runs loads, in the background and for waiting callers alike
+     * @param ttlMillis        how long a loaded value is fresh
+     * @param maxStaleMillis   how long past that it may still be served while being refreshed
+     * @param maxEntries       how many keys are kept, and how many failures are remembered
+     * @param failureTtlMillis how long a failed load is reported instead of loading again; 0 for never
+     */
+    public RefreshingCache(Loader<K, V> loader, Executor executor, long ttlMillis, long maxStaleMillis,
+                           int maxEntries, long failureTtlMillis) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("maxEntries must be positive: " + maxEntries);
+        }
+        this.loader = loader;
+        this.executor = executor;
+        this.ttlMillis = ttlMillis;
+        this.maxStaleMillis = maxStaleMillis;
+        this.failureTtlMillis = failureTtlMillis;
+        entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                if (size() <= maxEntries) {
+                    return false;
+                }
+                evictions.increment();
+                return true;
+            }
+        };
+        failures = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Failure> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Returns a fresh or servable stale entry, loading it if necessary.
+     *
+     * @param key the key
+     * @return the entry
+     * @throws IOException if the entry had to be loaded and the loader failed
+     */
+    public Entry<V> get(K key) throws IOException {
+        Entry<V> entry;
+        Failure failure;
+        lock.lock();
+        try {
+            entry = entries.get(key);
+            failure = recentFailure(key);
+        } finally {
+            lock.unlock();
+        }
+        if (entry != null) {
+            long age = System.currentTimeMillis() - entry.loadedAtMillis();
+            if (age < ttlMillis) {
+                hits.increment();
+                return entry;
+            }
+            if (age < ttlMillis + maxStaleMillis) {
+                staleHits.increment();
+                if (failure == null) {
+                    load(key, true);
+                }
+                return entry;
+            }
+        }
+        if (failure != null) {
+            failureHits.increment();
+            throw rethrow(failure.cause());
+        }
+        misses.increment();
+        return await(load(key, false));
+    }
+
+    /**
+     * @param key the key
+     * @return true if the key has an entry, however old
+     */
+    public boolean contains(K key) {
+        lock.lock();
+        try {
+            return entries.containsKey(key);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Adds a value loaded elsewhere, e.g. a result stored on disk by an earlier run, unless the
+     * key already has one.
+     *
+     * @param key            the key
+     * @param value          the value
+     * @param loadedAtMillis when the value was produced; it ages from then
+     */
+    public void seed(K key, V value, long loadedAtMillis) {
+        lock.lock();
+        try {
+            entries.putIfAbsent(key, new Entry<>(value, loadedAtMillis));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @param entry an entry returned by this cache
+     * @return whole seconds the entry stays fresh, 0 if it is stale
+     */
+    public long freshSecondsLeft(Entry<V> entry) {
+        long left = entry.loadedAtMillis() + ttlMillis - System.currentTimeMillis();
+        return Math.max(0, left / 1_000);
+    }
+
+    /**
+     * @return how long stale entries are served while being refreshed, in seconds
+     */
+    public long maxStaleSeconds() {
+        return maxStaleMillis / 1_000;
+    }
+
+    /**
+     * @return the counters so far
+     */
+    public Stats stats() {
+        int size;
+        lock.lock();
+        try {
+            size = entries.size();
+        } finally {
+            lock.unlock();
+        }
+        return new Stats(hits.sum(), staleHits.sum(), misses.sum(), loads.sum(), refreshes.sum(), loadFailures.sum(),
+                failureHits.sum(), evictions.sum(), size);
+    }
+
+    /**
+     * Starts a load of the key unless one is already running, and returns the running one.
+     */
+    private CompletableFuture<Entry<V>> load(K key, boolean refresh) {
+        CompletableFuture<Entry<V>> created = new CompletableFuture<>();
+        CompletableFuture<Entry<V>> running = inFlight.putIfAbsent(key, created);
+        if (running != null) {
+            return running;
+        }
+        loads.increment();
+        if (refresh) {
+            refreshes.increment();
+        }
+        executor.execute(() -> {
+            try {
+                Entry<V> entry = new Entry<>(loader.load(key), System.currentTimeMillis());
+                // Stored before the load is retired, so later callers see either one or the other
+                lock.lock();
+                try {
+                    entries.put(key, entry);
+                    failures.remove(key);
+                } finally {
+                    lock.unlock();
+                }
+                created.complete(entry);
+            } catch (Throwable e) {
+                loadFailures.increment();
+                if (failureTtlMillis > 0) {
+                    lock.lock();
+                    try {
+                        failures.put(key, new Failure(e, System.currentTimeMillis()));
+                    } finally {
+                        lock.unlock();
+                    }
+                }
+                created.completeExceptionally(e);
+            } finally {
+                inFlight.remove(key, created);
+            }
+        });
+        return created;
+    }
+
+    /**
+     * @return the key's failure if it is recent enough to report, dropping it otherwise; call with the lock held
+     */
+    private Failure recentFailure(K key) {
+        Failure failure = failures.get(key);
+        if (failure != null && System.currentTimeMillis() - failure.failedAtMillis() >= failureTtlMillis) {
+            failures.remove(key);
+            return null;
+        }
+        return failure;
+    }
+
+    private static <V> Entry<V> await(CompletableFuture<Entry<V>> load) throws IOException {
+        try {
+            return load.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a load");
+        } catch (ExecutionException e) {
+            throw rethrow(e.getCause());
+        }
+    }
+
+    /**
+     * Throws a loader's failure as itself where the signature allows, otherwise wrapped.
+     */
+    private static IOException rethrow(Throwable cause) {
+        if (cause instanceof IOException io) {
+            return io;
+        }
+        if (cause instanceof RuntimeException runtime) {
+            throw runtime;
+        }
+        if (cause instanceof Error error) {
+            throw error;
+        }
+        return new IOException(cause);
+    }
+}
@@ -0,0 +1,60 @@
+package net.neological.webscraping.specific;
+
+import net.neological.webscraping.export.Column;
+import net.neological.webscraping.export.ExportWriter;
+
+import java.util.List;
+
+/**
+ * Compact per-book record built from a books.toscrape.com detail page.
+ *
+ * @param url          the detail page URL (also the deduplication key)
+ * @param upc          the Universal Product Code shown in the product table
+ * @param title        the book title
+ * @param productType  the product type (e.g. "Books")
+ * @param priceExclTax price excluding tax, in GBP
+ * @param priceInclTax price including tax, in GBP
+ * @param tax          tax amount, in GBP
+ * @param available    number of copies in stock, or 0 if out of stock
+ * @param rating       star rating (1–5), or 0 if missing
+ * @param description  the product description, or an empty string
+ */
+public record BookDetails(String url,
+                          String upc,
+                          String title,
+                          String productType,
+                          double priceExclTax,
+                          double priceInclTax,
+                          double tax,
+                          int available,
+                          int rating,
+                          String description) {
+
+    /**
+     * Columns written by {@link #writeTo(ExportWriter)}.
+     */
+    public static final List<Column> EXPORT_COLUMNS = List.of(
+            Column.string("url"),
+            Column.string("upc"),
+            Column.string("title"),
+            Column.string("product_type"),
+            Column.decimal("price_excl_tax"),
+            Column.decimal("price_incl_tax"),
+            Column.decimal("tax"),
+            Column.integer("available"),
+            Column.integer("rating"),
+            Column.string("description"));
+
+    /**
+     * Writes this record as one row of an export with {@link #EXPORT_COLUMNS}, e.g. as the
+     * sink of {@link BookWebScraper#enrichGenre}: {@code details -> details.writeTo(out)}.
+     *
+     * @param out the export
+     */
+    public void writeTo(ExportWriter out) {
+        out.value(url).value(upc).value(title).value(productType)
+                .value(priceExclTax).value(priceInclTax).value(tax)
+                .value(available).value(rating).value(description)
+                .endRow();
+    }
+}
@@ -0,0 +1,52 @@
+package net.neological.webscraping.specific;
+
+import net.neological.webscraping.ScraperProvider;
+import net.neological.webscraping.WebScraper;
+
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Provider for {@link BookWebScraper}: books.toscrape.com is static HTML, so plain HTTP
+ * fetches are enough. The scrapers it creates write no files: cover downloads are off until a
+ * caller turns on {@link BookWebScraper#setDownloadCovers(boolean)} and picks the folder itself.
+ */
+public class BookScraperProvider implements ScraperProvider {
+    private static final List<Pattern> URL_PATTERNS =
+            List.of(Pattern.compile("https://books\\.toscrape\\.com/.*"));
+
+    @Override
+    public String name() {
+        return "BOOKS";
+    }
+
+    @Override
+    public List<Pattern> urlPatterns() {
+        return URL_PATTERNS;
+    }
+
+    @Override
+    public boolean requiresJavaScript() {
+        return false;
+    }
+
+    @Override
+    public boolean downloadsFiles() {
+        return false;
+    }
+
+    @Override
+    public boolean supportsGenres() {
+        return true;
+    }
+
+    @Override
+    public int preferredConcurrency() {
+        return 8;
+    }
+
+    @Override
+    public WebScraper create(String userAgent, int timeoutMillis) {
+        return new BookWebScraper(userAgent, timeoutMillis);
+    }
+}
@@ -1,16 +1,82 @@
 package net.neological.webscraping.specific;
 
+import lombok.Getter;
+import lombok.Setter;
+import net.neological.webscraping.Deadline;
+import net.neological.webscraping.FileDownloader;
+import net.neological.webscraping.Hashing;
+import net.neological.webscraping.IoThreads;
+import net.neological.webscraping.PartialResult;
+import net.neological.webscraping.ScrapeCancelledException;
 import net.neological.webscraping.WebScraper;
+import net.neological.webscraping.catalog.BookCatalog;
+import net.neological.webscraping.events.ScrapeEvent;
+import net.neological.webscraping.export.Column;
+import net.neological.webscraping.export.ExportWriter;
+import net.neological.webscraping.pipeline.Pipeline;
+import net.neological.webscraping.stats.ParallelAggregator;
+import net.neological.webscraping.stats.PriceSummary;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
 import org.jsoup.select.Elements;
 
+import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
-public class BookWebScraper extends WebScraper {
+public class BookWebScraper extends WebScraper implements FileDownloader, GenreScraper {
+    private static final Pattern AVAILABLE_COUNT = Pattern.compile("\\((\\d+) available\\)");
+    private static final Pattern SECOND_PAGE_NUMBER = Pattern.compile("(?<!\\d)2(?!\\d)");
+
+    /**
+     * Columns written by {@link #exportGenre(String, ExportWriter)}: one row per listing.
+     */
+    public static final List<Column> LISTING_COLUMNS = List.of(
+            Column.string("genre"),
+            Column.string("title"),
+            Column.string("url"),
+            Column.integer("price_pence"),
+            Column.integer("rating"));
+
+    @Setter
+    private String downloadFolder;
+
+    /**
+     * Cover-download mode: when enabled, {@link #scrape(String)} also downloads the cover
+     * image of every book on the scraped page into {@code downloadFolder}.
+     */
+    @Getter
+    @Setter
+    private boolean downloadCovers;
+
+    private CoverImageStore coverStore;
+
+    /**
+     * Pages after the first that {@link #refreshGenreTotals(String, GenreStatsStore)} re-fetches
+     * per genre when nothing visible changed, rotating through the genre so that a change
+     * confined to a later page is still found within a few refreshes.
+     */
+    @Getter
+    @Setter
+    private int refreshSpotChecks = 1;
+
     /**
      * Constructor.
      *
@@ -19,6 +85,21 @@ public class BookWebScraper extends WebScraper {
      */
     public BookWebScraper(String userAgent, int timeoutMillis) {
         super(userAgent, timeoutMillis);
+        this.downloadFolder = System.getProperty("user.home") + File.separator + "Downloads";
+    }
+
+    /**
+     * Fetches the page and, in cover-download mode, downloads the covers of the books on it.
+     *
+     * @param url the full URL of the page to scrape.
+     * @throws IOException if fetching the page or downloading a cover fails.
+     */
+    @Override
+    public void scrape(String url) throws IOException {
+        super.scrape(url);
+        if (downloadCovers) {
+            downloadCoversOnPage(document);
+        }
     }
 
     @Override
@@ -27,11 +108,24 @@ public class BookWebScraper extends WebScraper {
                 && url.startsWith("https://books.toscrape.com/");
     }
 
+    @Override
+    protected List<String> probeSelectors() {
+        // Listing pages, then detail pages
+        return List.of(
+                "div.side_categories ul.nav-list > li > ul > li > a",
+                "article.product_pod h3 > a",
+                "article.product_pod p.price_color",
+                "div.product_main h1",
+                "table.table-striped tr"
+        );
+    }
+
     /**
      * Returns all available genres from the sidebar menu on the current page.
      *
      * @return a List of genre names
      */
+    @Override
     public List<String> getAllGenres() {
         List<String> genres = new ArrayList<>();
         Elements genreLinks = document.select(
@@ -67,18 +161,7 @@ public class BookWebScraper extends WebScraper {
 
         // Fetch the genre page
         String genreUrl = match.absUrl("href");
-        Document genreDoc = fetchDocument(genreUrl);
-
-        // Parse the "Showing X results" count
-        Element countElem = genreDoc.selectFirst("form.form-horizontal strong");
-        if (countElem != null) {
-            try {
-                return Integer.parseInt(countElem.text().trim());
-            } catch (NumberFormatException e) {
-                // fall through to return 0
-            }
-        }
-        return 0;
+        return resultCount(fetchDocument(genreUrl));
     }
 
     /**
@@ -194,13 +277,835 @@ public class BookWebScraper extends WebScraper {
         return totalRating / getTotalResultsForGenre(genre);
     }
 
+    /**
+     * Builds a streaming price summary (quantiles, histogram, distinct titles) for the current page.
+     *
+     * @return a summary of every listing on this.document
+     */
+    public PriceSummary priceSummaryPerPage() {
+        PriceSummary summary = new PriceSummary();
+        summarizePage(document, summary);
+        return summary;
+    }
+
+    /**
+     * Builds a streaming price summary for the given genre across all pages. Only one page
+     * is held at a time; prices are folded into constant-size sketches as they are parsed.
+     *
+     * @param genre the name of the genre to summarize
+     * @return the summary for that genre (empty if the genre is unknown)
+     * @throws IOException if fetching a page fails
+     */
+    @Override
+    public PriceSummary priceSummaryForGenre(String genre) throws IOException {
+        PriceSummary summary = new PriceSummary();
+        summarizeGenre(genre, summary);
+        return summary;
+    }
+
+    private void summarizeGenre(String genre, PriceSummary summary) throws IOException {
+        if (!getAllGenres().contains(genre)) {
+            return;
+        }
+
+        Document currentPage = getFirstPageForGenre(genre);
+        int totalPages = getTotalPages(currentPage);
+
+        for (int i = 0; i < totalPages && currentPage != null; i++) {
+            summarizePage(currentPage, summary);
+            currentPage = getNextPage(currentPage);
+        }
+    }
+
+    /**
+     * Like {@link #priceSummaryForGenre(String)}, but stops at the deadline and returns the
+     * pages summarized so far.
+     *
+     * @param genre    the name of the genre to summarize
+     * @param deadline when the crawl must be done by
+     * @return the summary, flagged incomplete if the deadline cut the crawl short
+     * @throws IOException if fetching a page fails for another reason
+     */
+    public PartialResult<PriceSummary> priceSummaryForGenre(String genre, Deadline deadline) throws IOException {
+        PriceSummary summary = new PriceSummary();
+        boolean complete = runWithin(deadline, () -> summarizeGenre(genre, summary));
+        return new PartialResult<>(summary, complete);
+    }
+
+    /**
+     * Folds every listing on the given page into an existing summary, so callers can
+     * accumulate across genres or merge per-worker summaries afterwards.
+     *
+     * @param page    a Jsoup Document representing a book‐listing page
+     * @param summary the summary to update
+     */
+    public void summarizePage(Document page, PriceSummary summary) {
+        for (Element book : page.select("article.product_pod")) {
+            Element titleLink = book.selectFirst("h3 > a");
+            Element priceElement = book.selectFirst("p.price_color");
+            summary.add(titleLink != null ? titleLink.attr("title") : null,
+                    priceElement != null ? parsePrice(priceElement.text()) : Double.NaN);
+        }
+    }
+
+    /**
+     * Extracts the listing count and price/rating sums from one page. Reads only the given
+     * page, so it is safe to call from several threads at once.
+     *
+     * @param page a Jsoup Document representing a book‐listing page
+     * @return the totals for that page
+     */
+    public PageTotals pageTotals(Document page) {
+        return new PageTotals(page.select("article.product_pod").size(),
+                totalPriceOnPage(page),
+                totalRatingOnPage(page));
+    }
+
+    /**
+     * Computes totals over many already-fetched listing pages in parallel. Partial totals
+     * are combined in list order, so the result is identical on every run.
+     *
+     * @param pages      the listing pages to aggregate
+     * @param aggregator the fork-join engine to run on
+     * @return the combined totals
+     */
+    public PageTotals aggregatePages(List<Document> pages, ParallelAggregator aggregator) {
+        try {
+            return aggregator.aggregate(pages, ParallelAggregator.PageSource.documents(),
+                    this::pageTotals, PageTotals.EMPTY, PageTotals::combine);
+        } catch (IOException e) {
+            // In-memory documents never fail to load
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Refreshes a genre's totals against its last snapshot in the store, fetching as little as
+     * possible. While the genre's "N results" count, page count and first-page listings are
+     * unchanged, only the first page and {@code refreshSpotChecks} further pages are fetched.
+     * When any of them changed, the pager is followed and every page compared by the hash of
+     * its listings. Either way only pages whose listings changed are re-aggregated: their old
+     * totals are subtracted from the genre's and their new totals added. A genre without a
+     * snapshot is crawled in full.
+     *
+     * @param genre the name of the genre, as listed in the sidebar of this.document
+     * @param store where the genre's snapshot is kept; updated when the refresh completes
+     * @return the genre's totals and what the refresh cost
+     * @throws IOException if fetching a page fails; the snapshot is left as it was
+     * @throws IllegalArgumentException if the genre isn't in the sidebar
+     */
+    @Override
+    public GenreRefresh refreshGenreTotals(String genre, GenreStatsStore store) throws IOException {
+        GenreStatsStore.Snapshot old = store.get(genre);
+        Document first = getFirstPageForGenre(genre);
+        int results = resultCount(first);
+        int pageCount = getTotalPages(first);
+        GenreStatsStore.PageState firstState = pageState(first);
+
+        List<GenreStatsStore.PageState> pages = new ArrayList<>();
+        if (old == null) {
+            pages.add(firstState);
+            PageTotals totals = firstState.totals();
+            Document page = first;
+            for (int i = 1; i < pageCount && (page = getNextPage(page)) != null; i++) {
+                GenreStatsStore.PageState state = pageState(page);
+                pages.add(state);
+                totals = totals.combine(state.totals());
+            }
+            store.put(new GenreStatsStore.Snapshot(genre, results, pages, totals, 0));
+            return new GenreRefresh(genre, totals, results, pages.size(), pages.size(), true);
+        }
+
+        pages.addAll(old.pages());
+        PageTotals totals = old.totals();
+        int fetched = 1;
+        int changed = 0;
+        if (firstState.hash() != pages.get(0).hash()) {
+            totals = replacePage(pages, 0, firstState, totals);
+            changed++;
+        }
+
+        int nextSpotCheck = old.nextSpotCheck();
+        if (changed > 0 || results != old.results() || pageCount != pages.size()) {
+            // Listings moved: follow the pager, as pages may have been added or removed
+            Document page = first;
+            int seen = 1;
+            while (seen < pageCount && (page = getNextPage(page)) != null) {
+                fetched++;
+                GenreStatsStore.PageState state = pageState(page);
+                if (seen < pages.size()) {
+                    if (state.hash() != pages.get(seen).hash()) {
+                        totals = replacePage(pages, seen, state, totals);
+                        changed++;
+                    }
+                } else {
+                    pages.add(state);
+                    totals = totals.combine(state.totals());
+                    changed++;
+                }
+                seen++;
+            }
+            while (pages.size() > seen) {
+                totals = totals.minus(pages.remove(pages.size() - 1).totals());
+                changed++;
+            }
+        } else if (pages.size() > 1) {
+            // Nothing visible moved: spot-check the next few pages in rotation
+            int others = pages.size() - 1;
+            int checks = Math.min(refreshSpotChecks, others);
+            for (int k = 0; k < checks; k++) {
+                int index = 1 + (nextSpotCheck + k) % others;
+                fetched++;
+                GenreStatsStore.PageState state = pageState(fetchDocument(pages.get(index).url()));
+                if (state.hash() != pages.get(index).hash()) {
+                    totals = replacePage(pages, index, state, totals);
+                    changed++;
+                }
+            }
+            nextSpotCheck = (nextSpotCheck + checks) % others;
+        }
+
+        store.put(new GenreStatsStore.Snapshot(genre, results, pages, totals, nextSpotCheck));
+        return new GenreRefresh(genre, totals, results, fetched, changed, false);
+    }
+
+    /**
+     * Swaps a page's old state for its new one and moves the genre totals along with it.
+     *
+     * @return the genre totals without the old page and with the new one
+     */
+    private static PageTotals replacePage(List<GenreStatsStore.PageState> pages, int index,
+                                          GenreStatsStore.PageState state, PageTotals totals) {
+        GenreStatsStore.PageState before = pages.set(index, state);
+        return totals.minus(before.totals()).combine(state.totals());
+    }
+
+    /**
+     * @param page a Jsoup Document representing a book‐listing page
+     * @return the page's URL, the hash of its listings and its totals
+     */
+    private GenreStatsStore.PageState pageState(Document page) {
+        StringBuilder listings = new StringBuilder();
+        for (Element book : page.select("article.product_pod")) {
+            listings.append(book.outerHtml()).append('\n');
+        }
+        return new GenreStatsStore.PageState(page.location(),
+                Hashing.hash64(listings.toString()), pageTotals(page));
+    }
+
+    /**
+     * Appends every listing in the given genre, across all pages, to a columnar catalog so
+     * later statistics can be answered without re-fetching.
+     *
+     * @param genre   the name of the genre to catalog
+     * @param catalog the catalog to append to
+     * @return the number of listings added (0 if the genre is unknown)
+     * @throws IOException if fetching a page fails
+     */
+    @Override
+    public int catalogGenre(String genre, BookCatalog catalog) throws IOException {
+        if (!getAllGenres().contains(genre)) {
+            return 0;
+        }
+
+        int added = 0;
+        Document currentPage = getFirstPageForGenre(genre);
+        int totalPages = getTotalPages(currentPage);
+
+        for (int i = 0; i < totalPages && currentPage != null; i++) {
+            added += catalogPage(currentPage, genre, catalog);
+            currentPage = getNextPage(currentPage);
+        }
+
+        return added;
+    }
+
+    /**
+     * Like {@link #catalogGenre(String, BookCatalog)}, but stops at the deadline; listings
+     * from pages fetched before it stay in the catalog.
+     *
+     * @param genre    the name of the genre to catalog
+     * @param catalog  the catalog to append to
+     * @param deadline when the crawl must be done by
+     * @return the number of listings added, flagged incomplete if the deadline cut the crawl short
+     * @throws IOException if fetching a page fails for another reason
+     */
+    public PartialResult<Integer> catalogGenre(String genre, BookCatalog catalog, Deadline deadline) throws IOException {
+        int before = catalog.size();
+        boolean complete = runWithin(deadline, () -> catalogGenre(genre, catalog));
+        return new PartialResult<>(catalog.size() - before, complete);
+    }
+
+    /**
+     * Appends every listing on the given page to a columnar catalog. Listings without a
+     * parseable price are skipped.
+     *
+     * @param page    a Jsoup Document representing a book‐listing page
+     * @param genre   the genre to file the listings under
+     * @param catalog the catalog to append to
+     * @return the number of listings added
+     */
+    public int catalogPage(Document page, String genre, BookCatalog catalog) {
+        int added = 0;
+        for (Element book : page.select("article.product_pod")) {
+            Element titleLink = book.selectFirst("h3 > a");
+            Element priceElement = book.selectFirst("p.price_color");
+            Element ratingElement = book.selectFirst("p.star-rating");
+            double price = priceElement != null ? parsePrice(priceElement.text()) : Double.NaN;
+            if (titleLink == null || Double.isNaN(price)) {
+                continue;
+            }
+            catalog.add(genre,
+                    titleLink.attr("title"),
+                    titleLink.absUrl("href"),
+                    Math.round(price * 100),
+                    ratingElement != null ? (int) convertRatingClassToNumber(ratingElement.className()) : 0);
+            added++;
+        }
+        return added;
+    }
+
+    /**
+     * Streams every listing in the given genre, across all pages, to an export with
+     * {@link #LISTING_COLUMNS}. Each page's rows are written as soon as it is parsed.
+     *
+     * @param genre the name of the genre to export
+     * @param out   the export to write to
+     * @return the number of rows written (0 if the genre is unknown)
+     * @throws IOException if fetching a page fails
+     */
+    public int exportGenre(String genre, ExportWriter out) throws IOException {
+        if (!getAllGenres().contains(genre)) {
+            return 0;
+        }
+
+        int written = 0;
+        Document currentPage = getFirstPageForGenre(genre);
+        int totalPages = getTotalPages(currentPage);
+
+        for (int i = 0; i < totalPages && currentPage != null; i++) {
+            written += exportPage(currentPage, genre, out);
+            currentPage = getNextPage(currentPage);
+        }
+
+        return written;
+    }
+
+    /**
+     * Writes every listing on the given page to an export with {@link #LISTING_COLUMNS}.
+     * Listings without a parseable price are skipped, as in {@link #catalogPage}.
+     *
+     * @param page  a Jsoup Document representing a book‐listing page
+     * @param genre the genre to file the listings under
+     * @param out   the export to write to
+     * @return the number of rows written
+     */
+    public int exportPage(Document page, String genre, ExportWriter out) {
+        int written = 0;
+        for (Element book : page.select("article.product_pod")) {
+            Element titleLink = book.selectFirst("h3 > a");
+            Element priceElement = book.selectFirst("p.price_color");
+            Element ratingElement = book.selectFirst("p.star-rating");
+            double price = priceElement != null ? parsePrice(priceElement.text()) : Double.NaN;
+            if (titleLink == null || Double.isNaN(price)) {
+                continue;
+            }
+            out.value(genre)
+                    .value(titleLink.attr("title"))
+                    .value(titleLink.absUrl("href"))
+                    .value(Math.round(price * 100))
+                    .value(ratingElement != null ? (long) convertRatingClassToNumber(ratingElement.className()) : 0L)
+                    .endRow();
+            written++;
+        }
+        return written;
+    }
+
+    /**
+     * Fetches the detail page of every book listed on the current page, at most
+     * {@link #getMaxConcurrency()} at a time, and streams the parsed records to the sink.
+     * Books recorded in {@link #getSeenUrls()} by an earlier call or run are skipped; without
+     * that filter, every call fetches each book again.
+     *
+     * @param sink receives each record on the calling thread, in completion order
+     * @return the number of records delivered
+     * @throws IOException if any detail page could not be fetched (after all others are delivered)
+     */
+    public int enrichPage(Consumer<BookDetails> sink) throws IOException {
+        ExecutorService pool = IoThreads.newExecutor("book-details", maxConcurrency);
+        try {
+            DetailFanOut fanOut = new DetailFanOut(pool);
+            fanOut.submitPage(document);
+            return fanOut.drainAll(sink);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Fetches the detail page of every book in the given genre across all pages. Detail
+     * fetches for a listing page start as soon as it is parsed, overlapping with the fetch
+     * of the next listing page. Each book is fetched once per call. Books recorded in
+     * {@link #getSeenUrls()} by an earlier call or run (e.g. for another genre) are skipped.
+     *
+     * @param genre the name of the genre to enrich
+     * @param sink  receives each record on the calling thread, in completion order
+     * @return the number of records delivered (0 if the genre is unknown)
+     * @throws IOException if a listing page fails, or any detail page failed
+     */
+    public int enrichGenre(String genre, Consumer<BookDetails> sink) throws IOException {
+        if (!getAllGenres().contains(genre)) {
+            return 0;
+        }
+
+        ExecutorService pool = IoThreads.newExecutor("book-details", maxConcurrency);
+        try {
+            DetailFanOut fanOut = new DetailFanOut(pool);
+            Document currentPage = getFirstPageForGenre(genre);
+            int totalPages = getTotalPages(currentPage);
+
+            try {
+                for (int i = 0; i < totalPages && currentPage != null; i++) {
+                    fanOut.submitPage(currentPage);
+                    fanOut.drainReady(sink);
+                    currentPage = getNextPage(currentPage);
+                }
+            } catch (ScrapeCancelledException e) {
+                // Hand over the records that finished before the job was stopped
+                try {
+                    fanOut.drainAll(sink);
+                } catch (IOException ignored) {
+                    // The cancellation is what the caller needs to see
+                }
+                throw e;
+            }
+
+            return fanOut.drainAll(sink);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Like {@link #enrichGenre(String, Consumer)}, but stops at the deadline. Records that
+     * finished before it are still delivered; detail fetches in flight are aborted.
+     *
+     * @param genre    the name of the genre to enrich
+     * @param sink     receives each record on the calling thread, in completion order
+     * @param deadline when the crawl must be done by
+     * @return the number of records delivered, flagged incomplete if the deadline cut the crawl short
+     * @throws IOException if a page fails for another reason
+     */
+    public PartialResult<Integer> enrichGenre(String genre, Consumer<BookDetails> sink, Deadline deadline) throws IOException {
+        int[] delivered = new int[1];
+        boolean complete = runWithin(deadline, () -> enrichGenre(genre, details -> {
+            delivered[0]++;
+            sink.accept(details);
+        }));
+        return new PartialResult<>(delivered[0], complete);
+    }
+
+    /**
+     * Pipeline definition for the listing pages of the given genres: "discover" reads each
+     * genre's first page and page count and emits every page of it, "fetch" fetches them,
+     * up to {@link #getMaxConcurrency()} at a time. Unknown genres are skipped. Callers add the
+     * parse, aggregate and sink stages; the pipeline follows this scraper's monitor.
+     * <p>
+     * Page URLs are not guessed. Discovery follows the first page's "next" link to the second
+     * page, and takes the page number in that link as the numbering of later pages. When the
+     * second page's own "next" link matches that numbering, pages three onwards are handed
+     * to the fetch stage at once. Otherwise discovery follows the "next" links one page at a time.
+     *
+     * @param genres the genre names, as shown in the sidebar of the scraped page
+     * @return the pipeline, emitting fetched pages in no particular order
+     */
+    public Pipeline<ListingPage> listingPipeline(List<String> genres) {
+        List<String> known = getAllGenres();
+        return Pipeline.of(genres)
+                .cancelledBy(monitor)
+                .<ListingPage>then("discover", 1, 4, (genre, pages) -> {
+                    if (!known.contains(genre)) {
+                        return;
+                    }
+                    Document first = getFirstPageForGenre(genre);
+                    pages.accept(new ListingPage(genre, first.location(), first));
+                    int totalPages = getTotalPages(first);
+                    Document second = totalPages > 1 ? getNextPage(first) : null;
+                    if (second == null) {
+                        return;
+                    }
+                    pages.accept(new ListingPage(genre, second.location(), second));
+                    IntFunction<String> numbering = pageNumbering(nextPageUrl(first));
+                    if (numbering != null && numbering.apply(3).equals(nextPageUrl(second))) {
+                        for (int page = 3; page <= totalPages; page++) {
+                            pages.accept(new ListingPage(genre, numbering.apply(page), null));
+                        }
+                        return;
+                    }
+                    Document page = second;
+                    for (int i = 2; i < totalPages && (page = getNextPage(page)) != null; i++) {
+                        pages.accept(new ListingPage(genre, page.location(), page));
+                    }
+                })
+                .map("fetch", maxConcurrency, Pipeline.DEFAULT_BUFFER, page ->
+                        page.document() != null ? page : page.withDocument(fetchDocument(page.url())));
+    }
+
+    /**
+     * Pipeline definition for the details of every book in the given genres: the listing
+     * stages of {@link #listingPipeline(List)}, then "links" picks the detail pages not yet
+     * claimed by this pipeline or recorded in {@link #getSeenUrls()}, and "details" fetches and
+     * parses them. The same work as
+     * {@link #enrichGenre(String, Consumer)}, with each stage sized separately.
+     *
+     * @param genres the genre names
+     * @return the pipeline, emitting one record per book
+     */
+    public Pipeline<BookDetails> detailPipeline(List<String> genres) {
+        // Held by the pipeline, so a run only remembers its own books
+        Set<String> claimed = ConcurrentHashMap.newKeySet();
+        return listingPipeline(genres)
+                .<String>then("links", 1, Pipeline.DEFAULT_BUFFER, (page, links) -> {
+                    for (Element link : page.document().select("article.product_pod h3 > a")) {
+                        String detailUrl = link.absUrl("href");
+                        if (claimDetail(claimed, detailUrl)) {
+                            links.accept(detailUrl);
+                        }
+                    }
+                })
+                .map("details", maxConcurrency, Pipeline.DEFAULT_BUFFER, detailUrl -> {
+                    BookDetails details = fetchDetails(detailUrl);
+                    eventBus.publish(new ScrapeEvent.ItemExtracted(details.url(), "UPC " + details.upc()));
+                    return details;
+                });
+    }
+
+    /**
+     * Claims a detail page for one enrichment call. Only that call's claims are kept here;
+     * books from earlier calls are only remembered by {@link #getSeenUrls()}, so memory does not
+     * grow with everything this scraper has ever enriched.
+     *
+     * @param claimed the detail pages this call has claimed so far
+     * @return true if the detail page should be fetched now: it is neither claimed by this call
+     * already nor recorded in {@link #getSeenUrls()} by an earlier call or run
+     */
+    private boolean claimDetail(Set<String> claimed, String detailUrl) {
+        return !detailUrl.isEmpty()
+                && (seenUrls == null || !seenUrls.contains(detailUrl))
+                && claimed.add(detailUrl);
+    }
+
+    /**
+     * Fetches and parses a claimed detail page, recording it as seen once it succeeded.
+     */
+    private BookDetails fetchDetails(String detailUrl) throws IOException {
+        BookDetails details = parseBookDetails(fetchDocument(detailUrl));
+        if (seenUrls != null) {
+            seenUrls.add(detailUrl);
+        }
+        return details;
+    }
+
+    /**
+     * Builds one price summary over several genres with {@link #listingPipeline(List)}, so
+     * listing pages of all genres are fetched concurrently.
+     *
+     * @param genres the genre names
+     * @return the combined summary
+     * @throws IOException if any page failed (after the others were summarized)
+     */
+    public PriceSummary priceSummaryForGenres(List<String> genres) throws IOException {
+        PriceSummary summary = new PriceSummary();
+        listingPipeline(genres)
+                .start("aggregate", 1, Pipeline.DEFAULT_BUFFER, page -> summarizePage(page.document(), summary))
+                .await();
+        return summary;
+    }
+
+    /**
+     * Appends every listing of several genres to a catalog with {@link #listingPipeline(List)}.
+     *
+     * @param genres  the genre names
+     * @param catalog the catalog to append to
+     * @return the number of listings added
+     * @throws IOException if any page failed (after the others were cataloged)
+     */
+    public int catalogGenres(List<String> genres, BookCatalog catalog) throws IOException {
+        int before = catalog.size();
+        listingPipeline(genres)
+                .start("aggregate", 1, Pipeline.DEFAULT_BUFFER, page -> catalogPage(page.document(), page.genre(), catalog))
+                .await();
+        return catalog.size() - before;
+    }
+
+    /**
+     * Downloads the cover image of every book on the given listing page, at most
+     * {@link #getMaxConcurrency()} at a time. Images are streamed straight to disk and
+     * stored under the MD5 of their content, so a cover shared by several books is written
+     * once; covers already downloaded into {@code downloadFolder} are skipped.
+     *
+     * @param page a Jsoup Document representing a book‐listing page
+     * @return the number of new image files written
+     * @throws IOException if any cover fails to download (after the others have finished)
+     */
+    public int downloadCoversOnPage(Document page) throws IOException {
+        CoverImageStore store = getCoverStore();
+
+        Set<String> coverUrls = new LinkedHashSet<>();
+        for (Element img : page.select("article.product_pod div.image_container img")) {
+            String src = img.absUrl("src");
+            if (!src.isEmpty() && !store.contains(src)) {
+                coverUrls.add(src);
+            }
+        }
+        if (coverUrls.isEmpty()) {
+            return 0;
+        }
+
+        List<Callable<Boolean>> downloads = new ArrayList<>();
+        for (String coverUrl : coverUrls) {
+            downloads.add(() -> {
+                monitor.checkCancelled();
+                try {
+                    boolean written = requestExecutor.execute(() -> {
+                        try (InputStream in = openDownload(coverUrl)) {
+                            return store.store(coverUrl, in, this);
+                        }
+                    }, monitor, false);
+                    eventBus.publish(new ScrapeEvent.ItemExtracted(coverUrl, written ? "cover" : "duplicate cover"));
+                    return written;
+                } catch (ScrapeCancelledException e) {
+                    throw e;
+                } catch (IOException e) {
+                    monitor.recordError();
+                    eventBus.publish(new ScrapeEvent.Failure(coverUrl, "Error downloading cover: " + e.getMessage(), e));
+                    throw e;
+                }
+            });
+        }
+
+        ExecutorService pool = IoThreads.newExecutor("book-covers", Math.min(maxConcurrency, downloads.size()));
+        try {
+            int written = 0;
+            IOException failure = null;
+            ScrapeCancelledException cancelled = null;
+            for (Future<Boolean> result : pool.invokeAll(downloads)) {
+                try {
+                    if (result.get()) {
+                        written++;
+                    }
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof ScrapeCancelledException stopped) {
+                        cancelled = stopped;
+                    } else if (failure == null) {
+                        failure = new IOException("Failed to download cover: " + e.getCause().getMessage(), e.getCause());
+                    } else {
+                        failure.addSuppressed(e.getCause());
+                    }
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+            if (cancelled != null) {
+                throw cancelled;
+            }
+            return written;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while downloading covers", e);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Downloads the covers of every book in the given genre across all pages.
+     *
+     * @param genre the name of the genre
+     * @return the number of new image files written (0 if the genre is unknown)
+     * @throws IOException if fetching a page or downloading a cover fails
+     */
+    public int downloadCoversForGenre(String genre) throws IOException {
+        int[] written = new int[1];
+        downloadCoversForGenre(genre, written);
+        return written[0];
+    }
+
+    private void downloadCoversForGenre(String genre, int[] written) throws IOException {
+        if (!getAllGenres().contains(genre)) {
+            return;
+        }
+
+        Document currentPage = getFirstPageForGenre(genre);
+        int totalPages = getTotalPages(currentPage);
+
+        for (int i = 0; i < totalPages && currentPage != null; i++) {
+            // Counted per page so a run cut short by a deadline still reports what it wrote
+            written[0] += downloadCoversOnPage(currentPage);
+            currentPage = getNextPage(currentPage);
+        }
+    }
+
+    /**
+     * Like {@link #downloadCoversForGenre(String)}, but stops at the deadline; covers written
+     * before it stay on disk and are skipped next time.
+     *
+     * @param genre    the name of the genre
+     * @param deadline when the downloads must be done by
+     * @return the number of new image files written, flagged incomplete if the deadline cut the run short
+     * @throws IOException if fetching a page or downloading a cover fails for another reason
+     */
+    public PartialResult<Integer> downloadCoversForGenre(String genre, Deadline deadline) throws IOException {
+        int[] written = new int[1];
+        boolean complete = runWithin(deadline, () -> downloadCoversForGenre(genre, written));
+        return new PartialResult<>(written[0], complete);
+    }
+
+    private synchronized CoverImageStore getCoverStore() throws IOException {
+        if (coverStore == null || !coverStore.isFor(Paths.get(downloadFolder))) {
+            coverStore = new CoverImageStore(Paths.get(downloadFolder));
+        }
+        return coverStore;
+    }
+
+    /**
+     * Parses a book detail page into a compact record.
+     *
+     * @param detail a Jsoup Document representing a book detail page
+     * @return the parsed record
+     */
+    static BookDetails parseBookDetails(Document detail) {
+        String upc = "";
+        String productType = "";
+        double priceExclTax = Double.NaN;
+        double priceInclTax = Double.NaN;
+        double tax = Double.NaN;
+        int available = 0;
+
+        for (Element row : detail.select("table.table-striped tr")) {
+            Element header = row.selectFirst("th");
+            Element value = row.selectFirst("td");
+            if (header == null || value == null) {
+                continue;
+            }
+            String text = value.text().trim();
+            switch (header.text().trim()) {
+                case "UPC" -> upc = text;
+                case "Product Type" -> productType = text;
+                case "Price (excl. tax)" -> priceExclTax = parsePrice(text);
+                case "Price (incl. tax)" -> priceInclTax = parsePrice(text);
+                case "Tax" -> tax = parsePrice(text);
+                case "Availability" -> {
+                    Matcher m = AVAILABLE_COUNT.matcher(text);
+                    available = m.find() ? Integer.parseInt(m.group(1)) : 0;
+                }
+                default -> {
+                    // other rows (reviews etc.) are not needed
+                }
+            }
+        }
+
+        Element titleElem = detail.selectFirst("div.product_main h1");
+        Element ratingElem = detail.selectFirst("div.product_main p.star-rating");
+        Element descriptionElem = detail.selectFirst("#product_description + p");
+
+        return new BookDetails(
+                detail.location(),
+                upc,
+                titleElem != null ? titleElem.text().trim() : "",
+                productType,
+                priceExclTax,
+                priceInclTax,
+                tax,
+                available,
+                ratingElem != null ? (int) convertRatingClassToNumber(ratingElem.className()) : 0,
+                descriptionElem != null ? descriptionElem.text().trim() : "");
+    }
+
+    /**
+     * Tracks detail-page fetches submitted to a bounded pool and hands finished records
+     * back to the calling thread.
+     */
+    private class DetailFanOut {
+        private final CompletionService<BookDetails> completions;
+        // Only touched by the calling thread
+        private final Set<String> claimed = new HashSet<>();
+        private int pending;
+        private int delivered;
+        private IOException failure;
+        private ScrapeCancelledException cancelled;
+
+        DetailFanOut(ExecutorService pool) {
+            this.completions = new ExecutorCompletionService<>(pool);
+        }
+
+        void submitPage(Document page) {
+            for (Element link : page.select("article.product_pod h3 > a")) {
+                String detailUrl = link.absUrl("href");
+                if (!claimDetail(claimed, detailUrl)) {
+                    continue;
+                }
+                completions.submit(() -> fetchDetails(detailUrl));
+                pending++;
+            }
+        }
+
+        void drainReady(Consumer<BookDetails> sink) throws IOException {
+            Future<BookDetails> done;
+            while (pending > 0 && (done = completions.poll()) != null) {
+                deliver(done, sink);
+            }
+        }
+
+        int drainAll(Consumer<BookDetails> sink) throws IOException {
+            while (pending > 0) {
+                try {
+                    deliver(completions.take(), sink);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while enriching book details", e);
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+            if (cancelled != null) {
+                throw cancelled;
+            }
+            return delivered;
+        }
+
+        private void deliver(Future<BookDetails> done, Consumer<BookDetails> sink) throws IOException {
+            pending--;
+            try {
+                BookDetails details = done.get();
+                eventBus.publish(new ScrapeEvent.ItemExtracted(details.url(), "UPC " + details.upc()));
+                sink.accept(details);
+                delivered++;
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof ScrapeCancelledException stopped) {
+                    // Not a failure of this book; the job was cancelled or ran out of time
+                    cancelled = stopped;
+                } else if (failure == null) {
+                    failure = new IOException("Failed to enrich book details: " + e.getCause().getMessage(), e.getCause());
+                } else {
+                    failure.addSuppressed(e.getCause());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while enriching book details", e);
+            }
+        }
+    }
+
     /**
      * Helper method to convert rating class names to numeric values.
      *
      * @param ratingClass the CSS class containing the rating
      * @return the numeric rating (1-5) or 0 if invalid
      */
-    private double convertRatingClassToNumber(String ratingClass) {
+    private static double convertRatingClassToNumber(String ratingClass) {
         if (ratingClass.contains("One")) return 1.0;
         if (ratingClass.contains("Two")) return 2.0;
         if (ratingClass.contains("Three")) return 3.0;
@@ -246,6 +1151,24 @@ public class BookWebScraper extends WebScraper {
         return fetchDocument(href);
     }
 
+    /**
+     * Helper method to parse the "Showing X results" count of a listing page.
+     *
+     * @param page a Jsoup Document representing a book‐listing page
+     * @return the result count, or 0 if not found or parse error
+     */
+    private static int resultCount(Document page) {
+        Element countElem = page.selectFirst("form.form-horizontal strong");
+        if (countElem != null) {
+            try {
+                return Integer.parseInt(countElem.text().trim());
+            } catch (NumberFormatException e) {
+                // fall through to return 0
+            }
+        }
+        return 0;
+    }
+
     /**
      * Helper method to extract the total number of pages from the pagination element.
      *
@@ -277,12 +1200,45 @@ public class BookWebScraper extends WebScraper {
      * @throws IOException if fetching the next page fails
      */
     private Document getNextPage(Document page) throws IOException {
-        Element nextLink = page.selectFirst("li.next > a");
-        return (nextLink != null)
-                ? fetchDocument(nextLink.absUrl("href"))
+        String nextUrl = nextPageUrl(page);
+        return (nextUrl != null)
+                ? fetchDocument(nextUrl)
                 : null;
     }
 
+    /**
+     * @param page a book‐listing page
+     * @return the absolute URL of its "next" link, or null on the last page
+     */
+    private static String nextPageUrl(Document page) {
+        Element nextLink = page.selectFirst("li.next > a");
+        return nextLink != null ? nextLink.absUrl("href") : null;
+    }
+
+    /**
+     * Finds where a listing's second-page URL holds its page number (the last standalone
+     * {@code 2}, as in {@code page-2.html} or {@code ?page=2}).
+     *
+     * @param secondPageUrl the URL of a listing's second page, or null
+     * @return the URL of any page by its number, or null if the URL holds no page number
+     */
+    private static IntFunction<String> pageNumbering(String secondPageUrl) {
+        if (secondPageUrl == null) {
+            return null;
+        }
+        Matcher m = SECOND_PAGE_NUMBER.matcher(secondPageUrl);
+        int start = -1;
+        while (m.find()) {
+            start = m.start();
+        }
+        if (start < 0) {
+            return null;
+        }
+        String prefix = secondPageUrl.substring(0, start);
+        String suffix = secondPageUrl.substring(start + 1);
+        return page -> prefix + page + suffix;
+    }
+
     /**
      * Helper method to calculate the total sum of all book prices on the current page.
      *
@@ -318,4 +1274,19 @@ public class BookWebScraper extends WebScraper {
         }
         return total;
     }
+
+    /**
+     * Helper method to parse a listed price such as "£51.77".
+     *
+     * @param priceText the raw price text
+     * @return the numeric price, or NaN if it cannot be parsed
+     */
+    static double parsePrice(String priceText) {
+        String txt = priceText.replaceAll("[^\\d.]+", "");
+        try {
+            return Double.parseDouble(txt);
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
 }
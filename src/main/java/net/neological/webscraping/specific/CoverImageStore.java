@@ -0,0 +1,166 @@
+package net.neological.webscraping.specific;
+
+import net.neological.webscraping.FileDownloader;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Content-addressed store for cover images. Each image is streamed to a temporary file
+ * while its MD5 is computed, then linked into place as {@code <md5>.<ext>}; if a file with
+ * that hash already exists, even one another thread or process created a moment earlier, the
+ * temporary copy is discarded, so identical covers are written once.
+ * <p>
+ * A small {@code covers.index} file maps source URLs to stored file names so images already on disk
+ * are skipped without being downloaded again.
+ */
+class CoverImageStore {
+    static final String INDEX_FILE = "covers.index";
+
+    private final Path folder;
+    private final Map<String, String> fileByUrl = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor. Loads the existing index from the folder, if any.
+     *
+     * @param folder the directory covers are stored in
+     * @throws IOException if the folder cannot be created or the index cannot be read
+     */
+    CoverImageStore(Path folder) throws IOException {
+        this.folder = folder;
+        Files.createDirectories(folder);
+
+        Path index = folder.resolve(INDEX_FILE);
+        if (Files.exists(index)) {
+            List<String> lines = Files.readAllLines(index, StandardCharsets.UTF_8);
+            for (String line : lines) {
+                int tab = line.indexOf('\t');
+                if (tab > 0) {
+                    fileByUrl.put(line.substring(tab + 1), line.substring(0, tab));
+                }
+            }
+        }
+    }
+
+    /**
+     * @param folder a directory
+     * @return true if this store writes into that directory
+     */
+    boolean isFor(Path folder) {
+        return this.folder.equals(folder);
+    }
+
+    /**
+     * @param url the source URL of an image
+     * @return true if the image was stored before and its file is still on disk
+     */
+    boolean contains(String url) {
+        String fileName = fileByUrl.get(url);
+        return fileName != null && Files.exists(folder.resolve(fileName));
+    }
+
+    /**
+     * Streams an image into the store.
+     *
+     * @param url  the source URL, used for the index and the file extension
+     * @param body the image bytes; read to the end and closed
+     * @param downloader the downloader the bytes are copied through, for progress and cancellation
+     * @return true if a new file was written, false if identical content was already stored
+     * @throws IOException if writing fails
+     */
+    boolean store(String url, InputStream body, FileDownloader downloader) throws IOException {
+        MessageDigest md5 = newMd5();
+        Path temp = Files.createTempFile(folder, "cover", ".part");
+        try {
+            try (DigestInputStream in = new DigestInputStream(body, md5);
+                 OutputStream out = Files.newOutputStream(temp)) {
+                downloader.copyCancellable(url, in, out);
+            }
+
+            String fileName = HexFormat.of().formatHex(md5.digest()) + extensionOf(url);
+            Path target = folder.resolve(fileName);
+            boolean written = !Files.exists(target) && publish(temp, target);
+
+            if (fileByUrl.put(url, fileName) == null) {
+                appendToIndex(fileName, url);
+            }
+            return written;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Puts the finished file in place unless identical content got there first.
+     *
+     * @return true if this call created the target
+     */
+    private static boolean publish(Path temp, Path target) throws IOException {
+        try {
+            // A rename would silently replace a concurrent writer's file; a link fails if the name is taken
+            Files.createLink(target, temp);
+            return true;
+        } catch (FileAlreadyExistsException e) {
+            return false;
+        } catch (UnsupportedOperationException | FileSystemException e) {
+            // No hard links on this file system; fall back to a move, which can still replace on some
+        }
+        try {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        } catch (FileAlreadyExistsException e) {
+            return false;
+        } catch (AtomicMoveNotSupportedException e) {
+            try {
+                Files.move(temp, target);
+                return true;
+            } catch (FileAlreadyExistsException exists) {
+                return false;
+            }
+        }
+    }
+
+    private synchronized void appendToIndex(String fileName, String url) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(folder.resolve(INDEX_FILE), StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            writer.write(fileName + "\t" + url);
+            writer.newLine();
+        }
+    }
+
+    private static String extensionOf(String url) {
+        String path = url;
+        int query = path.indexOf('?');
+        if (query >= 0) {
+            path = path.substring(0, query);
+        }
+        int slash = path.lastIndexOf('/');
+        int dot = path.lastIndexOf('.');
+        return dot > slash ? path.substring(dot) : ".img";
+    }
+
+    private static MessageDigest newMd5() {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("MD5 not available", e);
+        }
+    }
+}
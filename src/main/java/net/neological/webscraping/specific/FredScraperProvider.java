@@ -0,0 +1,58 @@
+package net.neological.webscraping.specific;
+
+import net.neological.webscraping.ScraperProvider;
+import net.neological.webscraping.WebScraper;
+
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Provider for {@link FredWebScraper}: FRED series pages build their download links with
+ * JavaScript, so they need browser rendering, and every series is saved as a CSV file.
+ */
+public class FredScraperProvider implements ScraperProvider {
+    private static final List<Pattern> URL_PATTERNS =
+            List.of(Pattern.compile("https://fred\\.stlouisfed\\.org/searchresults/.*"),
+                    Pattern.compile("https://fred\\.stlouisfed\\.org/series/.*"));
+
+    @Override
+    public String name() {
+        return "FRED";
+    }
+
+    @Override
+    public List<Pattern> urlPatterns() {
+        return URL_PATTERNS;
+    }
+
+    @Override
+    public boolean requiresJavaScript() {
+        return true;
+    }
+
+    @Override
+    public boolean downloadsFiles() {
+        return true;
+    }
+
+    @Override
+    public boolean downloadsSeries() {
+        return true;
+    }
+
+    @Override
+    public boolean supportsExport() {
+        return true;
+    }
+
+    @Override
+    public int preferredConcurrency() {
+        // Each fetch is a full Chrome session
+        return 2;
+    }
+
+    @Override
+    public WebScraper create(String userAgent, int timeoutMillis) {
+        return new FredWebScraper(userAgent, timeoutMillis);
+    }
+}
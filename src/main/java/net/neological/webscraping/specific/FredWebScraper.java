@@ -1,33 +1,88 @@
 package net.neological.webscraping.specific;
 
-import io.github.bonigarcia.wdm.WebDriverManager;
+import lombok.Getter;
 import lombok.Setter;
-import net.neological.webscraping.FileDownloader;
+import net.neological.webscraping.IoThreads;
+import net.neological.webscraping.ScrapeCancelledException;
+import net.neological.webscraping.SeriesDownloader;
 import net.neological.webscraping.WebScraper;
-import org.jsoup.Jsoup;
+import net.neological.webscraping.events.ScrapeEvent;
+import net.neological.webscraping.export.Column;
+import net.neological.webscraping.export.ExportWriter;
+import net.neological.webscraping.export.ResultExporter;
+import net.neological.webscraping.pipeline.Pipeline;
+import net.neological.webscraping.render.RenderRequest;
+import net.neological.webscraping.render.RenderedPage;
+import net.neological.webscraping.storage.DownloadStore;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
 import org.jsoup.select.Elements;
-import org.openqa.selenium.By;
-import org.openqa.selenium.JavascriptExecutor;
-import org.openqa.selenium.WebDriver;
-import org.openqa.selenium.WebElement;
-import org.openqa.selenium.chrome.ChromeDriver;
-import org.openqa.selenium.chrome.ChromeOptions;
-import org.openqa.selenium.support.ui.ExpectedConditions;
-import org.openqa.selenium.support.ui.WebDriverWait;
 
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+public class FredWebScraper extends WebScraper implements SeriesDownloader, ResultExporter {
+    private static final String SEARCH_PREFIX = "https://fred.stlouisfed.org/searchresults/";
+    private static final String SERIES_PREFIX = "https://fred.stlouisfed.org/series/";
+    private static final String SERIES_LINKS = "a[href^=/series/]";
+    private static final Pattern PAGE_ID = Pattern.compile("[?&]pageID=(\\d+)");
 
-public class FredWebScraper extends WebScraper implements FileDownloader {
+    /**
+     * Columns written to {@link #getExport()}: one row per observation, with NaN for FRED's
+     * "." (no value).
+     */
+    public static final List<Column> SERIES_COLUMNS = List.of(
+            Column.string("series"),
+            Column.string("date"),
+            Column.decimal("value"));
 
     @Setter
     private String downloadFolder;
 
+    /** Series a search hands over at most, across all of its result pages. */
+    @Getter
+    @Setter
+    private int maxSeries = Integer.MAX_VALUE;
+
+    /** Result pages fetched ahead of the one being parsed. */
+    @Getter
+    @Setter
+    private int pagePrefetch = 2;
+
+    /** How series CSVs are laid out and synced in the download folder. */
+    @Getter
+    @Setter
+    private DownloadStore.Options storeOptions = DownloadStore.Options.DEFAULT;
+
+    /**
+     * When set, the observations of every series downloaded are also written to this export,
+     * with {@link #SERIES_COLUMNS}. Each CSV is streamed back from the store once committed and
+     * written a row at a time; a series' rows are in date order, but concurrent downloads' rows
+     * may interleave.
+     */
+    @Getter
+    @Setter
+    private ExportWriter export;
+
     /**
      * Constructor.
      *
@@ -39,6 +94,14 @@ public class FredWebScraper extends WebScraper implements FileDownloader {
         this.downloadFolder = System.getProperty("user.home") + File.separator + "Downloads";
     }
 
+    /**
+     * @return {@link #SERIES_COLUMNS}
+     */
+    @Override
+    public List<Column> exportColumns() {
+        return SERIES_COLUMNS;
+    }
+
     /**
      * Fetches the fully rendered HTML at the given URL via Selenium, then calls {@link #parse()}.
      *
@@ -50,27 +113,303 @@ public class FredWebScraper extends WebScraper implements FileDownloader {
             throw new IllegalArgumentException("URL failed isValid() check: " + url);
         }
 
-        document = fetchDocument(url);
-        parse();
+        if (url.startsWith(SERIES_PREFIX) && seenUrls != null && seenUrls.contains(url)) {
+            // Downloaded by an earlier run
+            return;
+        }
+        if (linkSink != null && !url.startsWith(SERIES_PREFIX)) {
+            discoverSeries(url, linkSink);
+            return;
+        }
+
+        // The store is held for the whole scrape, so its files are committed when it returns
+        try (DownloadStore store = DownloadStore.open(Paths.get(downloadFolder), storeOptions)) {
+            Series series = seriesScraper();
+            series.store = store;
+            if (url.startsWith(SERIES_PREFIX)) {
+                // A single series, e.g. handed out by a crawl coordinator
+                monitor.expectMorePages(1);
+                series.scrape(url);
+                return;
+            }
+            // Series are downloaded while later result pages are still being fetched
+            Pipeline.of(List.of(url))
+                    .cancelledBy(monitor)
+                    .<String>then("discover", 1, 1, this::discoverDownloads)
+                    .start("download", maxConcurrency, Pipeline.DEFAULT_BUFFER,
+                            seriesUrl -> series.download(series.fetchSeries(seriesUrl)))
+                    .await();
+        }
     }
 
-    protected void parse() throws IOException {
-        Elements seriesLinks = document.select("a[href^=/series/]");
+    /**
+     * Downloads one series into the download folder. Unlike {@link #scrape(String)}, which
+     * reports a failed download as an event and carries on, a failure is thrown, so callers that
+     * need the file know whether they got it.
+     *
+     * @param seriesUrl a FRED series page URL
+     * @return the file written
+     * @throws IOException if the page has no CSV link or the download fails
+     */
+    @Override
+    public Path downloadSeries(String seriesUrl) throws IOException {
+        if (seriesUrl == null || !seriesUrl.startsWith(SERIES_PREFIX)) {
+            throw new IllegalArgumentException("Not a FRED series URL: " + seriesUrl);
+        }
+        try (DownloadStore store = DownloadStore.open(Paths.get(downloadFolder), storeOptions)) {
+            Series series = seriesScraper();
+            series.store = store;
+            monitor.expectMorePages(1);
+            Document page = series.fetchSeries(seriesUrl);
+            String csvUrl = series.csvUrlOf(page);
+            if (csvUrl == null) {
+                throw new IOException("No CSV link on " + seriesUrl);
+            }
+            try {
+                return series.save(page.location(), csvUrl);
+            } catch (ScrapeCancelledException e) {
+                throw e;
+            } catch (IOException e) {
+                series.reportFailure(csvUrl, "Error downloading CSV: " + e.getMessage(), e);
+                throw e;
+            }
+        }
+    }
 
-        Series seriesScraper = new Series(userAgent, timeoutMillis);
-        seriesScraper.setDownloadFolder(downloadFolder);
+    /**
+     * Streams the series of every results page of a search to the sink, in page order, as each
+     * page is parsed. Result pages after the first are found from the links to them (FRED's
+     * {@code pageID} parameter) and fetched up to {@link #getPagePrefetch()} ahead of the one
+     * being parsed. Discovery stops once {@link #getMaxSeries()} series have been handed over;
+     * series already handed over from an earlier page, or recorded in {@link #getSeenUrls()},
+     * are skipped.
+     *
+     * @param searchUrl a FRED search-results URL
+     * @param sink      receives series page URLs on the calling thread
+     * @return the number of series handed to the sink
+     * @throws IOException if a results page cannot be fetched
+     */
+    public int discoverSeries(String searchUrl, Consumer<? super String> sink) throws IOException {
+        monitor.expectMorePages(1);
+        Document first = fetchDocument(searchUrl);
+        if (first.select(SERIES_LINKS).isEmpty()) {
+            reportExtractionFailure(searchUrl);
+        }
+        Set<String> discovered = new HashSet<>();
+        int emitted = emitSeries(first, discovered, sink, maxSeries);
+        int lastPage = lastPageOf(first);
+        if (lastPage <= 1 || emitted >= maxSeries) {
+            return emitted;
+        }
 
-        for (Element link : seriesLinks) {
-            String fullUrl = link.absUrl("href");
+        int prefetch = Math.max(1, pagePrefetch);
+        ExecutorService pool = IoThreads.newExecutor("fred-results", prefetch);
+        try {
+            ArrayDeque<Future<Document>> ahead = new ArrayDeque<>();
+            int nextPage = 2;
+            while (emitted < maxSeries) {
+                while (ahead.size() < prefetch && nextPage <= lastPage) {
+                    String pageUrl = pageUrl(searchUrl, nextPage++);
+                    monitor.expectMorePages(1);
+                    ahead.add(pool.submit(() -> fetchDocument(pageUrl)));
+                }
+                if (ahead.isEmpty()) {
+                    break;
+                }
+                Document page = await(ahead.poll());
+                // Pagers often show a window of pages, so later pages can reveal more
+                lastPage = Math.max(lastPage, lastPageOf(page));
+                emitted += emitSeries(page, discovered, sink, maxSeries - emitted);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        return emitted;
+    }
 
-            seriesScraper.scrape(fullUrl);
+    private void discoverDownloads(String searchUrl, Consumer<? super String> seriesUrls) throws IOException {
+        discoverSeries(searchUrl, seriesUrl -> {
+            // Each series page is fetched by the download stage
+            monitor.expectMorePages(1);
+            seriesUrls.accept(seriesUrl);
+        });
+    }
+
+    private int emitSeries(Document page, Set<String> discovered, Consumer<? super String> sink, int limit)
+            throws ScrapeCancelledException {
+        int emitted = 0;
+        for (String url : unseen(page.select(SERIES_LINKS))) {
+            if (emitted >= limit) {
+                break;
+            }
+            if (discovered.add(url)) {
+                monitor.checkCancelled();
+                sink.accept(url);
+                emitted++;
+            }
         }
+        return emitted;
     }
 
+    /**
+     * @return the highest {@code pageID} any link on a results page points to, or 1
+     */
+    static int lastPageOf(Document page) {
+        int last = 1;
+        for (Element link : page.select("a[href*=pageID=]")) {
+            Matcher m = PAGE_ID.matcher(link.attr("href"));
+            if (m.find()) {
+                try {
+                    last = Math.max(last, Integer.parseInt(m.group(1)));
+                } catch (NumberFormatException e) {
+                    // Not a page number we can follow
+                }
+            }
+        }
+        return last;
+    }
+
+    /**
+     * @return the search URL with its {@code pageID} set to the given page
+     */
+    static String pageUrl(String searchUrl, int page) {
+        Matcher m = PAGE_ID.matcher(searchUrl);
+        if (m.find()) {
+            return searchUrl.substring(0, m.start(1)) + page + searchUrl.substring(m.end(1));
+        }
+        return searchUrl + (searchUrl.contains("?") ? "&" : "?") + "pageID=" + page;
+    }
+
+    private static Document await(Future<Document> page) throws IOException {
+        try {
+            return page.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while fetching a results page");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException io) {
+                throw io;
+            }
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * Accepts search results, whose series are all downloaded, and single series pages.
+     */
     @Override
     public boolean isValid(String url) {
         return url != null
-                && url.startsWith("https://fred.stlouisfed.org/searchresults/");
+                && (url.startsWith(SEARCH_PREFIX) || url.startsWith(SERIES_PREFIX));
+    }
+
+    @Override
+    protected List<String> probeSelectors() {
+        return List.of(SERIES_LINKS);
+    }
+
+    /**
+     * Pipeline definition for a search: "discover" fetches the search results and emits their
+     * series pages, "fetch" renders those, and "download" saves each series CSV. Rendering and
+     * downloading each run up to {@link #getMaxConcurrency()} at a time. The same work as
+     * {@link #scrape(String)} on a search-results URL.
+     *
+     * @param searchUrl a FRED search-results URL
+     * @return the pipeline, emitting the files written
+     */
+    public Pipeline<Path> downloadPipeline(String searchUrl) {
+        if (searchUrl == null || !searchUrl.startsWith(SEARCH_PREFIX)) {
+            throw new IllegalArgumentException("Not a FRED search-results URL: " + searchUrl);
+        }
+        Series series = seriesScraper();
+        return Pipeline.of(List.of(searchUrl))
+                .cancelledBy(monitor)
+                .<String>then("discover", 1, 1, this::discoverDownloads)
+                .map("fetch", maxConcurrency, Pipeline.DEFAULT_BUFFER, series::fetchSeries)
+                .map("download", maxConcurrency, Pipeline.DEFAULT_BUFFER, page -> {
+                    String csvUrl = series.csvUrlOf(page);
+                    if (csvUrl == null) {
+                        throw new IOException("No CSV link on " + page.location());
+                    }
+                    try {
+                        return series.save(page.location(), csvUrl);
+                    } catch (ScrapeCancelledException e) {
+                        throw e;
+                    } catch (IOException e) {
+                        series.reportFailure(csvUrl, "Error downloading CSV: " + e.getMessage(), e);
+                        throw e;
+                    }
+                });
+    }
+
+    /**
+     * @return the links' series URLs, without the ones {@link #getSeenUrls()} has recorded
+     */
+    private List<String> unseen(Elements seriesLinks) {
+        List<String> urls = new ArrayList<>(seriesLinks.size());
+        for (Element link : seriesLinks) {
+            String url = link.absUrl("href");
+            if (seenUrls == null || !seenUrls.contains(url)) {
+                urls.add(url);
+            }
+        }
+        return urls;
+    }
+
+    private Series seriesScraper() {
+        Series seriesScraper = new Series(userAgent, timeoutMillis);
+        seriesScraper.setDownloadFolder(downloadFolder);
+        shareJobWith(seriesScraper);
+        return seriesScraper;
+    }
+
+    /**
+     * Writes a stored series' observations ({@code observation_date,<series id>} then one
+     * {@code date,value} line each) to {@link #export}. The committed file is read back a line at
+     * a time and the writer's lock is held for one row at a time, so a series is never held in
+     * memory and concurrent downloads only wait for each other's encoding.
+     */
+    private void exportSeries(String seriesId, DownloadStore store, String name) throws IOException {
+        Lock lock = export.rowLock();
+        try (BufferedReader lines = new BufferedReader(
+                new InputStreamReader(store.openStream(name), StandardCharsets.UTF_8))) {
+            boolean header = true;
+            String line;
+            while ((line = lines.readLine()) != null) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                if (header) {
+                    header = false;
+                    continue;
+                }
+                int comma = line.indexOf(',');
+                if (comma < 0) {
+                    continue;
+                }
+                lock.lock();
+                try {
+                    export.value(seriesId)
+                            .value(line.substring(0, comma))
+                            .value(parseObservation(line.substring(comma + 1)))
+                            .endRow();
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+    }
+
+    private static double parseObservation(String value) {
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
     }
 
     private class Series extends WebScraper {
@@ -78,6 +417,9 @@ public class FredWebScraper extends WebScraper implements FileDownloader {
         @Setter
         private String downloadFolder;
 
+        /** The store of the scrape this belongs to, or null to open the folder's store per file. */
+        private DownloadStore store;
+
         /**
          * Constructor.
          *
@@ -104,97 +446,116 @@ public class FredWebScraper extends WebScraper implements FileDownloader {
             parse();
         }
 
+        /**
+         * Renders a series page and clicks its download button so the CSV link appears.
+         * Retries, events and counters are handled by {@link WebScraper#fetchDocument(String)}.
+         */
         @Override
-        protected Document fetchDocument(String url) throws IOException {
-            WebDriverManager.chromedriver().setup();
-
-            ChromeOptions options = new ChromeOptions();
-            options.addArguments("--headless");
-            options.addArguments("--disable-gpu");
-            options.addArguments("--no-sandbox");
-            options.addArguments("--disable-dev-shm-usage");
-            options.addArguments("--blink-settings=imagesEnabled=false");
-            options.addArguments("--user-agent=" + userAgent);
-
-            WebDriver driver = new ChromeDriver(options);
-            try {
-                driver.manage().timeouts().pageLoadTimeout(Duration.ofMillis(timeoutMillis));
-                driver.get(url);
-
-                WebDriverWait wait = new WebDriverWait(driver, Duration.ofMillis(timeoutMillis));
+        protected RenderedPage renderPage(String url) throws IOException {
+            // Wait longer for download options to appear
+            return renderBackend.render(new RenderRequest(url, userAgent, timeoutMillis, "download-button", 3_000), monitor);
+        }
 
-                // Wait for the page to load completely
-                wait.until(ExpectedConditions.presenceOfElementLocated(By.id("download-button")));
+        protected void parse() {
+            download(document);
+        }
 
-                // Try multiple strategies to click the button
-                WebElement button = null;
-                try {
-                    // First try: wait for element to be clickable
-                    button = wait.until(ExpectedConditions.elementToBeClickable(By.id("download-button")));
-                    button.click();
-                } catch (Exception e1) {
-                    try {
-                        // Second try: use JavaScript click
-                        button = driver.findElement(By.id("download-button"));
-                        ((JavascriptExecutor) driver).executeScript("arguments[0].click();", button);
-                    } catch (Exception e2) {
-                        // Third try: scroll to element and click
-                        button = driver.findElement(By.id("download-button"));
-                        ((JavascriptExecutor) driver).executeScript("arguments[0].scrollIntoView(true);", button);
-                        Thread.sleep(1000);
-                        ((JavascriptExecutor) driver).executeScript("arguments[0].click();", button);
-                    }
-                }
+        /**
+         * Downloads the CSV linked from a rendered series page. Failures are reported, not thrown.
+         */
+        void download(Document page) {
+            String seriesUrl = page.baseUri();
+            String csvUrl = csvUrlOf(page);
+            if (csvUrl == null) {
+                return;
+            }
 
-                Thread.sleep(3_000); // Wait longer for download options to appear
-                String updatedHtml = driver.getPageSource();
-                return Jsoup.parse(updatedHtml, driver.getCurrentUrl());
+            try {
+                save(seriesUrl, csvUrl);
+            } catch (ScrapeCancelledException e) {
+                // The job is being torn down; not an error
             } catch (Exception e) {
-                throw new IOException("Failed to fetch/render page via Selenium: " + e.getMessage(), e);
-            } finally {
-                driver.quit();
+                reportFailure(csvUrl, "Error downloading CSV: " + e.getMessage(), e);
             }
         }
 
-        protected void parse() {
-            Element csvAnchor = document.selectFirst("a#download-data-csv");
+        Document fetchSeries(String url) throws IOException {
+            return fetchDocument(url);
+        }
+
+        /**
+         * @return the CSV link on a rendered series page, or null (reported as a failure) if there is none
+         */
+        String csvUrlOf(Document page) {
+            String seriesUrl = page.baseUri();
+            Element csvAnchor = page.selectFirst("a#download-data-csv");
             if (csvAnchor == null) {
-                System.err.println("No CSV link found on the page.");
-                return;
+                reportFailure(seriesUrl, "No CSV link found on the page.", null);
+                return null;
             }
 
             String csvUrl = csvAnchor.absUrl("href");
             if (csvUrl.isBlank()) {
-                System.err.println("CSV link had an empty href.");
-                return;
+                reportFailure(seriesUrl, "CSV link had an empty href.", null);
+                return null;
             }
+            return csvUrl;
+        }
 
-            System.out.println("Downloading CSV from: " + csvUrl);
+        /**
+         * Downloads a series CSV into the download folder's {@link DownloadStore}, named after the
+         * series. The file only appears once it is complete.
+         *
+         * @return the file written
+         */
+        Path save(String seriesUrl, String csvUrl) throws IOException {
+            eventBus.publish(new ScrapeEvent.FetchStarted(csvUrl));
+
+            // Create filename from the series URL
+            String fileName = seriesUrl.substring(seriesUrl.lastIndexOf('/') + 1);
+            if (fileName.isEmpty()) {
+                throw new IOException("Cannot infer filename from URL: " + seriesUrl);
+            }
+            fileName += ".csv";
 
+            DownloadStore store = this.store != null
+                    ? this.store
+                    : DownloadStore.open(Paths.get(downloadFolder), storeOptions);
+            String name = fileName;
+            Path destFile;
             try {
-                // Create filename from the series URL
-                String fileName = document.baseUri().substring(document.baseUri().lastIndexOf('/') + 1);
-                if (fileName.isEmpty()) {
-                    throw new IOException("Cannot infer filename from URL: " + document.baseUri());
+                // Copied through the outer scraper, whose progress listeners and cancellation apply
+                // Retried like page fetches, but never hedged: both requests would write the same file
+                destFile = requestExecutor.execute(() -> {
+                    try (InputStream in = FredWebScraper.this.openDownload(csvUrl)) {
+                        return store.store(name, csvUrl, in, FredWebScraper.this);
+                    }
+                }, monitor, false);
+                if (export != null) {
+                    // Only a committed file is exported, so failed attempts never leave rows behind
+                    exportSeries(name.substring(0, name.length() - ".csv".length()), store, name);
                 }
-                fileName += ".csv";
-
-                // Create full file path
-                Path destFile = Paths.get(downloadFolder, fileName);
-                String filePath = destFile.toString();
-
-                // Use the FileDownloader interface to download the file
-                downloadFile(csvUrl, filePath);
-
-            } catch (Exception e) {
-                System.err.println("Error downloading CSV: " + e.getMessage());
+            } finally {
+                if (store != this.store) {
+                    store.close();
+                }
+            }
+            eventBus.publish(new ScrapeEvent.ItemExtracted(seriesUrl, destFile.toString()));
+            if (seenUrls != null) {
+                seenUrls.add(seriesUrl);
             }
+            return destFile;
+        }
+
+        private void reportFailure(String url, String message, Throwable cause) {
+            monitor.recordError();
+            eventBus.publish(new ScrapeEvent.Failure(url, message, cause));
         }
 
         @Override
         public boolean isValid(String url) {
             return url != null
-                    && url.startsWith("https://fred.stlouisfed.org/series/");
+                    && url.startsWith(SERIES_PREFIX);
         }
     }
 }
@@ -0,0 +1,15 @@
+package net.neological.webscraping.specific;
+
+/**
+ * Outcome of {@link BookWebScraper#refreshGenreTotals(String, GenreStatsStore)}.
+ *
+ * @param genre        the genre refreshed
+ * @param totals       the genre's totals after the refresh
+ * @param results      the "N results" count on its first page
+ * @param pagesFetched listing pages fetched by the refresh
+ * @param pagesChanged pages whose listings changed, appeared or disappeared, and were re-aggregated
+ * @param full         true if the genre had no snapshot and was crawled in full
+ */
+public record GenreRefresh(String genre, PageTotals totals, int results, int pagesFetched, int pagesChanged,
+                           boolean full) {
+}
@@ -0,0 +1,46 @@
+package net.neological.webscraping.specific;
+
+import net.neological.webscraping.ScraperProvider;
+import net.neological.webscraping.catalog.BookCatalog;
+import net.neological.webscraping.stats.PriceSummary;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * A scraper of a catalogue organised in genres, scraped from its home page. Scrapers whose
+ * provider reports {@link ScraperProvider#supportsGenres()} implement it.
+ */
+public interface GenreScraper {
+
+    /**
+     * @return the genre names listed on the scraped page
+     */
+    List<String> getAllGenres();
+
+    /**
+     * @param genre the name of the genre to summarize
+     * @return price statistics across the genre's pages (empty if the genre is unknown)
+     * @throws IOException if fetching a page fails
+     */
+    PriceSummary priceSummaryForGenre(String genre) throws IOException;
+
+    /**
+     * @param genre   the name of the genre to catalog
+     * @param catalog the catalog its listings are appended to
+     * @return the number of listings added (0 if the genre is unknown)
+     * @throws IOException if fetching a page fails
+     */
+    int catalogGenre(String genre, BookCatalog catalog) throws IOException;
+
+    /**
+     * Refreshes a genre's price and rating totals against its last snapshot, fetching as few
+     * pages as possible.
+     *
+     * @param genre the name of the genre
+     * @param store where the genre's snapshot is kept; updated when the refresh completes
+     * @return the genre's totals and what the refresh cost
+     * @throws IOException if fetching a page fails; the snapshot is left as it was
+     */
+    GenreRefresh refreshGenreTotals(String genre, GenreStatsStore store) throws IOException;
+}
@@ -0,0 +1,187 @@
+package net.neological.webscraping.specific;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The last known state of each genre's listing pages, for
+ * {@link BookWebScraper#refreshGenreTotals(String, GenreStatsStore)}: the result count, and per
+ * page its URL, a hash of its listings and its totals, plus the genre's aggregated totals.
+ * <p>
+ * Kept in a small tab-separated file so refreshes stay incremental across runs; the default
+ * store lives in {@code ~/.cache/dockerized-webscraper/genre-stats.tsv}. The file is read on
+ * first use and rewritten (atomically) after every update. A store without a file only lives
+ * as long as the JVM.
+ */
+public class GenreStatsStore {
+    private static final Path DEFAULT_FILE = Paths.get(System.getProperty("user.home"),
+            ".cache", "dockerized-webscraper", "genre-stats.tsv");
+
+    /**
+     * One listing page as last seen.
+     *
+     * @param url    where the page was fetched from
+     * @param hash   a hash of the page's listings; equal hashes mean unchanged listings
+     * @param totals the page's totals
+     */
+    public record PageState(String url, long hash, PageTotals totals) {
+    }
+
+    /**
+     * One genre as last seen.
+     *
+     * @param genre         the genre name
+     * @param results       the "N results" count on its first page
+     * @param pages         its listing pages, in order
+     * @param totals        the totals over all pages
+     * @param nextSpotCheck where the next refresh's spot checks start, counting the pages after the first from 0
+     */
+    public record Snapshot(String genre, int results, List<PageState> pages, PageTotals totals, int nextSpotCheck) {
+
+        public Snapshot {
+            pages = List.copyOf(pages);
+        }
+    }
+
+    private final Path file;
+    private Map<String, Snapshot> snapshots;
+
+    /**
+     * A store kept in memory only.
+     */
+    public GenreStatsStore() {
+        this(null);
+    }
+
+    /**
+     * @param file the file snapshots are loaded from and saved to, or null to keep them in memory
+     */
+    public GenreStatsStore(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * @return a store backed by the default file in the user's cache directory
+     */
+    public static GenreStatsStore atDefaultLocation() {
+        return new GenreStatsStore(DEFAULT_FILE);
+    }
+
+    /**
+     * @param genre a genre name
+     * @return its last snapshot, or null if it was never crawled
+     */
+    public synchronized Snapshot get(String genre) {
+        return snapshots().get(genre);
+    }
+
+    /**
+     * Replaces a genre's snapshot and saves the store.
+     *
+     * @param snapshot the genre's new state
+     */
+    public synchronized void put(Snapshot snapshot) {
+        snapshots().put(snapshot.genre(), snapshot);
+        save();
+    }
+
+    /**
+     * @return every genre's snapshot, sorted by genre
+     */
+    public synchronized Map<String, Snapshot> snapshot() {
+        return new TreeMap<>(snapshots());
+    }
+
+    private Map<String, Snapshot> snapshots() {
+        if (snapshots == null) {
+            snapshots = new TreeMap<>();
+            if (file != null && Files.exists(file)) {
+                try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                    load(reader);
+                } catch (IOException | RuntimeException e) {
+                    // An unreadable file just means every genre is crawled in full again
+                    snapshots.clear();
+                }
+            }
+        }
+        return snapshots;
+    }
+
+    /**
+     * Reads {@code genre} lines, each followed by that genre's {@code page} lines.
+     */
+    private void load(BufferedReader reader) throws IOException {
+        String[] genre = null;
+        List<PageState> pages = new ArrayList<>();
+        String line;
+        while ((line = reader.readLine()) != null) {
+            String[] fields = line.split("\t", -1);
+            if (fields[0].equals("genre") && fields.length == 7) {
+                addSnapshot(genre, pages);
+                genre = fields;
+                pages = new ArrayList<>();
+            } else if (fields[0].equals("page") && fields.length == 6 && genre != null) {
+                pages.add(new PageState(fields[1], Long.parseLong(fields[2]), totals(fields, 3)));
+            }
+        }
+        addSnapshot(genre, pages);
+    }
+
+    private void addSnapshot(String[] genre, List<PageState> pages) {
+        if (genre != null) {
+            snapshots.put(genre[1], new Snapshot(genre[1], Integer.parseInt(genre[2]), pages, totals(genre, 3),
+                    Integer.parseInt(genre[6])));
+        }
+    }
+
+    private static PageTotals totals(String[] fields, int from) {
+        return new PageTotals(Integer.parseInt(fields[from]), Double.parseDouble(fields[from + 1]),
+                Double.parseDouble(fields[from + 2]));
+    }
+
+    private void save() {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+            Path temp = Files.createTempFile(file.toAbsolutePath().getParent(), "genre-stats", ".tmp");
+            try {
+                try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                    for (Snapshot snapshot : snapshots.values()) {
+                        writer.write("genre\t" + snapshot.genre() + "\t" + snapshot.results() + "\t"
+                                + totalsFields(snapshot.totals()) + "\t" + snapshot.nextSpotCheck() + "\n");
+                        for (PageState page : snapshot.pages()) {
+                            writer.write("page\t" + page.url() + "\t" + page.hash() + "\t" + totalsFields(page.totals()) + "\n");
+                        }
+                    }
+                }
+                try {
+                    Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch (IOException e) {
+            // The snapshot still holds for this run; the next one crawls the genre in full
+        }
+    }
+
+    private static String totalsFields(PageTotals totals) {
+        // Double.toString round-trips exactly
+        return totals.books() + "\t" + totals.priceSum() + "\t" + totals.ratingSum();
+    }
+}
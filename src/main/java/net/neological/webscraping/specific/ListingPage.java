@@ -0,0 +1,21 @@
+package net.neological.webscraping.specific;
+
+import org.jsoup.nodes.Document;
+
+/**
+ * One books.toscrape.com listing page moving through a pipeline.
+ *
+ * @param genre    the genre the page belongs to
+ * @param url      the page URL
+ * @param document the parsed page, or null until it has been fetched
+ */
+public record ListingPage(String genre, String url, Document document) {
+
+    /**
+     * @param fetched the parsed page
+     * @return this page, fetched
+     */
+    public ListingPage withDocument(Document fetched) {
+        return new ListingPage(genre, url, fetched);
+    }
+}
@@ -0,0 +1,44 @@
+package net.neological.webscraping.specific;
+
+/**
+ * Sums extracted from one or more book-listing pages, combinable in any grouping.
+ *
+ * @param books     number of listings
+ * @param priceSum  sum of listed prices, in GBP
+ * @param ratingSum sum of star ratings
+ */
+public record PageTotals(int books, double priceSum, double ratingSum) {
+
+    /** Totals of no pages. */
+    public static final PageTotals EMPTY = new PageTotals(0, 0.0, 0.0);
+
+    /**
+     * @param other totals of the pages that follow these
+     * @return the totals of both page sets
+     */
+    public PageTotals combine(PageTotals other) {
+        return new PageTotals(books + other.books, priceSum + other.priceSum, ratingSum + other.ratingSum);
+    }
+
+    /**
+     * @param other totals of pages contained in these
+     * @return the totals without those pages
+     */
+    public PageTotals minus(PageTotals other) {
+        return new PageTotals(books - other.books, priceSum - other.priceSum, ratingSum - other.ratingSum);
+    }
+
+    /**
+     * @return the average price per listing, or 0.0 if empty
+     */
+    public double averagePrice() {
+        return books > 0 ? priceSum / books : 0.0;
+    }
+
+    /**
+     * @return the average rating per listing, or 0.0 if empty
+     */
+    public double averageRating() {
+        return books > 0 ? ratingSum / books : 0.0;
+    }
+}
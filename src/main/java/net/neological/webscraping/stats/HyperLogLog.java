@@ -0,0 +1,102 @@
+package net.neological.webscraping.stats;
+
+import net.neological.webscraping.Hashing;
+
+/**
+ * HyperLogLog cardinality estimator for counting distinct strings (e.g. book titles)
+ * in a fixed {@code 2^precision} bytes of memory. Merging two sketches takes the
+ * register-wise maximum, so per-genre or per-worker sketches can be combined freely.
+ */
+public class HyperLogLog {
+    private static final int DEFAULT_PRECISION = 14;
+
+    private final int precision;
+    private final byte[] registers;
+
+    /**
+     * Creates a sketch with 2^14 registers (16 KiB, roughly 0.8% standard error).
+     */
+    public HyperLogLog() {
+        this(DEFAULT_PRECISION);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param precision number of index bits, between 4 and 18
+     */
+    public HyperLogLog(int precision) {
+        if (precision < 4 || precision > 18) {
+            throw new IllegalArgumentException("precision must be between 4 and 18: " + precision);
+        }
+        this.precision = precision;
+        this.registers = new byte[1 << precision];
+    }
+
+    /**
+     * Offers a value to the sketch. Null values are ignored.
+     *
+     * @param value the value to count
+     */
+    public void add(String value) {
+        if (value == null) {
+            return;
+        }
+        addHash(Hashing.hash64(value));
+    }
+
+    /**
+     * Offers a pre-computed 64-bit hash to the sketch.
+     *
+     * @param hash a well-mixed 64-bit hash
+     */
+    public void addHash(long hash) {
+        int index = (int) (hash >>> (64 - precision));
+        long rest = hash << precision;
+        // Position of the leftmost 1-bit in the remaining bits, capped when they are all zero
+        int rank = rest == 0 ? 64 - precision + 1 : Long.numberOfLeadingZeros(rest) + 1;
+        if (rank > registers[index]) {
+            registers[index] = (byte) rank;
+        }
+    }
+
+    /**
+     * Folds another sketch of the same precision into this one.
+     *
+     * @param other the sketch to merge
+     * @throws IllegalArgumentException if the precisions differ
+     */
+    public void merge(HyperLogLog other) {
+        if (other.precision != precision) {
+            throw new IllegalArgumentException("Cannot merge HyperLogLog sketches with different precision");
+        }
+        for (int i = 0; i < registers.length; i++) {
+            if (other.registers[i] > registers[i]) {
+                registers[i] = other.registers[i];
+            }
+        }
+    }
+
+    /**
+     * @return the estimated number of distinct values offered
+     */
+    public long estimate() {
+        int m = registers.length;
+        double sum = 0;
+        int zeros = 0;
+        for (byte r : registers) {
+            sum += 1.0 / (1L << r);
+            if (r == 0) {
+                zeros++;
+            }
+        }
+        double alpha = 0.7213 / (1 + 1.079 / m);
+        double raw = alpha * m * (double) m / sum;
+
+        // Small-range correction: fall back to linear counting while registers are sparse
+        if (raw <= 2.5 * m && zeros > 0) {
+            return Math.round(m * Math.log((double) m / zeros));
+        }
+        return Math.round(raw);
+    }
+}
@@ -0,0 +1,198 @@
+package net.neological.webscraping.stats;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+
+/**
+ * Fork-join engine that runs a page extractor over many cached or stored pages in parallel.
+ * <p>
+ * The input list is split in halves down to {@code leafSize} pages; each leaf loads and
+ * extracts its pages left to right, and partial results are always combined as
+ * {@code combine(left, right)}. The shape of the split depends only on the list size, so
+ * floating-point sums are added in the same order on every run, whatever the pool size.
+ */
+public class ParallelAggregator {
+    /** Default number of pages handled by one leaf task. */
+    public static final int DEFAULT_LEAF_SIZE = 8;
+
+    private final ForkJoinPool pool;
+    private final int leafSize;
+
+    /**
+     * Creates an aggregator on the common pool with the default leaf size.
+     */
+    public ParallelAggregator() {
+        this(ForkJoinPool.commonPool(), DEFAULT_LEAF_SIZE);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param pool     the pool to run on
+     * @param leafSize maximum number of pages per leaf task
+     */
+    public ParallelAggregator(ForkJoinPool pool, int leafSize) {
+        if (leafSize <= 0) {
+            throw new IllegalArgumentException("leafSize must be positive: " + leafSize);
+        }
+        this.pool = pool;
+        this.leafSize = leafSize;
+    }
+
+    /**
+     * Loads a page from some stored representation.
+     *
+     * @param <S> the source type (e.g. an in-memory Document or a file path)
+     */
+    @FunctionalInterface
+    public interface PageSource<S> {
+        Document load(S source) throws IOException;
+
+        /**
+         * @return a source for pages that are already parsed
+         */
+        static PageSource<Document> documents() {
+            return document -> document;
+        }
+
+        /**
+         * @return a source that parses stored UTF-8 HTML files, using the file URI as base
+         */
+        static PageSource<Path> files() {
+            return path -> Jsoup.parse(path.toFile(), "UTF-8", path.toUri().toString());
+        }
+    }
+
+    /**
+     * Extracts a partial result from every page and combines them in list order.
+     *
+     * @param sources   the pages (or their stored forms) to aggregate
+     * @param loader    turns each source into a Document
+     * @param extractor computes a partial result for one page; must be thread-safe
+     * @param identity  the result for no pages
+     * @param combiner  combines two partial results; must be associative
+     * @param <S>       the source type
+     * @param <T>       the result type
+     * @return the combined result
+     * @throws IOException if any page fails to load
+     */
+    public <S, T> T aggregate(List<S> sources,
+                              PageSource<S> loader,
+                              Function<Document, T> extractor,
+                              T identity,
+                              BinaryOperator<T> combiner) throws IOException {
+        return aggregateOn(pool, sources, loader, extractor, identity, combiner);
+    }
+
+    /**
+     * Runs the same aggregation on pools of increasing size and reports the speedup of each
+     * over a single worker. One untimed warm-up run is done first, then a
+     * single-worker baseline.
+     *
+     * @param parallelisms the pool sizes to try (e.g. 1, 2, 4, 8, 16)
+     * @return the timing of each pool size
+     * @throws IOException if any page fails to load
+     */
+    public <S, T> SpeedupReport measureSpeedup(List<S> sources,
+                                               PageSource<S> loader,
+                                               Function<Document, T> extractor,
+                                               T identity,
+                                               BinaryOperator<T> combiner,
+                                               int... parallelisms) throws IOException {
+        aggregateOn(pool, sources, loader, extractor, identity, combiner);
+
+        long baselineNanos = timeOn(1, sources, loader, extractor, identity, combiner);
+        List<SpeedupReport.Entry> entries = new ArrayList<>();
+        for (int parallelism : parallelisms) {
+            long elapsed = parallelism == 1
+                    ? baselineNanos
+                    : timeOn(parallelism, sources, loader, extractor, identity, combiner);
+            entries.add(new SpeedupReport.Entry(parallelism, elapsed, (double) baselineNanos / elapsed));
+        }
+        return new SpeedupReport(sources.size(), entries);
+    }
+
+    private <S, T> long timeOn(int parallelism,
+                               List<S> sources,
+                               PageSource<S> loader,
+                               Function<Document, T> extractor,
+                               T identity,
+                               BinaryOperator<T> combiner) throws IOException {
+        ForkJoinPool sized = new ForkJoinPool(parallelism);
+        try {
+            long start = System.nanoTime();
+            aggregateOn(sized, sources, loader, extractor, identity, combiner);
+            return System.nanoTime() - start;
+        } finally {
+            sized.shutdown();
+        }
+    }
+
+    private <S, T> T aggregateOn(ForkJoinPool target,
+                                 List<S> sources,
+                                 PageSource<S> loader,
+                                 Function<Document, T> extractor,
+                                 T identity,
+                                 BinaryOperator<T> combiner) throws IOException {
+        try {
+            return target.invoke(new AggregateTask<>(sources, 0, sources.size(), loader, extractor, identity, combiner));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private class AggregateTask<S, T> extends RecursiveTask<T> {
+        private static final long serialVersionUID = 1L;
+
+        private final List<S> sources;
+        private final int from;
+        private final int to;
+        private final PageSource<S> loader;
+        private final Function<Document, T> extractor;
+        private final T identity;
+        private final BinaryOperator<T> combiner;
+
+        AggregateTask(List<S> sources, int from, int to, PageSource<S> loader,
+                      Function<Document, T> extractor, T identity, BinaryOperator<T> combiner) {
+            this.sources = sources;
+            this.from = from;
+            this.to = to;
+            this.loader = loader;
+            this.extractor = extractor;
+            this.identity = identity;
+            this.combiner = combiner;
+        }
+
+        @Override
+        protected T compute() {
+            if (to - from <= leafSize) {
+                T result = identity;
+                for (int i = from; i < to; i++) {
+                    try {
+                        result = combiner.apply(result, extractor.apply(loader.load(sources.get(i))));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+                return result;
+            }
+
+            int mid = (from + to) >>> 1;
+            AggregateTask<S, T> left = new AggregateTask<>(sources, from, mid, loader, extractor, identity, combiner);
+            AggregateTask<S, T> right = new AggregateTask<>(sources, mid, to, loader, extractor, identity, combiner);
+            right.fork();
+            T leftResult = left.compute();
+            return combiner.apply(leftResult, right.join());
+        }
+    }
+}
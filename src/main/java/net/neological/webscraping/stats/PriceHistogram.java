@@ -0,0 +1,130 @@
+package net.neological.webscraping.stats;
+
+/**
+ * Fixed-bucket histogram backed by a primitive {@code long[]}. Buckets are equal-width
+ * over {@code [lowerBound, upperBound)}; values outside the range are counted in
+ * dedicated underflow/overflow counters so nothing is silently dropped.
+ * <p>
+ * Two histograms can be merged only if they share the same bucket layout.
+ */
+public class PriceHistogram {
+    private final double lowerBound;
+    private final double upperBound;
+    private final double bucketWidth;
+    private final long[] counts;
+    private long underflow;
+    private long overflow;
+
+    /**
+     * Constructor.
+     *
+     * @param lowerBound  inclusive lower bound of the first bucket
+     * @param upperBound  exclusive upper bound of the last bucket
+     * @param bucketCount number of equal-width buckets
+     */
+    public PriceHistogram(double lowerBound, double upperBound, int bucketCount) {
+        if (!(upperBound > lowerBound)) {
+            throw new IllegalArgumentException("upperBound must be greater than lowerBound");
+        }
+        if (bucketCount <= 0) {
+            throw new IllegalArgumentException("bucketCount must be positive: " + bucketCount);
+        }
+        this.lowerBound = lowerBound;
+        this.upperBound = upperBound;
+        this.bucketWidth = (upperBound - lowerBound) / bucketCount;
+        this.counts = new long[bucketCount];
+    }
+
+    /**
+     * Records a single value. NaN values are ignored.
+     *
+     * @param value the value to record
+     */
+    public void update(double value) {
+        if (Double.isNaN(value)) {
+            return;
+        }
+        if (value < lowerBound) {
+            underflow++;
+        } else if (value >= upperBound) {
+            overflow++;
+        } else {
+            int bucket = (int) ((value - lowerBound) / bucketWidth);
+            // Guard against rounding pushing the top edge into a non-existent bucket
+            counts[Math.min(bucket, counts.length - 1)]++;
+        }
+    }
+
+    /**
+     * Adds the counts of another histogram with an identical layout into this one.
+     *
+     * @param other the histogram to merge
+     * @throws IllegalArgumentException if the bucket layouts differ
+     */
+    public void merge(PriceHistogram other) {
+        if (other.lowerBound != lowerBound || other.upperBound != upperBound
+                || other.counts.length != counts.length) {
+            throw new IllegalArgumentException("Cannot merge histograms with different bucket layouts");
+        }
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        underflow += other.underflow;
+        overflow += other.overflow;
+    }
+
+    /**
+     * @return the number of buckets (excluding underflow and overflow)
+     */
+    public int bucketCount() {
+        return counts.length;
+    }
+
+    /**
+     * @param bucket bucket index
+     * @return the number of values recorded in that bucket
+     */
+    public long count(int bucket) {
+        return counts[bucket];
+    }
+
+    /**
+     * @param bucket bucket index
+     * @return the inclusive lower edge of that bucket
+     */
+    public double bucketLowerEdge(int bucket) {
+        return lowerBound + bucket * bucketWidth;
+    }
+
+    /**
+     * @return the number of values below {@code lowerBound}
+     */
+    public long underflow() {
+        return underflow;
+    }
+
+    /**
+     * @return the number of values at or above {@code upperBound}
+     */
+    public long overflow() {
+        return overflow;
+    }
+
+    /**
+     * @return the total number of values recorded, including underflow and overflow
+     */
+    public long totalCount() {
+        long total = underflow + overflow;
+        for (long c : counts) {
+            total += c;
+        }
+        return total;
+    }
+
+    /**
+     * @return a copy of the per-bucket counts
+     */
+    public long[] counts() {
+        return counts.clone();
+    }
+}
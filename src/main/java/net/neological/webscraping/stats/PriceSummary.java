@@ -0,0 +1,125 @@
+package net.neological.webscraping.stats;
+
+/**
+ * Constant-memory summary of a stream of book listings: count and sum for exact means,
+ * a {@link QuantileSketch} for medians and tail percentiles, a {@link PriceHistogram}
+ * and a {@link HyperLogLog} of titles for distinct counts.
+ * <p>
+ * Summaries are built per page and {@link #merge merged} across pages, genres or
+ * parallel workers. Instances are not thread-safe.
+ */
+public class PriceSummary {
+    /**
+     * Default histogram range, £0–£100. books.toscrape.com prices fall between £10 and £60,
+     * so pricier listings still land in buckets rather than the overflow counter.
+     */
+    public static final double DEFAULT_HISTOGRAM_MIN = 0.0;
+    public static final double DEFAULT_HISTOGRAM_MAX = 100.0;
+    public static final int DEFAULT_HISTOGRAM_BUCKETS = 20;
+
+    private final QuantileSketch quantiles;
+    private final PriceHistogram histogram;
+    private final HyperLogLog distinctTitles;
+    private long count;
+    private double sum;
+
+    /**
+     * Creates a summary with default sketch sizes and a £0–£100 histogram in £5 buckets.
+     */
+    public PriceSummary() {
+        this(new QuantileSketch(),
+                new PriceHistogram(DEFAULT_HISTOGRAM_MIN, DEFAULT_HISTOGRAM_MAX, DEFAULT_HISTOGRAM_BUCKETS),
+                new HyperLogLog());
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param quantiles      an empty quantile sketch
+     * @param histogram      an empty histogram
+     * @param distinctTitles an empty distinct-count sketch
+     */
+    public PriceSummary(QuantileSketch quantiles, PriceHistogram histogram, HyperLogLog distinctTitles) {
+        this.quantiles = quantiles;
+        this.histogram = histogram;
+        this.distinctTitles = distinctTitles;
+    }
+
+    /**
+     * Records one listing.
+     *
+     * @param title the book title (may be null if not available)
+     * @param price the listed price; NaN prices are counted towards distinct titles only
+     */
+    public void add(String title, double price) {
+        distinctTitles.add(title);
+        if (Double.isNaN(price)) {
+            return;
+        }
+        count++;
+        sum += price;
+        quantiles.update(price);
+        histogram.update(price);
+    }
+
+    /**
+     * Folds another summary into this one.
+     *
+     * @param other the summary to merge
+     */
+    public void merge(PriceSummary other) {
+        count += other.count;
+        sum += other.sum;
+        quantiles.merge(other.quantiles);
+        histogram.merge(other.histogram);
+        distinctTitles.merge(other.distinctTitles);
+    }
+
+    /**
+     * @return the number of priced listings recorded
+     */
+    public long count() {
+        return count;
+    }
+
+    /**
+     * @return the exact mean price, or 0.0 if nothing was recorded
+     */
+    public double mean() {
+        return count > 0 ? sum / count : 0.0;
+    }
+
+    /**
+     * @return the estimated median price
+     */
+    public double median() {
+        return quantiles.quantile(0.5);
+    }
+
+    /**
+     * @param q the quantile in [0, 1]
+     * @return the estimated price at that quantile
+     */
+    public double quantile(double q) {
+        return quantiles.quantile(q);
+    }
+
+    /**
+     * @return the estimated number of distinct titles seen
+     */
+    public long distinctTitles() {
+        return distinctTitles.estimate();
+    }
+
+    public QuantileSketch getQuantiles() {
+        return quantiles;
+    }
+
+    public PriceHistogram getHistogram() {
+        return histogram;
+    }
+
+    public HyperLogLog getDistinctTitles() {
+        return distinctTitles;
+    }
+}
@@ -0,0 +1,222 @@
+package net.neological.webscraping.stats;
+
+import java.util.Arrays;
+
+/**
+ * Mergeable streaming quantile sketch in the style of KLL (Karnin, Lang, Liberty).
+ * Values are kept in a stack of compactors held in primitive arrays; whenever a level
+ * overflows it is sorted and every other value is promoted to the next level with
+ * double weight. Memory is bounded by roughly {@code 3k} doubles regardless of how
+ * many values are added.
+ * <p>
+ * Compaction alternates between keeping the even and the odd positions instead of
+ * flipping a random coin, so the same input always yields the same estimates.
+ * Instances are not thread-safe; give each worker its own sketch and {@link #merge} them.
+ */
+public class QuantileSketch {
+    private static final int DEFAULT_K = 200;
+    private static final double DECAY = 2.0 / 3.0;
+
+    private final int k;
+    private double[][] levels;
+    private int[] sizes;
+    private boolean[] keepOdd;
+    private long count;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    /**
+     * Creates a sketch with the default accuracy parameter (k = 200, roughly 1.5% rank error).
+     */
+    public QuantileSketch() {
+        this(DEFAULT_K);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param k accuracy parameter; larger values give tighter estimates at the cost of memory
+     */
+    public QuantileSketch(int k) {
+        if (k < 8) {
+            throw new IllegalArgumentException("k must be at least 8: " + k);
+        }
+        this.k = k;
+        this.levels = new double[][]{new double[k]};
+        this.sizes = new int[1];
+        this.keepOdd = new boolean[1];
+    }
+
+    /**
+     * Adds a single value to the sketch. NaN values are ignored.
+     *
+     * @param value the value to add
+     */
+    public void update(double value) {
+        if (Double.isNaN(value)) {
+            return;
+        }
+        count++;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+        append(0, value);
+        compress();
+    }
+
+    /**
+     * Folds another sketch into this one. The other sketch is left unchanged.
+     *
+     * @param other the sketch to merge
+     */
+    public void merge(QuantileSketch other) {
+        if (other.count == 0) {
+            return;
+        }
+        for (int h = 0; h < other.levels.length; h++) {
+            for (int i = 0; i < other.sizes[h]; i++) {
+                append(h, other.levels[h][i]);
+            }
+        }
+        count += other.count;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+        compress();
+    }
+
+    /**
+     * Estimates the value at the given quantile.
+     *
+     * @param q the quantile in [0, 1] (e.g. 0.5 for the median, 0.99 for p99)
+     * @return the estimated value, or NaN if the sketch is empty
+     */
+    public double quantile(double q) {
+        if (q < 0 || q > 1) {
+            throw new IllegalArgumentException("Quantile must be in [0, 1]: " + q);
+        }
+        if (count == 0) {
+            return Double.NaN;
+        }
+        if (q == 0) {
+            return min;
+        }
+        if (q == 1) {
+            return max;
+        }
+
+        // Sort a copy of each level, then walk the levels in value order as in a merge; an item
+        // at level h stands for 2^h values
+        int retained = 0;
+        for (int size : sizes) {
+            retained += size;
+        }
+        double[] values = new double[retained];
+        int[] next = new int[levels.length];
+        int[] end = new int[levels.length];
+        long totalWeight = 0;
+        int n = 0;
+        for (int h = 0; h < levels.length; h++) {
+            System.arraycopy(levels[h], 0, values, n, sizes[h]);
+            Arrays.sort(values, n, n + sizes[h]);
+            next[h] = n;
+            n += sizes[h];
+            end[h] = n;
+            totalWeight += (long) sizes[h] << h;
+        }
+
+        double target = q * totalWeight;
+        long cumulative = 0;
+        while (true) {
+            int lowest = -1;
+            for (int h = 0; h < levels.length; h++) {
+                if (next[h] < end[h] && (lowest < 0 || Double.compare(values[next[h]], values[next[lowest]]) < 0)) {
+                    lowest = h;
+                }
+            }
+            if (lowest < 0) {
+                return max;
+            }
+            cumulative += 1L << lowest;
+            if (cumulative >= target) {
+                return values[next[lowest]];
+            }
+            next[lowest]++;
+        }
+    }
+
+    /**
+     * @return the number of values added (including those folded in by merges)
+     */
+    public long count() {
+        return count;
+    }
+
+    /**
+     * @return the smallest value seen, or NaN if empty
+     */
+    public double min() {
+        return count == 0 ? Double.NaN : min;
+    }
+
+    /**
+     * @return the largest value seen, or NaN if empty
+     */
+    public double max() {
+        return count == 0 ? Double.NaN : max;
+    }
+
+    private void append(int level, double value) {
+        ensureLevel(level);
+        if (sizes[level] == levels[level].length) {
+            levels[level] = Arrays.copyOf(levels[level], levels[level].length * 2);
+        }
+        levels[level][sizes[level]++] = value;
+    }
+
+    private void ensureLevel(int level) {
+        if (level < levels.length) {
+            return;
+        }
+        int height = level + 1;
+        levels = Arrays.copyOf(levels, height);
+        sizes = Arrays.copyOf(sizes, height);
+        keepOdd = Arrays.copyOf(keepOdd, height);
+        for (int h = 0; h < height; h++) {
+            if (levels[h] == null) {
+                levels[h] = new double[capacity(h)];
+            }
+        }
+    }
+
+    /**
+     * Capacity of a level: the top level holds k items, each lower level 2/3 of the one above.
+     */
+    private int capacity(int level) {
+        int depth = levels.length - 1 - level;
+        return Math.max(2, (int) Math.ceil(k * Math.pow(DECAY, depth)));
+    }
+
+    private void compress() {
+        for (int h = 0; h < levels.length; h++) {
+            if (sizes[h] >= capacity(h)) {
+                compact(h);
+            }
+        }
+    }
+
+    private void compact(int level) {
+        double[] items = levels[level];
+        int size = sizes[level];
+        Arrays.sort(items, 0, size);
+
+        // An odd item out stays behind so the promoted weight is exact
+        int start = (size & 1) == 1 ? 1 : 0;
+        int offset = keepOdd[level] ? 1 : 0;
+        keepOdd[level] = !keepOdd[level];
+
+        ensureLevel(level + 1);
+        for (int i = start + offset; i < size; i += 2) {
+            append(level + 1, items[i]);
+        }
+        sizes[level] = start;
+    }
+}
@@ -0,0 +1,234 @@
+package net.neological.webscraping.stats;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Bloom filter that grows as items are added (Almeida et al., "Scalable Bloom Filters").
+ * Items go into the newest layer; when it has taken its capacity a new layer twice as large,
+ * with half the false-positive rate, is started. The overall false-positive rate therefore
+ * stays below twice the initial one however many items are added, and memory grows with the
+ * item count instead of having to be sized up front.
+ * <p>
+ * Bits are kept in plain {@code long[]} words, about {@code 1.44 * log2(1/p)} bits per item.
+ * Instances are not thread-safe.
+ */
+public class ScalableBloomFilter {
+    private static final int MAGIC = 0x53424631; // "SBF1"
+    private static final int GROWTH = 2;
+    private static final double TIGHTENING = 0.5;
+
+    private final long initialCapacity;
+    private final double falsePositiveRate;
+    private final List<Layer> layers = new ArrayList<>();
+    private long count;
+
+    /**
+     * @param initialCapacity   items the first layer is sized for
+     * @param falsePositiveRate target rate for the first layer, e.g. 1e-6
+     */
+    public ScalableBloomFilter(long initialCapacity, double falsePositiveRate) {
+        if (initialCapacity < 1) {
+            throw new IllegalArgumentException("initialCapacity must be positive: " + initialCapacity);
+        }
+        if (!(falsePositiveRate > 0 && falsePositiveRate < 1)) {
+            throw new IllegalArgumentException("falsePositiveRate must be between 0 and 1: " + falsePositiveRate);
+        }
+        this.initialCapacity = initialCapacity;
+        this.falsePositiveRate = falsePositiveRate;
+        layers.add(new Layer(initialCapacity, falsePositiveRate));
+    }
+
+    /**
+     * Adds a pre-computed 64-bit hash.
+     *
+     * @param hash a well-mixed 64-bit hash, e.g. from {@link net.neological.webscraping.Hashing#hash64(String)}
+     * @return false if the filter (probably) already contained it
+     */
+    public boolean add(long hash) {
+        if (mightContain(hash)) {
+            return false;
+        }
+        put(hash);
+        return true;
+    }
+
+    /**
+     * Adds a hash the caller knows to be new, e.g. after checking an exact set, even if the
+     * filter already reports it as present. It then counts towards {@link #count()} and the
+     * growth of the filter like any other item.
+     *
+     * @param hash a well-mixed 64-bit hash
+     */
+    public void put(long hash) {
+        Layer current = layers.get(layers.size() - 1);
+        if (current.count >= current.capacity) {
+            current = new Layer(current.capacity * GROWTH, current.falsePositiveRate * TIGHTENING);
+            layers.add(current);
+        }
+        current.add(hash);
+        count++;
+    }
+
+    /**
+     * @param hash a well-mixed 64-bit hash
+     * @return false if the hash was definitely never added
+     */
+    public boolean mightContain(long hash) {
+        // Newest layer first: recently added items are the likeliest to come up again
+        for (int i = layers.size() - 1; i >= 0; i--) {
+            if (layers.get(i).mightContain(hash)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return items added (not counting ones {@link #add(long)} reported as present)
+     */
+    public long count() {
+        return count;
+    }
+
+    /**
+     * @return bytes held by the bit arrays
+     */
+    public long memoryBytes() {
+        long bytes = 0;
+        for (Layer layer : layers) {
+            bytes += (long) layer.words.length * Long.BYTES;
+        }
+        return bytes;
+    }
+
+    /**
+     * @return number of layers so far
+     */
+    public int layerCount() {
+        return layers.size();
+    }
+
+    /**
+     * Estimates the current false-positive rate from how full each layer actually is:
+     * a query is a false positive if any layer matches it.
+     *
+     * @return the probability that a never-added hash is reported as present
+     */
+    public double expectedFalsePositiveRate() {
+        double allMiss = 1.0;
+        for (Layer layer : layers) {
+            allMiss *= 1.0 - layer.currentFalsePositiveRate();
+        }
+        return 1.0 - allMiss;
+    }
+
+    /**
+     * Writes the filter in a compact binary form.
+     *
+     * @param out the stream to write to
+     */
+    public void writeTo(DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeLong(initialCapacity);
+        out.writeDouble(falsePositiveRate);
+        out.writeLong(count);
+        out.writeInt(layers.size());
+        for (Layer layer : layers) {
+            out.writeLong(layer.capacity);
+            out.writeDouble(layer.falsePositiveRate);
+            out.writeLong(layer.count);
+            out.writeInt(layer.words.length);
+            for (long word : layer.words) {
+                out.writeLong(word);
+            }
+        }
+    }
+
+    /**
+     * Reads a filter written by {@link #writeTo(DataOutputStream)}.
+     *
+     * @param in the stream to read from
+     * @return the filter
+     * @throws IOException if the data is not a filter or is truncated
+     */
+    public static ScalableBloomFilter readFrom(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a Bloom filter");
+        }
+        ScalableBloomFilter filter = new ScalableBloomFilter(in.readLong(), in.readDouble());
+        filter.count = in.readLong();
+        int layerCount = in.readInt();
+        filter.layers.clear();
+        for (int i = 0; i < layerCount; i++) {
+            Layer layer = new Layer(in.readLong(), in.readDouble());
+            layer.count = in.readLong();
+            int words = in.readInt();
+            if (words != layer.words.length) {
+                throw new IOException("Bloom filter layer " + i + " has " + words + " words, expected " + layer.words.length);
+            }
+            for (int w = 0; w < words; w++) {
+                layer.words[w] = in.readLong();
+            }
+            filter.layers.add(layer);
+        }
+        return filter;
+    }
+
+    /**
+     * One fixed-size Bloom filter. Bit positions come from double hashing
+     * ({@code h1 + i * h2}), which is as good as k independent hashes.
+     */
+    private static final class Layer {
+        final long capacity;
+        final double falsePositiveRate;
+        final long bits;
+        final int hashes;
+        final long[] words;
+        long count;
+
+        Layer(long capacity, double falsePositiveRate) {
+            this.capacity = capacity;
+            this.falsePositiveRate = falsePositiveRate;
+            double ln2 = Math.log(2);
+            long optimalBits = (long) Math.ceil(-capacity * Math.log(falsePositiveRate) / (ln2 * ln2));
+            // Whole words, and within what a long[] can address
+            long wordCount = Math.min((optimalBits + 63) / 64, Integer.MAX_VALUE - 8);
+            this.words = new long[(int) Math.max(1, wordCount)];
+            this.bits = (long) words.length * 64;
+            this.hashes = Math.max(1, (int) Math.round((double) bits / capacity * ln2));
+        }
+
+        void add(long hash) {
+            long h2 = secondHash(hash);
+            for (int i = 0; i < hashes; i++) {
+                long bit = Math.floorMod(hash + i * h2, bits);
+                words[(int) (bit >>> 6)] |= 1L << bit;
+            }
+            count++;
+        }
+
+        boolean mightContain(long hash) {
+            long h2 = secondHash(hash);
+            for (int i = 0; i < hashes; i++) {
+                long bit = Math.floorMod(hash + i * h2, bits);
+                if ((words[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        double currentFalsePositiveRate() {
+            return Math.pow(1.0 - Math.exp(-(double) hashes * count / bits), hashes);
+        }
+
+        private static long secondHash(long hash) {
+            // Odd, so successive probes never cycle early
+            return (Long.rotateLeft(hash, 32) * 0x9E3779B97F4A7C15L) | 1L;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package net.neological.webscraping.stats;
+
+import java.util.List;
+
+/**
+ * Wall-clock timings of one aggregation run on pools of different sizes.
+ *
+ * @param pages   the number of pages aggregated in each run
+ * @param entries one entry per pool size, in the order they were run
+ */
+public record SpeedupReport(int pages, List<Entry> entries) {
+
+    /**
+     * @param parallelism  the pool size
+     * @param elapsedNanos wall-clock time of the run
+     * @param speedup      single-worker time divided by this run's time
+     */
+    public record Entry(int parallelism, long elapsedNanos, double speedup) {
+
+        /**
+         * @return speedup per worker (1.0 is perfect scaling)
+         */
+        public double efficiency() {
+            return speedup / parallelism;
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%d pages%n", pages));
+        sb.append(String.format("%8s %12s %8s %10s%n", "workers", "time (ms)", "speedup", "efficiency"));
+        for (Entry e : entries) {
+            sb.append(String.format("%8d %12.2f %8.2f %9.0f%%%n",
+                    e.parallelism(), e.elapsedNanos() / 1e6, e.speedup(), e.efficiency() * 100));
+        }
+        return sb.toString();
+    }
+}
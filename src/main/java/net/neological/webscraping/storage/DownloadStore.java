@@ -0,0 +1,649 @@
+package net.neological.webscraping.storage;
+
+import net.neological.webscraping.FileDownloader;
+import net.neological.webscraping.Hashing;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Crash-safe store for downloaded files. Each download is streamed to a temporary file next to
+ * its destination and renamed into place only once it is complete, so an interrupted download
+ * never leaves a truncated file under the final name.
+ * <p>
+ * Renames are committed in groups: a single committer thread collects the files finished by all
+ * concurrent downloads (up to {@link Options#batchSize()}), fsyncs them, renames them, and then
+ * fsyncs each affected directory and the manifest once for the whole group. Callers of
+ * {@link #store} block until their file is committed.
+ * <p>
+ * Files can be sharded into hashed subdirectories ({@code ab/SER1.csv}) so that no directory
+ * grows to hundreds of thousands of entries, and gzip-compressed as they are written. A
+ * {@code .downloads.manifest} file maps names to stored paths, so lookups never list a directory.
+ * It is appended to as files are committed and rewritten with one line per name once most of its
+ * lines are stale.
+ * <p>
+ * One store is shared per folder; obtain it with {@link #open(Path, Options)}. Each open is a
+ * reference that its caller must {@link #close()}; the committer thread and manifest are released
+ * when the last reference is closed, and stores are refused after that.
+ */
+public final class DownloadStore implements Closeable {
+    public static final String MANIFEST_FILE = ".downloads.manifest";
+
+    private static final Map<Path, DownloadStore> OPEN = new ConcurrentHashMap<>();
+    // Stale manifest lines tolerated before it is rewritten, on top of one per name
+    private static final int COMPACT_SLACK = 1024;
+
+    /**
+     * How files are laid out and synced.
+     *
+     * @param shardLevels  levels of hashed subdirectories, 256 per level (0 keeps the folder flat)
+     * @param compress     whether files are gzip-compressed and stored with a {@code .gz} suffix
+     * @param fsync        whether files, directories and the manifest are fsynced before a store returns
+     * @param batchSize    the most files committed with one round of directory and manifest fsyncs
+     * @param lingerMillis how long the committer waits for more files before committing a partial batch
+     */
+    public record Options(int shardLevels, boolean compress, boolean fsync, int batchSize, long lingerMillis) {
+
+        /** A flat, uncompressed folder with fsynced batches of up to 64 files, as the scrapers write by default. */
+        public static final Options DEFAULT = new Options(0, false, true, 64, 2);
+
+        public Options {
+            if (shardLevels < 0 || shardLevels > 4) {
+                throw new IllegalArgumentException("shardLevels must be in 0..4: " + shardLevels);
+            }
+            if (batchSize < 1) {
+                throw new IllegalArgumentException("batchSize must be at least 1: " + batchSize);
+            }
+            if (lingerMillis < 0) {
+                throw new IllegalArgumentException("lingerMillis must not be negative: " + lingerMillis);
+            }
+        }
+
+        /**
+         * @param shardLevels levels of hashed subdirectories (0 for a flat folder)
+         * @return a copy of these options with the given sharding
+         */
+        public Options withSharding(int shardLevels) {
+            return new Options(shardLevels, compress, fsync, batchSize, lingerMillis);
+        }
+
+        /**
+         * @param compress whether to gzip files as they are written
+         * @return a copy of these options with compression switched on or off
+         */
+        public Options withCompression(boolean compress) {
+            return new Options(shardLevels, compress, fsync, batchSize, lingerMillis);
+        }
+
+        /**
+         * @param fsync whether commits are fsynced
+         * @return a copy of these options with fsync switched on or off
+         */
+        public Options withFsync(boolean fsync) {
+            return new Options(shardLevels, compress, fsync, batchSize, lingerMillis);
+        }
+
+        /**
+         * @param batchSize    the most files per commit
+         * @param lingerMillis how long to wait for a batch to fill
+         * @return a copy of these options with the given batching
+         */
+        public Options withBatch(int batchSize, long lingerMillis) {
+            return new Options(shardLevels, compress, fsync, batchSize, lingerMillis);
+        }
+    }
+
+    /**
+     * A stored file.
+     *
+     * @param name      the name it was stored under, e.g. {@code SER1.csv}
+     * @param path      where it is on disk
+     * @param bytes     its size on disk
+     * @param sourceUrl where it was downloaded from
+     */
+    public record Entry(String name, Path path, long bytes, String sourceUrl) {
+
+        /**
+         * @return true if the file is gzip-compressed
+         */
+        public boolean compressed() {
+            return path.getFileName().toString().endsWith(".gz");
+        }
+    }
+
+    /**
+     * A file that is written and waiting for its commit; the committer thread's shutdown signal
+     * when {@code temp} is null.
+     */
+    private record Pending(Path temp, Entry entry, CompletableFuture<Path> committed) {
+    }
+
+    private static final Pending CLOSE = new Pending(null, null, null);
+
+    private final Path folder;
+    private final Options options;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final ReentrantLock manifestLock = new ReentrantLock();
+    private FileChannel manifest;
+    private int manifestLines;
+    private boolean manifestClosed;
+    private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+    private final Thread committer;
+    private final ReentrantLock lifecycle = new ReentrantLock();
+    private int references = 1;
+    private boolean closed;
+    private final AtomicLong commits = new AtomicLong();
+    private final AtomicLong filesCommitted = new AtomicLong();
+
+    private DownloadStore(Path folder, Options options) throws IOException {
+        this.folder = folder;
+        this.options = options;
+        Files.createDirectories(folder);
+        loadManifest();
+        if (needsCompaction()) {
+            compactManifest();
+        }
+        manifest = openManifest();
+        if (options.fsync() && options.batchSize() > 1) {
+            committer = new Thread(this::commitLoop, "download-store-commit");
+            committer.setDaemon(true);
+            committer.start();
+        } else {
+            committer = null;
+        }
+    }
+
+    /**
+     * Returns the store for a folder, opening it and loading its manifest if no one has it open.
+     * Every call must be paired with a {@link #close()} once the caller is done storing.
+     *
+     * @param folder  the folder files are stored under
+     * @param options the layout and sync options
+     * @return the folder's store
+     * @throws IOException              if the folder or its manifest cannot be opened
+     * @throws IllegalArgumentException if the folder is already open with different options
+     */
+    public static DownloadStore open(Path folder, Options options) throws IOException {
+        Path key = folder.toAbsolutePath().normalize();
+        try {
+            return OPEN.compute(key, (path, open) -> {
+                if (open == null) {
+                    try {
+                        return new DownloadStore(path, options);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+                if (!open.options.equals(options)) {
+                    throw new IllegalArgumentException("Download folder " + path + " is already open with " + open.options);
+                }
+                open.references++;
+                return open;
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Streams a download into the store, replacing any earlier file of the same name, and waits
+     * for it to be committed.
+     *
+     * @param name       the file name, e.g. {@code SER1.csv}; a {@code .gz} suffix is added when compressing
+     * @param sourceUrl  where the bytes come from, for the manifest and progress reporting
+     * @param body       the bytes; read to the end but not closed
+     * @param downloader the downloader the bytes are copied through, for progress and cancellation
+     * @return the committed file
+     * @throws IOException           if the download or the commit fails; nothing is left under the final name then
+     * @throws IllegalStateException if the store has been closed
+     */
+    public Path store(String name, String sourceUrl, InputStream body, FileDownloader downloader) throws IOException {
+        checkOpen();
+        Path target = folder.resolve(relativePath(name));
+        Path directory = Files.createDirectories(target.getParent());
+        Path temp = Files.createTempFile(directory, "." + name + ".", ".part");
+        Pending pending;
+        try {
+            try (OutputStream file = Files.newOutputStream(temp);
+                 OutputStream out = options.compress() ? new GZIPOutputStream(file, 64 * 1024) : file) {
+                downloader.copyCancellable(sourceUrl, body, out);
+            }
+            pending = new Pending(temp, new Entry(name, target, Files.size(temp), sourceUrl), new CompletableFuture<>());
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+
+        lifecycle.lock();
+        try {
+            if (closed) {
+                deleteQuietly(temp);
+                throw closedException();
+            }
+            if (committer != null) {
+                queue.add(pending);
+            }
+        } finally {
+            lifecycle.unlock();
+        }
+        if (committer == null) {
+            commit(List.of(pending));
+        }
+        try {
+            return pending.committed().get();
+        } catch (InterruptedException e) {
+            // The commit still completes; only this caller stops waiting for it
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while committing " + name);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException io ? io : new IOException(e.getCause());
+        }
+    }
+
+    /**
+     * Looks a file up in the manifest, falling back to where the current layout would put it, so
+     * files from before the manifest existed are found too. Never lists a directory.
+     *
+     * @param name the name the file was stored under
+     * @return the stored file, if it is on disk
+     */
+    public Optional<Entry> find(String name) {
+        Entry entry = entries.get(name);
+        if (entry != null && Files.exists(entry.path())) {
+            return Optional.of(entry);
+        }
+        Path expected = folder.resolve(relativePath(name));
+        try {
+            return Files.exists(expected)
+                    ? Optional.of(new Entry(name, expected, Files.size(expected), null))
+                    : Optional.empty();
+        } catch (IOException e) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * @param name the name a file was stored under
+     * @return the file's contents, decompressed if it was stored compressed
+     * @throws java.nio.file.NoSuchFileException if no such file is stored
+     * @throws IOException if it cannot be read
+     */
+    public InputStream openStream(String name) throws IOException {
+        Entry entry = find(name).orElseThrow(() -> new java.nio.file.NoSuchFileException(name));
+        InputStream in = Files.newInputStream(entry.path());
+        return entry.compressed() ? new GZIPInputStream(in, 64 * 1024) : in;
+    }
+
+    /**
+     * @return the number of names in the manifest
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return the number of commits, each with one round of directory and manifest fsyncs
+     */
+    public long getCommits() {
+        return commits.get();
+    }
+
+    /**
+     * @return the number of files committed since the store was opened
+     */
+    public long getFilesCommitted() {
+        return filesCommitted.get();
+    }
+
+    public Options getOptions() {
+        return options;
+    }
+
+    /**
+     * @return true once the last reference to the store has been closed
+     */
+    public boolean isClosed() {
+        lifecycle.lock();
+        try {
+            return closed;
+        } finally {
+            lifecycle.unlock();
+        }
+    }
+
+    /**
+     * Releases this reference to the store. Closing the last one commits any files still
+     * waiting, stops the committer and closes the manifest; the next {@link #open} of the folder
+     * reloads it. Closing a closed store does nothing.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            // Under the map's lock for the folder, like the reference counting in open(), so the
+            // folder is not reopened until this store has committed its last files
+            OPEN.computeIfPresent(folder, (path, open) -> {
+                if (open != this) {
+                    return open;
+                }
+                if (--references > 0) {
+                    return this;
+                }
+                shutDown();
+                return null;
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private void shutDown() {
+        lifecycle.lock();
+        try {
+            closed = true;
+            if (committer != null) {
+                queue.add(CLOSE);
+            }
+        } finally {
+            lifecycle.unlock();
+        }
+        if (committer != null) {
+            try {
+                committer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        manifestLock.lock();
+        try {
+            manifestClosed = true;
+            if (manifest != null) {
+                manifest.close();
+                manifest = null;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            manifestLock.unlock();
+        }
+    }
+
+    /**
+     * @param name a file name
+     * @return where the name is stored relative to the folder, with the shard directories and suffix
+     */
+    String relativePath(String name) {
+        if (name.isEmpty() || name.startsWith(".") || name.indexOf('/') >= 0 || name.indexOf('\\') >= 0
+                || name.indexOf('\t') >= 0 || name.indexOf('\n') >= 0) {
+            throw new IllegalArgumentException("Not a plain file name: " + name);
+        }
+        StringBuilder path = new StringBuilder();
+        long hash = Hashing.hash64(name);
+        for (int level = 0; level < options.shardLevels(); level++) {
+            path.append(String.format("%02x", (hash >>> (56 - 8 * level)) & 0xff)).append('/');
+        }
+        path.append(name);
+        if (options.compress()) {
+            path.append(".gz");
+        }
+        return path.toString();
+    }
+
+    private void commitLoop() {
+        List<Pending> batch = new ArrayList<>();
+        boolean closing = false;
+        while (!closing) {
+            try {
+                Pending first = queue.take();
+                if (first == CLOSE) {
+                    break;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(options.lingerMillis());
+                while (batch.size() < options.batchSize()) {
+                    Pending next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    if (next == CLOSE) {
+                        closing = true;
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                closing = true;
+            }
+            commit(batch);
+            batch.clear();
+        }
+    }
+
+    /**
+     * Fsyncs and renames a group of finished files, then fsyncs their directories and the
+     * manifest once. A file that fails is reported to its own caller only.
+     */
+    private void commit(List<Pending> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        List<Pending> moved = new ArrayList<>(batch.size());
+        Set<Path> directories = new LinkedHashSet<>();
+        StringBuilder lines = new StringBuilder();
+        for (Pending pending : batch) {
+            Path target = pending.entry().path();
+            try {
+                if (options.fsync()) {
+                    try (FileChannel channel = FileChannel.open(pending.temp(), StandardOpenOption.WRITE)) {
+                        channel.force(true);
+                    }
+                }
+                try {
+                    Files.move(pending.temp(), target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(pending.temp(), target, StandardCopyOption.REPLACE_EXISTING);
+                }
+                moved.add(pending);
+                directories.add(target.getParent());
+                appendLine(lines, pending.entry());
+            } catch (IOException e) {
+                deleteQuietly(pending.temp());
+                pending.committed().completeExceptionally(e);
+            }
+        }
+        if (moved.isEmpty()) {
+            return;
+        }
+
+        try {
+            manifestLock.lock();
+            try {
+                if (manifest == null) {
+                    if (manifestClosed) {
+                        throw new IOException("Download store for " + folder + " was closed during the commit");
+                    }
+                    manifest = openManifest();
+                }
+                ByteBuffer bytes = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8));
+                while (bytes.hasRemaining()) {
+                    manifest.write(bytes);
+                }
+                if (options.fsync()) {
+                    manifest.force(false);
+                }
+                manifestLines += moved.size();
+                // Recorded under the lock so that a compaction sees every line written before it
+                for (Pending pending : moved) {
+                    entries.put(pending.entry().name(), pending.entry());
+                }
+                if (needsCompaction()) {
+                    compactManifest();
+                }
+            } finally {
+                manifestLock.unlock();
+            }
+            if (options.fsync()) {
+                directories.add(folder);
+                for (Path directory : directories) {
+                    forceDirectory(directory);
+                }
+            }
+        } catch (IOException e) {
+            // The files are in place; only the manifest entries or their durability are missing
+            for (Pending pending : moved) {
+                pending.committed().completeExceptionally(e);
+            }
+            return;
+        }
+
+        commits.incrementAndGet();
+        filesCommitted.addAndGet(moved.size());
+        for (Pending pending : moved) {
+            pending.committed().complete(pending.entry().path());
+        }
+    }
+
+    private void loadManifest() throws IOException {
+        Path file = folder.resolve(MANIFEST_FILE);
+        if (!Files.exists(file)) {
+            return;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                // name, relative path, bytes, source URL; a torn last line from a crash is skipped
+                manifestLines++;
+                String[] fields = line.split("\t", -1);
+                if (fields.length != 4) {
+                    continue;
+                }
+                try {
+                    entries.put(fields[0], new Entry(fields[0], folder.resolve(fields[1]),
+                            Long.parseLong(fields[2]), fields[3].isEmpty() ? null : fields[3]));
+                } catch (RuntimeException e) {
+                    // Skip a damaged line
+                }
+            }
+        }
+    }
+
+    private boolean needsCompaction() {
+        return manifestLines > 2 * entries.size() + COMPACT_SLACK;
+    }
+
+    /**
+     * Rewrites the manifest with one line per name, replacing the old one atomically. If that
+     * fails the appended manifest is kept; it is only larger, not wrong.
+     */
+    private void compactManifest() {
+        Path file = folder.resolve(MANIFEST_FILE);
+        Path temp = folder.resolve(MANIFEST_FILE + ".compact");
+        StringBuilder lines = new StringBuilder();
+        for (Entry entry : entries.values()) {
+            appendLine(lines, entry);
+        }
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer bytes = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8));
+                while (bytes.hasRemaining()) {
+                    channel.write(bytes);
+                }
+                if (options.fsync()) {
+                    channel.force(false);
+                }
+            }
+            try {
+                Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            deleteQuietly(temp);
+            return;
+        }
+        manifestLines = entries.size();
+        if (options.fsync()) {
+            forceDirectory(folder);
+        }
+        if (manifest != null) {
+            // Still open on the replaced file; the next commit reopens the new one
+            try {
+                manifest.close();
+            } catch (IOException e) {
+                // Nothing was pending on it
+            }
+            manifest = null;
+        }
+    }
+
+    private FileChannel openManifest() throws IOException {
+        return FileChannel.open(folder.resolve(MANIFEST_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private void checkOpen() {
+        if (isClosed()) {
+            throw closedException();
+        }
+    }
+
+    private IllegalStateException closedException() {
+        return new IllegalStateException("Download store for " + folder + " is closed");
+    }
+
+    private void appendLine(StringBuilder lines, Entry entry) {
+        lines.append(entry.name()).append('\t')
+                .append(folder.relativize(entry.path()).toString().replace('\\', '/')).append('\t')
+                .append(entry.bytes()).append('\t')
+                .append(entry.sourceUrl() == null ? "" : entry.sourceUrl()).append('\n');
+    }
+
+    /**
+     * Fsyncs a directory so the renames in it survive a crash. Not every platform can open a
+     * directory for syncing (Windows cannot); there the rename is as durable as the OS makes it.
+     */
+    private static void forceDirectory(Path directory) {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Not supported on this platform
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            // Left for the next run; temp files never shadow a committed name
+        }
+    }
+}
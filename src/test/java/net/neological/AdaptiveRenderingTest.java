@@ -0,0 +1,115 @@
+package net.neological;
+
+import net.neological.webscraping.RenderStrategy;
+import net.neological.webscraping.RenderStrategyStore;
+import net.neological.webscraping.render.RenderedPage;
+import net.neological.webscraping.specific.BookWebScraper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static net.neological.BookFixtures.URL1;
+import static net.neological.BookFixtures.URL2_PAGE1;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for adaptive render-strategy learning. The browser and plain-HTTP fetch paths
+ * are replaced by fixtures so each path's use can be counted.
+ */
+@DisplayName("WebScraper Adaptive Rendering Tests")
+public class AdaptiveRenderingTest {
+
+    private static final String PATTERN = "books.toscrape.com/catalogue/*/*/*/index.html";
+    private static final String EMPTY_SHELL = "<html><body><div id=\"app\"></div></body></html>";
+
+    @TempDir
+    Path cacheDir;
+
+    private final AtomicInteger renders = new AtomicInteger();
+    private final AtomicInteger plainFetches = new AtomicInteger();
+    private boolean plainServesShell;
+    private RenderStrategyStore store;
+
+    @BeforeEach
+    public void setUp() {
+        store = new RenderStrategyStore(cacheDir.resolve("render-strategies.properties"));
+    }
+
+    @Test
+    @DisplayName("Patterns collapse per-genre directories but keep the page name")
+    public void testPatternOf() {
+        assertEquals(PATTERN, RenderStrategyStore.patternOf(URL1));
+        assertEquals(PATTERN, RenderStrategyStore.patternOf(URL2_PAGE1));
+        assertEquals("fred.stlouisfed.org/searchresults",
+                RenderStrategyStore.patternOf("https://fred.stlouisfed.org/searchresults/?st=gdp"));
+    }
+
+    @Test
+    @DisplayName("A static page is learned as PLAIN, remembered across stores, and skips the browser afterwards")
+    public void testStaticPageLearnedAsPlain() throws IOException {
+        BookWebScraper scraper = newScraper();
+        scraper.scrape(URL1);
+        assertEquals(1, renders.get());
+        assertEquals(1, plainFetches.get());
+        assertEquals(RenderStrategy.PLAIN, store.get(PATTERN));
+
+        scraper.scrape(URL2_PAGE1);
+        assertEquals(1, renders.get());
+        assertEquals(2, plainFetches.get());
+        assertEquals(20, scraper.countEntriesPerPage());
+
+        RenderStrategyStore reloaded = new RenderStrategyStore(cacheDir.resolve("render-strategies.properties"));
+        assertEquals(RenderStrategy.PLAIN, reloaded.get(PATTERN));
+    }
+
+    @Test
+    @DisplayName("A page that needs scripts is learned as BROWSER")
+    public void testScriptPageLearnedAsBrowser() throws IOException {
+        plainServesShell = true;
+        BookWebScraper scraper = newScraper();
+        scraper.scrape(URL1);
+        scraper.scrape(URL2_PAGE1);
+
+        assertEquals(RenderStrategy.BROWSER, store.get(PATTERN));
+        assertEquals(2, renders.get());
+        assertEquals(1, plainFetches.get());
+        assertEquals(20, scraper.countEntriesPerPage());
+    }
+
+    @Test
+    @DisplayName("An empty plain extraction re-checks a PLAIN pattern and switches it to BROWSER")
+    public void testExtractionFailureRechecks() throws IOException {
+        store.record(PATTERN, RenderStrategy.PLAIN);
+        plainServesShell = true;
+        BookWebScraper scraper = newScraper();
+
+        scraper.scrape(URL1);
+        assertEquals(RenderStrategy.BROWSER, store.get(PATTERN));
+        assertEquals(11, scraper.countEntriesPerPage());
+    }
+
+    private BookWebScraper newScraper() {
+        BookWebScraper scraper = new BookWebScraper("TestAgent/1.0", 5000) {
+            @Override
+            protected RenderedPage renderPage(String url) throws IOException {
+                renders.incrementAndGet();
+                return new RenderedPage(url, BookFixtures.html(url));
+            }
+
+            @Override
+            protected String fetchPlain(String url) throws IOException {
+                plainFetches.incrementAndGet();
+                return plainServesShell ? EMPTY_SHELL : BookFixtures.html(url);
+            }
+        };
+        scraper.setAdaptiveRendering(true);
+        scraper.setRenderStrategies(store);
+        return scraper;
+    }
+
+}
@@ -0,0 +1,103 @@
+package net.neological;
+
+import net.neological.webscraping.catalog.BookCatalog;
+import net.neological.webscraping.catalog.CatalogAggregate;
+import net.neological.webscraping.specific.BookWebScraper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+
+import static net.neological.BookFixtures.URL1;
+import static net.neological.BookFixtures.URL2_PAGE1;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the columnar book catalog and its queries.
+ */
+@DisplayName("BookCatalog Query & Persistence Tests")
+public class BookCatalogTest {
+
+    @TempDir
+    Path tempDir;
+
+    private BookCatalog catalog;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        BookWebScraper scraper = BookFixtures.scraper();
+
+        catalog = new BookCatalog();
+        scraper.scrape(URL1);
+        assertEquals(11, scraper.catalogGenre("Philosophy", catalog));
+        scraper.scrape(URL2_PAGE1);
+        assertEquals(26, scraper.catalogGenre("Historical Fiction", catalog));
+    }
+
+    @Test
+    @DisplayName("per-genre aggregates match the live genre averages")
+    public void testGroupByGenre() {
+        Map<String, CatalogAggregate> byGenre = catalog.query().groupByGenre();
+
+        assertEquals(2, byGenre.size());
+        assertEquals(11, byGenre.get("Philosophy").count());
+        assertEquals(33.55818, byGenre.get("Philosophy").averagePrice(), 0.0001);
+        assertEquals(2.36364, byGenre.get("Philosophy").averageRating(), 0.0001);
+        assertEquals(26, byGenre.get("Historical Fiction").count());
+        assertEquals(33.64423076923077, byGenre.get("Historical Fiction").averagePrice(), 0.0001);
+        assertEquals(3.230769230769231, byGenre.get("Historical Fiction").averageRating(), 0.0001);
+    }
+
+    @Test
+    @DisplayName("filters narrow by genre, price and rating")
+    public void testFilters() {
+        assertEquals(37, catalog.query().count());
+        assertEquals(0, catalog.query().genre("Poetry").count());
+
+        int[] fiveStar = catalog.query().minRating(5).rows();
+        for (int row : fiveStar) {
+            assertEquals(5, catalog.rating(row));
+        }
+
+        CatalogAggregate cheap = catalog.query().genre("Historical Fiction").maxPricePence(2000).aggregate();
+        assertTrue(cheap.count() < 26);
+        assertTrue(cheap.maxPricePence() <= 2000);
+    }
+
+    @Test
+    @DisplayName("parallel scans agree with sequential ones on a large catalog")
+    public void testParallelScan() {
+        BookCatalog large = new BookCatalog();
+        long expectedSum = 0;
+        for (int i = 0; i < 200_000; i++) {
+            long pence = 1000 + (i * 37L) % 5000;
+            large.add("g" + (i % 50), "t" + i, "u" + i, pence, 1 + i % 5);
+            expectedSum += pence;
+        }
+        CatalogAggregate all = large.query().aggregate();
+        assertEquals(200_000, all.count());
+        assertEquals(expectedSum, all.pricePenceSum());
+        assertEquals(4000, large.query().genre("g7").count());
+    }
+
+    @Test
+    @DisplayName("save and load round-trip every column")
+    public void testSaveLoad() throws IOException {
+        Path file = tempDir.resolve("books.catalog");
+        catalog.save(file);
+        BookCatalog loaded = BookCatalog.load(file);
+
+        assertEquals(catalog.size(), loaded.size());
+        for (int row = 0; row < catalog.size(); row++) {
+            assertEquals(catalog.pricePence(row), loaded.pricePence(row));
+            assertEquals(catalog.rating(row), loaded.rating(row));
+            assertEquals(catalog.genreName(catalog.genreId(row)), loaded.genreName(loaded.genreId(row)));
+            assertEquals(catalog.title(row), loaded.title(row));
+            assertEquals(catalog.url(row), loaded.url(row));
+        }
+    }
+}
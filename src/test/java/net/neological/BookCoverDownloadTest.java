@@ -0,0 +1,102 @@
+package net.neological;
+
+import net.neological.webscraping.specific.BookWebScraper;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for cover-download mode. The saved fixture pages reference their cover
+ * images relatively, so parsing them with a {@code file:} base URI lets the downloads
+ * run against the local fixture files.
+ */
+@DisplayName("BookWebScraper Cover Download Tests")
+public class BookCoverDownloadTest {
+
+    @TempDir
+    Path downloadFolder;
+
+    @Test
+    @DisplayName("downloadCoversOnPage stores each Philosophy cover once and skips them on the next run")
+    public void testDownloadCoversOnPage_Philosophy() throws IOException, URISyntaxException {
+        BookWebScraper scraper = new BookWebScraper("TestAgent/1.0", 5000);
+        scraper.setDownloadFolder(downloadFolder.toString());
+        Document page = loadFixture("/genre1.html");
+
+        assertEquals(11, scraper.downloadCoversOnPage(page));
+        assertEquals(11, countImages());
+
+        // Everything is already on disk, so nothing is fetched or written
+        assertEquals(0, scraper.downloadCoversOnPage(page));
+
+        // A fresh scraper picks up the index written by the first one
+        BookWebScraper second = new BookWebScraper("TestAgent/1.0", 5000);
+        second.setDownloadFolder(downloadFolder.toString());
+        assertEquals(0, second.downloadCoversOnPage(page));
+        assertEquals(11, countImages());
+    }
+
+    @Test
+    @DisplayName("Scrapers storing the same covers at once write each image exactly once")
+    public void testConcurrentStores() throws Exception {
+        Document page = loadFixture("/genre1.html");
+        int scrapers = 6;
+        CyclicBarrier start = new CyclicBarrier(scrapers);
+        ExecutorService pool = Executors.newFixedThreadPool(scrapers);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int i = 0; i < scrapers; i++) {
+                results.add(pool.submit(() -> {
+                    BookWebScraper scraper = new BookWebScraper("TestAgent/1.0", 5000);
+                    scraper.setDownloadFolder(downloadFolder.toString());
+                    start.await();
+                    return scraper.downloadCoversOnPage(page);
+                }));
+            }
+            int written = 0;
+            for (Future<Integer> result : results) {
+                written += result.get(30, TimeUnit.SECONDS);
+            }
+            assertEquals(11, written);
+        } finally {
+            pool.shutdownNow();
+        }
+        assertEquals(11, countImages());
+        try (Stream<Path> files = Files.list(downloadFolder)) {
+            assertEquals(0, files.filter(f -> f.getFileName().toString().endsWith(".part")).count());
+        }
+    }
+
+    private long countImages() throws IOException {
+        try (Stream<Path> files = Files.list(downloadFolder)) {
+            return files.filter(f -> f.getFileName().toString().endsWith(".jpg")).count();
+        }
+    }
+
+    private Document loadFixture(String fixture) throws IOException, URISyntaxException {
+        URL resource = getClass().getResource(fixture);
+        assertNotNull(resource, "Could not load fixture: " + fixture);
+        try (InputStream in = resource.openStream()) {
+            return Jsoup.parse(in, "UTF-8", resource.toURI().toString());
+        }
+    }
+}
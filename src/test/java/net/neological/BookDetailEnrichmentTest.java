@@ -0,0 +1,107 @@
+package net.neological;
+
+import net.neological.webscraping.frontier.UrlSeenFilter;
+import net.neological.webscraping.specific.BookDetails;
+import net.neological.webscraping.specific.BookWebScraper;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static net.neological.BookFixtures.URL1;
+import static net.neological.BookFixtures.URL2_PAGE1;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for detail-page enrichment of book listings.
+ */
+@DisplayName("BookWebScraper Detail Enrichment Tests")
+public class BookDetailEnrichmentTest {
+
+    private static final String DETAIL_TEMPLATE = """
+            <html><body>
+            <div class="col-sm-6 product_main">
+              <h1>%s</h1>
+              <p class="price_color">£12.50</p>
+              <p class="star-rating Four"></p>
+            </div>
+            <div id="product_description" class="sub-header"><h2>Product Description</h2></div>
+            <p>A description of %s.</p>
+            <table class="table table-striped">
+              <tr><th>UPC</th><td>upc-%s</td></tr>
+              <tr><th>Product Type</th><td>Books</td></tr>
+              <tr><th>Price (excl. tax)</th><td>£12.50</td></tr>
+              <tr><th>Price (incl. tax)</th><td>£15.00</td></tr>
+              <tr><th>Tax</th><td>£2.50</td></tr>
+              <tr><th>Availability</th><td>In stock (7 available)</td></tr>
+              <tr><th>Number of reviews</th><td>0</td></tr>
+            </table>
+            </body></html>
+            """;
+
+    private final AtomicInteger detailFetches = new AtomicInteger();
+    private BookWebScraper scraper;
+
+    @BeforeEach
+    public void setUp() {
+        scraper = new BookWebScraper("TestAgent/1.0", 5000) {
+            @Override
+            protected Document fetchDocument(String url) throws IOException {
+                if (url.startsWith("https://books.toscrape.com/catalogue/") && !url.contains("/category/")) {
+                    detailFetches.incrementAndGet();
+                    String slug = url.substring("https://books.toscrape.com/catalogue/".length());
+                    return Jsoup.parse(String.format(DETAIL_TEMPLATE, slug, slug, slug), url);
+                }
+                return BookFixtures.document(url);
+            }
+        };
+        scraper.setMaxConcurrency(3);
+    }
+
+    @Test
+    @DisplayName("enrichPage parses every detail page on Philosophy")
+    public void testEnrichPage_Philosophy() throws IOException {
+        scraper.scrape(URL1);
+        List<BookDetails> records = new ArrayList<>();
+
+        assertEquals(11, scraper.enrichPage(records::add));
+        assertEquals(11, records.size());
+
+        BookDetails first = records.get(0);
+        assertTrue(first.upc().startsWith("upc-"));
+        assertEquals("Books", first.productType());
+        assertEquals(12.50, first.priceExclTax(), 0.0001);
+        assertEquals(15.00, first.priceInclTax(), 0.0001);
+        assertEquals(2.50, first.tax(), 0.0001);
+        assertEquals(7, first.available());
+        assertEquals(4, first.rating());
+        assertTrue(first.description().startsWith("A description of"));
+    }
+
+    @Test
+    @DisplayName("enrichGenre covers both pages once per call, and skips books a seen-URL filter recorded")
+    public void testEnrichGenre_Deduplicates() throws IOException {
+        scraper.scrape(URL2_PAGE1);
+        List<BookDetails> records = new ArrayList<>();
+
+        assertEquals(26, scraper.enrichGenre("Historical Fiction", records::add));
+        assertEquals(26, records.stream().map(BookDetails::url).distinct().count());
+        assertEquals(26, detailFetches.get());
+
+        // Without a seen-URL filter the scraper keeps no record of earlier calls
+        assertEquals(26, scraper.enrichGenre("Historical Fiction", records::add));
+        assertEquals(52, detailFetches.get());
+
+        // With one, a second pass over the same books delivers nothing new
+        scraper.setSeenUrls(UrlSeenFilter.inMemory(1_000, 0.001));
+        assertEquals(26, scraper.enrichGenre("Historical Fiction", records::add));
+        assertEquals(0, scraper.enrichGenre("Historical Fiction", records::add));
+        assertEquals(78, detailFetches.get());
+    }
+}
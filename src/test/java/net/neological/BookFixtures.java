@@ -0,0 +1,91 @@
+package net.neological;
+
+import net.neological.webscraping.specific.BookWebScraper;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * The saved books.toscrape listing pages under {@code src/test/resources}, keyed by the URLs
+ * they were saved from, and a scraper that reads them instead of the network. Tests that need
+ * to count, fail or delay fetches override the fetch themselves and delegate here for the HTML.
+ */
+public final class BookFixtures {
+    /** Philosophy, a single page of 11 books ({@code genre1.html}). */
+    public static final String URL1 =
+            "https://books.toscrape.com/catalogue/category/books/philosophy_7/index.html";
+    /** Historical Fiction, first of two pages ({@code genre2.html}). */
+    public static final String URL2_PAGE1 =
+            "https://books.toscrape.com/catalogue/category/books/historical-fiction_4/index.html";
+    /** Historical Fiction, second page ({@code genre2_page2.html}). */
+    public static final String URL2_PAGE2 =
+            "https://books.toscrape.com/catalogue/category/books/historical-fiction_4/page-2.html";
+
+    private static final Map<String, String> FIXTURES = Map.of(
+            URL1, "/genre1.html",
+            URL2_PAGE1, "/genre2.html",
+            URL2_PAGE2, "/genre2_page2.html");
+
+    private BookFixtures() {
+    }
+
+    /**
+     * @return a scraper whose pages are parsed from the fixtures
+     */
+    public static BookWebScraper scraper() {
+        return new BookWebScraper("TestAgent/1.0", 5000) {
+            @Override
+            protected Document fetchDocument(String url) throws IOException {
+                return document(url);
+            }
+        };
+    }
+
+    /**
+     * @param url one of the fixture URLs
+     * @return the saved page, parsed with {@code url} as its base
+     * @throws IOException if no fixture was saved from {@code url}
+     */
+    public static Document document(String url) throws IOException {
+        return Jsoup.parse(html(url), url);
+    }
+
+    /**
+     * @param url one of the fixture URLs
+     * @return the saved page's HTML
+     * @throws IOException if no fixture was saved from {@code url}
+     */
+    public static String html(String url) throws IOException {
+        return new String(bytes(fixtureFor(url)), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @param url one of the fixture URLs
+     * @return the size in bytes of the saved page
+     * @throws IOException if no fixture was saved from {@code url}
+     */
+    public static long size(String url) throws IOException {
+        return bytes(fixtureFor(url)).length;
+    }
+
+    private static String fixtureFor(String url) throws IOException {
+        String fixture = FIXTURES.get(url);
+        if (fixture == null) {
+            throw new IOException("Unexpected URL in test: " + url);
+        }
+        return fixture;
+    }
+
+    private static byte[] bytes(String fixture) throws IOException {
+        try (InputStream in = BookFixtures.class.getResourceAsStream(fixture)) {
+            if (in == null) {
+                throw new IOException("Could not load fixture: " + fixture);
+            }
+            return in.readAllBytes();
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package net.neological;
+
+import net.neological.webscraping.cluster.CrawlCoordinator;
+import net.neological.webscraping.cluster.CrawlWorker;
+import net.neological.webscraping.cluster.HashRing;
+import net.neological.webscraping.cluster.WorkItem;
+import net.neological.webscraping.storage.DownloadStore;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the coordinator/worker crawl mode.
+ */
+@DisplayName("Sharded Crawl Tests")
+public class CrawlClusterTest {
+
+    @Test
+    @DisplayName("Removing a node from the hash ring only moves that node's keys")
+    public void testHashRing() {
+        HashRing ring = new HashRing();
+        ring.add("a");
+        ring.add("b");
+        ring.add("c");
+
+        Map<String, String> before = new HashMap<>();
+        Map<String, Integer> perNode = new HashMap<>();
+        for (int i = 0; i < 3_000; i++) {
+            String key = "https://fred.stlouisfed.org/series/S" + i;
+            before.put(key, ring.ownerOf(key));
+            perNode.merge(ring.ownerOf(key), 1, Integer::sum);
+        }
+        for (int count : perNode.values()) {
+            assertTrue(count > 700 && count < 1_300, "unbalanced: " + perNode);
+        }
+
+        ring.remove("b");
+        for (Map.Entry<String, String> key : before.entrySet()) {
+            String owner = ring.ownerOf(key.getKey());
+            if (!key.getValue().equals("b")) {
+                assertEquals(key.getValue(), owner);
+            } else {
+                assertNotEquals("b", owner);
+            }
+        }
+        ring.add("b");
+        assertEquals(List.of("a", "c", "b"), List.copyOf(ring.nodes()));
+    }
+
+    @Test
+    @DisplayName("Leases of a worker that stops reporting are re-assigned to the others")
+    public void testLeaseExpiry() throws Exception {
+        try (CrawlCoordinator coordinator = new CrawlCoordinator(0, CrawlCoordinator.Sharding.URL, 200, 3)) {
+            assertTrue(coordinator.getAddress().getAddress().isLoopbackAddress());
+            List<WorkItem> items = new ArrayList<>();
+            for (int i = 0; i < 5; i++) {
+                items.add(new WorkItem("BOOKS", "https://books.toscrape.com/page-" + i));
+            }
+            coordinator.submit(items);
+
+            CrawlCoordinator.Lease lost = coordinator.lease("dead", 5);
+            assertEquals(5, lost.items().size());
+            assertNull(coordinator.lease("alive", 5));
+
+            Thread.sleep(600);
+            CrawlCoordinator.Lease reassigned = coordinator.lease("alive", 5);
+            assertNotNull(reassigned);
+            assertEquals(5, reassigned.items().size());
+            assertEquals(5, coordinator.getReassignedCount());
+            assertFalse(coordinator.getWorkers().contains("dead"));
+
+            // The dead worker's late report no longer counts
+            assertFalse(coordinator.complete(lost.id(), items.get(0).url(), null));
+            for (WorkItem item : reassigned.items()) {
+                assertTrue(coordinator.complete(reassigned.id(), item.url(), null));
+            }
+            assertTrue(coordinator.isFinished());
+            assertEquals(5, coordinator.getCompletedCount());
+        }
+    }
+
+    @Test
+    @DisplayName("Workers share a FRED crawl: the search page is fanned out and every series downloaded once")
+    public void testFredCrawl(@TempDir Path downloads) throws Exception {
+        int series = 30;
+        try (LoadTestServer server = new LoadTestServer(LoadTestServer.Config.defaults()
+                .withSize(1, 1)
+                .withFred(series, 5)
+                .withLatency(2, 2)
+                .withErrorRate(0));
+             CrawlCoordinator coordinator = new CrawlCoordinator(0, CrawlCoordinator.Sharding.URL, 5_000, 3)) {
+            coordinator.submit(List.of(new WorkItem("FRED", LoadTestServer.fredSearchUrl())));
+
+            List<CrawlWorker> workers = new ArrayList<>();
+            ExecutorService threads = Executors.newFixedThreadPool(3);
+            List<Future<?>> running = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                CrawlWorker worker = new CrawlWorker("http://127.0.0.1:" + coordinator.getPort(), "worker-" + i, "TestAgent/1.0");
+                worker.setDownloadFolder(downloads.toString());
+                worker.setIdleMillis(20);
+                worker.setScraperSetup(scraper -> {
+                    scraper.setRenderJavaScript(false);
+                    scraper.overrideOrigin(LoadTestServer.FRED_ORIGIN, server.fredBase());
+                });
+                workers.add(worker);
+                running.add(threads.submit(() -> {
+                    worker.run();
+                    return null;
+                }));
+            }
+            try {
+                assertTrue(coordinator.awaitFinished(Duration.ofSeconds(30)), coordinator.status());
+                for (Future<?> worker : running) {
+                    worker.get();
+                }
+            } finally {
+                threads.shutdownNow();
+            }
+
+            assertEquals(Map.of(), coordinator.getFailures());
+            assertEquals(series + 1, coordinator.getCompletedCount());
+            try (Stream<Path> files = Files.list(downloads)) {
+                assertEquals(series, files.filter(file -> !file.endsWith(DownloadStore.MANIFEST_FILE)).count());
+            }
+            assertEquals(series + 1, workers.stream().mapToInt(CrawlWorker::getProcessedCount).sum());
+            long busyWorkers = workers.stream().filter(w -> w.getProcessedCount() > 0).count();
+            assertTrue(busyWorkers > 1, "work was not spread over the workers");
+        }
+    }
+}
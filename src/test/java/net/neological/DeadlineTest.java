@@ -0,0 +1,91 @@
+package net.neological;
+
+import net.neological.webscraping.Deadline;
+import net.neological.webscraping.PartialResult;
+import net.neological.webscraping.RequestPolicy;
+import net.neological.webscraping.specific.BookWebScraper;
+import net.neological.webscraping.stats.PriceSummary;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+
+import static net.neological.BookFixtures.URL2_PAGE1;
+import static net.neological.BookFixtures.URL2_PAGE2;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for job deadlines. The second Historical Fiction page "hangs" until the job is
+ * aborted, the way a stuck browser session would.
+ */
+@DisplayName("WebScraper Deadline Tests")
+public class DeadlineTest {
+
+    private BookWebScraper scraper;
+    private volatile boolean page2Hangs;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        scraper = new BookWebScraper("TestAgent/1.0", 5000) {
+            @Override
+            protected String fetchPlain(String url) throws IOException {
+                if (URL2_PAGE2.equals(url)) {
+                    while (page2Hangs && !getMonitor().isCancelled()) {
+                        try {
+                            Thread.sleep(10);
+                        } catch (InterruptedException e) {
+                            throw new IOException("interrupted");
+                        }
+                    }
+                    if (page2Hangs) {
+                        throw new IOException("Page load aborted");
+                    }
+                }
+                return BookFixtures.html(url);
+            }
+        };
+        scraper.setRenderJavaScript(false);
+        scraper.getRequestExecutor().setPolicy(RequestPolicy.NO_RETRY);
+        scraper.scrape(URL2_PAGE1);
+    }
+
+    @Test
+    @DisplayName("A crawl that finishes in time is reported complete")
+    public void testCompleteWithinDeadline() throws IOException {
+        PartialResult<PriceSummary> result =
+                scraper.priceSummaryForGenre("Historical Fiction", Deadline.in(Duration.ofSeconds(30)));
+
+        assertTrue(result.complete());
+        assertEquals(26, result.value().count());
+        assertTrue(scraper.getMonitor().getDeadline().isNone(), "Deadline should be lifted afterwards");
+    }
+
+    @Test
+    @DisplayName("An expired deadline aborts the stuck page and returns the first page's summary as incomplete")
+    public void testPartialResultOnExpiry() throws IOException {
+        page2Hangs = true;
+        long start = System.nanoTime();
+        PartialResult<PriceSummary> result =
+                scraper.priceSummaryForGenre("Historical Fiction", Deadline.in(Duration.ofMillis(300)));
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertFalse(result.complete());
+        assertEquals(20, result.value().count());
+        assertTrue(elapsedMillis < 3_000, "Deadline should stop the crawl promptly: " + elapsedMillis + " ms");
+
+        // The monitor is usable again once the deadline is lifted
+        assertFalse(scraper.isCancelled());
+        page2Hangs = false;
+        assertTrue(scraper.priceSummaryForGenre("Historical Fiction", Deadline.none()).complete());
+    }
+
+    @Test
+    @DisplayName("Per-operation timeouts are clamped to the time left")
+    public void testClamp() {
+        assertEquals(15_000, Deadline.none().clamp(15_000));
+        assertTrue(Deadline.in(Duration.ofSeconds(2)).clamp(15_000) <= 2_000);
+        assertEquals(1, Deadline.in(Duration.ZERO).clamp(15_000));
+    }
+}
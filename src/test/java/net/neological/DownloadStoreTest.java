@@ -0,0 +1,181 @@
+package net.neological;
+
+import net.neological.webscraping.FileDownloader;
+import net.neological.webscraping.specific.FredWebScraper;
+import net.neological.webscraping.storage.DownloadStore;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the download store: atomic commits, grouped fsyncs, sharding, compression and the manifest.
+ */
+@DisplayName("Download Store Tests")
+public class DownloadStoreTest {
+
+    private static final FileDownloader DOWNLOADER = folder -> {
+    };
+
+    @Test
+    @DisplayName("Concurrent downloads are sharded, compressed and committed in groups")
+    public void testShardedCompressedBatches(@TempDir Path folder) throws Exception {
+        DownloadStore.Options options = DownloadStore.Options.DEFAULT.withSharding(1).withCompression(true);
+        int files = 300;
+        DownloadStore store = DownloadStore.open(folder, options);
+        try {
+            ExecutorService pool = Executors.newFixedThreadPool(8);
+            List<Future<Path>> stored = new ArrayList<>();
+            try {
+                for (int i = 0; i < files; i++) {
+                    String name = "SER" + i + ".csv";
+                    stored.add(pool.submit(() -> store.store(name, "http://example/" + name, body(name), DOWNLOADER)));
+                }
+                for (Future<Path> path : stored) {
+                    Path file = path.get();
+                    assertTrue(file.getFileName().toString().endsWith(".csv.gz"), file.toString());
+                    assertTrue(file.getParent().getFileName().toString().matches("[0-9a-f]{2}"), file.toString());
+                }
+            } finally {
+                pool.shutdownNow();
+            }
+            assertEquals(files, store.getFilesCommitted());
+            assertTrue(store.getCommits() < files, store.getCommits() + " commits");
+        } finally {
+            store.close();
+        }
+
+        // A reopened store finds every file from the manifest and decompresses it
+        try (DownloadStore reopened = DownloadStore.open(folder, options)) {
+            assertEquals(files, reopened.size());
+            try (InputStream in = reopened.openStream("SER42.csv")) {
+                assertEquals(content("SER42.csv"), new String(in.readAllBytes(), StandardCharsets.UTF_8));
+            }
+            assertTrue(reopened.find("SER300.csv").isEmpty());
+        }
+    }
+
+    @Test
+    @DisplayName("A failed download leaves the previous file intact and no partial file behind")
+    public void testInterruptedDownload(@TempDir Path folder) throws Exception {
+        try (DownloadStore store = DownloadStore.open(folder, DownloadStore.Options.DEFAULT)) {
+            Path file = store.store("SER1.csv", "http://example/SER1.csv", body("SER1.csv"), DOWNLOADER);
+            assertEquals(folder.resolve("SER1.csv"), file);
+
+            InputStream broken = new InputStream() {
+                private int served;
+
+                @Override
+                public int read() throws IOException {
+                    if (served++ < 10_000) {
+                        return 'x';
+                    }
+                    throw new IOException("Connection reset");
+                }
+            };
+            assertThrows(IOException.class, () -> store.store("SER1.csv", "http://example/SER1.csv", broken, DOWNLOADER));
+
+            assertEquals(content("SER1.csv"), Files.readString(file));
+            try (Stream<Path> left = Files.list(folder)) {
+                assertEquals(List.of("SER1.csv"), left.map(path -> path.getFileName().toString())
+                        .filter(name -> !name.equals(DownloadStore.MANIFEST_FILE))
+                        .toList());
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Each open is a reference; the last close releases the store and later stores are refused")
+    public void testReferences(@TempDir Path folder) throws Exception {
+        DownloadStore first = DownloadStore.open(folder, DownloadStore.Options.DEFAULT);
+        DownloadStore second = DownloadStore.open(folder, DownloadStore.Options.DEFAULT);
+        assertSame(first, second);
+        assertThrows(IllegalArgumentException.class,
+                () -> DownloadStore.open(folder, DownloadStore.Options.DEFAULT.withCompression(true)));
+
+        first.close();
+        assertFalse(second.isClosed());
+        second.store("SER1.csv", "http://example/SER1.csv", body("SER1.csv"), DOWNLOADER);
+        second.close();
+        assertTrue(second.isClosed());
+        assertThrows(IllegalStateException.class,
+                () -> second.store("SER2.csv", "http://example/SER2.csv", body("SER2.csv"), DOWNLOADER));
+        second.close();
+
+        try (DownloadStore reopened = DownloadStore.open(folder, DownloadStore.Options.DEFAULT)) {
+            assertNotSame(first, reopened);
+            assertTrue(reopened.find("SER1.csv").isPresent());
+            assertTrue(reopened.find("SER2.csv").isEmpty());
+        }
+    }
+
+    @Test
+    @DisplayName("A manifest of mostly replaced entries is rewritten with one line per name")
+    public void testManifestCompaction(@TempDir Path folder) throws Exception {
+        DownloadStore.Options options = DownloadStore.Options.DEFAULT.withFsync(false);
+        try (DownloadStore store = DownloadStore.open(folder, options)) {
+            for (int i = 0; i < 3_000; i++) {
+                String name = "SER" + (i % 3) + ".csv";
+                store.store(name, "http://example/" + name, body(name), DOWNLOADER);
+            }
+            assertEquals(3, store.size());
+            assertTrue(Files.readAllLines(folder.resolve(DownloadStore.MANIFEST_FILE)).size() < 1_100);
+        }
+        try (DownloadStore reopened = DownloadStore.open(folder, options)) {
+            assertEquals(3, reopened.size());
+            try (InputStream in = reopened.openStream("SER2.csv")) {
+                assertEquals(content("SER2.csv"), new String(in.readAllBytes(), StandardCharsets.UTF_8));
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("FRED series are written through the store with the scraper's layout")
+    public void testFredShardedDownloads(@TempDir Path downloads) throws Exception {
+        try (LoadTestServer server = new LoadTestServer(LoadTestServer.Config.defaults()
+                .withSize(1, 1)
+                .withFred(25, 2)
+                .withLatency(0, 0)
+                .withErrorRate(0))) {
+            FredWebScraper scraper = new FredWebScraper("TestAgent/1.0", 5000);
+            scraper.setRenderJavaScript(false);
+            scraper.setMaxConcurrency(4);
+            scraper.overrideOrigin(LoadTestServer.FRED_ORIGIN, server.fredBase());
+            scraper.setDownloadFolder(downloads.toString());
+            scraper.setStoreOptions(DownloadStore.Options.DEFAULT.withSharding(1));
+            scraper.scrape(LoadTestServer.fredSearchUrl());
+
+            DownloadStore store = DownloadStore.open(downloads, scraper.getStoreOptions());
+            try (Stream<Path> top = Files.list(downloads)) {
+                assertTrue(top.noneMatch(path -> path.toString().endsWith(".csv")));
+            }
+            for (int i = 1; i <= 25; i++) {
+                Path file = store.find("SER" + i + ".csv").orElseThrow().path();
+                assertEquals(downloads, file.getParent().getParent());
+            }
+            store.close();
+        }
+    }
+
+    private static InputStream body(String name) {
+        return new ByteArrayInputStream(content(name).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String content(String name) {
+        return ("DATE,VALUE\n2020-01-01," + name + "\n").repeat(50);
+    }
+}
@@ -0,0 +1,190 @@
+package net.neological;
+
+import net.neological.webscraping.export.BinaryExportReader;
+import net.neological.webscraping.export.Column;
+import net.neological.webscraping.export.ExportFormat;
+import net.neological.webscraping.export.ExportWriter;
+import net.neological.webscraping.specific.BookWebScraper;
+import net.neological.webscraping.specific.FredWebScraper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the streaming export writers and scrapers exporting into them.
+ */
+@DisplayName("Export Writer Tests")
+public class ExportWriterTest {
+
+    private static final List<Column> COLUMNS = List.of(
+            Column.string("name"), Column.integer("count"), Column.decimal("price"));
+
+    // Quotes, separators, newlines, a control character, non-ASCII and a surrogate pair
+    private static final String AWKWARD = "say \"hi\", then\nleave\u0001 — café 😀";
+
+    @Test
+    @DisplayName("CSV quotes and escapes fields, leaving missing values empty")
+    public void testCsv(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("rows.csv");
+        try (ExportWriter out = ExportWriter.open(file, COLUMNS)) {
+            out.value(AWKWARD).value(-42).value(1.5).endRow();
+            out.value((String) null).value(Long.MIN_VALUE).value(Double.NaN).endRow();
+        }
+        assertEquals("name,count,price\n"
+                        + "\"say \"\"hi\"\", then\nleave\u0001 — café 😀\",-42,1.5\n"
+                        + ",-9223372036854775808,\n",
+                Files.readString(file));
+    }
+
+    @Test
+    @DisplayName("JSON Lines writes one escaped object per row, with null for missing values")
+    public void testJsonLines(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("rows.jsonl");
+        try (ExportWriter out = ExportWriter.open(file, COLUMNS)) {
+            out.value(AWKWARD).value(7).value(Double.POSITIVE_INFINITY).endRow();
+            out.value((String) null).value(0).value(2.25).endRow();
+        }
+        assertEquals("{\"name\":\"say \\\"hi\\\", then\\nleave\\u0001 — café 😀\",\"count\":7,\"price\":null}\n"
+                        + "{\"name\":null,\"count\":0,\"price\":2.25}\n",
+                Files.readString(file));
+    }
+
+    @Test
+    @DisplayName("Binary rows round-trip through small alternating buffers, gzip and rows larger than a buffer")
+    public void testBinaryRoundTrip(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("rows.bin.gz");
+        int rows = 20_000;
+        String large = "x".repeat(500);
+        try (ExportWriter out = new ExportWriter(file, ExportFormat.BINARY, true, 256, COLUMNS)) {
+            for (int i = 0; i < rows; i++) {
+                out.value(i % 1000 == 0 ? large : i % 7 == 0 ? null : "row " + i + " é")
+                        .value(i - rows / 2L)
+                        .value(i * 0.5)
+                        .endRow();
+            }
+            assertEquals(rows, out.stats().rows());
+            // Not written yet: the row in progress is dropped on close
+            out.value("partial");
+        }
+
+        try (BinaryExportReader in = BinaryExportReader.open(file)) {
+            assertEquals(COLUMNS, in.columns());
+            Object[] row;
+            int i = 0;
+            while ((row = in.next()) != null) {
+                assertEquals(i % 1000 == 0 ? large : i % 7 == 0 ? null : "row " + i + " é", row[0]);
+                assertEquals(i - rows / 2L, row[1]);
+                assertEquals(i * 0.5, row[2]);
+                i++;
+            }
+            assertEquals(rows, i);
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            assertEquals(List.of(file), files.toList());
+        }
+    }
+
+    @Test
+    @DisplayName("An aborted export leaves the previous file in place and no partial file behind")
+    public void testAbort(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("rows.csv");
+        Files.writeString(file, "previous\n");
+        ExportWriter out = new ExportWriter(file, ExportFormat.CSV, false, 64, COLUMNS);
+        for (int i = 0; i < 100; i++) {
+            out.value("row " + i).value(i).value(i * 0.5).endRow();
+        }
+        out.abort();
+        out.abort();
+        out.close();
+        assertThrows(IllegalStateException.class, () -> out.value("late"));
+
+        assertEquals("previous\n", Files.readString(file));
+        try (Stream<Path> files = Files.list(dir)) {
+            assertEquals(List.of(file), files.toList());
+        }
+    }
+
+    @Test
+    @DisplayName("Fields must match the columns in order")
+    public void testSchemaChecked(@TempDir Path dir) throws Exception {
+        try (ExportWriter out = ExportWriter.open(dir.resolve("rows.csv"), COLUMNS)) {
+            assertThrows(IllegalStateException.class, () -> out.value(1));
+            out.value("a");
+            assertThrows(IllegalStateException.class, out::endRow);
+            out.value(1).value(2.0);
+            assertThrows(IllegalStateException.class, () -> out.value("extra"));
+            out.endRow();
+        }
+        assertThrows(IllegalArgumentException.class, () -> ExportFormat.forFile(Path.of("rows.xml")));
+    }
+
+    @Test
+    @DisplayName("A FRED crawl streams every observation into a compressed JSON Lines export")
+    public void testFredExport(@TempDir Path dir) throws Exception {
+        Path downloads = dir.resolve("downloads");
+        Path file = dir.resolve("series.jsonl.gz");
+        try (LoadTestServer server = new LoadTestServer(LoadTestServer.Config.defaults()
+                .withFred(8, 30)
+                .withLatency(0, 0)
+                .withErrorRate(0))) {
+            FredWebScraper scraper = new FredWebScraper("TestAgent/1.0", 5000);
+            scraper.setRenderJavaScript(false);
+            scraper.setMaxConcurrency(4);
+            scraper.overrideOrigin(LoadTestServer.FRED_ORIGIN, server.fredBase());
+            scraper.setDownloadFolder(downloads.toString());
+            // The rows are read back from the stored files, so store them compressed too
+            scraper.setStoreOptions(scraper.getStoreOptions().withCompression(true));
+            try (ExportWriter out = ExportWriter.open(file, FredWebScraper.SERIES_COLUMNS)) {
+                scraper.setExport(out);
+                scraper.scrape(LoadTestServer.fredSearchUrl());
+                assertEquals(8 * 30, out.stats().rows());
+            }
+        }
+
+        try (BufferedReader lines = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(file)), StandardCharsets.UTF_8))) {
+            List<String> rows = lines.lines().toList();
+            assertEquals(8 * 30, rows.size());
+            assertTrue(rows.contains("{\"series\":\"SER1\",\"date\":\"1950-01-01\",\"value\":100.0}"), rows.get(0));
+            // A series' rows are in date order
+            List<String> series3 = rows.stream().filter(row -> row.startsWith("{\"series\":\"SER3\",")).toList();
+            assertEquals(30, series3.size());
+            assertEquals("{\"series\":\"SER3\",\"date\":\"1950-01-01\",\"value\":100.0}", series3.get(0));
+            assertTrue(series3.get(29).startsWith("{\"series\":\"SER3\",\"date\":\"1952-06-01\""), series3.get(29));
+        }
+    }
+
+    @Test
+    @DisplayName("A genre's listings stream into a CSV export page by page")
+    public void testGenreExport(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("books.csv");
+        try (LoadTestServer server = new LoadTestServer(LoadTestServer.Config.defaults()
+                .withSize(2, 45)
+                .withLatency(0, 0)
+                .withErrorRate(0))) {
+            BookWebScraper scraper = new BookWebScraper("TestAgent/1.0", 5000);
+            scraper.setRenderJavaScript(false);
+            scraper.overrideOrigin(LoadTestServer.BOOKS_ORIGIN, server.booksBase());
+            scraper.scrape(LoadTestServer.booksHomeUrl());
+            try (ExportWriter out = ExportWriter.open(file, BookWebScraper.LISTING_COLUMNS)) {
+                assertEquals(45, scraper.exportGenre(LoadTestServer.genreName(2), out));
+            }
+        }
+
+        List<String> lines = Files.readAllLines(file);
+        assertEquals(46, lines.size());
+        assertEquals("genre,title,url,price_pence,rating", lines.get(0));
+        assertTrue(lines.get(1).startsWith(LoadTestServer.genreName(2) + ","), lines.get(1));
+    }
+}
@@ -0,0 +1,119 @@
+package net.neological;
+
+import net.neological.webscraping.RequestPolicy;
+import net.neological.webscraping.replay.ArchivedResponse;
+import net.neological.webscraping.replay.FetchRecorder;
+import net.neological.webscraping.replay.FetchReplayer;
+import net.neological.webscraping.specific.BookWebScraper;
+import org.jsoup.HttpStatusException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static net.neological.BookFixtures.URL2_PAGE1;
+import static net.neological.BookFixtures.URL2_PAGE2;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for recording fetches into an archive and replaying them in place of the network.
+ */
+@DisplayName("Fetch Archive Record/Replay Tests")
+public class FetchArchiveTest {
+
+    private static final RequestPolicy FAST_RETRIES = new RequestPolicy(3, 1, 5, false, 0.95, 50);
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("A recorded genre crawl replays offline with the same results")
+    public void testRecordThenReplay() throws IOException {
+        Path archive = tempDir.resolve("crawl.farc");
+        AtomicInteger networkFetches = new AtomicInteger();
+        long bodyBytes;
+
+        try (FetchRecorder recorder = new FetchRecorder(archive)) {
+            BookWebScraper live = fixtureScraper(networkFetches, false);
+            live.setRecorder(recorder);
+            live.scrape(URL2_PAGE1);
+            assertEquals(26, live.priceSummaryForGenre("Historical Fiction").count());
+            assertEquals(3, recorder.getRecordedCount());
+            bodyBytes = BookFixtures.size(URL2_PAGE1) * 2 + BookFixtures.size(URL2_PAGE2);
+        }
+        assertTrue(Files.size(archive) < bodyBytes / 3, "Archive should be compressed");
+
+        // No fetch override at all: every page must come from the archive
+        BookWebScraper offline = new BookWebScraper("TestAgent/1.0", 5000);
+        offline.setRenderJavaScript(false);
+        offline.setReplayer(FetchReplayer.load(archive));
+        offline.scrape(URL2_PAGE1);
+        assertEquals(20, offline.countEntriesPerPage());
+        assertEquals(26, offline.priceSummaryForGenre("Historical Fiction").count());
+        assertEquals(3, networkFetches.get());
+
+        assertThrows(FileNotFoundException.class,
+                () -> offline.scrape("https://books.toscrape.com/catalogue/category/books/poetry_23/index.html"));
+    }
+
+    @Test
+    @DisplayName("Recorded failures replay in order, so retries behave as they did live")
+    public void testFailuresReplayInOrder() throws IOException {
+        Path archive = tempDir.resolve("flaky.farc");
+        try (FetchRecorder recorder = new FetchRecorder(archive)) {
+            BookWebScraper live = fixtureScraper(new AtomicInteger(), true);
+            live.getRequestExecutor().setPolicy(FAST_RETRIES);
+            live.setRecorder(recorder);
+            live.scrape(URL2_PAGE1);
+            assertEquals(1, live.getRequestExecutor().getRetryCount());
+        }
+
+        BookWebScraper offline = new BookWebScraper("TestAgent/1.0", 5000);
+        offline.setRenderJavaScript(false);
+        offline.getRequestExecutor().setPolicy(FAST_RETRIES);
+        offline.setReplayer(FetchReplayer.load(archive));
+        offline.scrape(URL2_PAGE1);
+        assertEquals(1, offline.getRequestExecutor().getRetryCount());
+        assertEquals(20, offline.countEntriesPerPage());
+    }
+
+    @Test
+    @DisplayName("Recorded latencies can be replayed, scaled")
+    public void testLatencyReplay() throws IOException {
+        String url = "https://books.toscrape.com/index.html";
+        ArchivedResponse slow = ArchivedResponse.success(ArchivedResponse.Kind.PLAIN, url, Map.of(),
+                "<html></html>".getBytes(StandardCharsets.UTF_8), 200_000_000L);
+        FetchReplayer replayer = new FetchReplayer(List.of(slow));
+
+        long start = System.nanoTime();
+        replayer.replay(ArchivedResponse.Kind.PLAIN, url);
+        assertTrue(System.nanoTime() - start < 100_000_000L, "No delay by default");
+
+        replayer.setLatencyScale(1.0);
+        start = System.nanoTime();
+        replayer.replay(ArchivedResponse.Kind.BROWSER, url);
+        assertTrue(System.nanoTime() - start >= 200_000_000L, "Recorded latency should be reproduced");
+    }
+
+    private BookWebScraper fixtureScraper(AtomicInteger fetches, boolean firstFetchFails) {
+        BookWebScraper scraper = new BookWebScraper("TestAgent/1.0", 5000) {
+            @Override
+            protected String fetchPlain(String url) throws IOException {
+                if (fetches.incrementAndGet() == 1 && firstFetchFails) {
+                    throw new HttpStatusException("Service unavailable", 503, url);
+                }
+                return BookFixtures.html(url);
+            }
+        };
+        scraper.setRenderJavaScript(false);
+        return scraper;
+    }
+}
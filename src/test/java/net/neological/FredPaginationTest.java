@@ -0,0 +1,106 @@
+package net.neological;
+
+import net.neological.webscraping.events.ScrapeEvent;
+import net.neological.webscraping.events.ScrapeEventBus;
+import net.neological.webscraping.specific.FredWebScraper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for FRED search-results pagination, against a {@link LoadTestServer} that lists 20
+ * series per results page and links only a window of pages.
+ */
+@DisplayName("FRED Pagination Tests")
+public class FredPaginationTest {
+
+    @Test
+    @DisplayName("Every results page is followed, even past the pager's window")
+    public void testAllPagesDiscovered(@TempDir Path downloads) throws IOException {
+        try (LoadTestServer server = site(95)) {
+            FredWebScraper scraper = scraper(server, downloads);
+            List<String> series = new ArrayList<>();
+            assertEquals(95, scraper.discoverSeries(LoadTestServer.fredSearchUrl(), series::add));
+
+            assertEquals(95, series.stream().distinct().count());
+            assertEquals("https://fred.stlouisfed.org/series/SER1", series.get(0));
+            assertEquals("https://fred.stlouisfed.org/series/SER95", series.get(94));
+            // One request per results page, nothing else
+            assertEquals(5, server.getRequests());
+        }
+    }
+
+    @Test
+    @DisplayName("Scraping a search downloads the series of all its pages, overlapping with discovery")
+    public void testDownloadsOverlapDiscovery(@TempDir Path downloads) throws Exception {
+        try (LoadTestServer server = site(95)) {
+            ScrapeEventBus bus = new ScrapeEventBus(10_000);
+            List<String> order = new CopyOnWriteArrayList<>();
+            bus.subscribe(event -> {
+                if (event instanceof ScrapeEvent.FetchStarted started && started.url().contains("pageID=5")) {
+                    order.add("last results page");
+                } else if (event instanceof ScrapeEvent.ItemExtracted) {
+                    order.add("download");
+                }
+            });
+
+            FredWebScraper scraper = scraper(server, downloads);
+            scraper.setEventBus(bus);
+            scraper.scrape(LoadTestServer.fredSearchUrl());
+            assertTrue(bus.awaitDrained(5_000));
+
+            assertEquals(95, csvCount(downloads));
+            assertTrue(order.indexOf("last results page") > 0, "no download finished before the last page was fetched");
+        }
+    }
+
+    @Test
+    @DisplayName("The series cap stops discovery and downloads")
+    public void testMaxSeries(@TempDir Path downloads) throws IOException {
+        try (LoadTestServer server = site(95)) {
+            FredWebScraper scraper = scraper(server, downloads);
+            scraper.setMaxSeries(30);
+            scraper.setPagePrefetch(1);
+            scraper.scrape(LoadTestServer.fredSearchUrl());
+
+            assertEquals(30, csvCount(downloads));
+            assertTrue(Files.exists(downloads.resolve("SER30.csv")));
+            // Pages 1 and 2 give the 30 series; page 3 may have been fetched ahead
+            long seriesRequests = 30 * 2;
+            assertTrue(server.getRequests() <= seriesRequests + 3, server.getRequests() + " requests");
+        }
+    }
+
+    private static LoadTestServer site(int series) throws IOException {
+        return new LoadTestServer(LoadTestServer.Config.defaults()
+                .withSize(1, 1)
+                .withFred(series, 2)
+                .withLatency(5, 5)
+                .withErrorRate(0));
+    }
+
+    private static FredWebScraper scraper(LoadTestServer server, Path downloads) {
+        FredWebScraper scraper = new FredWebScraper("TestAgent/1.0", 5000);
+        scraper.setRenderJavaScript(false);
+        scraper.setMaxConcurrency(4);
+        scraper.overrideOrigin(LoadTestServer.FRED_ORIGIN, server.fredBase());
+        scraper.setDownloadFolder(downloads.toString());
+        return scraper;
+    }
+
+    private static long csvCount(Path downloads) throws IOException {
+        try (Stream<Path> files = Files.list(downloads)) {
+            return files.filter(file -> file.toString().endsWith(".csv")).count();
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package net.neological;
+
+import net.neological.webscraping.Deadline;
+import net.neological.webscraping.specific.BookWebScraper;
+import net.neological.webscraping.specific.GenreRefresh;
+import net.neological.webscraping.specific.GenreStatsStore;
+import net.neological.webscraping.specific.PageTotals;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for incremental genre refreshes against a {@link LoadTestServer} whose catalogue is
+ * changed between refreshes.
+ */
+@DisplayName("Genre Refresh Tests")
+public class GenreRefreshTest {
+
+    private static final String GENRE = LoadTestServer.genreName(1);
+
+    private LoadTestServer site;
+
+    @BeforeEach
+    public void startSite() throws IOException {
+        // 90 books: four full pages and one of 10
+        site = new LoadTestServer(LoadTestServer.Config.defaults()
+                .withSize(2, 90)
+                .withLatency(0, 0)
+                .withErrorRate(0));
+    }
+
+    @AfterEach
+    public void stopSite() {
+        site.close();
+    }
+
+    @Test
+    @DisplayName("The first refresh crawls the genre; an unchanged genre then costs the first page and a spot check")
+    public void testUnchangedGenre() throws IOException {
+        GenreStatsStore store = new GenreStatsStore();
+        GenreRefresh full = scraper(1).refreshGenreTotals(GENRE, store);
+        assertTrue(full.full());
+        assertEquals(90, full.results());
+        assertEquals(90, full.totals().books());
+        assertEquals(5, full.pagesFetched());
+
+        long before = site.getRequests();
+        GenreRefresh again = scraper(1).refreshGenreTotals(GENRE, store);
+        assertFalse(again.full());
+        assertEquals(2, again.pagesFetched());
+        assertEquals(0, again.pagesChanged());
+        assertTotalsEqual(full.totals(), again.totals());
+        // The home page, the first listing page and one spot check
+        assertEquals(3, site.getRequests() - before);
+    }
+
+    @Test
+    @DisplayName("A repriced book on the first page re-aggregates only that page")
+    public void testChangeOnFirstPage() throws IOException {
+        GenreStatsStore store = new GenreStatsStore();
+        scraper(1).refreshGenreTotals(GENRE, store);
+
+        site.setPrice(1, 3, 99.5);
+        GenreRefresh refresh = scraper(1).refreshGenreTotals(GENRE, store);
+        assertEquals(1, refresh.pagesChanged());
+        assertTotalsEqual(fullCrawl(), refresh.totals());
+    }
+
+    @Test
+    @DisplayName("New books update the count, change the last page and add one")
+    public void testBooksAdded() throws IOException {
+        GenreStatsStore store = new GenreStatsStore();
+        scraper(1).refreshGenreTotals(GENRE, store);
+
+        site.setBooksInGenre(1, 105);
+        GenreRefresh refresh = scraper(1).refreshGenreTotals(GENRE, store);
+        assertEquals(105, refresh.results());
+        assertEquals(105, refresh.totals().books());
+        // The first page lists the same books; the last one fills up and a sixth appears
+        assertEquals(2, refresh.pagesChanged());
+        assertTotalsEqual(fullCrawl(), refresh.totals());
+
+        site.setBooksInGenre(1, 30);
+        refresh = scraper(1).refreshGenreTotals(GENRE, store);
+        assertEquals(30, refresh.totals().books());
+        assertEquals(2, store.get(GENRE).pages().size());
+        assertTotalsEqual(fullCrawl(), refresh.totals());
+    }
+
+    @Test
+    @DisplayName("A change confined to a later page is found by the rotating spot checks")
+    public void testChangeOnLaterPage() throws IOException {
+        GenreStatsStore store = new GenreStatsStore();
+        scraper(1).refreshGenreTotals(GENRE, store);
+
+        site.setPrice(1, 75, 1.25);
+        int refreshes = 0;
+        GenreRefresh refresh;
+        do {
+            refresh = scraper(1).refreshGenreTotals(GENRE, store);
+            refreshes++;
+        } while (refresh.pagesChanged() == 0 && refreshes < 10);
+        assertEquals(1, refresh.pagesChanged());
+        // Page 4 is the third page after the first
+        assertEquals(3, refreshes);
+        assertTotalsEqual(fullCrawl(), refresh.totals());
+    }
+
+    @Test
+    @DisplayName("A batch refresh stops partway through a genre when the deadline passes")
+    public void testDeadlineMidGenre() throws IOException {
+        // Five pages at 200 ms each; the deadline passes while the third is being fetched
+        try (LoadTestServer slowSite = new LoadTestServer(LoadTestServer.Config.defaults()
+                .withSize(2, 90)
+                .withLatency(200, 0)
+                .withErrorRate(0))) {
+            BookWebScraper scraper = new BookWebScraper("TestAgent/1.0", 5000);
+            scraper.setRenderJavaScript(false);
+            scraper.overrideOrigin(LoadTestServer.BOOKS_ORIGIN, slowSite.booksBase());
+            scraper.scrape(LoadTestServer.booksHomeUrl());
+
+            GenreStatsStore store = new GenreStatsStore();
+            long before = slowSite.getRequests();
+            assertFalse(BatchMode.refreshGenres(scraper, GENRE, store, Deadline.in(Duration.ofMillis(500))));
+            assertNull(store.get(GENRE), "an interrupted crawl leaves no snapshot");
+            assertTrue(slowSite.getRequests() - before < 5, "the crawl stopped before the last page");
+            assertFalse(scraper.getMonitor().isDeadlineExpired(), "the deadline is lifted afterwards");
+        }
+    }
+
+    @Test
+    @DisplayName("Snapshots survive a restart through the store file")
+    public void testPersistence(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("genre-stats.tsv");
+        GenreRefresh full = scraper(2).refreshGenreTotals(GENRE, new GenreStatsStore(file));
+
+        GenreStatsStore reloaded = new GenreStatsStore(file);
+        assertEquals(5, reloaded.get(GENRE).pages().size());
+        assertTotalsEqual(full.totals(), reloaded.get(GENRE).totals());
+
+        GenreRefresh refresh = scraper(2).refreshGenreTotals(GENRE, reloaded);
+        assertFalse(refresh.full());
+        assertEquals(3, refresh.pagesFetched());
+        assertEquals(2, new GenreStatsStore(file).get(GENRE).nextSpotCheck());
+    }
+
+    @Test
+    @DisplayName("The store file round-trips every snapshot exactly and tolerates a damaged file")
+    public void testStoreRoundTrip(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("cache").resolve("genre-stats.tsv");
+        GenreStatsStore.Snapshot travel = new GenreStatsStore.Snapshot("Travel", 11,
+                List.of(new GenreStatsStore.PageState("https://books.toscrape.com/catalogue/category/books/travel_2/index.html",
+                        -4_611_686_018_427_387_904L, new PageTotals(11, 0.1 + 0.2, 37.0))),
+                new PageTotals(11, 0.1 + 0.2, 37.0), 0);
+        GenreStatsStore.Snapshot mystery = new GenreStatsStore.Snapshot("Mystery", 32,
+                List.of(new GenreStatsStore.PageState("https://books.toscrape.com/mystery/index.html", Long.MAX_VALUE,
+                                new PageTotals(20, 1_234.5678901234, 61.0)),
+                        new GenreStatsStore.PageState("https://books.toscrape.com/mystery/page-2.html", 0L,
+                                new PageTotals(12, Math.PI, 29.0))),
+                new PageTotals(32, 1_234.5678901234 + Math.PI, 90.0), 1);
+        GenreStatsStore.Snapshot empty = new GenreStatsStore.Snapshot("Empty Genre", 0, List.of(), PageTotals.EMPTY, 0);
+
+        GenreStatsStore store = new GenreStatsStore(file);
+        store.put(travel);
+        store.put(mystery);
+        store.put(empty);
+
+        GenreStatsStore reloaded = new GenreStatsStore(file);
+        assertEquals(Map.of("Travel", travel, "Mystery", mystery, "Empty Genre", empty), reloaded.snapshot());
+        assertEquals(List.of("Empty Genre", "Mystery", "Travel"), List.copyOf(reloaded.snapshot().keySet()));
+        try (Stream<Path> files = Files.list(file.getParent())) {
+            assertEquals(List.of(file), files.toList());
+        }
+
+        Files.writeString(file, "genre\tTravel\tmany\t11\t0.3\t37.0\t0\n");
+        assertTrue(new GenreStatsStore(file).snapshot().isEmpty());
+    }
+
+    private PageTotals fullCrawl() throws IOException {
+        return scraper(1).refreshGenreTotals(GENRE, new GenreStatsStore()).totals();
+    }
+
+    private BookWebScraper scraper(int spotChecks) throws IOException {
+        BookWebScraper scraper = new BookWebScraper("TestAgent/1.0", 5000);
+        scraper.setRenderJavaScript(false);
+        scraper.overrideOrigin(LoadTestServer.BOOKS_ORIGIN, site.booksBase());
+        scraper.setRefreshSpotChecks(spotChecks);
+        scraper.scrape(LoadTestServer.booksHomeUrl());
+        return scraper;
+    }
+
+    private static void assertTotalsEqual(PageTotals expected, PageTotals actual) {
+        assertEquals(expected.books(), actual.books());
+        assertEquals(expected.priceSum(), actual.priceSum(), 1e-6);
+        assertEquals(expected.ratingSum(), actual.ratingSum(), 1e-6);
+    }
+}
@@ -0,0 +1,189 @@
+package net.neological;
+
+import net.neological.webscraping.IoThreads;
+import net.neological.webscraping.specific.BookDetails;
+import net.neological.webscraping.specific.BookWebScraper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Tests for the I/O execution mode. The virtual-thread tests only run on Java 21 and later, where
+ * the pom's {@code java21} profile sets {@code webscraper.requireVirtualThreads} so they cannot be
+ * skipped.
+ */
+@DisplayName("I/O Threads Tests")
+public class IoThreadsTest {
+
+    @AfterEach
+    public void restore() {
+        IoThreads.setVirtual(false);
+        for (IoThreads.Kind kind : IoThreads.Kind.values()) {
+            IoThreads.setLimit(kind, kind.defaultLimit());
+        }
+    }
+
+    @Test
+    @DisplayName("By default pools use named daemon platform threads and I/O runs ungated")
+    public void testPlatformThreads() throws Exception {
+        assertFalse(IoThreads.isVirtual());
+        ExecutorService pool = IoThreads.newExecutor("io-test", 2);
+        try {
+            Future<Thread> thread = pool.submit(Thread::currentThread);
+            assertTrue(thread.get().isDaemon());
+            assertTrue(thread.get().getName().startsWith("io-test-"), thread.get().getName());
+        } finally {
+            pool.shutdown();
+        }
+        assertEquals("done", IoThreads.call(IoThreads.Kind.FETCH, () -> "done"));
+        assertEquals("platform threads", IoThreads.stats().toString());
+    }
+
+    @Test
+    @DisplayName("Asking for virtual threads falls back to platform threads where the runtime has none")
+    public void testFallback() {
+        assertEquals(IoThreads.isVirtualThreadsSupported(), IoThreads.setVirtual(true));
+        assertEquals(IoThreads.isVirtualThreadsSupported(), IoThreads.isVirtual());
+        assertEquals(IoThreads.isVirtualThreadsSupported(), IoThreads.stats().virtual());
+        assertThrows(IllegalArgumentException.class, () -> IoThreads.setLimit(IoThreads.Kind.FETCH, 0));
+    }
+
+    @Test
+    @DisplayName("On virtual threads a wide crawl keeps page fetches within their limit")
+    public void testVirtualThreads() throws Exception {
+        requireVirtualThreads();
+        assertTrue(IoThreads.setVirtual(true));
+        IoThreads.setLimit(IoThreads.Kind.FETCH, 4);
+
+        ExecutorService pool = IoThreads.newExecutor("io-test", 1_000);
+        try {
+            Set<Boolean> virtual = ConcurrentHashMap.newKeySet();
+            List<Future<?>> tasks = new CopyOnWriteArrayList<>();
+            for (int i = 0; i < 1_000; i++) {
+                tasks.add(pool.submit(() -> virtual.add(isVirtual(Thread.currentThread()))));
+            }
+            for (Future<?> task : tasks) {
+                task.get();
+            }
+            assertEquals(Set.of(true), virtual);
+        } finally {
+            pool.shutdown();
+        }
+        assertTrue(pool.awaitTermination(5, TimeUnit.SECONDS));
+
+        try (LoadTestServer server = new LoadTestServer(LoadTestServer.Config.defaults()
+                .withSize(1, 60)
+                .withLatency(20, 0)
+                .withErrorRate(0))) {
+            BookWebScraper scraper = new BookWebScraper("TestAgent/1.0", 5000);
+            scraper.setRenderJavaScript(false);
+            scraper.setMaxConcurrency(500);
+            scraper.overrideOrigin(LoadTestServer.BOOKS_ORIGIN, server.booksBase());
+            scraper.scrape(LoadTestServer.booksHomeUrl());
+            List<BookDetails> details = new CopyOnWriteArrayList<>();
+            assertEquals(60, scraper.enrichGenre(LoadTestServer.genreName(1), details::add));
+        }
+        IoThreads.Stats stats = IoThreads.stats();
+        int peak = stats.peakInFlight().get(IoThreads.Kind.FETCH);
+        assertTrue(peak > 0 && peak <= 4, "peak " + peak);
+    }
+
+    @Test
+    @DisplayName("Shutting down a virtual-thread pool now cancels and returns the tasks that never started")
+    public void testVirtualShutdownNow() throws Exception {
+        requireVirtualThreads();
+        assertTrue(IoThreads.setVirtual(true));
+
+        ExecutorService pool = IoThreads.newExecutor("io-test", 2);
+        CountDownLatch started = new CountDownLatch(2);
+        List<Future<?>> tasks = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            tasks.add(pool.submit(() -> {
+                started.countDown();
+                Thread.sleep(60_000);
+                return null;
+            }));
+        }
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        List<Runnable> neverStarted = pool.shutdownNow();
+        assertEquals(4, neverStarted.size());
+        assertTrue(pool.awaitTermination(5, TimeUnit.SECONDS));
+        for (Future<?> task : tasks) {
+            // Every future completes: interrupted while running, or cancelled before it started
+            assertTrue(task.isDone());
+        }
+        assertEquals(4, tasks.stream().filter(Future::isCancelled).count());
+        assertThrows(RejectedExecutionException.class, () -> pool.execute(() -> {
+        }));
+    }
+
+    @Test
+    @DisplayName("Virtual threads that block inside a monitor are reported with the code that pinned them")
+    public void testPinningReported() throws Exception {
+        requireVirtualThreads();
+        assertTrue(IoThreads.setVirtual(true));
+        assumeTrue(IoThreads.stats().pinningMonitored(), "No flight recorder in this runtime");
+
+        Object monitor = new Object();
+        ExecutorService pool = IoThreads.newExecutor("io-test", 4);
+        try {
+            List<Future<?>> tasks = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                tasks.add(pool.submit(() -> {
+                    synchronized (monitor) {
+                        Thread.sleep(50);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> task : tasks) {
+                task.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        // Flight recorder events arrive asynchronously, about once a second
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (IoThreads.stats().pinnedEvents() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(100);
+        }
+        IoThreads.Stats stats = IoThreads.stats();
+        assertTrue(stats.pinnedEvents() > 0, stats.toString());
+        assertTrue(stats.pinnedAt().get(0).startsWith(IoThreadsTest.class.getName()), stats.toString());
+    }
+
+    /**
+     * Skips the calling test below Java 21, unless the build requires virtual threads.
+     */
+    private static void requireVirtualThreads() {
+        if (Boolean.getBoolean("webscraper.requireVirtualThreads")) {
+            assertTrue(IoThreads.isVirtualThreadsSupported(), "Virtual threads are required but not available");
+        } else {
+            assumeTrue(IoThreads.isVirtualThreadsSupported(), "Virtual threads need Java 21");
+        }
+    }
+
+    private static boolean isVirtual(Thread thread) {
+        try {
+            return (Boolean) Thread.class.getMethod("isVirtual").invoke(thread);
+        } catch (ReflectiveOperationException e) {
+            throw new AssertionError(e);
+        }
+    }
+}
@@ -0,0 +1,270 @@
+package net.neological;
+
+import net.neological.webscraping.RequestExecutor;
+import net.neological.webscraping.RequestPolicy;
+import net.neological.webscraping.ScrapeMonitor;
+import net.neological.webscraping.catalog.BookCatalog;
+import net.neological.webscraping.events.ScrapeEventBus;
+import net.neological.webscraping.specific.BookWebScraper;
+import net.neological.webscraping.specific.FredWebScraper;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs {@link BookWebScraper} and {@link FredWebScraper} crawls against a {@link LoadTestServer}
+ * and reports throughput, latency percentiles, retries, heap and CPU per engine configuration.
+ * <p>
+ * Run a full matrix from the command line (arguments are optional: genres, books per genre,
+ * latency in ms, error rate):
+ * <pre>
+ *     mvn -q test-compile exec:java -Dexec.classpathScope=test \
+ *         -Dexec.mainClass=net.neological.LoadTestDriver -Dexec.args="1000 60 20 0.01"
+ * </pre>
+ * CPU is the whole process, so it includes the embedded server's threads.
+ */
+public final class LoadTestDriver {
+
+    /**
+     * One way of running the scraping engine.
+     *
+     * @param name     label for the report
+     * @param workers  genres (or FRED jobs) crawled in parallel
+     * @param policy   retry and hedging policy shared by all workers
+     */
+    public record EngineConfig(String name, int workers, RequestPolicy policy) {
+    }
+
+    /**
+     * Results of one crawl.
+     *
+     * @param catalogRows books cataloged by a books crawl; 0 for FRED
+     */
+    public record Report(String engine,
+                         String site,
+                         long pages,
+                         long failedJobs,
+                         long catalogRows,
+                         double seconds,
+                         double p50Millis,
+                         double p95Millis,
+                         double p99Millis,
+                         long retries,
+                         long hedges,
+                         long serverErrors,
+                         long peakHeapBytes,
+                         double cpuSeconds) {
+
+        public double pagesPerSecond() {
+            return seconds > 0 ? pages / seconds : 0;
+        }
+
+        static String header() {
+            return String.format(Locale.ROOT, "%-22s %-6s %8s %6s %8s %9s %8s %8s %8s %7s %6s %9s %8s",
+                    "engine", "site", "pages", "failed", "secs", "pages/s", "p50 ms", "p95 ms", "p99 ms",
+                    "retries", "hedges", "heap MB", "cpu s");
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%-22s %-6s %8d %6d %8.2f %9.1f %8.1f %8.1f %8.1f %7d %6d %9.1f %8.2f",
+                    engine, site, pages, failedJobs, seconds, pagesPerSecond(), p50Millis, p95Millis, p99Millis,
+                    retries, hedges, peakHeapBytes / (1024.0 * 1024.0), cpuSeconds);
+        }
+    }
+
+    private LoadTestDriver() {
+    }
+
+    /**
+     * Crawls the first {@code genres} genres of the synthetic catalogue into per-worker
+     * {@link BookCatalog}s.
+     *
+     * @param server the load-test server
+     * @param engine how to run the engine
+     * @param genres how many genres to crawl
+     * @return the measurements
+     */
+    public static Report crawlBooks(LoadTestServer server, EngineConfig engine, int genres) throws Exception {
+        RequestExecutor requests = new RequestExecutor(engine.policy());
+        ScrapeMonitor monitor = new ScrapeMonitor();
+        ConcurrentLinkedQueue<String> pending = new ConcurrentLinkedQueue<>();
+        for (int genre = 1; genre <= genres; genre++) {
+            pending.add(LoadTestServer.genreName(genre));
+        }
+        AtomicInteger failed = new AtomicInteger();
+        LongAdder rows = new LongAdder();
+
+        Measurement measurement = Measurement.start(server);
+        ExecutorService workers = Executors.newFixedThreadPool(engine.workers());
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int w = 0; w < engine.workers(); w++) {
+                futures.add(workers.submit(() -> {
+                    BookWebScraper scraper = new BookWebScraper("LoadTest/1.0", 15_000);
+                    configure(scraper, server, requests, monitor);
+                    scraper.overrideOrigin(LoadTestServer.BOOKS_ORIGIN, server.booksBase());
+                    scraper.scrape(LoadTestServer.booksHomeUrl());
+
+                    BookCatalog catalog = new BookCatalog();
+                    String genre;
+                    while ((genre = pending.poll()) != null) {
+                        try {
+                            scraper.catalogGenre(genre, catalog);
+                        } catch (IOException e) {
+                            failed.incrementAndGet();
+                        }
+                    }
+                    rows.add(catalog.size());
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            workers.shutdownNow();
+        }
+        return measurement.finish(engine.name(), "books", monitor, requests, failed.get(), rows.sum());
+    }
+
+    /**
+     * Runs {@code jobs} FRED search-result scrapes, each downloading every series CSV into its
+     * own folder under {@code downloadRoot}.
+     *
+     * @param server       the load-test server
+     * @param engine       how to run the engine
+     * @param jobs         how many search jobs to run
+     * @param downloadRoot where CSVs are written
+     * @return the measurements
+     */
+    public static Report crawlFred(LoadTestServer server, EngineConfig engine, int jobs, Path downloadRoot) throws Exception {
+        RequestExecutor requests = new RequestExecutor(engine.policy());
+        ScrapeMonitor monitor = new ScrapeMonitor();
+        AtomicInteger failed = new AtomicInteger();
+
+        Measurement measurement = Measurement.start(server);
+        ExecutorService workers = Executors.newFixedThreadPool(engine.workers());
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int job = 0; job < jobs; job++) {
+                Path folder = downloadRoot.resolve("job-" + job);
+                futures.add(workers.submit(() -> {
+                    FredWebScraper scraper = new FredWebScraper("LoadTest/1.0", 15_000);
+                    configure(scraper, server, requests, monitor);
+                    scraper.overrideOrigin(LoadTestServer.FRED_ORIGIN, server.fredBase());
+                    scraper.setDownloadFolder(folder.toString());
+                    try {
+                        scraper.scrape(LoadTestServer.fredSearchUrl());
+                    } catch (IOException e) {
+                        failed.incrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            workers.shutdownNow();
+        }
+        return measurement.finish(engine.name(), "fred", monitor, requests, failed.get(), 0);
+    }
+
+    private static void configure(net.neological.webscraping.WebScraper scraper, LoadTestServer server,
+                                  RequestExecutor requests, ScrapeMonitor monitor) {
+        scraper.setRenderJavaScript(false);
+        scraper.setRequestExecutor(requests);
+        scraper.setMonitor(monitor);
+        // Per-page events would only measure the bus; nobody listens during a load test
+        scraper.setEventBus(LOAD_TEST_BUS);
+    }
+
+    private static final ScrapeEventBus LOAD_TEST_BUS = new ScrapeEventBus(1_024);
+
+    /**
+     * Wall clock, process CPU and peak heap around one crawl.
+     */
+    private record Measurement(LoadTestServer server, long startNanos, long startCpuNanos, long startErrors) {
+
+        static Measurement start(LoadTestServer server) {
+            System.gc();
+            for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+                if (pool.getType() == MemoryType.HEAP) {
+                    pool.resetPeakUsage();
+                }
+            }
+            return new Measurement(server, System.nanoTime(), processCpuNanos(), server.getInjectedErrors());
+        }
+
+        Report finish(String engine, String site, ScrapeMonitor monitor, RequestExecutor requests, long failedJobs,
+                      long catalogRows) {
+            double seconds = (System.nanoTime() - startNanos) / 1e9;
+            double cpuSeconds = (processCpuNanos() - startCpuNanos) / 1e9;
+            long peakHeap = 0;
+            for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+                if (pool.getType() == MemoryType.HEAP) {
+                    peakHeap += pool.getPeakUsage().getUsed();
+                }
+            }
+            return new Report(engine, site, monitor.getPagesFetched(), failedJobs, catalogRows, seconds,
+                    requests.latencyQuantile(0.50), requests.latencyQuantile(0.95), requests.latencyQuantile(0.99),
+                    requests.getRetryCount(), requests.getHedgeCount(),
+                    server.getInjectedErrors() - startErrors, peakHeap, cpuSeconds);
+        }
+
+        private static long processCpuNanos() {
+            if (ManagementFactory.getOperatingSystemMXBean() instanceof com.sun.management.OperatingSystemMXBean os) {
+                return os.getProcessCpuTime();
+            }
+            return 0;
+        }
+    }
+
+    /**
+     * Runs the default engine matrix and prints one report line per configuration.
+     *
+     * @param args optional: genres, books per genre, latency in ms, error rate
+     */
+    public static void main(String[] args) throws Exception {
+        int genres = args.length > 0 ? Integer.parseInt(args[0]) : 1_000;
+        int booksPerGenre = args.length > 1 ? Integer.parseInt(args[1]) : 60;
+        long latency = args.length > 2 ? Long.parseLong(args[2]) : 20;
+        double errorRate = args.length > 3 ? Double.parseDouble(args[3]) : 0.01;
+
+        LoadTestServer.Config config = LoadTestServer.Config.defaults()
+                .withSize(genres, booksPerGenre)
+                .withLatency(latency, latency * 3 / 2)
+                .withErrorRate(errorRate);
+        List<EngineConfig> engines = List.of(
+                new EngineConfig("1 worker", 1, RequestPolicy.DEFAULT),
+                new EngineConfig("8 workers", 8, RequestPolicy.DEFAULT),
+                new EngineConfig("32 workers", 32, RequestPolicy.DEFAULT),
+                new EngineConfig("32 workers + hedging", 32, RequestPolicy.DEFAULT.withHedging(true)));
+
+        Path downloads = Files.createTempDirectory("load-test-fred");
+        try (LoadTestServer server = new LoadTestServer(config)) {
+            System.out.println(config);
+            System.out.println(Report.header());
+            for (EngineConfig engine : engines) {
+                System.out.println(crawlBooks(server, engine, genres));
+            }
+            for (EngineConfig engine : engines) {
+                System.out.println(crawlFred(server, engine, Math.max(1, engine.workers()), downloads.resolve(engine.workers() + "-" + engine.policy().hedging())));
+            }
+        }
+    }
+}
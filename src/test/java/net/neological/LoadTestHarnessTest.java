@@ -0,0 +1,80 @@
+package net.neological;
+
+import net.neological.webscraping.RequestPolicy;
+import net.neological.webscraping.storage.DownloadStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs a scaled-down load test end to end, so the harness keeps working as the scrapers change.
+ */
+@DisplayName("Load Test Harness Tests")
+public class LoadTestHarnessTest {
+
+    private static final int GENRES = 12;
+    private static final int BOOKS_PER_GENRE = 45;
+    private static final int FRED_SERIES = 10;
+    private static final int CSV_ROWS = 50;
+
+    private LoadTestServer server;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        server = new LoadTestServer(LoadTestServer.Config.defaults()
+                .withSize(GENRES, BOOKS_PER_GENRE)
+                .withFred(FRED_SERIES, CSV_ROWS)
+                .withLatency(2, 2)
+                .withErrorRate(0.05));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        server.close();
+    }
+
+    @Test
+    @DisplayName("Catalogs every book of every genre through injected errors")
+    public void testBooksCrawl() throws Exception {
+        LoadTestDriver.EngineConfig engine =
+                new LoadTestDriver.EngineConfig("test", 4, RequestPolicy.DEFAULT.withMaxAttempts(8));
+
+        LoadTestDriver.Report report = LoadTestDriver.crawlBooks(server, engine, GENRES);
+
+        assertEquals(GENRES * BOOKS_PER_GENRE, report.catalogRows());
+        assertEquals(0, report.failedJobs());
+        // Home page once per worker, then every listing page
+        assertEquals(4 + GENRES * server.getConfig().pagesPerGenre(), report.pages());
+        assertTrue(report.p95Millis() >= report.p50Millis());
+        assertTrue(report.pagesPerSecond() > 0);
+    }
+
+    @Test
+    @DisplayName("Downloads every FRED series CSV")
+    public void testFredCrawl(@TempDir Path downloads) throws Exception {
+        LoadTestDriver.EngineConfig engine =
+                new LoadTestDriver.EngineConfig("test", 1, RequestPolicy.DEFAULT.withMaxAttempts(8));
+
+        LoadTestDriver.Report report = LoadTestDriver.crawlFred(server, engine, 1, downloads);
+
+        assertEquals(0, report.failedJobs());
+        List<Path> csvs;
+        try (Stream<Path> files = Files.list(downloads.resolve("job-0"))) {
+            csvs = files.filter(file -> !file.endsWith(DownloadStore.MANIFEST_FILE)).toList();
+        }
+        assertEquals(FRED_SERIES, csvs.size());
+        for (Path csv : csvs) {
+            assertEquals(CSV_ROWS + 1, Files.readAllLines(csv).size());
+        }
+    }
+}
@@ -0,0 +1,439 @@
+package net.neological;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Embedded HTTP server for load tests. It synthesizes a books.toscrape-style catalogue
+ * (built from the {@code genre2.html} fixture, scaled to any number of genres and pages)
+ * under {@code /books} and a FRED-like search, series and CSV site under {@code /fred}, with
+ * configurable latency, error rate and bandwidth.
+ * <p>
+ * Pages link to the canonical hosts, so scrapers run unchanged with
+ * {@link net.neological.webscraping.WebScraper#overrideOrigin(String, String)} pointing
+ * {@link #BOOKS_ORIGIN} at {@link #booksBase()} and {@link #FRED_ORIGIN} at {@link #fredBase()}.
+ */
+public class LoadTestServer implements Closeable {
+    public static final String BOOKS_ORIGIN = "https://books.toscrape.com";
+    public static final String FRED_ORIGIN = "https://fred.stlouisfed.org";
+    private static final int BOOKS_PER_PAGE = 20;
+    private static final int FRED_RESULTS_PER_PAGE = 20;
+    private static final String[] RATINGS = {"One", "Two", "Three", "Four", "Five"};
+
+    private static final Pattern GENRE_PAGE =
+            Pattern.compile("/catalogue/category/books/genre-(\\d+)_\\d+/(index|page-(\\d+))\\.html");
+    private static final Pattern DETAIL_PAGE = Pattern.compile("/catalogue/book-(\\d+)-(\\d+)_\\d+/index\\.html");
+    private static final Pattern COVER = Pattern.compile("/media/cache/cover-(\\d+)-(\\d+)\\.jpg");
+    private static final Pattern SERIES_PAGE = Pattern.compile("/series/(SER\\d+)");
+    private static final Pattern PAGE_ID = Pattern.compile("pageID=(\\d+)");
+
+    /**
+     * Site size and network behaviour.
+     *
+     * @param genres              number of genres in the catalogue
+     * @param booksPerGenre       books listed in each genre (20 per page)
+     * @param fredSeries          series found by the FRED search, 20 per results page
+     * @param csvRows             data rows in each series CSV
+     * @param latencyMillis       base delay before each response
+     * @param latencyJitterMillis extra random delay, uniform in [0, jitter]
+     * @param errorRate           fraction of requests answered with HTTP 503
+     * @param bytesPerSecond      per-response bandwidth cap, or 0 for unlimited
+     */
+    public record Config(int genres,
+                         int booksPerGenre,
+                         int fredSeries,
+                         int csvRows,
+                         long latencyMillis,
+                         long latencyJitterMillis,
+                         double errorRate,
+                         long bytesPerSecond) {
+
+        public static Config defaults() {
+            return new Config(1_000, 60, 200, 500, 20, 30, 0.01, 0);
+        }
+
+        public Config withSize(int genres, int booksPerGenre) {
+            return new Config(genres, booksPerGenre, fredSeries, csvRows, latencyMillis, latencyJitterMillis, errorRate, bytesPerSecond);
+        }
+
+        public Config withFred(int fredSeries, int csvRows) {
+            return new Config(genres, booksPerGenre, fredSeries, csvRows, latencyMillis, latencyJitterMillis, errorRate, bytesPerSecond);
+        }
+
+        public Config withLatency(long latencyMillis, long latencyJitterMillis) {
+            return new Config(genres, booksPerGenre, fredSeries, csvRows, latencyMillis, latencyJitterMillis, errorRate, bytesPerSecond);
+        }
+
+        public Config withErrorRate(double errorRate) {
+            return new Config(genres, booksPerGenre, fredSeries, csvRows, latencyMillis, latencyJitterMillis, errorRate, bytesPerSecond);
+        }
+
+        public Config withBandwidth(long bytesPerSecond) {
+            return new Config(genres, booksPerGenre, fredSeries, csvRows, latencyMillis, latencyJitterMillis, errorRate, bytesPerSecond);
+        }
+
+        public int pagesPerGenre() {
+            return Math.max(1, (booksPerGenre + BOOKS_PER_PAGE - 1) / BOOKS_PER_PAGE);
+        }
+    }
+
+    private final Config config;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final String[] listingParts;
+    private final String productTemplate;
+    private final String sidebar;
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder injectedErrors = new LongAdder();
+    private final LongAdder bytesSent = new LongAdder();
+    // Changes made to the catalogue after start, keyed by genre and by "genre-book"
+    private final Map<Integer, Integer> booksInGenre = new ConcurrentHashMap<>();
+    private final Map<String, Double> prices = new ConcurrentHashMap<>();
+
+    /**
+     * Starts the server on a free loopback port.
+     *
+     * @param config site size and network behaviour
+     * @throws IOException if the fixture cannot be read or the server cannot bind
+     */
+    public LoadTestServer(Config config) throws IOException {
+        this.config = config;
+
+        Document template = loadListingTemplate();
+        Element article = template.selectFirst("article.product_pod");
+        this.productTemplate = productTemplate(article);
+        template.selectFirst("div.side_categories ul.nav-list > li > ul").html("{{SIDEBAR}}");
+        template.selectFirst("div.page-header h1").text("{{GENRE}}");
+        template.selectFirst("form.form-horizontal strong").text("{{COUNT}}");
+        article.parent().parent().html("{{PRODUCTS}}");
+        template.selectFirst("ul.pager").html("{{PAGER}}");
+        this.listingParts = template.outerHtml().split("\\{\\{(SIDEBAR|GENRE|COUNT|PRODUCTS|PAGER)}}", -1);
+        if (listingParts.length != 6) {
+            throw new IOException("Unexpected listing fixture layout");
+        }
+
+        StringBuilder links = new StringBuilder();
+        for (int genre = 1; genre <= config.genres(); genre++) {
+            links.append("<li><a href=\"").append(genreUrl(genre, 1)).append("\">")
+                    .append(genreName(genre)).append("</a></li>\n");
+        }
+        this.sidebar = links.toString();
+
+        AtomicInteger threads = new AtomicInteger();
+        this.executor = Executors.newCachedThreadPool(task -> {
+            Thread thread = new Thread(task, "load-test-server-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 256);
+        server.createContext("/books/", exchange -> serve(exchange, this::books));
+        server.createContext("/fred/", exchange -> serve(exchange, this::fred));
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    /**
+     * @param genre a genre number, from 1
+     * @return the name the genre is listed under in the sidebar
+     */
+    public static String genreName(int genre) {
+        return String.format(Locale.ROOT, "Genre %04d", genre);
+    }
+
+    /**
+     * @return the search-results URL of the FRED-like site, in canonical form
+     */
+    public static String fredSearchUrl() {
+        return FRED_ORIGIN + "/searchresults/?st=load";
+    }
+
+    /**
+     * @return the catalogue home page, in canonical form
+     */
+    public static String booksHomeUrl() {
+        return BOOKS_ORIGIN + "/index.html";
+    }
+
+    public String booksBase() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/books";
+    }
+
+    public String fredBase() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/fred";
+    }
+
+    public Config getConfig() {
+        return config;
+    }
+
+    public long getRequests() {
+        return requests.sum();
+    }
+
+    public long getInjectedErrors() {
+        return injectedErrors.sum();
+    }
+
+    public long getBytesSent() {
+        return bytesSent.sum();
+    }
+
+    /**
+     * Changes how many books a genre lists from now on; new books are appended at the end.
+     */
+    public void setBooksInGenre(int genre, int books) {
+        booksInGenre.put(genre, books);
+    }
+
+    /**
+     * Changes one book's listed price from now on.
+     */
+    public void setPrice(int genre, int book, double price) {
+        prices.put(genre + "-" + book, price);
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private interface Site {
+        /**
+         * @return the response body, or null for 404
+         */
+        Response respond(String path, String query);
+    }
+
+    private record Response(String contentType, byte[] body) {
+        static Response html(String html) {
+            return new Response("text/html; charset=utf-8", html.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private void serve(HttpExchange exchange, Site site) throws IOException {
+        requests.increment();
+        try (exchange) {
+            long delay = config.latencyMillis();
+            if (config.latencyJitterMillis() > 0) {
+                delay += ThreadLocalRandom.current().nextLong(config.latencyJitterMillis() + 1);
+            }
+            sleep(delay);
+
+            if (config.errorRate() > 0 && ThreadLocalRandom.current().nextDouble() < config.errorRate()) {
+                injectedErrors.increment();
+                exchange.sendResponseHeaders(503, -1);
+                return;
+            }
+
+            String path = exchange.getRequestURI().getPath();
+            String prefix = exchange.getHttpContext().getPath();
+            Response response = site.respond(path.substring(prefix.length() - 1), exchange.getRequestURI().getQuery());
+            if (response == null) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+
+            exchange.getResponseHeaders().set("Content-Type", response.contentType());
+            exchange.sendResponseHeaders(200, response.body().length);
+            OutputStream out = exchange.getResponseBody();
+            byte[] body = response.body();
+            int chunk = config.bytesPerSecond() > 0 ? (int) Math.max(1, Math.min(16 * 1024, config.bytesPerSecond() / 10)) : body.length;
+            for (int offset = 0; offset < body.length; offset += chunk) {
+                int length = Math.min(chunk, body.length - offset);
+                out.write(body, offset, length);
+                bytesSent.add(length);
+                if (config.bytesPerSecond() > 0) {
+                    sleep(length * 1000L / config.bytesPerSecond());
+                }
+            }
+        }
+    }
+
+    private Response books(String path, String query) {
+        if (path.equals("/index.html") || path.equals("/")) {
+            return Response.html(listingPage(1, 1));
+        }
+        Matcher m = GENRE_PAGE.matcher(path);
+        if (m.matches()) {
+            int genre = Integer.parseInt(m.group(1));
+            int page = m.group(3) != null ? Integer.parseInt(m.group(3)) : 1;
+            if (genre < 1 || genre > config.genres() || page < 1 || page > pagesIn(genre)) {
+                return null;
+            }
+            return Response.html(listingPage(genre, page));
+        }
+        m = DETAIL_PAGE.matcher(path);
+        if (m.matches()) {
+            return Response.html(detailPage(Integer.parseInt(m.group(1)), Integer.parseInt(m.group(2))));
+        }
+        m = COVER.matcher(path);
+        if (m.matches()) {
+            byte[] image = new byte[8 * 1024];
+            new Random(Long.parseLong(m.group(1)) * 100_003 + Long.parseLong(m.group(2))).nextBytes(image);
+            return new Response("image/jpeg", image);
+        }
+        return null;
+    }
+
+    private Response fred(String path, String query) {
+        if (path.equals("/searchresults/") || path.equals("/searchresults")) {
+            Matcher pageId = PAGE_ID.matcher(query != null ? query : "");
+            int page = pageId.find() ? Integer.parseInt(pageId.group(1)) : 1;
+            int pages = Math.max(1, (config.fredSeries() + FRED_RESULTS_PER_PAGE - 1) / FRED_RESULTS_PER_PAGE);
+            StringBuilder html = new StringBuilder("<html><head><title>Search results</title></head><body><ul>\n");
+            int last = Math.min(config.fredSeries(), page * FRED_RESULTS_PER_PAGE);
+            for (int i = (page - 1) * FRED_RESULTS_PER_PAGE + 1; i <= last; i++) {
+                html.append("<li><a class=\"series-title\" href=\"/series/SER").append(i).append("\">Series ")
+                        .append(i).append("</a></li>\n");
+            }
+            html.append("</ul>\n");
+            if (pages > 1) {
+                // Like FRED's pager, only a window of pages around the current one is linked
+                html.append("<div class=\"pager\">");
+                for (int p = Math.max(1, page - 2); p <= Math.min(pages, page + 2); p++) {
+                    html.append("<a href=\"/searchresults/?st=load&amp;pageID=").append(p).append("\">").append(p).append("</a> ");
+                }
+                html.append("</div>\n");
+            }
+            return Response.html(html.append("</body></html>").toString());
+        }
+        Matcher m = SERIES_PAGE.matcher(path);
+        if (m.matches()) {
+            String id = m.group(1);
+            return Response.html("<html><head><title>" + id + "</title></head><body>"
+                    + "<h1>" + id + "</h1><button id=\"download-button\">Download</button>"
+                    + "<ul><li><a id=\"download-data-csv\" href=\"/graph/fredgraph.csv?id=" + id + "\">CSV</a></li></ul>"
+                    + "</body></html>");
+        }
+        if (path.equals("/graph/fredgraph.csv") && query != null && query.startsWith("id=")) {
+            StringBuilder csv = new StringBuilder("observation_date,").append(query.substring(3)).append('\n');
+            for (int row = 0; row < config.csvRows(); row++) {
+                csv.append(String.format(Locale.ROOT, "%04d-%02d-01,%.3f%n", 1950 + row / 12, row % 12 + 1, 100 + row * 0.25));
+            }
+            return new Response("text/csv", csv.toString().getBytes(StandardCharsets.UTF_8));
+        }
+        return null;
+    }
+
+    private int booksIn(int genre) {
+        return booksInGenre.getOrDefault(genre, config.booksPerGenre());
+    }
+
+    private int pagesIn(int genre) {
+        return Math.max(1, (booksIn(genre) + BOOKS_PER_PAGE - 1) / BOOKS_PER_PAGE);
+    }
+
+    private String listingPage(int genre, int page) {
+        int pages = pagesIn(genre);
+        int first = (page - 1) * BOOKS_PER_PAGE + 1;
+        int last = Math.min(booksIn(genre), page * BOOKS_PER_PAGE);
+
+        StringBuilder products = new StringBuilder();
+        for (int book = first; book <= last; book++) {
+            String detailUrl = BOOKS_ORIGIN + "/catalogue/book-" + genre + "-" + book + "_" + (genre * 1000 + book) + "/index.html";
+            double listed = prices.getOrDefault(genre + "-" + book, 10 + (genre * 31 + book * 17) % 4000 / 100.0);
+            String price = String.format(Locale.ROOT, "%.2f", listed);
+            products.append("<li class=\"col-xs-6 col-sm-4 col-md-3 col-lg-3\">")
+                    .append(productTemplate
+                            .replace("{{HREF}}", detailUrl)
+                            .replace("{{IMG}}", BOOKS_ORIGIN + "/media/cache/cover-" + genre + "-" + book + ".jpg")
+                            .replace("{{TITLE}}", "Book " + genre + "-" + book)
+                            .replace("{{RATING}}", RATINGS[(genre + book) % RATINGS.length])
+                            .replace("{{PRICE}}", price))
+                    .append("</li>\n");
+        }
+
+        StringBuilder pager = new StringBuilder();
+        if (page > 1) {
+            pager.append("<li class=\"previous\"><a href=\"").append(genreUrl(genre, page - 1)).append("\">previous</a></li>");
+        }
+        pager.append("<li class=\"current\">Page ").append(page).append(" of ").append(pages).append("</li>");
+        if (page < pages) {
+            pager.append("<li class=\"next\"><a href=\"").append(genreUrl(genre, page + 1)).append("\">next</a></li>");
+        }
+
+        return listingParts[0] + sidebar
+                + listingParts[1] + genreName(genre)
+                + listingParts[2] + booksIn(genre)
+                + listingParts[3] + products
+                + listingParts[4] + pager
+                + listingParts[5];
+    }
+
+    private static String detailPage(int genre, int book) {
+        String title = "Book " + genre + "-" + book;
+        return "<html><body>"
+                + "<div class=\"col-sm-6 product_main\"><h1>" + title + "</h1>"
+                + "<p class=\"price_color\">£12.50</p><p class=\"star-rating " + RATINGS[(genre + book) % RATINGS.length] + "\"></p></div>"
+                + "<div id=\"product_description\" class=\"sub-header\"><h2>Product Description</h2></div>"
+                + "<p>A description of " + title + ".</p>"
+                + "<table class=\"table table-striped\">"
+                + "<tr><th>UPC</th><td>upc-" + genre + "-" + book + "</td></tr>"
+                + "<tr><th>Product Type</th><td>Books</td></tr>"
+                + "<tr><th>Price (excl. tax)</th><td>£12.50</td></tr>"
+                + "<tr><th>Price (incl. tax)</th><td>£15.00</td></tr>"
+                + "<tr><th>Tax</th><td>£2.50</td></tr>"
+                + "<tr><th>Availability</th><td>In stock (" + (book % 20 + 1) + " available)</td></tr>"
+                + "</table></body></html>";
+    }
+
+    private static String genreUrl(int genre, int page) {
+        String base = BOOKS_ORIGIN + "/catalogue/category/books/genre-" + genre + "_" + genre + "/";
+        return base + (page == 1 ? "index.html" : "page-" + page + ".html");
+    }
+
+    private static String productTemplate(Element article) {
+        Element copy = article.clone();
+        for (Element link : copy.select("a")) {
+            link.attr("href", "{{HREF}}");
+        }
+        copy.selectFirst("img").attr("src", "{{IMG}}").attr("alt", "{{TITLE}}");
+        copy.selectFirst("h3 > a").attr("title", "{{TITLE}}").text("{{TITLE}}");
+        copy.selectFirst("p.star-rating").attr("class", "star-rating {{RATING}}");
+        copy.selectFirst("p.price_color").text("£{{PRICE}}");
+        return copy.outerHtml();
+    }
+
+    private static Document loadListingTemplate() throws IOException {
+        try (InputStream in = LoadTestServer.class.getResourceAsStream("/genre2.html")) {
+            if (in == null) {
+                throw new IOException("Could not load fixture: /genre2.html");
+            }
+            return Jsoup.parse(in, "UTF-8", BOOKS_ORIGIN + "/catalogue/category/books/historical-fiction_4/index.html");
+        }
+    }
+
+    private static void sleep(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
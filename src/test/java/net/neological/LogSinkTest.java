@@ -0,0 +1,119 @@
+package net.neological;
+
+import net.neological.gui.LogSink;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import javax.swing.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the GUI log model, driven on the Event Dispatch Thread without showing a window.
+ */
+@DisplayName("Log Sink Tests")
+public class LogSinkTest {
+
+    @Test
+    @DisplayName("Lines logged from other threads reach the area in order")
+    public void testBatchedAppend() throws Exception {
+        JTextArea area = new JTextArea();
+        LogSink sink = onEdt(() -> new LogSink(area, 100));
+        Thread writer = new Thread(() -> {
+            for (int i = 0; i < 50; i++) {
+                sink.log("line " + i);
+            }
+        });
+        writer.start();
+        writer.join();
+        SwingUtilities.invokeAndWait(sink::close);
+
+        String[] lines = area.getText().split("\n");
+        assertEquals(50, lines.length);
+        assertEquals("line 0", lines[0]);
+        assertEquals("line 49", lines[49]);
+        assertEquals(area.getDocument().getLength(), area.getCaretPosition());
+    }
+
+    @Test
+    @DisplayName("Once full, the oldest lines are dropped from the front of the area")
+    public void testCapacity() throws Exception {
+        JTextArea area = new JTextArea();
+        LogSink sink = onEdt(() -> new LogSink(area, 10));
+        for (int i = 0; i < 8; i++) {
+            sink.log("first " + i);
+        }
+        // Let the timer flush the first batch before the log wraps
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (lineCount(area) < 9) {
+            assertTrue(System.nanoTime() < deadline, "first batch not flushed");
+            Thread.sleep(10);
+        }
+        for (int i = 0; i < 5; i++) {
+            sink.log("second " + i);
+        }
+        SwingUtilities.invokeAndWait(sink::close);
+
+        String[] lines = area.getText().split("\n");
+        assertEquals(10, lines.length);
+        assertEquals("first 3", lines[0]);
+        assertEquals("second 4", lines[9]);
+        assertEquals(11, area.getLineCount());
+    }
+
+    @Test
+    @DisplayName("A burst larger than the capacity keeps only its last lines")
+    public void testBurst() throws Exception {
+        JTextArea area = new JTextArea();
+        LogSink sink = onEdt(() -> new LogSink(area, 5));
+        for (int i = 0; i < 1_000; i++) {
+            sink.log("burst " + i);
+        }
+        SwingUtilities.invokeAndWait(sink::close);
+
+        assertEquals("burst 995\nburst 996\nburst 997\nburst 998\nburst 999\n", area.getText());
+    }
+
+    @Test
+    @DisplayName("While the Event Dispatch Thread is stalled, only the capacity's worth of lines is queued")
+    public void testStalledEdt() throws Exception {
+        JTextArea area = new JTextArea();
+        LogSink sink = onEdt(() -> new LogSink(area, 5));
+        CountDownLatch stalled = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        SwingUtilities.invokeLater(() -> {
+            stalled.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertTrue(stalled.await(5, TimeUnit.SECONDS));
+        for (int i = 0; i < 1_000; i++) {
+            sink.log("stalled " + i);
+        }
+        assertEquals(995, sink.getDroppedLines());
+        release.countDown();
+        SwingUtilities.invokeAndWait(sink::close);
+
+        assertEquals("stalled 995\nstalled 996\nstalled 997\nstalled 998\nstalled 999\n", area.getText());
+    }
+
+    private static LogSink onEdt(Supplier<LogSink> create) throws Exception {
+        AtomicReference<LogSink> sink = new AtomicReference<>();
+        SwingUtilities.invokeAndWait(() -> sink.set(create.get()));
+        return sink.get();
+    }
+
+    private static int lineCount(JTextArea area) throws Exception {
+        AtomicInteger lines = new AtomicInteger();
+        SwingUtilities.invokeAndWait(() -> lines.set(area.getLineCount()));
+        return lines.get();
+    }
+}
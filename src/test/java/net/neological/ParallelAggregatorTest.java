@@ -0,0 +1,85 @@
+package net.neological;
+
+import net.neological.webscraping.specific.BookWebScraper;
+import net.neological.webscraping.specific.PageTotals;
+import net.neological.webscraping.stats.ParallelAggregator;
+import net.neological.webscraping.stats.SpeedupReport;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for fork-join aggregation over stored listing pages.
+ */
+@DisplayName("ParallelAggregator Tests")
+public class ParallelAggregatorTest {
+
+    private final BookWebScraper scraper = new BookWebScraper("TestAgent/1.0", 5000);
+
+    @Test
+    @DisplayName("aggregatePages matches the genre averages for Historical Fiction")
+    public void testAggregatePages_HistoricalFiction() throws IOException {
+        List<Document> pages = List.of(load("/genre2.html"), load("/genre2_page2.html"));
+        PageTotals totals = scraper.aggregatePages(pages, new ParallelAggregator());
+
+        assertEquals(26, totals.books());
+        assertEquals(33.64423076923077, totals.averagePrice(), 0.0001);
+        assertEquals(3.230769230769231, totals.averageRating(), 0.0001);
+    }
+
+    @Test
+    @DisplayName("results are bit-for-bit identical across runs and pool sizes")
+    public void testDeterministicAcrossPoolSizes() throws IOException {
+        List<Document> pages = new ArrayList<>();
+        Document[] fixtures = {load("/genre1.html"), load("/genre2.html"), load("/genre2_page2.html")};
+        for (int i = 0; i < 300; i++) {
+            pages.add(fixtures[i % fixtures.length]);
+        }
+
+        PageTotals single = scraper.aggregatePages(pages, new ParallelAggregator(new ForkJoinPool(1), 4));
+        for (int run = 0; run < 5; run++) {
+            PageTotals parallel = scraper.aggregatePages(pages, new ParallelAggregator(new ForkJoinPool(8), 4));
+            assertEquals(single, parallel);
+        }
+        assertEquals(100 * (11 + 20 + 6), single.books());
+    }
+
+    @Test
+    @DisplayName("stored pages can be aggregated from files with a speedup report")
+    public void testMeasureSpeedupOverFiles() throws IOException, URISyntaxException {
+        Path file = Paths.get(getClass().getResource("/genre1.html").toURI());
+        List<Path> files = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            files.add(file);
+        }
+
+        ParallelAggregator aggregator = new ParallelAggregator();
+        PageTotals totals = aggregator.aggregate(files, ParallelAggregator.PageSource.files(),
+                scraper::pageTotals, PageTotals.EMPTY, PageTotals::combine);
+        assertEquals(16 * 11, totals.books());
+
+        SpeedupReport report = aggregator.measureSpeedup(files, ParallelAggregator.PageSource.files(),
+                scraper::pageTotals, PageTotals.EMPTY, PageTotals::combine, 1, 2);
+        assertEquals(2, report.entries().size());
+        assertEquals(1.0, report.entries().get(0).speedup(), 0.0001);
+    }
+
+    private Document load(String fixture) throws IOException {
+        try (InputStream in = getClass().getResourceAsStream(fixture)) {
+            assertNotNull(in, "Could not load fixture: " + fixture);
+            return Jsoup.parse(in, "UTF-8", "https://books.toscrape.com/");
+        }
+    }
+}
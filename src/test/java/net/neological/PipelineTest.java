@@ -0,0 +1,244 @@
+package net.neological;
+
+import net.neological.webscraping.ScrapeCancelledException;
+import net.neological.webscraping.ScrapeMonitor;
+import net.neological.webscraping.catalog.BookCatalog;
+import net.neological.webscraping.pipeline.Pipeline;
+import net.neological.webscraping.pipeline.PipelineRun;
+import net.neological.webscraping.pipeline.StageStats;
+import net.neological.webscraping.specific.BookWebScraper;
+import net.neological.webscraping.specific.FredWebScraper;
+import net.neological.webscraping.stats.PriceSummary;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import static net.neological.BookFixtures.URL2_PAGE1;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the Flow-based scraping pipeline.
+ */
+@DisplayName("Pipeline Tests")
+public class PipelineTest {
+
+    @Test
+    @DisplayName("A slow sink holds back the source: buffers never overflow and seeds are read on demand")
+    public void testBackpressure() throws Exception {
+        int items = 300;
+        AtomicInteger pulled = new AtomicInteger();
+        Iterable<Integer> seeds = () -> new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return pulled.get() < items;
+            }
+
+            @Override
+            public Integer next() {
+                return pulled.incrementAndGet();
+            }
+        };
+
+        LongAdder sunk = new LongAdder();
+        int maxAhead = 0;
+        PipelineRun run = Pipeline.of(seeds)
+                .map("fetch", 4, 4, n -> n * 2)
+                .map("parse", 2, 4, n -> n + 1)
+                .start("sink", 1, 4, n -> {
+                    pause(1);
+                    sunk.increment();
+                });
+        while (!run.isDone()) {
+            for (StageStats stage : run.stats()) {
+                assertTrue(stage.queued() <= stage.capacity(), stage.toString());
+            }
+            maxAhead = Math.max(maxAhead, pulled.get() - sunk.intValue());
+            Thread.sleep(2);
+        }
+        run.await();
+
+        assertEquals(items, sunk.sum());
+        // Buffers plus items held by workers, never the whole source
+        assertTrue(maxAhead <= 4 + 4 + 4 + 4 + 2 + 1 + 2, "source ran " + maxAhead + " items ahead");
+        List<StageStats> stats = run.stats();
+        assertEquals(List.of("fetch", "parse", "sink"), stats.stream().map(StageStats::name).toList());
+        for (StageStats stage : stats) {
+            assertEquals(items, stage.processed());
+            assertEquals(0, stage.queued());
+        }
+    }
+
+    @Test
+    @DisplayName("Failed items are counted per stage while the rest go through")
+    public void testFailuresAreCounted() {
+        LongAdder sunk = new LongAdder();
+        PipelineRun run = Pipeline.of(List.of(1, 2, 3, 4, 5, 6, 7, 8, 9, 10))
+                .<Integer>then("explode", 3, 2, (n, downstream) -> {
+                    if (n % 5 == 0) {
+                        throw new IOException("bad item " + n);
+                    }
+                    downstream.accept(n);
+                    downstream.accept(n);
+                })
+                .start("sink", 1, 2, n -> sunk.increment());
+
+        IOException failure = assertThrows(IOException.class, run::await);
+        assertTrue(failure.getMessage().contains("explode"));
+        assertEquals(2, run.getFailureCount());
+        assertEquals(16, sunk.sum());
+        assertEquals(2, run.stats().get(0).errors());
+        assertEquals(16, run.stats().get(0).emitted());
+    }
+
+    @Test
+    @DisplayName("Cancelling the monitor stops a pipeline stuck behind a blocked stage")
+    public void testCancelledByMonitor() throws Exception {
+        ScrapeMonitor monitor = new ScrapeMonitor();
+        CountDownLatch started = new CountDownLatch(1);
+        PipelineRun run = Pipeline.of(List.of(1, 2, 3, 4, 5, 6, 7, 8))
+                .cancelledBy(monitor)
+                .start("sink", 1, 2, n -> {
+                    started.countDown();
+                    pause(200);
+                });
+
+        started.await();
+        monitor.cancel();
+        assertThrows(ScrapeCancelledException.class, run::await);
+        assertTrue(run.stats().get(0).processed() < 8);
+    }
+
+    @Test
+    @DisplayName("The books listing pipeline gives the same summary and catalog as the sequential crawl")
+    public void testBookListingPipeline() throws IOException {
+        BookWebScraper scraper = BookFixtures.scraper();
+        scraper.scrape(URL2_PAGE1);
+
+        PriceSummary summary = scraper.priceSummaryForGenres(List.of("Historical Fiction", "No Such Genre"));
+        assertEquals(26, summary.count());
+        assertEquals(33.64423076923077, summary.mean(), 0.0001);
+
+        BookCatalog catalog = new BookCatalog();
+        assertEquals(26, scraper.catalogGenres(List.of("Historical Fiction"), catalog));
+        assertEquals(26, catalog.size());
+
+        assertEquals(List.of("discover", "fetch", "links", "details"),
+                scraper.detailPipeline(List.of("Historical Fiction")).stageNames());
+    }
+
+    @Test
+    @DisplayName("The listing pipeline follows each genre's own pagination instead of guessing page URLs")
+    public void testListingPagination() throws IOException {
+        String home = "https://books.toscrape.com/index.html";
+        String numbered = "https://books.toscrape.com/catalogue/numbered/";
+        String linked = "https://books.toscrape.com/catalogue/linked/";
+        Map<String, String> site = new HashMap<>();
+        site.put(home, "<div class=\"side_categories\"><ul class=\"nav-list\"><li><ul>"
+                + "<li><a href=\"" + numbered + "\">Numbered</a></li>"
+                + "<li><a href=\"" + linked + "index.html\">Linked</a></li>"
+                + "</ul></li></ul></div>");
+        // Query-string pages, found from the second page's link
+        List<String> numberedPages = List.of(numbered, numbered + "?page=2", numbered + "?page=3",
+                numbered + "?page=4", numbered + "?page=5");
+        // A 2 in the second page's name that later pages do not follow
+        List<String> linkedPages = List.of(linked + "index.html", linked + "2nd.html", linked + "third.html",
+                linked + "fourth.html");
+        addListing(site, numberedPages);
+        addListing(site, linkedPages);
+
+        Map<String, Integer> fetches = new ConcurrentHashMap<>();
+        BookWebScraper scraper = new BookWebScraper("TestAgent/1.0", 5000) {
+            @Override
+            protected Document fetchDocument(String url) throws IOException {
+                fetches.merge(url, 1, Integer::sum);
+                String html = site.get(url);
+                if (html == null) {
+                    throw new IOException("No such page: " + url);
+                }
+                return Jsoup.parse(html, url);
+            }
+        };
+        scraper.scrape(home);
+
+        assertEquals(5 * 3, scraper.priceSummaryForGenres(List.of("Numbered")).count());
+        assertEquals(4 * 3, scraper.priceSummaryForGenres(List.of("Linked")).count());
+        for (String page : numberedPages) {
+            assertEquals(1, fetches.get(page), page);
+        }
+        for (String page : linkedPages) {
+            assertEquals(1, fetches.get(page), page);
+        }
+        assertEquals(1 + numberedPages.size() + linkedPages.size(), fetches.size(), fetches.toString());
+    }
+
+    @Test
+    @DisplayName("The FRED pipeline downloads every series of a search")
+    public void testFredDownloadPipeline(@TempDir Path downloads) throws Exception {
+        try (LoadTestServer server = new LoadTestServer(LoadTestServer.Config.defaults()
+                .withSize(1, 1)
+                .withFred(12, 3)
+                .withLatency(1, 1)
+                .withErrorRate(0))) {
+            FredWebScraper scraper = new FredWebScraper("TestAgent/1.0", 5000);
+            scraper.setRenderJavaScript(false);
+            scraper.overrideOrigin(LoadTestServer.FRED_ORIGIN, server.fredBase());
+            scraper.setDownloadFolder(downloads.toString());
+
+            List<Path> saved = new ArrayList<>();
+            PipelineRun run = scraper.downloadPipeline(LoadTestServer.fredSearchUrl())
+                    .start("sink", 1, 4, saved::add);
+            run.await();
+
+            assertEquals(12, saved.size());
+            for (Path csv : saved) {
+                assertEquals(4, Files.readAllLines(csv).size());
+            }
+            assertEquals(List.of(1L, 12L, 12L, 12L),
+                    run.stats().stream().map(StageStats::processed).toList());
+        }
+    }
+
+    /**
+     * Adds a genre's listing pages, three books each, linked by their pager's "next" links.
+     */
+    private static void addListing(Map<String, String> site, List<String> pages) {
+        for (int page = 1; page <= pages.size(); page++) {
+            StringBuilder html = new StringBuilder();
+            for (int book = 1; book <= 3; book++) {
+                html.append("<article class=\"product_pod\"><h3><a href=\"book-").append(page).append('-').append(book)
+                        .append(".html\" title=\"Book ").append(page).append('.').append(book)
+                        .append("\">Book</a></h3><p class=\"price_color\">£").append(page + book).append(".00</p></article>");
+            }
+            html.append("<ul class=\"pager\"><li class=\"current\">Page ").append(page).append(" of ").append(pages.size())
+                    .append("</li>");
+            if (page < pages.size()) {
+                html.append("<li class=\"next\"><a href=\"").append(pages.get(page)).append("\">next</a></li>");
+            }
+            site.put(pages.get(page - 1), html.append("</ul>").toString());
+        }
+    }
+
+    private static void pause(long millis) throws IOException {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted", e);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package net.neological;
+
+import net.neological.webscraping.specific.BookWebScraper;
+import net.neological.webscraping.stats.HyperLogLog;
+import net.neological.webscraping.stats.PriceHistogram;
+import net.neological.webscraping.stats.PriceSummary;
+import net.neological.webscraping.stats.QuantileSketch;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static net.neological.BookFixtures.URL2_PAGE1;
+import static net.neological.BookFixtures.URL2_PAGE2;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the streaming price summaries and the sketches behind them.
+ */
+@DisplayName("PriceSummary & Sketch Tests")
+public class PriceSummaryTest {
+
+    private BookWebScraper scraper;
+
+    @BeforeEach
+    public void setUp() {
+        scraper = BookFixtures.scraper();
+    }
+
+    @Test
+    @DisplayName("priceSummaryForGenre matches averagePriceForGenre and counts all titles")
+    public void testPriceSummaryForGenre_HistoricalFiction() throws IOException {
+        scraper.scrape(URL2_PAGE1);
+        PriceSummary summary = scraper.priceSummaryForGenre("Historical Fiction");
+
+        assertEquals(26, summary.count());
+        assertEquals(33.64423076923077, summary.mean(), 0.0001);
+        assertEquals(26, summary.distinctTitles());
+        assertEquals(26, summary.getHistogram().totalCount());
+        assertTrue(summary.median() >= summary.getQuantiles().min());
+        assertTrue(summary.quantile(0.9) <= summary.getQuantiles().max());
+    }
+
+    @Test
+    @DisplayName("per-page summaries merge to the genre-wide summary")
+    public void testPerPageSummariesMerge() throws IOException {
+        scraper.scrape(URL2_PAGE1);
+        PriceSummary merged = scraper.priceSummaryPerPage();
+        scraper.scrape(URL2_PAGE2);
+        merged.merge(scraper.priceSummaryPerPage());
+
+        assertEquals(26, merged.count());
+        assertEquals(33.64423076923077, merged.mean(), 0.0001);
+    }
+
+    @Test
+    @DisplayName("QuantileSketch stays within rank error and bounded memory on a large stream")
+    public void testQuantileSketchAccuracy() {
+        QuantileSketch left = new QuantileSketch();
+        QuantileSketch right = new QuantileSketch();
+        int n = 200_000;
+        for (int i = 0; i < n; i++) {
+            // Interleave so each half sees the full range
+            (i % 2 == 0 ? left : right).update(i);
+        }
+        left.merge(right);
+
+        assertEquals(n, left.count());
+        assertEquals(n * 0.5, left.quantile(0.5), n * 0.02);
+        assertEquals(n * 0.9, left.quantile(0.9), n * 0.02);
+        assertEquals(n * 0.99, left.quantile(0.99), n * 0.02);
+        assertEquals(0, left.quantile(0.0));
+        assertEquals(n - 1, left.quantile(1.0));
+    }
+
+    @Test
+    @DisplayName("HyperLogLog estimates distinct counts and ignores duplicates")
+    public void testHyperLogLog() {
+        HyperLogLog a = new HyperLogLog();
+        HyperLogLog b = new HyperLogLog();
+        for (int i = 0; i < 50_000; i++) {
+            a.add("title-" + i);
+            b.add("title-" + (i + 25_000));
+        }
+        a.merge(b);
+        assertEquals(75_000, a.estimate(), 75_000 * 0.03);
+    }
+
+    @Test
+    @DisplayName("PriceHistogram buckets values and rejects mismatched merges")
+    public void testPriceHistogram() {
+        PriceHistogram histogram = new PriceHistogram(0, 100, 10);
+        histogram.update(-1);
+        histogram.update(5);
+        histogram.update(15);
+        histogram.update(99.99);
+        histogram.update(100);
+
+        assertEquals(1, histogram.underflow());
+        assertEquals(1, histogram.overflow());
+        assertEquals(1, histogram.count(0));
+        assertEquals(1, histogram.count(1));
+        assertEquals(1, histogram.count(9));
+        assertThrows(IllegalArgumentException.class, () -> histogram.merge(new PriceHistogram(0, 50, 10)));
+    }
+}
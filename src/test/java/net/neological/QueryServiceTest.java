@@ -0,0 +1,210 @@
+package net.neological;
+
+import net.neological.webscraping.service.EndpointMetrics;
+import net.neological.webscraping.service.QueryService;
+import net.neological.webscraping.service.RefreshingCache;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the embedded query service, run against a {@link LoadTestServer} with a local client.
+ */
+@DisplayName("Query Service Tests")
+public class QueryServiceTest {
+
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @Test
+    @DisplayName("Concurrent requests for one genre share a single crawl")
+    public void testRequestCoalescing(@TempDir Path data) throws Exception {
+        try (LoadTestServer site = site(); QueryService service = service(site, data, Duration.ofMinutes(5))) {
+            assertEquals(200, get(service, "/genres").statusCode());
+            long beforeBurst = site.getRequests();
+
+            int clients = 16;
+            CountDownLatch go = new CountDownLatch(1);
+            ExecutorService pool = Executors.newFixedThreadPool(clients);
+            List<Future<HttpResponse<String>>> responses = new ArrayList<>();
+            try {
+                for (int i = 0; i < clients; i++) {
+                    responses.add(pool.submit(() -> {
+                        go.await();
+                        return get(service, "/genres/Genre%200001");
+                    }));
+                }
+                go.countDown();
+                Set<String> etags = new HashSet<>();
+                for (Future<HttpResponse<String>> response : responses) {
+                    assertEquals(200, response.get().statusCode());
+                    etags.add(response.get().headers().firstValue("ETag").orElseThrow());
+                    assertTrue(response.get().body().contains("\"books\":40"), response.get().body());
+                }
+                assertEquals(1, etags.size());
+            } finally {
+                pool.shutdownNow();
+            }
+            long burst = site.getRequests() - beforeBurst;
+
+            // The same crawl once, for a genre nobody has asked for yet
+            long beforeSingle = site.getRequests();
+            assertEquals(200, get(service, "/genres/Genre%200002").statusCode());
+            assertEquals(site.getRequests() - beforeSingle, burst);
+
+            RefreshingCache.Stats stats = service.cacheStats().get("genre-stats");
+            assertEquals(2, stats.loads());
+            assertEquals(clients + 1, stats.hits() + stats.misses());
+        }
+    }
+
+    @Test
+    @DisplayName("Responses carry ETag and Cache-Control, and a matching If-None-Match gets 304")
+    public void testConditionalRequests(@TempDir Path data) throws Exception {
+        try (LoadTestServer site = site(); QueryService service = service(site, data, Duration.ofMinutes(5))) {
+            HttpResponse<String> first = get(service, "/genres/Genre%200003/books");
+            assertEquals(200, first.statusCode());
+            assertTrue(first.body().startsWith("{\"genre\":\"Genre 0003\",\"books\":[{\"title\":"), first.body());
+            String etag = first.headers().firstValue("ETag").orElseThrow();
+            String cacheControl = first.headers().firstValue("Cache-Control").orElseThrow();
+            assertTrue(cacheControl.matches("public, max-age=(299|300), stale-while-revalidate=3600"), cacheControl);
+
+            HttpResponse<String> second = client.send(request(service, "/genres/Genre%200003/books")
+                    .header("If-None-Match", etag).build(), HttpResponse.BodyHandlers.ofString());
+            assertEquals(304, second.statusCode());
+            assertEquals("", second.body());
+            assertEquals(etag, second.headers().firstValue("ETag").orElseThrow());
+
+            assertTrue(service.getAddress().getAddress().isLoopbackAddress());
+            assertEquals(404, get(service, "/genres/No%20Such%20Genre").statusCode());
+            assertEquals(400, get(service, "/series/SER%241").statusCode());
+            assertEquals(404, get(service, "/series/..%2F..%2Fetc").statusCode());
+            assertEquals(405, client.send(request(service, "/genres").POST(HttpRequest.BodyPublishers.noBody()).build(),
+                    HttpResponse.BodyHandlers.ofString()).statusCode());
+            assertEquals(1, service.endpointMetrics().get("genre-books").notModified());
+        }
+    }
+
+    @Test
+    @DisplayName("Stale entries are served at once and refreshed in the background")
+    public void testStaleWhileRevalidate(@TempDir Path data) throws Exception {
+        try (LoadTestServer site = site(); QueryService service = service(site, data, Duration.ofMillis(200))) {
+            String fresh = get(service, "/genres").body();
+            Thread.sleep(300);
+
+            long start = System.nanoTime();
+            HttpResponse<String> stale = get(service, "/genres");
+            long staleMillis = (System.nanoTime() - start) / 1_000_000;
+            assertEquals(fresh, stale.body());
+            assertTrue(stale.headers().firstValue("Cache-Control").orElseThrow().startsWith("public, max-age=0,"));
+            // Served from cache: faster than the 20 ms the site takes per page
+            assertTrue(staleMillis < 200, staleMillis + " ms");
+
+            long deadline = System.currentTimeMillis() + 5_000;
+            while (service.cacheStats().get("genres").loads() < 2 || site.getRequests() < 2) {
+                assertTrue(System.currentTimeMillis() < deadline, "refresh did not run");
+                Thread.sleep(10);
+            }
+            RefreshingCache.Stats stats = service.cacheStats().get("genres");
+            assertEquals(1, stats.refreshes());
+            assertEquals(1, stats.staleHits());
+        }
+    }
+
+    @Test
+    @DisplayName("Series are stored in the data folder and served from there after a restart")
+    public void testSeriesStore(@TempDir Path data) throws Exception {
+        LoadTestServer site = site();
+        try (site) {
+            try (QueryService service = service(site, data, Duration.ofMinutes(5))) {
+                HttpResponse<String> csv = get(service, "/series/SER3");
+                assertEquals(200, csv.statusCode());
+                assertEquals(4, csv.body().lines().count());
+                assertTrue(csv.headers().firstValue("Content-Type").orElseThrow().startsWith("text/csv"));
+            }
+            assertTrue(Files.exists(data.resolve("SER3.csv")));
+
+            long before = site.getRequests();
+            try (QueryService restarted = service(site, data, Duration.ofMinutes(5))) {
+                assertEquals(200, get(restarted, "/series/SER3").statusCode());
+                assertEquals(before, site.getRequests());
+                assertEquals(0, restarted.cacheStats().get("series").loads());
+            }
+        }
+
+        // With the site gone the download's own failure is reported, not guessed from the folder
+        try (QueryService offline = service(site, data, Duration.ofMinutes(5))) {
+            assertEquals(502, get(offline, "/series/SER4").statusCode());
+            assertFalse(Files.exists(data.resolve("SER4.csv")));
+            assertEquals(200, get(offline, "/series/SER3").statusCode());
+        }
+    }
+
+    @Test
+    @DisplayName("The metrics endpoint reports latency per endpoint")
+    public void testMetrics(@TempDir Path data) throws Exception {
+        try (LoadTestServer site = site(); QueryService service = service(site, data, Duration.ofMinutes(5))) {
+            for (int i = 0; i < 5; i++) {
+                get(service, "/genres");
+            }
+            EndpointMetrics.Snapshot genres = service.endpointMetrics().get("genres");
+            assertEquals(5, genres.requests());
+            assertEquals(0, genres.errors());
+            assertTrue(genres.maxMillis() >= genres.p50Millis());
+
+            HttpResponse<String> metrics = get(service, "/metrics");
+            assertEquals(200, metrics.statusCode());
+            assertEquals("no-store", metrics.headers().firstValue("Cache-Control").orElseThrow());
+            assertTrue(metrics.body().startsWith("{\"endpoints\":{\"genres\":{\"requests\":5,\"errors\":0,"),
+                    metrics.body());
+            assertTrue(metrics.body().contains("\"caches\":{\"genres\":{\"entries\":1,\"hits\":4,"), metrics.body());
+        }
+    }
+
+    private static LoadTestServer site() throws IOException {
+        return new LoadTestServer(LoadTestServer.Config.defaults()
+                .withSize(3, 40)
+                .withFred(5, 3)
+                .withLatency(20, 0)
+                .withErrorRate(0));
+    }
+
+    private static QueryService service(LoadTestServer site, Path data, Duration ttl) throws IOException {
+        String booksBase = site.booksBase();
+        String fredBase = site.fredBase();
+        QueryService service = new QueryService(0, "TestAgent/1.0", data, ttl, QueryService.DEFAULT_MAX_STALE);
+        service.setScraperSetup(scraper -> {
+            scraper.setRenderJavaScript(false);
+            scraper.overrideOrigin(LoadTestServer.BOOKS_ORIGIN, booksBase);
+            scraper.overrideOrigin(LoadTestServer.FRED_ORIGIN, fredBase);
+        });
+        return service;
+    }
+
+    private HttpResponse<String> get(QueryService service, String path) throws IOException, InterruptedException {
+        return client.send(request(service, path).build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static HttpRequest.Builder request(QueryService service, String path) {
+        return HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + service.getPort() + path))
+                .timeout(Duration.ofSeconds(30));
+    }
+}
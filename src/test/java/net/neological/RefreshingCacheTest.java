@@ -0,0 +1,114 @@
+package net.neological;
+
+import net.neological.webscraping.service.RefreshingCache;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the refreshing cache's size limit and remembered failures, with loads run on the
+ * calling thread.
+ */
+@DisplayName("Refreshing Cache Tests")
+public class RefreshingCacheTest {
+
+    @Test
+    @DisplayName("The least recently used key is dropped once the cache is full")
+    public void testBounded() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        RefreshingCache<String, String> cache = new RefreshingCache<>(key -> {
+            loads.incrementAndGet();
+            return key.toUpperCase();
+        }, Runnable::run, 60_000, 60_000, 2, 30_000);
+
+        assertEquals("A", cache.get("a").value());
+        assertEquals("B", cache.get("b").value());
+        // Using a makes b the least recently used
+        cache.get("a");
+        assertEquals("C", cache.get("c").value());
+
+        assertTrue(cache.contains("a"));
+        assertFalse(cache.contains("b"));
+        assertTrue(cache.contains("c"));
+        RefreshingCache.Stats stats = cache.stats();
+        assertEquals(2, stats.entries());
+        assertEquals(1, stats.evictions());
+        assertEquals(3, loads.get());
+
+        cache.get("b");
+        assertEquals(4, loads.get());
+        assertThrows(IllegalArgumentException.class,
+                () -> new RefreshingCache<String, String>(key -> key, Runnable::run, 1, 1, 0, 1));
+    }
+
+    @Test
+    @DisplayName("A failed load is reported again without loading until it expires")
+    public void testFailureRemembered() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        AtomicBoolean down = new AtomicBoolean(true);
+        RefreshingCache<String, String> cache = new RefreshingCache<>(key -> {
+            loads.incrementAndGet();
+            if (down.get()) {
+                throw new IOException("site down");
+            }
+            return key;
+        }, Runnable::run, 60_000, 60_000, 16, 200);
+
+        assertEquals("site down", assertThrows(IOException.class, () -> cache.get("a")).getMessage());
+        assertEquals("site down", assertThrows(IOException.class, () -> cache.get("a")).getMessage());
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.stats().failureHits());
+        assertEquals(1, cache.stats().loadFailures());
+
+        down.set(false);
+        Thread.sleep(250);
+        assertEquals("a", cache.get("a").value());
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    @DisplayName("After a failed refresh the stale entry is served without refreshing on every request")
+    public void testStaleAfterFailure() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        AtomicBoolean down = new AtomicBoolean(false);
+        RefreshingCache<String, String> cache = new RefreshingCache<>(key -> {
+            loads.incrementAndGet();
+            if (down.get()) {
+                throw new IOException("site down");
+            }
+            return key;
+        }, Runnable::run, 0, 60_000, 16, 60_000);
+
+        cache.get("a");
+        down.set(true);
+        for (int i = 0; i < 5; i++) {
+            assertEquals("a", cache.get("a").value());
+        }
+        // One refresh failed; the others were suppressed
+        assertEquals(2, loads.get());
+        RefreshingCache.Stats stats = cache.stats();
+        assertEquals(5, stats.staleHits());
+        assertEquals(1, stats.refreshes());
+        assertEquals(1, stats.loadFailures());
+    }
+
+    @Test
+    @DisplayName("With no failure TTL every request after a failure loads again")
+    public void testFailuresNotRemembered() {
+        AtomicInteger loads = new AtomicInteger();
+        RefreshingCache<String, String> cache = new RefreshingCache<>(key -> {
+            loads.incrementAndGet();
+            throw new IOException("site down");
+        }, Runnable::run, 60_000, 60_000, 16, 0);
+
+        assertThrows(IOException.class, () -> cache.get("a"));
+        assertThrows(IOException.class, () -> cache.get("a"));
+        assertEquals(2, loads.get());
+        assertEquals(0, cache.stats().failureHits());
+    }
+}
@@ -0,0 +1,293 @@
+package net.neological;
+
+import net.neological.webscraping.ScrapeMonitor;
+import net.neological.webscraping.render.RemoteRenderBackend;
+import net.neological.webscraping.render.RenderBackend;
+import net.neological.webscraping.render.RenderRequest;
+import net.neological.webscraping.render.RenderWorker;
+import net.neological.webscraping.render.RenderedPage;
+import net.neological.webscraping.replay.FetchRecorder;
+import net.neological.webscraping.replay.FetchReplayer;
+import net.neological.webscraping.specific.BookWebScraper;
+import net.neological.webscraping.specific.FredWebScraper;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for rendering on remote workers. The workers render with a plain HTTP fetch standing in
+ * for Chrome, against a {@link LoadTestServer}.
+ */
+@DisplayName("Remote Rendering Tests")
+public class RemoteRenderingTest {
+
+    private final Set<String> clicked = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger localRenders = new AtomicInteger();
+
+    /** Fetches the page instead of rendering it, and notes which elements would have been clicked. */
+    private final RenderBackend standIn = (request, monitor) -> {
+        if (request.clickElementId() != null) {
+            clicked.add(request.clickElementId());
+        }
+        Document page = Jsoup.connect(request.url()).userAgent(request.userAgent()).get();
+        return new RenderedPage(page.location(), page.outerHtml());
+    };
+
+    private final RenderBackend local = (request, monitor) -> {
+        localRenders.incrementAndGet();
+        return new RenderedPage(request.url(), "<html><body>local</body></html>");
+    };
+
+    @Test
+    @DisplayName("A FRED crawl renders every page on the workers, spread over both")
+    public void testFredCrawlOnWorkers(@TempDir Path downloads) throws Exception {
+        try (LoadTestServer site = new LoadTestServer(LoadTestServer.Config.defaults()
+                .withSize(1, 1)
+                .withFred(12, 2)
+                .withLatency(5, 0)
+                .withErrorRate(0));
+             RenderWorker first = new RenderWorker(0, standIn, 2);
+             RenderWorker second = new RenderWorker(0, standIn, 2);
+             RemoteRenderBackend backend = new RemoteRenderBackend(List.of(uri(first), uri(second)), local)) {
+            FredWebScraper scraper = new FredWebScraper("TestAgent/1.0", 5000);
+            scraper.setMaxConcurrency(4);
+            scraper.overrideOrigin(LoadTestServer.FRED_ORIGIN, site.fredBase());
+            scraper.setDownloadFolder(downloads.toString());
+            scraper.setRenderBackend(backend);
+            scraper.scrape(LoadTestServer.fredSearchUrl());
+
+            try (Stream<Path> files = Files.list(downloads)) {
+                assertEquals(12, files.filter(file -> file.toString().endsWith(".csv")).count());
+            }
+            // The search page plus one page per series
+            assertEquals(13, first.getRenders() + second.getRenders());
+            assertTrue(first.getRenders() > 0 && second.getRenders() > 0,
+                    first.getRenders() + " / " + second.getRenders());
+            assertEquals(Set.of("download-button"), clicked);
+            assertEquals(0, backend.getLocalFallbacks());
+            assertEquals(0, localRenders.get());
+        }
+    }
+
+    @Test
+    @DisplayName("A redirected page is parsed against where the browser ended up, live and when replayed")
+    public void testRedirectedPage(@TempDir Path dir) throws Exception {
+        // The browser lands on another genre, seen through the overridden origin
+        RenderBackend redirected = (request, monitor) -> new RenderedPage(
+                request.url().replace("philosophy_7", "philosophy_8"),
+                "<html><body><a href=\"page-2.html\">next</a></body></html>");
+        String next = "https://books.toscrape.com/catalogue/category/books/philosophy_8/page-2.html";
+        Path archive = dir.resolve("redirect.farc");
+        try (RenderWorker worker = new RenderWorker(0, redirected, 2);
+             RemoteRenderBackend backend = new RemoteRenderBackend(List.of(uri(worker)), local);
+             FetchRecorder recorder = new FetchRecorder(archive)) {
+            LinkScraper live = new LinkScraper();
+            live.overrideOrigin("https://books.toscrape.com", "http://example.invalid/books");
+            live.setRenderBackend(backend);
+            live.setRecorder(recorder);
+            live.scrape(BookFixtures.URL1);
+            assertEquals(next, live.firstLink());
+        }
+
+        LinkScraper offline = new LinkScraper();
+        offline.setReplayer(FetchReplayer.load(archive));
+        offline.scrape(BookFixtures.URL1);
+        assertEquals(next, offline.firstLink());
+    }
+
+    @Test
+    @DisplayName("Unreachable workers are skipped, rendering falls back locally, and recovered workers are used again")
+    public void testHealthAndFallback() throws Exception {
+        try (LoadTestServer site = new LoadTestServer(LoadTestServer.Config.defaults().withLatency(0, 0).withErrorRate(0))) {
+            RenderRequest page = RenderRequest.page(site.fredBase() + "/searchresults/?st=load", "TestAgent/1.0", 5000);
+            RenderWorker down = new RenderWorker(0, standIn, 2);
+            int port = down.getPort();
+            down.close();
+
+            RenderWorker up = new RenderWorker(0, standIn, 2);
+            try (RemoteRenderBackend backend = new RemoteRenderBackend(List.of(uri(port), uri(up)), local)) {
+                try (up) {
+                    for (int i = 0; i < 4; i++) {
+                        assertTrue(backend.render(page, new ScrapeMonitor()).html().contains("/series/SER1"));
+                    }
+                    assertEquals(4, up.getRenders());
+                    assertFalse(backend.workers().get(0).healthy());
+                    assertTrue(backend.workers().get(1).healthy());
+                }
+
+                // No worker can be reached now
+                assertEquals("<html><body>local</body></html>", backend.render(page, new ScrapeMonitor()).html());
+                assertEquals(1, backend.getLocalFallbacks());
+
+                try (RenderWorker restarted = new RenderWorker(port, standIn, 2)) {
+                    backend.checkHealth();
+                    assertTrue(backend.workers().get(0).healthy());
+                    assertTrue(backend.render(page, new ScrapeMonitor()).html().contains("/series/SER1"));
+                    assertEquals(1, restarted.getRenders());
+                    assertEquals(1, localRenders.get());
+                }
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("A worker at capacity turns renders away, and the client waits for it instead of rendering locally")
+    public void testCapacity() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        RenderBackend slow = (request, monitor) -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return new RenderedPage(request.url(), "<html></html>");
+        };
+        try (RenderWorker worker = new RenderWorker(0, slow, 1);
+             RemoteRenderBackend backend = new RemoteRenderBackend(List.of(uri(worker)), local)) {
+            RenderRequest page = RenderRequest.page("http://example.invalid/", "TestAgent/1.0", 5000);
+            CompletableFuture<String> busy = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return backend.render(page, new ScrapeMonitor()).html();
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+
+            HttpResponse<String> direct = HttpClient.newHttpClient().send(
+                    HttpRequest.newBuilder(uri(worker).resolve("render"))
+                            .POST(HttpRequest.BodyPublishers.ofString(page.toForm())).build(),
+                    HttpResponse.BodyHandlers.ofString());
+            assertEquals(503, direct.statusCode());
+            // The only worker is busy, so this render waits for it; the worker stays healthy
+            CompletableFuture<String> waiting = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return backend.render(page, new ScrapeMonitor()).html();
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (backend.getCapacityWaits() < 2) {
+                assertTrue(System.nanoTime() < deadline, "render did not wait");
+                Thread.sleep(10);
+            }
+            assertFalse(waiting.isDone());
+            assertTrue(backend.workers().get(0).healthy());
+
+            release.countDown();
+            assertEquals("<html></html>", busy.get());
+            assertEquals("<html></html>", waiting.get(5, TimeUnit.SECONDS));
+            assertEquals(0, backend.getLocalFallbacks());
+            assertEquals(0, localRenders.get());
+            assertTrue(worker.getRejected() >= 3, String.valueOf(worker.getRejected()));
+        }
+    }
+
+    @Test
+    @DisplayName("Renders give up once every worker has stayed busy for the page timeout")
+    public void testCapacityTimeout() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        RenderBackend slow = (request, monitor) -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return new RenderedPage(request.url(), "<html></html>");
+        };
+        try (RenderWorker worker = new RenderWorker(0, slow, 1);
+             RemoteRenderBackend backend = new RemoteRenderBackend(List.of(uri(worker)), local)) {
+            RenderRequest page = RenderRequest.page("http://example.invalid/", "TestAgent/1.0", 300);
+            CompletableFuture<String> busy = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return backend.render(page, new ScrapeMonitor()).html();
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+
+            IOException e = assertThrows(IOException.class, () -> backend.render(page, new ScrapeMonitor()));
+            assertTrue(e.getMessage().contains("capacity"), e.getMessage());
+            assertEquals(0, localRenders.get());
+            release.countDown();
+            busy.get(5, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    @DisplayName("A request the worker refuses fails without marking the worker down or rendering locally")
+    public void testRefusedRequest() throws Exception {
+        try (RenderWorker worker = new RenderWorker(0, standIn, 2);
+             RemoteRenderBackend backend = new RemoteRenderBackend(List.of(uri(worker)), local)) {
+            RenderRequest page = RenderRequest.page("file:///etc/passwd", "TestAgent/1.0", 5000);
+            IOException e = assertThrows(IOException.class, () -> backend.render(page, new ScrapeMonitor()));
+            assertTrue(e.getMessage().contains("refused"), e.getMessage());
+            assertTrue(backend.workers().get(0).healthy());
+            assertEquals(0, backend.workers().get(0).failures());
+            assertEquals(0, localRenders.get());
+        }
+    }
+
+    @Test
+    @DisplayName("Workers listen on loopback and refuse to render anything but http and https pages")
+    public void testWorkerExposure() throws Exception {
+        try (RenderWorker worker = new RenderWorker(0, standIn, 2)) {
+            assertTrue(worker.getAddress().getAddress().isLoopbackAddress());
+            for (String url : List.of("file:///etc/passwd", "FILE:///etc/hosts", "jar:file:/app.jar!/", "ftp://example.invalid/", "http:/no-host")) {
+                HttpResponse<String> response = HttpClient.newHttpClient().send(
+                        HttpRequest.newBuilder(uri(worker).resolve("render"))
+                                .POST(HttpRequest.BodyPublishers.ofString(
+                                        RenderRequest.page(url, "TestAgent/1.0", 5000).toForm())).build(),
+                        HttpResponse.BodyHandlers.ofString());
+                assertEquals(400, response.statusCode(), url);
+            }
+            assertEquals(0, worker.getRenders());
+        }
+    }
+
+    private static URI uri(RenderWorker worker) {
+        return uri(worker.getPort());
+    }
+
+    /** Renders in the browser and reports the first link on the page. */
+    private static final class LinkScraper extends BookWebScraper {
+        LinkScraper() {
+            super("TestAgent/1.0", 5000);
+            setRenderJavaScript(true);
+        }
+
+        String firstLink() {
+            return document.selectFirst("a[href]").absUrl("href");
+        }
+    }
+
+    private static URI uri(int port) {
+        return URI.create("http://127.0.0.1:" + port + "/");
+    }
+}
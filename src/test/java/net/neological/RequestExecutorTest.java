@@ -0,0 +1,109 @@
+package net.neological;
+
+import net.neological.webscraping.RequestExecutor;
+import net.neological.webscraping.RequestPolicy;
+import net.neological.webscraping.ScrapeMonitor;
+import net.neological.webscraping.specific.BookWebScraper;
+import org.jsoup.HttpStatusException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static net.neological.BookFixtures.URL1;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for retries, error classification and hedging of page fetches.
+ */
+@DisplayName("RequestExecutor Tests")
+public class RequestExecutorTest {
+
+    private static final RequestPolicy FAST_RETRIES = new RequestPolicy(3, 2, 10, false, 0.95, 50);
+
+    @Test
+    @DisplayName("Transient failures are retried until an attempt succeeds")
+    public void testRetriesTransientFailures() throws IOException {
+        RequestExecutor executor = new RequestExecutor(FAST_RETRIES);
+        AtomicInteger calls = new AtomicInteger();
+
+        String result = executor.execute(() -> {
+            if (calls.incrementAndGet() < 3) {
+                throw new SocketTimeoutException("Read timed out");
+            }
+            return "ok";
+        }, new ScrapeMonitor());
+
+        assertEquals("ok", result);
+        assertEquals(2, executor.getRetryCount());
+        assertEquals(3, executor.getAttemptCount());
+    }
+
+    @Test
+    @DisplayName("Fatal failures (HTTP 404) are not retried, server errors are")
+    public void testClassification() {
+        RequestExecutor executor = new RequestExecutor(FAST_RETRIES);
+        AtomicInteger calls = new AtomicInteger();
+
+        assertThrows(HttpStatusException.class, () -> executor.execute(() -> {
+            calls.incrementAndGet();
+            throw new HttpStatusException("Not found", 404, URL1);
+        }, new ScrapeMonitor()));
+        assertEquals(1, calls.get());
+        assertEquals(0, executor.getRetryCount());
+
+        assertTrue(RequestExecutor.isRetryable(new HttpStatusException("Unavailable", 503, URL1)));
+        assertTrue(RequestExecutor.isRetryable(new HttpStatusException("Too many requests", 429, URL1)));
+        assertFalse(RequestExecutor.isRetryable(new HttpStatusException("Forbidden", 403, URL1)));
+    }
+
+    @Test
+    @DisplayName("A slow request is hedged and the faster duplicate wins")
+    public void testHedgingTakesFirstAnswer() throws IOException {
+        RequestExecutor executor = new RequestExecutor(FAST_RETRIES.withHedging(true));
+        AtomicInteger calls = new AtomicInteger();
+
+        long start = System.nanoTime();
+        String result = executor.execute(() -> {
+            if (calls.incrementAndGet() == 1) {
+                try {
+                    Thread.sleep(5_000);
+                } catch (InterruptedException e) {
+                    throw new IOException("interrupted");
+                }
+                return "slow";
+            }
+            return "fast";
+        }, new ScrapeMonitor());
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertEquals("fast", result);
+        assertEquals(1, executor.getHedgeCount());
+        assertEquals(1, executor.getHedgeWinCount());
+        assertTrue(elapsedMillis < 2_000, "Hedge should answer long before the slow request: " + elapsedMillis + " ms");
+    }
+
+    @Test
+    @DisplayName("A page fetch that fails once is retried instead of aborting the scrape")
+    public void testScraperRetriesPageFetch() throws IOException {
+        AtomicInteger fetches = new AtomicInteger();
+        BookWebScraper scraper = new BookWebScraper("TestAgent/1.0", 5000) {
+            @Override
+            protected String fetchPlain(String url) throws IOException {
+                if (fetches.incrementAndGet() == 1) {
+                    throw new IOException("Connection reset");
+                }
+                return BookFixtures.html(url);
+            }
+        };
+        scraper.setRenderJavaScript(false);
+        scraper.getRequestExecutor().setPolicy(FAST_RETRIES);
+
+        scraper.scrape(URL1);
+        assertEquals(11, scraper.countEntriesPerPage());
+        assertEquals(1, scraper.getRequestExecutor().getRetryCount());
+        assertEquals(0, scraper.getMonitor().getErrors());
+    }
+}
@@ -0,0 +1,66 @@
+package net.neological;
+
+import net.neological.webscraping.events.ScrapeEvent;
+import net.neological.webscraping.events.ScrapeEventBus;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for asynchronous scrape event delivery.
+ */
+@DisplayName("ScrapeEventBus Tests")
+public class ScrapeEventBusTest {
+
+    @Test
+    @DisplayName("events reach every listener in publication order off the publishing thread")
+    public void testDeliveryOrder() throws InterruptedException {
+        ScrapeEventBus bus = new ScrapeEventBus(1_000);
+        List<String> received = new CopyOnWriteArrayList<>();
+        List<Thread> threads = new CopyOnWriteArrayList<>();
+        CountDownLatch done = new CountDownLatch(1);
+        bus.subscribe(event -> {
+            received.add(event.url());
+            threads.add(Thread.currentThread());
+            if (event instanceof ScrapeEvent.FetchCompleted) {
+                done.countDown();
+            }
+        });
+
+        bus.publish(new ScrapeEvent.FetchStarted("https://a"));
+        bus.publish(new ScrapeEvent.ItemExtracted("https://b", "item"));
+        bus.publish(new ScrapeEvent.FetchCompleted("https://c", 10, 1_000));
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of("https://a", "https://b", "https://c"), received);
+        assertTrue(threads.stream().noneMatch(t -> t == Thread.currentThread()));
+    }
+
+    @Test
+    @DisplayName("a slow listener never blocks publishers; overflow is dropped and counted")
+    public void testOverflowIsDropped() throws InterruptedException {
+        ScrapeEventBus bus = new ScrapeEventBus(10);
+        CountDownLatch release = new CountDownLatch(1);
+        bus.subscribe(event -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        for (int i = 0; i < 100; i++) {
+            bus.publish(new ScrapeEvent.Failure("https://x/" + i, "boom", null));
+        }
+        assertTrue(bus.getDroppedCount() >= 89);
+
+        release.countDown();
+        assertTrue(bus.awaitDrained(5_000));
+    }
+}
@@ -0,0 +1,96 @@
+package net.neological;
+
+import net.neological.webscraping.Deadline;
+import net.neological.webscraping.DeadlineExceededException;
+import net.neological.webscraping.ScrapeCancelledException;
+import net.neological.webscraping.ScrapeMonitor;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for a job's cancel hooks, deadline alarm and progress estimate.
+ */
+@DisplayName("ScrapeMonitor Tests")
+public class ScrapeMonitorTest {
+
+    @Test
+    @DisplayName("Cancelling runs each registered hook once and skips unregistered ones")
+    public void testCancelHooks() {
+        ScrapeMonitor monitor = new ScrapeMonitor();
+        AtomicInteger first = new AtomicInteger();
+        AtomicInteger second = new AtomicInteger();
+        AtomicInteger finished = new AtomicInteger();
+        monitor.registerCancelHook(first::incrementAndGet);
+        // A failing hook does not stop the others
+        monitor.registerCancelHook(() -> {
+            throw new IllegalStateException("already closed");
+        });
+        monitor.registerCancelHook(second::incrementAndGet);
+        monitor.unregisterCancelHook(monitor.registerCancelHook(finished::incrementAndGet));
+
+        monitor.cancel();
+        monitor.cancel();
+        assertEquals(1, first.get());
+        assertEquals(1, second.get());
+        assertEquals(0, finished.get());
+        assertTrue(monitor.isCancelRequested());
+        assertThrows(ScrapeCancelledException.class, monitor::checkCancelled);
+
+        AtomicInteger late = new AtomicInteger();
+        monitor.registerCancelHook(late::incrementAndGet);
+        assertEquals(1, late.get(), "a hook registered after the cancel runs at once");
+    }
+
+    @Test
+    @DisplayName("An expired deadline runs the hooks without marking the job cancelled")
+    public void testDeadlineHooks() throws Exception {
+        ScrapeMonitor monitor = new ScrapeMonitor();
+        CountDownLatch aborted = new CountDownLatch(1);
+        monitor.registerCancelHook(aborted::countDown);
+        monitor.setDeadline(Deadline.in(Duration.ofMillis(50)));
+
+        assertTrue(aborted.await(5, TimeUnit.SECONDS));
+        assertTrue(monitor.isCancelled());
+        assertTrue(monitor.isDeadlineExpired());
+        assertFalse(monitor.isCancelRequested());
+        assertThrows(DeadlineExceededException.class, monitor::checkCancelled);
+
+        // A new deadline makes the monitor usable again
+        monitor.setDeadline(Deadline.none());
+        assertFalse(monitor.isCancelled());
+        monitor.checkCancelled();
+    }
+
+    @Test
+    @DisplayName("The ETA is unknown until pages are expected and fetched, and tracks the fetch rate")
+    public void testEta() throws Exception {
+        long start = System.nanoTime();
+        ScrapeMonitor monitor = new ScrapeMonitor();
+        assertEquals(-1, monitor.getEtaSeconds());
+
+        monitor.expectMorePages(100);
+        assertEquals(-1, monitor.getEtaSeconds(), "no rate before the first page");
+
+        Thread.sleep(200);
+        for (int i = 0; i < 50; i++) {
+            monitor.recordPage(1_000);
+        }
+        // Half the pages took the elapsed time so far, so the other half needs about as long
+        long eta = monitor.getEtaSeconds();
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        assertTrue(eta >= 0 && eta <= Math.ceil(elapsed), "eta " + eta + " after " + elapsed + " s");
+        assertEquals(50_000, monitor.getBytesDownloaded());
+
+        for (int i = 0; i < 50; i++) {
+            monitor.recordPage(1_000);
+        }
+        assertEquals(-1, monitor.getEtaSeconds(), "nothing left to fetch");
+    }
+}
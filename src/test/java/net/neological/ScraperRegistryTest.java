@@ -0,0 +1,67 @@
+package net.neological;
+
+import net.neological.webscraping.FileDownloader;
+import net.neological.webscraping.ScraperProvider;
+import net.neological.webscraping.ScraperRegistry;
+import net.neological.webscraping.SeriesDownloader;
+import net.neological.webscraping.WebScraper;
+import net.neological.webscraping.export.ResultExporter;
+import net.neological.webscraping.specific.BookWebScraper;
+import net.neological.webscraping.specific.GenreScraper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ServiceLoader discovery of scraper providers.
+ */
+@DisplayName("ScraperRegistry Tests")
+public class ScraperRegistryTest {
+
+    @Test
+    @DisplayName("Both bundled providers are discovered and looked up case-insensitively")
+    public void testDiscovery() {
+        assertTrue(ScraperRegistry.names().containsAll(List.of("FRED", "BOOKS")));
+        assertTrue(ScraperRegistry.find("books").isPresent());
+        assertFalse(ScraperRegistry.find("nope").isPresent());
+    }
+
+    @Test
+    @DisplayName("URLs are routed to the matching provider, which configures the scraper it creates")
+    public void testForUrlAndCreate() {
+        ScraperProvider provider = ScraperRegistry
+                .forUrl("https://books.toscrape.com/catalogue/category/books/philosophy_7/index.html")
+                .orElseThrow();
+        assertEquals("BOOKS", provider.name());
+
+        WebScraper scraper = ScraperRegistry.create(provider, "TestAgent/1.0", 5000);
+        assertInstanceOf(BookWebScraper.class, scraper);
+        assertEquals(provider.requiresJavaScript(), scraper.isRenderJavaScript());
+        assertEquals(provider.preferredConcurrency(), scraper.getMaxConcurrency());
+        // Covers are only downloaded when asked for, so a books scrape needs no download folder
+        assertFalse(provider.downloadsFiles());
+        assertFalse(((BookWebScraper) scraper).isDownloadCovers());
+    }
+
+    @Test
+    @DisplayName("Each provider's capability flags match the interfaces its scraper implements")
+    public void testCapabilities() {
+        for (ScraperProvider provider : ScraperRegistry.all()) {
+            WebScraper scraper = ScraperRegistry.create(provider, "TestAgent/1.0", 5000);
+            if (provider.downloadsFiles()) {
+                assertInstanceOf(FileDownloader.class, scraper, provider.name());
+            }
+            assertEquals(provider.downloadsSeries(), scraper instanceof SeriesDownloader, provider.name());
+            assertEquals(provider.supportsExport(), scraper instanceof ResultExporter, provider.name());
+            assertEquals(provider.supportsGenres(), scraper instanceof GenreScraper, provider.name());
+        }
+        ScraperProvider fred = ScraperRegistry.find("FRED").orElseThrow();
+        assertTrue(fred.downloadsSeries());
+        assertTrue(fred.supportsExport());
+        assertFalse(fred.supportsGenres());
+        assertTrue(ScraperRegistry.find("BOOKS").orElseThrow().supportsGenres());
+    }
+}
@@ -0,0 +1,220 @@
+package net.neological;
+
+import net.neological.webscraping.frontier.UrlCanonicalizer;
+import net.neological.webscraping.frontier.UrlSeenFilter;
+import net.neological.webscraping.specific.BookDetails;
+import net.neological.webscraping.specific.BookWebScraper;
+import net.neological.webscraping.specific.FredWebScraper;
+import net.neological.webscraping.stats.ScalableBloomFilter;
+import net.neological.webscraping.storage.DownloadStore;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for URL canonicalization and the seen-URL filter.
+ */
+@DisplayName("URL Seen Filter Tests")
+public class UrlSeenFilterTest {
+
+    @Test
+    @DisplayName("Cosmetically different URLs canonicalize to the same form")
+    public void testCanonicalize() {
+        assertEquals("https://fred.stlouisfed.org/series/GDP?a=2&b=1",
+                UrlCanonicalizer.canonicalize("HTTPS://Fred.StLouisFed.org:443/series/./GDP?b=1&a=2#chart"));
+        assertEquals("http://example.com/",
+                UrlCanonicalizer.canonicalize("http://EXAMPLE.com:80"));
+        assertEquals("http://example.com:8080/a/C?x=%2F",
+                UrlCanonicalizer.canonicalize(" http://example.com:8080/a/b/../C?x=%2F "));
+        // Path case is significant
+        assertNotEquals(UrlCanonicalizer.canonicalize("https://example.com/GDP"),
+                UrlCanonicalizer.canonicalize("https://example.com/gdp"));
+        assertEquals("not a url", UrlCanonicalizer.canonicalize("not a url"));
+    }
+
+    @Test
+    @DisplayName("The Bloom filter grows past its initial size and keeps its false-positive bound")
+    public void testBloomFilterFalsePositiveRate() {
+        ScalableBloomFilter filter = new ScalableBloomFilter(10_000, 0.01);
+        int rejected = 0;
+        for (long i = 0; i < 100_000; i++) {
+            if (!filter.add(mix(i))) {
+                rejected++;
+            }
+        }
+        // add() turns away the odd new item the filter already matches
+        assertTrue(rejected < 2_000, rejected + " items rejected");
+        assertEquals(100_000 - rejected, filter.count());
+        assertTrue(filter.layerCount() > 1);
+
+        int falsePositives = 0;
+        int probes = 100_000;
+        for (long i = 0; i < probes; i++) {
+            assertTrue(filter.mightContain(mix(i)));
+            if (filter.mightContain(mix(1_000_000 + i))) {
+                falsePositives++;
+            }
+        }
+        double rate = (double) falsePositives / probes;
+        assertTrue(rate < 0.02, "false-positive rate " + rate);
+        assertTrue(filter.expectedFalsePositiveRate() < 0.02);
+    }
+
+    @Test
+    @DisplayName("The exact store resolves Bloom filter false positives")
+    public void testExactStoreResolvesFalsePositives(@TempDir Path directory) throws Exception {
+        // A deliberately poor filter, so collisions are certain
+        try (UrlSeenFilter seen = UrlSeenFilter.open(directory, 100, 0.3)) {
+            for (int i = 0; i < 5_000; i++) {
+                assertTrue(seen.add(seriesUrl(i)), "series " + i + " wrongly reported as seen");
+            }
+            for (int i = 0; i < 5_000; i++) {
+                assertFalse(seen.add(seriesUrl(i) + "#again"));
+            }
+            UrlSeenFilter.Stats stats = seen.stats();
+            assertEquals(5_000, stats.urls());
+            assertTrue(stats.falsePositives() > 0);
+            assertTrue(stats.exact());
+            assertTrue(stats.exactMemoryBytes() >= 5_000 * Long.BYTES, stats.toString());
+        }
+    }
+
+    @Test
+    @DisplayName("Lookups in the exact store are answered from memory, not the bucket files")
+    public void testExactLookupsInMemory(@TempDir Path directory) throws Exception {
+        try (UrlSeenFilter seen = UrlSeenFilter.open(directory, 100, 0.3)) {
+            for (int i = 0; i < 3_000; i++) {
+                seen.add(seriesUrl(i));
+            }
+            seen.save();
+            try (Stream<Path> buckets = Files.list(directory.resolve("seen-urls"))) {
+                for (Path bucket : buckets.toList()) {
+                    Files.delete(bucket);
+                }
+            }
+            for (int i = 0; i < 3_000; i++) {
+                assertTrue(seen.contains(seriesUrl(i)), "series " + i);
+            }
+            assertFalse(seen.contains(seriesUrl(3_000)));
+        }
+    }
+
+    @Test
+    @DisplayName("A saved filter remembers its URLs in the next run")
+    public void testPersistence(@TempDir Path directory) throws Exception {
+        try (UrlSeenFilter seen = UrlSeenFilter.open(directory, 1_000, 1e-6)) {
+            for (int i = 0; i < 3_000; i++) {
+                seen.add(seriesUrl(i));
+            }
+        }
+        assertTrue(Files.exists(directory.resolve("seen-urls.bloom")));
+
+        try (UrlSeenFilter seen = UrlSeenFilter.open(directory, 1_000, 1e-6)) {
+            assertEquals(3_000, seen.stats().urls());
+            assertTrue(seen.contains(seriesUrl(42)));
+            assertFalse(seen.add(seriesUrl(2_999)));
+            assertTrue(seen.add(seriesUrl(3_000)));
+        }
+    }
+
+    @Test
+    @DisplayName("The in-memory filter needs far less memory than the URLs themselves")
+    public void testMemoryUse() {
+        UrlSeenFilter seen = UrlSeenFilter.inMemory(100_000, 1e-6);
+        long urlBytes = 0;
+        for (int i = 0; i < 100_000; i++) {
+            String url = seriesUrl(i);
+            urlBytes += url.length();
+            assertTrue(seen.add(url));
+        }
+        UrlSeenFilter.Stats stats = seen.stats();
+        assertEquals(1, stats.layers());
+        // About 29 bits per URL against 40-odd bytes of text, before any HashSet overhead
+        assertTrue(stats.memoryBytes() * 8 < urlBytes, stats.toString());
+        assertThrows(IllegalStateException.class, seen::save);
+    }
+
+    @Test
+    @DisplayName("The FRED scraper skips series recorded as seen by an earlier run")
+    public void testFredSkipsSeenSeries(@TempDir Path downloads) throws Exception {
+        try (LoadTestServer server = new LoadTestServer(LoadTestServer.Config.defaults()
+                .withSize(1, 1)
+                .withFred(10, 2)
+                .withLatency(1, 1)
+                .withErrorRate(0))) {
+            UrlSeenFilter seen = UrlSeenFilter.inMemory(1_000, 1e-6);
+            seen.add("https://fred.stlouisfed.org/series/SER1");
+            seen.add("https://FRED.stlouisfed.org/series/SER2#chart");
+
+            FredWebScraper scraper = new FredWebScraper("TestAgent/1.0", 5000);
+            scraper.setRenderJavaScript(false);
+            scraper.overrideOrigin(LoadTestServer.FRED_ORIGIN, server.fredBase());
+            scraper.setDownloadFolder(downloads.toString());
+            scraper.setSeenUrls(seen);
+            scraper.scrape(LoadTestServer.fredSearchUrl());
+
+            List<String> files = new ArrayList<>();
+            try (var listing = Files.list(downloads)) {
+                listing.filter(file -> !file.endsWith(DownloadStore.MANIFEST_FILE))
+                        .forEach(file -> files.add(file.getFileName().toString()));
+            }
+            assertEquals(8, files.size());
+            assertFalse(files.contains("SER1.csv"));
+            assertFalse(files.contains("SER2.csv"));
+            assertEquals(10, seen.stats().urls());
+        }
+    }
+
+    @Test
+    @DisplayName("The book scraper skips detail pages enriched by an earlier run")
+    public void testBooksSkipSeenDetails(@TempDir Path directory) throws Exception {
+        try (LoadTestServer server = new LoadTestServer(LoadTestServer.Config.defaults()
+                .withSize(2, 30)
+                .withLatency(0, 0)
+                .withErrorRate(0))) {
+            try (UrlSeenFilter seen = UrlSeenFilter.open(directory, 1_000, 1e-6)) {
+                BookWebScraper scraper = bookScraper(server, seen);
+                List<BookDetails> details = new CopyOnWriteArrayList<>();
+                assertEquals(30, scraper.enrichGenre(LoadTestServer.genreName(1), details::add));
+                assertEquals(30, seen.stats().urls());
+            }
+
+            try (UrlSeenFilter seen = UrlSeenFilter.open(directory, 1_000, 1e-6)) {
+                BookWebScraper scraper = bookScraper(server, seen);
+                List<BookDetails> details = new CopyOnWriteArrayList<>();
+                assertEquals(0, scraper.enrichGenre(LoadTestServer.genreName(1), details::add));
+                assertEquals(30, scraper.enrichGenre(LoadTestServer.genreName(2), details::add));
+                assertEquals(60, seen.stats().urls());
+            }
+        }
+    }
+
+    private static BookWebScraper bookScraper(LoadTestServer server, UrlSeenFilter seen) throws Exception {
+        BookWebScraper scraper = new BookWebScraper("TestAgent/1.0", 5000);
+        scraper.setRenderJavaScript(false);
+        scraper.overrideOrigin(LoadTestServer.BOOKS_ORIGIN, server.booksBase());
+        scraper.scrape(LoadTestServer.booksHomeUrl());
+        scraper.setSeenUrls(seen);
+        return scraper;
+    }
+
+    private static String seriesUrl(int i) {
+        return "https://fred.stlouisfed.org/series/SERIES" + i + "?utm_source=test";
+    }
+
+    private static long mix(long value) {
+        long z = value * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}